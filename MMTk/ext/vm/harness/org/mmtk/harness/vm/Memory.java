@@ -122,6 +122,12 @@ public class Memory extends org.mmtk.vm.Memory {
     return -1;
   }
 
+  /** {@inheritDoc} */
+  @Override
+  public boolean munmap(Address start, int size) {
+    return SimulatedMemory.unmap(start, size);
+  }
+
   /** {@inheritDoc} */
   @Override
   public boolean mprotect(Address start, int size) {
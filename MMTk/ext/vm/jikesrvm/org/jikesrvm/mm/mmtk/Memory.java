@@ -172,6 +172,11 @@ import org.vmmagic.unboxed.Offset;
     return result.toInt();
   }
 
+  @Override
+  public final boolean munmap(Address start, int size) {
+    return org.jikesrvm.runtime.Memory.munmap(start, Extent.fromIntZeroExtend(size));
+  }
+
   @Override
   public final boolean mprotect(Address start, int size) {
     return org.jikesrvm.runtime.Memory.mprotect(start, Extent.fromIntZeroExtend(size),
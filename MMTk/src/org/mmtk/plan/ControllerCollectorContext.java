@@ -15,6 +15,7 @@ package org.mmtk.plan;
 import org.mmtk.utility.Log;
 import org.mmtk.utility.heap.HeapGrowthManager;
 import org.mmtk.utility.options.Options;
+import org.mmtk.utility.statistics.GCEventLog;
 import org.mmtk.vm.Monitor;
 import org.mmtk.vm.VM;
 
@@ -30,7 +31,7 @@ public class ControllerCollectorContext extends CollectorContext {
   private final ParallelCollectorGroup workers;
 
   /** Flag used to control the 'race to request' */
-  private boolean requestFlag;
+  private volatile boolean requestFlag;
 
   /** The current request index */
   private int requestCount;
@@ -84,6 +85,9 @@ public class ControllerCollectorContext extends CollectorContext {
       // Stop all mutator threads
       if (Options.verbose.getValue() >= 5) Log.writeln("[STWController: Stopping the world...]");
       VM.collection.stopAllMutators();
+      HeapGrowthManager.recordGCStart();
+      Plan plan = VM.activePlan.global();
+      GCEventLog.startPause(startTime, plan.getPagesReserved(), plan.getMaturePagesReserved());
 
       // Was this user triggered?
       boolean userTriggeredCollection = Plan.isUserTriggeredCollection();
@@ -102,7 +106,8 @@ public class ControllerCollectorContext extends CollectorContext {
 
       // Heap growth logic
       long elapsedTime = VM.statistics.nanoTime() - startTime;
-      HeapGrowthManager.recordGCTime(VM.statistics.nanosToMillis(elapsedTime));
+      double pause = VM.statistics.nanosToMillis(elapsedTime);
+      HeapGrowthManager.recordGCTime(pause);
       if (VM.activePlan.global().lastCollectionFullHeap() && !internalTriggeredCollection) {
         if (Options.variableSizeHeap.getValue() && !userTriggeredCollection) {
           // Don't consider changing the heap size if the application triggered the collection
@@ -110,20 +115,36 @@ public class ControllerCollectorContext extends CollectorContext {
           HeapGrowthManager.considerHeapSize();
         }
         HeapGrowthManager.reset();
+      } else if (!VM.activePlan.global().lastCollectionFullHeap() && Options.variableSizeHeap.getValue()) {
+        HeapGrowthManager.considerNurserySize(pause);
       }
 
       // Reset the triggering information.
       Plan.resetCollectionTrigger();
+      int cause = Plan.isEmergencyCollection() ? GCEventLog.CAUSE_EMERGENCY :
+                  userTriggeredCollection ? GCEventLog.CAUSE_USER :
+                  internalTriggeredCollection ? GCEventLog.CAUSE_INTERNAL :
+                  GCEventLog.CAUSE_ALLOCATION;
+      boolean fullHeap = plan.lastCollectionFullHeap();
+      int pagesReserved = plan.getPagesReserved();
+      int maturePagesReserved = plan.getMaturePagesReserved();
 
       // Resume all mutators
       if (Options.verbose.getValue() >= 5) Log.writeln("[STWController: Resuming mutators...]");
       VM.collection.resumeAllMutators();
+      GCEventLog.endPause(VM.statistics.nanoTime(), cause, fullHeap, pagesReserved, maturePagesReserved);
 
       // Start threads that will perform concurrent collection work alongside mutators.
       if (concurrentCollection) {
         if (Options.verbose.getValue() >= 5) Log.writeln("[STWController: Triggering concurrent collectors...]");
         Plan.concurrentWorkers.triggerCycle();
       }
+
+      // Sweep ahead of the mutators until that is done or another collection is requested.
+      boolean unswept = true;
+      while (unswept && !requestFlag) {
+        unswept = VM.activePlan.global().sweepAhead();
+      }
     }
   }
 
@@ -14,6 +14,7 @@ package org.mmtk.plan;
 
 import org.mmtk.utility.Log;
 import org.mmtk.utility.options.Options;
+import org.mmtk.utility.statistics.GCEventLog;
 import org.mmtk.utility.statistics.Timer;
 import org.mmtk.vm.VM;
 
@@ -39,7 +40,7 @@ public abstract class Phase {
   */
 
   /** The maximum number of phases */
-  private static final int MAX_PHASES = 64;
+  public static final int MAX_PHASES = 64;
   /** The array of phase instances. Zero is unused. */
   private static final Phase[] phases = new Phase[MAX_PHASES];
   /** The id to be allocated for the next phase */
@@ -457,7 +458,9 @@ public abstract class Phase {
       Phase p = getPhase(phaseId);
 
       /* Start the timer(s) */
+      long phaseStart = 0;
       if (primary) {
+        phaseStart = VM.statistics.nanoTime();
         if (resume) {
           resumeComplexTimers();
         }
@@ -556,6 +559,7 @@ public abstract class Phase {
 
       /* Stop the timer(s) */
       if (primary) {
+        GCEventLog.recordPhase(phaseId, VM.statistics.nanoTime() - phaseStart);
         if (p.timer != null) p.timer.stop();
         if (stopComplexTimer > 0) {
           Phase.getPhase(stopComplexTimer).timer.stop();
@@ -31,7 +31,10 @@ import org.mmtk.utility.options.CycleTriggerThreshold;
 import org.mmtk.utility.options.DebugAddress;
 import org.mmtk.utility.options.EagerMmapSpaces;
 import org.mmtk.utility.options.FullHeapSystemGC;
+import org.mmtk.utility.options.GCOverheadGoal;
 import org.mmtk.utility.options.HarnessAll;
+import org.mmtk.utility.options.HeapCeiling;
+import org.mmtk.utility.options.HeapSizing;
 import org.mmtk.utility.options.IgnoreSystemGC;
 import org.mmtk.utility.options.MetaDataLimit;
 import org.mmtk.utility.options.NoFinalizer;
@@ -39,6 +42,7 @@ import org.mmtk.utility.options.NoReferenceTypes;
 import org.mmtk.utility.options.NurserySize;
 import org.mmtk.utility.options.NurseryZeroing;
 import org.mmtk.utility.options.Options;
+import org.mmtk.utility.options.PauseGoal;
 import org.mmtk.utility.options.PerfEvents;
 import org.mmtk.utility.options.PretenureThresholdFraction;
 import org.mmtk.utility.options.SanityCheck;
@@ -194,6 +198,10 @@ public abstract class Plan {
     Options.nurseryZeroing = new NurseryZeroing();
     Options.pretenureThresholdFraction = new PretenureThresholdFraction();
     Options.variableSizeHeap = new VariableSizeHeap();
+    Options.heapSizing = new HeapSizing();
+    Options.gcOverheadGoal = new GCOverheadGoal();
+    Options.pauseGoal = new PauseGoal();
+    Options.heapCeiling = new HeapCeiling();
     Options.eagerMmapSpaces = new EagerMmapSpaces();
     Options.sanityCheck = new SanityCheck();
     Options.debugAddress = new DebugAddress();
@@ -510,6 +518,18 @@ public abstract class Plan {
    */
   public void forceFullHeapCollection() {}
 
+  /**
+   * Sweep some of what the last collection left unswept.  This is
+   * called by the controller thread once the mutators have resumed,
+   * for as long as it returns {@code true} and no collection has been
+   * requested, so that it never runs during a collection.
+   *
+   * @return {@code true} if there may be more to sweep
+   */
+  public boolean sweepAhead() {
+    return false;
+  }
+
   /**
    * @return Is current GC only collecting objects allocated since last GC.
    */
@@ -947,6 +967,17 @@ public abstract class Plan {
       metaDataSpace.reservedPages() + nonMovingSpace.reservedPages();
   }
 
+  /**
+   * Return the number of pages reserved by the space that survivors
+   * of a nursery collection are promoted to.
+   *
+   * @return The number of pages reserved for promoted objects, or
+   * zero if this plan does not promote.
+   */
+  public int getMaturePagesReserved() {
+    return 0;
+  }
+
   /****************************************************************************
    * Internal read/write barriers.
    */
@@ -261,6 +261,20 @@ public abstract class Simple extends Plan {
     VM.assertions.fail("Global phase not handled!");
   }
 
+  /**
+   * {@inheritDoc}<p>
+   *
+   * The non-moving and code spaces are swept here.
+   */
+  @Override
+  public boolean sweepAhead() {
+    boolean unswept = nonMovingSpace.sweepAhead();
+    if (USE_CODE_SPACE) {
+      unswept |= smallCodeSpace.sweepAhead();
+    }
+    return unswept;
+  }
+
   /**
    * Update the nursery zeroing approach based on option settings.
    *
@@ -13,6 +13,7 @@
 package org.mmtk.plan;
 
 import org.mmtk.utility.deque.SharedDeque;
+import org.mmtk.utility.deque.WorkStealingDeque;
 import org.mmtk.policy.RawPageSpace;
 
 import org.vmmagic.pragma.*;
@@ -28,14 +29,32 @@ public class Trace {
   // Global pools for load-balancing deques
   final SharedDeque valuePool;
   final SharedDeque rootLocationPool;
+  final SharedDeque edgePool;
+
+  /** Whether the trace enqueues edges rather than gray objects */
+  final boolean enqueueEdges;
 
   /**
    * @param metaDataSpace the space to use for allocation for this
    *  instance
    */
   public Trace(RawPageSpace metaDataSpace) {
-    valuePool = new SharedDeque("valuePool",metaDataSpace, 1);
-    rootLocationPool = new SharedDeque("rootLocations", metaDataSpace, 1);
+    this(metaDataSpace, false);
+  }
+
+  /**
+   * @param metaDataSpace the space to use for allocation for this
+   *  instance
+   * @param enqueueEdges whether the TraceLocals enqueue the edges of
+   *  scanned objects and prefetch their targets ahead of tracing them
+   *  (see {@link TraceLocal#processEdge}).  This is experimental and no
+   *  plan enables it until it has been measured against node enqueuing.
+   */
+  public Trace(RawPageSpace metaDataSpace, boolean enqueueEdges) {
+    valuePool = new WorkStealingDeque("valuePool",metaDataSpace, 1);
+    rootLocationPool = new WorkStealingDeque("rootLocations", metaDataSpace, 1);
+    edgePool = new WorkStealingDeque("edges", metaDataSpace, 1);
+    this.enqueueEdges = enqueueEdges;
   }
 
   /**
@@ -44,6 +63,7 @@ public class Trace {
   public void prepareNonBlocking() {
     valuePool.prepareNonBlocking();
     rootLocationPool.prepareNonBlocking();
+    edgePool.prepareNonBlocking();
   }
 
   /**
@@ -51,7 +71,14 @@ public class Trace {
    * All active GC threads take part.
    */
   public void prepare() {
-    valuePool.prepare();
+    if (enqueueEdges) {
+      // the edges carry the work, objects are scanned by whoever marks them
+      edgePool.prepare();
+      valuePool.prepareNonBlocking();
+    } else {
+      valuePool.prepare();
+      edgePool.prepareNonBlocking();
+    }
     rootLocationPool.prepareNonBlocking();
   }
 
@@ -61,6 +88,7 @@ public class Trace {
   public void release() {
     valuePool.reset();
     rootLocationPool.reset();
+    edgePool.reset();
   }
 
   /**
@@ -68,6 +96,6 @@ public class Trace {
    *  That is are there any pages in the pools.
    */
   public boolean hasWork() {
-    return (valuePool.enqueuedPages() + rootLocationPool.enqueuedPages()) > 0;
+    return (valuePool.enqueuedPages() + rootLocationPool.enqueuedPages() + edgePool.enqueuedPages()) > 0;
   }
 }
@@ -42,6 +42,23 @@ public abstract class TraceLocal extends TransitiveClosure {
   protected final ObjectReferenceDeque values;
   /** delayed root slots */
   protected final AddressDeque rootLocations;
+  /** edges to be traced, when the trace enqueues edges */
+  protected final AddressDeque edges;
+
+  /** Whether edges are enqueued and traced later rather than as they are scanned */
+  private final boolean enqueueEdges;
+
+  /*
+   * The edges whose targets are being prefetched, oldest first.  An edge
+   * is traced once PREFETCH_DISTANCE more have been dequeued behind it.
+   */
+  private static final int LOG_PREFETCH_DISTANCE = 3;
+  private static final int PREFETCH_DISTANCE = 1 << LOG_PREFETCH_DISTANCE;
+  private static final int PREFETCH_MASK = PREFETCH_DISTANCE - 1;
+  private final AddressArray prefetchSlots = AddressArray.create(PREFETCH_DISTANCE);
+  private final ObjectReferenceArray prefetchObjects = ObjectReferenceArray.create(PREFETCH_DISTANCE);
+  private int prefetchHead;
+  private int prefetchCount;
 
   /****************************************************************************
    *
@@ -67,6 +84,8 @@ public abstract class TraceLocal extends TransitiveClosure {
     super(specializedScan);
     values = new ObjectReferenceDeque("value", trace.valuePool);
     rootLocations = new AddressDeque("roots", trace.rootLocationPool);
+    edges = new AddressDeque("edges", trace.edgePool);
+    enqueueEdges = trace.enqueueEdges;
   }
 
   /****************************************************************************
@@ -84,7 +103,13 @@ public abstract class TraceLocal extends TransitiveClosure {
   /**
    * Trace a reference during GC.  This involves determining which
    * collection policy applies and calling the appropriate
-   * <code>trace</code> method.
+   * <code>trace</code> method.<p>
+   *
+   * If the trace enqueues edges the slot is enqueued instead, and traced
+   * when it reaches the head of the prefetch FIFO in
+   * {@link #traceEdges(int)}.  By then the target object, whose header
+   * the trace reads and whose fields the scan reads, should be in the
+   * cache rather than missed on when the object is dequeued.
    *
    * @param source The source of the reference.
    * @param slot The location containing the object reference to be
@@ -93,13 +118,41 @@ public abstract class TraceLocal extends TransitiveClosure {
   @Override
   @Inline
   public final void processEdge(ObjectReference source, Address slot) {
-    ObjectReference object = VM.activePlan.global().loadObjectReference(slot);
+    if (enqueueEdges) {
+      edges.push(slot);
+      return;
+    }
+    traceEdge(slot, VM.activePlan.global().loadObjectReference(slot));
+  }
+
+  /**
+   * Trace the object a slot refers to and update the slot.
+   *
+   * @param slot The location containing the object reference
+   * @param object The object reference loaded from the slot
+   */
+  @Inline
+  private void traceEdge(Address slot, ObjectReference object) {
     ObjectReference newObject = traceObject(object, false);
     if (overwriteReferenceDuringTrace()) {
-      VM.activePlan.global().storeObjectReference(slot, newObject);
+      updateEdge(slot, object, newObject);
     }
   }
 
+  /**
+   * Store the traced reference back into a slot.  A trace that runs
+   * concurrently with the mutators overrides this so that it does not
+   * overwrite a reference stored by a mutator since the slot was loaded.
+   *
+   * @param slot The location containing the object reference
+   * @param object The object reference loaded from the slot
+   * @param newObject The object reference returned by the trace
+   */
+  @Inline
+  protected void updateEdge(Address slot, ObjectReference object, ObjectReference newObject) {
+    VM.activePlan.global().storeObjectReference(slot, newObject);
+  }
+
   /**
    * Report a root edge to be processed during GC. As the given reference
    * may theoretically point to an object required during root scanning,
@@ -205,8 +258,15 @@ public abstract class TraceLocal extends TransitiveClosure {
    * Flush the local buffers of all deques.
    */
   public final void flush() {
+    // edges waiting in the prefetch FIFO go back on the deque
+    while (prefetchCount > 0) {
+      edges.push(prefetchSlots.get(prefetchHead));
+      prefetchHead = (prefetchHead + 1) & PREFETCH_MASK;
+      prefetchCount--;
+    }
     values.flushLocal();
     rootLocations.flushLocal();
+    edges.flushLocal();
   }
 
   /**
@@ -462,8 +522,23 @@ public abstract class TraceLocal extends TransitiveClosure {
   }
 
   public void release() {
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(prefetchCount == 0);
     values.reset();
     rootLocations.reset();
+    edges.reset();
+    clearPrefetch();
+  }
+
+  /**
+   * Forget the edges last prefetched, so the FIFO holds no references
+   * to objects from this closure into the next.
+   */
+  private void clearPrefetch() {
+    for (int i = 0; i < PREFETCH_DISTANCE; i++) {
+      prefetchSlots.set(i, Address.zero());
+      prefetchObjects.set(i, ObjectReference.nullReference());
+    }
+    prefetchHead = 0;
   }
 
   /**
@@ -489,16 +564,65 @@ public abstract class TraceLocal extends TransitiveClosure {
     }
     logMessage(5, "processing gray objects");
     assertMutatorRemsetsFlushed();
-    do {
-      while (!values.isEmpty()) {
-        ObjectReference v = values.pop();
-        scanObject(v);
-      }
-      processRememberedSets();
-    } while (!values.isEmpty());
+    if (enqueueEdges) {
+      do {
+        traceEdges(Integer.MAX_VALUE);
+        processRememberedSets();
+      } while (!values.isEmpty() || !edges.isEmpty());
+    } else {
+      do {
+        while (!values.isEmpty()) {
+          ObjectReference v = values.pop();
+          scanObject(v);
+        }
+        processRememberedSets();
+      } while (!values.isEmpty());
+    }
     assertMutatorRemsetsFlushed();
   }
 
+  /**
+   * Trace enqueued edges until there are none left or workLimit of them
+   * have been traced.  Each edge's target is prefetched when the edge is
+   * dequeued and traced PREFETCH_DISTANCE edges later.  Objects the trace
+   * marks are scanned first, while the lines the trace brought in are
+   * still in the cache, so the gray object deque stays short and is
+   * never waited on; the edge deque is only waited on once the prefetch
+   * FIFO is empty, so no edges are hidden from other collectors then.
+   *
+   * @param workLimit The maximum number of edges to trace.
+   * @return the number of edges traced, less than workLimit if the
+   * trace is complete.
+   */
+  private int traceEdges(int workLimit) {
+    int units = 0;
+    while (units < workLimit) {
+      if (values.isNonEmpty()) {
+        scanObject(values.pop());
+        continue;
+      }
+      Address slot = (prefetchCount == 0) ? edges.pop() : edges.popNonBlocking();
+      if (!slot.isZero()) {
+        ObjectReference object = VM.activePlan.global().loadObjectReference(slot);
+        if (object.isNull()) continue;
+        object.toAddress().prefetch();
+        int tail = (prefetchHead + prefetchCount) & PREFETCH_MASK;
+        prefetchSlots.set(tail, slot);
+        prefetchObjects.set(tail, object);
+        if (++prefetchCount < PREFETCH_DISTANCE) continue;
+      } else if (prefetchCount == 0) {
+        break;
+      }
+      slot = prefetchSlots.get(prefetchHead);
+      ObjectReference object = prefetchObjects.get(prefetchHead);
+      prefetchHead = (prefetchHead + 1) & PREFETCH_MASK;
+      prefetchCount--;
+      traceEdge(slot, object);
+      units++;
+    }
+    return units;
+  }
+
   /**
    * Process GC work until either complete or workLimit
    * units of work are completed.
@@ -511,6 +635,13 @@ public abstract class TraceLocal extends TransitiveClosure {
     logMessage(4, "Continuing GC in parallel (incremental)");
     logMessage(5, "processing gray objects");
     int units = 0;
+    if (enqueueEdges) {
+      do {
+        units += traceEdges(workLimit - units);
+        processRememberedSets();
+      } while (units < workLimit && (!values.isEmpty() || !edges.isEmpty()));
+      return prefetchCount == 0 && values.isEmpty() && edges.isEmpty();
+    }
     do {
       while (!values.isEmpty() && units < workLimit) {
         ObjectReference v = values.pop();
@@ -0,0 +1,199 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.plan.concurrent.copying;
+
+import org.mmtk.plan.*;
+import org.mmtk.plan.concurrent.Concurrent;
+import org.mmtk.policy.CopySpace;
+import org.mmtk.policy.Space;
+import org.mmtk.utility.heap.VMRequest;
+import org.mmtk.vm.VM;
+
+import org.vmmagic.pragma.*;
+import org.vmmagic.unboxed.ObjectReference;
+
+/**
+ * This class implements the global state of a concurrent copying
+ * collector.  As in a semi-space collector, live objects are copied
+ * from one copy space to the other, but the copying is done while the
+ * mutators run, in the concurrent closure.<p>
+ *
+ * The collection starts with a pause which flips the copy spaces and
+ * copies the objects the roots refer to.  From then on the mutators
+ * hold references to to-space only: every reference loaded from the heap
+ * goes through a read barrier which, if the reference is to from-space,
+ * copies the object (or finds the copy already made) using the
+ * forwarding word in its header, and heals the slot it was loaded from.
+ * New objects are allocated in to-space.  Each copy is scanned by the
+ * collectors, which update its references as they go, so evacuation
+ * and reference update are one concurrent pass.  Since a mutator can
+ * not reach an object it has not loaded through the barrier, no write
+ * barrier is needed.  A final pause processes reference types and
+ * releases from-space.<p>
+ *
+ * Mutators may copy objects in their read barrier, which is not a GC
+ * safe point, so allocation of copies never triggers a collection: like
+ * collector copies, they are covered by the copy reserve.
+ */
+@Uninterruptible
+public class CC extends Concurrent {
+
+  /****************************************************************************
+   * Class variables
+   */
+
+  /** {@code true} if allocating into the "higher" copy space */
+  public static boolean hi = false;
+
+  /** One of the two copy spaces that alternate roles at each collection */
+  public static final CopySpace copySpace0 = new CopySpace("cc0", false, VMRequest.discontiguous());
+  public static final int CC0 = copySpace0.getDescriptor();
+
+  /** One of the two copy spaces that alternate roles at each collection */
+  public static final CopySpace copySpace1 = new CopySpace("cc1", true, VMRequest.discontiguous());
+  public static final int CC1 = copySpace1.getDescriptor();
+
+  public static final int ALLOC_CC = Plan.ALLOC_DEFAULT;
+
+  static {
+    smallCodeSpace.makeAllocAsMarked();
+    nonMovingSpace.makeAllocAsMarked();
+  }
+
+  /****************************************************************************
+   * Instance variables
+   */
+
+  /**
+   *
+   */
+  public final Trace ccTrace = new Trace(metaDataSpace);
+
+  /**
+   * @return The to space for the current collection.
+   */
+  @Inline
+  public static CopySpace toSpace() {
+    return hi ? copySpace1 : copySpace0;
+  }
+
+  /**
+   * @return The from space for the current collection.
+   */
+  @Inline
+  public static CopySpace fromSpace() {
+    return hi ? copySpace0 : copySpace1;
+  }
+
+  /**
+   * @param object The object in question
+   * @return {@code true} if the object is in the from space
+   */
+  @Inline
+  public static boolean inFromSpace(ObjectReference object) {
+    return Space.isInSpace(hi ? CC0 : CC1, object);
+  }
+
+  /*****************************************************************************
+   *
+   * Collection
+   */
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  @Inline
+  public void collectionPhase(short phaseId) {
+    if (phaseId == PREPARE) {
+      hi = !hi; // flip the copy spaces
+      copySpace0.prepare(hi);
+      copySpace1.prepare(!hi);
+      ccTrace.prepareNonBlocking();
+      super.collectionPhase(phaseId);
+      return;
+    }
+
+    if (phaseId == RELEASE) {
+      ccTrace.release();
+      fromSpace().release();
+      super.collectionPhase(phaseId);
+      return;
+    }
+
+    super.collectionPhase(phaseId);
+  }
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * A mutator copying an object in its read barrier is not at a GC safe
+   * point, and holds a from-space reference which a collection would
+   * leave dangling, so it never triggers one.
+   */
+  @Override
+  protected boolean collectionRequired(boolean spaceFull, Space space) {
+    if (VM.activePlan.isMutator() && ((CCMutator) VM.activePlan.mutator()).isCopying()) {
+      return false;
+    }
+    return super.collectionRequired(spaceFull, space);
+  }
+
+  /*****************************************************************************
+   *
+   * Accounting
+   */
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * Outside a collection from-space is empty, and everything in
+   * to-space may need copying by the next one.  During a collection
+   * at most what is in from-space does.
+   */
+  @Override
+  public final int getCollectionReserve() {
+    int fromPages = fromSpace().reservedPages();
+    int copyPages = fromPages > 0 ? fromPages : toSpace().reservedPages();
+    return copyPages + super.getCollectionReserve();
+  }
+
+  /**
+   * {@inheritDoc}
+   * The superclass accounts for its spaces, we just
+   * augment this with the copy spaces' contribution.
+   */
+  @Override
+  public int getPagesUsed() {
+    return super.getPagesUsed() + toSpace().reservedPages() + fromSpace().reservedPages();
+  }
+
+  /**
+   * Return the number of pages available for allocation, <i>assuming
+   * all future allocation is to the copy space</i>.
+   *
+   * @return The number of pages available for allocation, <i>assuming
+   * all future allocation is to the copy space</i>.
+   */
+  @Override
+  public final int getPagesAvail() {
+    return(super.getPagesAvail()) >> 1;
+  }
+
+  @Override
+  public boolean willNeverMove(ObjectReference object) {
+    if (Space.isInSpace(CC0, object) || Space.isInSpace(CC1, object))
+      return false;
+    return super.willNeverMove(object);
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.plan.concurrent.copying;
+
+import org.mmtk.plan.concurrent.ConcurrentConstraints;
+import org.mmtk.policy.CopySpace;
+
+import org.vmmagic.pragma.*;
+
+/**
+ * This class and its subclasses communicate to the host VM/Runtime
+ * any features of the selected plan that it needs to know.  This is
+ * separate from the main Plan/PlanLocal class in order to bypass any
+ * issues with ordering of static initialization.
+ */
+@Uninterruptible
+public class CCConstraints extends ConcurrentConstraints {
+  @Override
+  public boolean movesObjects() {
+    return true;
+  }
+
+  @Override
+  public int gcHeaderBits() {
+    return CopySpace.LOCAL_GC_BITS_REQUIRED;
+  }
+
+  @Override
+  public int gcHeaderWords() {
+    return CopySpace.GC_HEADER_WORDS_REQUIRED;
+  }
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * Mutators only ever hold references to to-space, so no write barrier
+   * is needed.
+   */
+  @Override
+  public boolean needsObjectReferenceWriteBarrier() {
+    return false;
+  }
+
+  @Override
+  public boolean needsObjectReferenceReadBarrier() {
+    return true;
+  }
+}
@@ -0,0 +1,255 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.plan.concurrent.copying;
+
+import org.mmtk.plan.*;
+import org.mmtk.plan.concurrent.Concurrent;
+import org.mmtk.plan.concurrent.ConcurrentMutator;
+import org.mmtk.policy.CopyLocal;
+import org.mmtk.policy.Space;
+import org.mmtk.utility.ForwardingWord;
+import org.mmtk.utility.alloc.Allocator;
+import org.mmtk.vm.VM;
+
+import org.vmmagic.pragma.*;
+import org.vmmagic.unboxed.*;
+
+/**
+ * This class implements <i>per-mutator thread</i> behavior
+ * and state for the <i>CC</i> plan, which implements a full-heap
+ * concurrent copying collector.<p>
+ *
+ * While a collection is in progress every reference loaded from the
+ * heap is to to-space: the read barrier copies objects still in
+ * from-space, and marks objects in the other spaces, before the
+ * reference is used.
+ *
+ * @see CC
+ * @see CCCollector
+ * @see ConcurrentMutator
+ * @see MutatorContext
+ */
+@Uninterruptible
+public class CCMutator extends ConcurrentMutator {
+
+  /****************************************************************************
+   * Instance fields
+   */
+
+  /**
+   *
+   */
+  private final CopyLocal cc;
+  private final TraceWriteBuffer remset;
+  private boolean copying;
+
+  /****************************************************************************
+   *
+   * Initialization
+   */
+
+  /**
+   * Constructor
+   */
+  public CCMutator() {
+    cc = new CopyLocal();
+    remset = new TraceWriteBuffer(global().ccTrace);
+  }
+
+  @Override
+  public void initMutator(int id) {
+    super.initMutator(id);
+    cc.rebind(CC.toSpace());
+  }
+
+  /****************************************************************************
+   *
+   * Mutator-time allocation
+   */
+
+  /**
+   * {@inheritDoc}
+   */
+  @Inline
+  @Override
+  public Address alloc(int bytes, int align, int offset, int allocator, int site) {
+    if (allocator == CC.ALLOC_CC) {
+      return cc.alloc(bytes, align, offset);
+    }
+    return super.alloc(bytes, align, offset, allocator, site);
+  }
+
+  @Inline
+  @Override
+  public void postAlloc(ObjectReference ref, ObjectReference typeRef,
+      int bytes, int allocator) {
+    if (allocator == CC.ALLOC_CC) return;
+    super.postAlloc(ref, typeRef, bytes, allocator);
+  }
+
+  @Override
+  public Allocator getAllocatorFromSpace(Space space) {
+    if (space == CC.copySpace0 || space == CC.copySpace1) return cc;
+    return super.getAllocatorFromSpace(space);
+  }
+
+  /****************************************************************************
+   *
+   * Collection
+   */
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  @Inline
+  public void collectionPhase(short phaseId, boolean primary) {
+    if (phaseId == Concurrent.SET_BARRIER_ACTIVE) {
+      // The global prepare phase, which flips the copy spaces, follows the
+      // mutator one, so the bump pointer moves to the new to-space here.
+      cc.rebind(CC.toSpace());
+      super.collectionPhase(phaseId, primary);
+      return;
+    }
+
+    super.collectionPhase(phaseId, primary);
+  }
+
+  @Override
+  public void flushRememberedSets() {
+    remset.flush();
+  }
+
+  /**
+   * @return {@code true} if this mutator is allocating space for a copy
+   */
+  public final boolean isCopying() {
+    return copying;
+  }
+
+  /****************************************************************************
+   *
+   * Write and read barriers.
+   */
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * The slot is healed first, so that an expected value loaded through
+   * the read barrier, which is to to-space, compares equal to it.
+   */
+  @Inline
+  @Override
+  public boolean objectReferenceTryCompareAndSwap(ObjectReference src, Address slot, ObjectReference old,
+                                               ObjectReference tgt, Word metaDataA, Word metaDataB, int mode) {
+    if (barrierActive) {
+      ObjectReference current = slot.loadObjectReference();
+      if (!current.isNull()) loadBarrierSlow(slot, current);
+    }
+    return VM.barriers.objectReferenceTryCompareAndSwap(src, old, tgt, metaDataA, metaDataB, mode);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Inline
+  @Override
+  public ObjectReference objectReferenceRead(ObjectReference src, Address slot, Word metaDataA, Word metaDataB, int mode) {
+    ObjectReference ref = VM.barriers.objectReferenceRead(src, metaDataA, metaDataB, mode);
+    if (barrierActive && !ref.isNull()) return loadBarrierSlow(slot, ref);
+    return ref;
+  }
+
+  @Inline
+  @Override
+  public ObjectReference javaLangReferenceReadBarrier(ObjectReference ref) {
+    if (barrierActive && !ref.isNull()) return loadBarrierSlow(Address.zero(), ref);
+    return ref;
+  }
+
+  /**
+   * A reference was loaded while a collection is in progress.  If it is
+   * to from-space, return the to-space copy, and heal the slot, so the
+   * next load from it takes the fast path.
+   *
+   * @param slot The slot the reference was loaded from, or zero if it
+   * should be left alone
+   * @param ref The reference loaded
+   * @return The reference to use
+   */
+  @NoInline
+  private ObjectReference loadBarrierSlow(Address slot, ObjectReference ref) {
+    if (!CC.inFromSpace(ref)) {
+      checkAndEnqueueReference(ref);
+      return ref;
+    }
+    ObjectReference newRef = forward(ref);
+    if (!slot.isZero()) slot.attempt(ref, newRef);
+    return newRef;
+  }
+
+  /**
+   * Copy a from-space object to to-space, unless a collector or another
+   * mutator has already, and have the copy scanned.
+   *
+   * @param object The from-space object
+   * @return The to-space copy of the object
+   */
+  @Inline
+  private ObjectReference forward(ObjectReference object) {
+    Word forwardingWord = ForwardingWord.attemptToForward(object);
+    if (ForwardingWord.stateIsForwardedOrBeingForwarded(forwardingWord)) {
+      return ForwardingWord.spinAndGetForwardedObject(object, forwardingWord);
+    }
+    int bytes = VM.objectModel.getSizeWhenCopied(object);
+    int align = VM.objectModel.getAlignWhenCopied(object);
+    int offset = VM.objectModel.getAlignOffsetWhenCopied(object);
+    copying = true;
+    Address region = cc.alloc(bytes, align, offset);
+    copying = false;
+    ObjectReference newObject = VM.objectModel.getReferenceWhenCopiedTo(object, region);
+    VM.objectModel.copyTo(object, newObject, region);
+    ForwardingWord.clearForwardingBits(newObject);
+    ForwardingWord.setForwardingPointer(object, newObject);
+    remset.processNode(newObject);
+    return newObject;
+  }
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * Objects outside the copy spaces are marked, as a collector would.
+   */
+  @Override
+  protected void checkAndEnqueueReference(ObjectReference ref) {
+    if (ref.isNull()) return;
+    if (barrierActive) {
+      if      (Space.isInSpace(CC.IMMORTAL,   ref)) CC.immortalSpace.traceObject(remset, ref);
+      else if (Space.isInSpace(CC.LOS,        ref)) CC.loSpace.traceObject(remset, ref);
+      else if (Space.isInSpace(CC.NON_MOVING, ref)) CC.nonMovingSpace.traceObject(remset, ref);
+      else if (Space.isInSpace(CC.SMALL_CODE, ref)) CC.smallCodeSpace.traceObject(remset, ref);
+      else if (Space.isInSpace(CC.LARGE_CODE, ref)) CC.largeCodeSpace.traceObject(remset, ref);
+    }
+  }
+
+  /****************************************************************************
+   *
+   * Miscellaneous
+   */
+
+  /** @return The active global plan as a <code>CC</code> instance. */
+  @Inline
+  private static CC global() {
+    return (CC) VM.activePlan.global();
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.plan.concurrent.copying;
+
+import org.mmtk.plan.TraceLocal;
+import org.mmtk.plan.Trace;
+import org.mmtk.policy.Space;
+
+import org.vmmagic.pragma.*;
+import org.vmmagic.unboxed.*;
+
+/**
+ * This class implements the thread-local functionality for a transitive
+ * closure over the copy spaces, which runs concurrently with the
+ * mutators.
+ */
+@Uninterruptible
+public final class CCTraceLocal extends TraceLocal {
+
+  /**
+   * @param trace the global trace class to use
+   */
+  public CCTraceLocal(Trace trace) {
+    super(trace);
+  }
+
+  /****************************************************************************
+   *
+   * Externally visible Object processing and tracing
+   */
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean isLive(ObjectReference object) {
+    if (object.isNull()) return false;
+    if (Space.isInSpace(CC.CC0, object))
+      return CC.hi ? CC.copySpace0.isLive(object) : true;
+    if (Space.isInSpace(CC.CC1, object))
+      return CC.hi ? true : CC.copySpace1.isLive(object);
+    return super.isLive(object);
+  }
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * In this instance, we refer objects in the copy spaces to the
+   * copy space for tracing, and defer to the superclass for all others.
+   */
+  @Override
+  @Inline
+  public ObjectReference traceObject(ObjectReference object) {
+    if (object.isNull()) return object;
+    if (Space.isInSpace(CC.CC0, object))
+      return CC.copySpace0.traceObject(this, object, CC.ALLOC_CC);
+    if (Space.isInSpace(CC.CC1, object))
+      return CC.copySpace1.traceObject(this, object, CC.ALLOC_CC);
+    return super.traceObject(object);
+  }
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * The slot is only updated if it still holds the reference that was
+   * traced.  If a mutator has stored to it since, the reference stored
+   * is to to-space, and must not be lost.
+   */
+  @Override
+  @Inline
+  protected void updateEdge(Address slot, ObjectReference object, ObjectReference newObject) {
+    if (newObject.toAddress().NE(object.toAddress())) {
+      slot.attempt(object, newObject);
+    }
+  }
+
+  @Override
+  public boolean willNotMoveInCurrentCollection(ObjectReference object) {
+    return !CC.inFromSpace(object);
+  }
+}
@@ -84,6 +84,16 @@ public class CMS extends Concurrent {
     super.collectionPhase(phaseId);
   }
 
+  /**
+   * {@inheritDoc}<p>
+   *
+   * The mark-sweep space is swept along with those of the superclass.
+   */
+  @Override
+  public boolean sweepAhead() {
+    return msSpace.sweepAhead() | super.sweepAhead();
+  }
+
   /*****************************************************************************
    *
    * Accounting
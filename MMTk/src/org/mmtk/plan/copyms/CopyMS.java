@@ -119,6 +119,16 @@ public class CopyMS extends StopTheWorld {
     super.collectionPhase(phaseId);
   }
 
+  /**
+   * {@inheritDoc}<p>
+   *
+   * The mark-sweep space is swept along with those of the superclass.
+   */
+  @Override
+  public boolean sweepAhead() {
+    return msSpace.sweepAhead() | super.sweepAhead();
+  }
+
   @Override
   public final boolean collectionRequired(boolean spaceFull, Space space) {
     boolean nurseryFull = nurserySpace.reservedPages() > Options.nurserySize.getMaxNursery();
@@ -19,6 +19,7 @@ import org.mmtk.policy.CopySpace;
 import org.mmtk.policy.Space;
 
 import org.mmtk.utility.deque.*;
+import org.mmtk.utility.heap.HeapGrowthManager;
 import org.mmtk.utility.heap.VMRequest;
 import org.mmtk.utility.heap.layout.HeapLayout;
 import org.mmtk.utility.Log;
@@ -175,6 +176,7 @@ public abstract class Gen extends StopTheWorld {
     }
 
     if (phaseId == PREPARE) {
+      if (!gcFullHeap) HeapGrowthManager.recordNurseryPages(nurserySpace.reservedPages());
       nurserySpace.prepare(true);
       if (traceFullHeap()) {
         if (gcFullHeap) {
@@ -224,7 +226,7 @@ public abstract class Gen extends StopTheWorld {
 
   @Override
   public final boolean collectionRequired(boolean spaceFull, Space space) {
-    int availableNurseryPages = Options.nurserySize.getMaxNursery() - nurserySpace.reservedPages();
+    int availableNurseryPages = HeapGrowthManager.getMaxNurseryPages() - nurserySpace.reservedPages();
 
     /* periodically recalculate nursery pretenure threshold */
     Plan.pretenureThreshold = (int) (pagesToBytes(availableNurseryPages).toInt() * Options.pretenureThresholdFraction.getValue());
@@ -328,6 +330,11 @@ public abstract class Gen extends StopTheWorld {
    */
   public abstract int getMaturePhysicalPagesAvail();
 
+  @Override
+  public int getMaturePagesReserved() {
+    return activeMatureSpace().reservedPages();
+  }
+
   /*****************************************************************************
    *
    * Miscellaneous
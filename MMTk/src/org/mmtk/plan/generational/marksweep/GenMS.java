@@ -99,6 +99,16 @@ public class GenMS extends Gen {
     super.collectionPhase(phaseId);
   }
 
+  /**
+   * {@inheritDoc}<p>
+   *
+   * The mark-sweep space is swept along with those of the superclass.
+   */
+  @Override
+  public boolean sweepAhead() {
+    return msSpace.sweepAhead() | super.sweepAhead();
+  }
+
   /*****************************************************************************
    *
    * Accounting
@@ -25,7 +25,14 @@ import org.vmmagic.unboxed.ObjectReference;
  * This class implements the global state of a simple sliding mark-compact
  * collector.<p>
  *
- * FIXME Need algorithmic overview and references.<p>
+ * After marking, the live bytes of each region are summarized in a side
+ * table and the regions are cut into contiguous slices with equal shares of
+ * the live data, one for each collector thread.  Each thread then calculates
+ * forwarding pointers for its slice, the references in the heap are updated
+ * by a second, forwarding, trace, and each thread slides the objects of its
+ * slice to their new locations.  Dividing the heap into independently
+ * compacted parts follows Flood et al., "Parallel Garbage Collection for
+ * Shared Memory Multiprocessors" (JVM 2001).<p>
  *
  * All plans make a clear distinction between <i>global</i> and
  * <i>thread-local</i> activities, and divides global and local state
@@ -65,6 +72,9 @@ import org.vmmagic.unboxed.ObjectReference;
   public static final short FORWARD_CLOSURE     = Phase.createSimple("fw-closure");
   public static final short RELEASE_FORWARD     = Phase.createSimple("fw-release");
 
+  /** Summarize the live bytes of each region, and divide the regions between the collectors */
+  public static final short SUMMARIZE           = Phase.createSimple("summarize");
+
   /** Calculate forwarding pointers via a linear scan over the heap */
   public static final short CALCULATE_FP        = Phase.createSimple("calc-fp");
 
@@ -83,6 +93,8 @@ import org.vmmagic.unboxed.ObjectReference;
       Phase.scheduleComplex  (rootClosurePhase),
       Phase.scheduleComplex  (refTypeClosurePhase),
       Phase.scheduleComplex  (completeClosurePhase),
+      Phase.scheduleGlobal   (SUMMARIZE),
+      Phase.scheduleCollector(SUMMARIZE),
       Phase.scheduleCollector(CALCULATE_FP),
       Phase.scheduleGlobal   (PREPARE_FORWARD),
       Phase.scheduleCollector(PREPARE_FORWARD),
@@ -148,6 +160,11 @@ import org.vmmagic.unboxed.ObjectReference;
       return;
     }
 
+    if (phaseId == SUMMARIZE) {
+      mcSpace.startCompaction();
+      return;
+    }
+
     if (phaseId == PREPARE_FORWARD) {
       super.collectionPhase(PREPARE);
       forwardTrace.prepare();
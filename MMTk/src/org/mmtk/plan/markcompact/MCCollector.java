@@ -88,6 +88,13 @@ public class MCCollector extends StopTheWorldCollector {
       return;
     }
 
+    if (phaseId == MC.SUMMARIZE) {
+      mc.summarize();
+      rendezvous();
+      mc.claimSlice();
+      return;
+    }
+
     if (phaseId == MC.CALCULATE_FP) {
       mc.calculateForwardingPointers();
       return;
@@ -96,6 +96,16 @@ public class MS extends StopTheWorld {
     super.collectionPhase(phaseId);
   }
 
+  /**
+   * {@inheritDoc}<p>
+   *
+   * The mark-sweep space is swept along with those of the superclass.
+   */
+  @Override
+  public boolean sweepAhead() {
+    return msSpace.sweepAhead() | super.sweepAhead();
+  }
+
   /*****************************************************************************
    * Accounting
    */
@@ -17,6 +17,7 @@ import org.mmtk.plan.StopTheWorld;
 import org.mmtk.plan.Trace;
 import org.mmtk.plan.refcount.backuptrace.BTFreeLargeObjectSweeper;
 import org.mmtk.plan.refcount.backuptrace.BTSweeper;
+import org.mmtk.plan.refcount.immix.RCImmix;
 import org.mmtk.policy.ExplicitFreeListSpace;
 import org.mmtk.policy.ExplicitLargeObjectSpace;
 import org.mmtk.policy.Space;
@@ -58,6 +59,9 @@ public class RCBase extends StopTheWorld {
   /** True if we are building for generational RC */
   public static final boolean BUILD_FOR_GENRC = ((RCBaseConstraints) VM.activePlan.constraints()).buildForGenRC();
 
+  /** True if we are building for reference counting on Immix lines */
+  public static final boolean BUILD_FOR_RCIMMIX = ((RCBaseConstraints) VM.activePlan.constraints()).buildForRCImmix();
+
   // CHECKSTYLE:OFF
 
   /**
@@ -201,7 +205,8 @@ public class RCBase extends StopTheWorld {
    * @return whether the object is subject to collection by reference counting
    */
   public static final boolean isRCObject(ObjectReference object) {
-    return !object.isNull() && (Space.isInSpace(REF_COUNT, object) || Space.isInSpace(REF_COUNT_LOS, object));
+    return !object.isNull() && (Space.isInSpace(REF_COUNT, object) || Space.isInSpace(REF_COUNT_LOS, object) ||
+        (BUILD_FOR_RCIMMIX && Space.isInSpace(RCImmix.RC_IMMIX, object)));
   }
 
   @Override
@@ -54,11 +54,20 @@ public abstract class RCBaseCollector extends StopTheWorldCollector {
    * Constructor.
    */
   public RCBaseCollector() {
+    this(new BTTraceLocal(global().backupTrace));
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param backupTrace the trace local to use for backup tracing
+   */
+  protected RCBaseCollector(BTTraceLocal backupTrace) {
     newRootBuffer = new ObjectReferenceDeque("new-root", global().newRootPool);
     oldRootBuffer = new ObjectReferenceDeque("old-root", global().oldRootPool);
     modBuffer = new ObjectReferenceDeque("mod buf", global().modPool);
     decBuffer = new RCDecBuffer(global().decPool);
-    backupTrace = new BTTraceLocal(global().backupTrace);
+    this.backupTrace = backupTrace;
     zero = new RCZero();
   }
 
@@ -186,13 +195,7 @@ public abstract class RCBaseCollector extends StopTheWorldCollector {
         if (!RCBase.BUILD_FOR_GENRC) {
           while (!(current = decBuffer.pop()).isNull()) {
             if (RCHeader.isNew(current)) {
-              if (Space.isInSpace(RCBase.REF_COUNT, current)) {
-                RCBase.rcSpace.free(current);
-              } else if (Space.isInSpace(RCBase.REF_COUNT_LOS, current)) {
-                RCBase.rcloSpace.free(current);
-              } else if (Space.isInSpace(RCBase.IMMORTAL, current)) {
-                VM.scanning.scanObject(zero, current);
-              }
+              free(current);
             }
           }
         }
@@ -202,33 +205,15 @@ public abstract class RCBaseCollector extends StopTheWorldCollector {
         if (RCBase.BUILD_FOR_GENRC) {
           if (RCHeader.decRC(current) == RCHeader.DEC_KILL) {
             decBuffer.processChildren(current);
-            if (Space.isInSpace(RCBase.REF_COUNT, current)) {
-              RCBase.rcSpace.free(current);
-            } else if (Space.isInSpace(RCBase.REF_COUNT_LOS, current)) {
-              RCBase.rcloSpace.free(current);
-            } else if (Space.isInSpace(RCBase.IMMORTAL, current)) {
-              VM.scanning.scanObject(zero, current);
-            }
+            free(current);
           }
         } else {
           if (RCHeader.isNew(current)) {
-            if (Space.isInSpace(RCBase.REF_COUNT, current)) {
-              RCBase.rcSpace.free(current);
-            } else if (Space.isInSpace(RCBase.REF_COUNT_LOS, current)) {
-              RCBase.rcloSpace.free(current);
-            } else if (Space.isInSpace(RCBase.IMMORTAL, current)) {
-              VM.scanning.scanObject(zero, current);
-            }
+            free(current);
           } else {
             if (RCHeader.decRC(current) == RCHeader.DEC_KILL) {
               decBuffer.processChildren(current);
-              if (Space.isInSpace(RCBase.REF_COUNT, current)) {
-                RCBase.rcSpace.free(current);
-              } else if (Space.isInSpace(RCBase.REF_COUNT_LOS, current)) {
-                RCBase.rcloSpace.free(current);
-              } else if (Space.isInSpace(RCBase.IMMORTAL, current)) {
-                VM.scanning.scanObject(zero, current);
-              }
+              free(current);
             }
           }
         }
@@ -254,6 +239,21 @@ public abstract class RCBaseCollector extends StopTheWorldCollector {
     super.collectionPhase(phaseId, primary);
   }
 
+  /**
+   * Free an object whose reference count has dropped to zero.
+   *
+   * @param object the dead object
+   */
+  protected void free(ObjectReference object) {
+    if (Space.isInSpace(RCBase.REF_COUNT, object)) {
+      RCBase.rcSpace.free(object);
+    } else if (Space.isInSpace(RCBase.REF_COUNT_LOS, object)) {
+      RCBase.rcloSpace.free(object);
+    } else if (Space.isInSpace(RCBase.IMMORTAL, object)) {
+      VM.scanning.scanObject(zero, object);
+    }
+  }
+
   /****************************************************************************
    *
    * Miscellaneous
@@ -49,4 +49,8 @@ public class RCBaseConstraints extends StopTheWorldConstraints {
   public boolean buildForGenRC() {
     return false;
   }
+  /** @return {@code true} if we are building for reference counting on Immix lines */
+  public boolean buildForRCImmix() {
+    return false;
+  }
 }
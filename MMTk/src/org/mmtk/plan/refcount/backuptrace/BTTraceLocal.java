@@ -25,7 +25,7 @@ import org.vmmagic.unboxed.*;
  * closure over the heap graph.
  */
 @Uninterruptible
-public final class BTTraceLocal extends TraceLocal {
+public class BTTraceLocal extends TraceLocal {
 
   /**
    * @param trace the associated global trace
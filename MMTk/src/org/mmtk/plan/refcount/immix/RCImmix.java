@@ -0,0 +1,150 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.plan.refcount.immix;
+
+import org.mmtk.plan.refcount.RCBase;
+import org.mmtk.plan.refcount.RCHeader;
+import org.mmtk.policy.Space;
+import org.mmtk.policy.immix.ImmixSpace;
+import org.mmtk.utility.ForwardingWord;
+import org.mmtk.utility.deque.SharedDeque;
+import org.mmtk.utility.heap.VMRequest;
+import org.mmtk.vm.VM;
+import org.vmmagic.pragma.*;
+import org.vmmagic.unboxed.ObjectReference;
+
+/**
+ * This class implements the global state of a reference counting
+ * collector whose heap is made of Immix blocks and lines.  See
+ * Shahriyar et al, "Taking Off the Gloves with Reference Counting
+ * Immix" (OOPSLA 2013), for details of and rationale for the design.<p>
+ *
+ * Objects are bump allocated into free lines, and are young until
+ * their first collection, much like the nursery objects of
+ * {@link org.mmtk.plan.refcount.generational.GenRC}: they are not
+ * reference counted, and the write barrier ignores them.  A young
+ * object found live by a collection is copied to other lines while
+ * there is room for it, or else stays where it is, and from then on
+ * is counted.<p>
+ *
+ * The line mark table of the space holds the number of live objects
+ * touching each line.  An object adds to the counts of its lines when
+ * it survives its first collection and takes away from them when its
+ * reference count drops to zero, so a line is free for reuse as soon
+ * as the last object in it dies, and a block as soon as its last line
+ * is free.  Young objects that die never touch the counts, so the
+ * lines that only held them are reused at no cost.<p>
+ *
+ * The backup trace that collects cycles rebuilds the counts from
+ * scratch, from the objects it marks.
+ */
+@Uninterruptible
+public class RCImmix extends RCBase {
+
+  public static final int ALLOC_IMMIX = ALLOC_DEFAULT;
+  public static final int ALLOC_COPY  = RCBase.ALLOCATORS + 1;
+
+  /** The space all new objects are allocated into by default */
+  public static final ImmixSpace rcImmixSpace = new ImmixSpace("rcimmix", true, true, VMRequest.discontiguous());
+
+  public static final int RC_IMMIX = rcImmixSpace.getDescriptor();
+
+  /** Objects of the Immix space marked by the backup trace, unmarked once it is done */
+  public final SharedDeque markedPool = new SharedDeque("marked", metaDataSpace, 1);
+
+  /*****************************************************************************
+   *
+   * Collection
+   */
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public final void collectionPhase(short phaseId) {
+    if (phaseId == PREPARE) {
+      rcImmixSpace.prepare(true);
+      super.collectionPhase(phaseId);
+      return;
+    }
+
+    if (phaseId == BT_CLOSURE) {
+      super.collectionPhase(phaseId);
+      if (CC_BACKUP_TRACE && performCycleCollection) {
+        rcImmixSpace.clearLineCounts();
+        markedPool.prepare();
+      }
+      return;
+    }
+
+    if (phaseId == RELEASE) {
+      super.collectionPhase(phaseId);
+      rcImmixSpace.release(true);
+      return;
+    }
+
+    super.collectionPhase(phaseId);
+  }
+
+  /**
+   * Is an object of the Immix space young?  Only meaningful during a
+   * collection.  A young object's GC byte is zero until the collection
+   * starts to promote it, and from then on its forwarding bits show
+   * it is being, or has been, forwarded.  The GC byte of a counted
+   * object is never zero, as its count is not, and its low bits are
+   * never in either forwarding state, since no object is being logged
+   * while mutators are stopped.
+   *
+   * @param object an object in the Immix space
+   * @return <code>true</code> if the object has not yet been counted
+   */
+  @Inline
+  public static boolean isYoung(ObjectReference object) {
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(Space.isInSpace(RC_IMMIX, object));
+    byte header = VM.objectModel.readAvailableByte(object);
+    return header == 0 || (header & ForwardingWord.FORWARDING_MASK) > RCHeader.UNLOGGED.toInt();
+  }
+
+  /*****************************************************************************
+   *
+   * Accounting
+   */
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getPagesUsed() {
+    return rcImmixSpace.reservedPages() + super.getPagesUsed();
+  }
+
+  /**
+   * Return the number of pages reserved for collection, which
+   * includes the headroom for copying young objects.
+   */
+  @Override
+  public int getCollectionReserve() {
+    return super.getCollectionReserve() + rcImmixSpace.defragHeadroomPages();
+  }
+
+  @Override
+  public boolean willNeverMove(ObjectReference object) {
+    if (Space.isInSpace(RC_IMMIX, object)) {
+      return false;
+    }
+    if (Space.isInSpace(REF_COUNT_LOS, object)) {
+      return true;
+    }
+    return super.willNeverMove(object);
+  }
+}
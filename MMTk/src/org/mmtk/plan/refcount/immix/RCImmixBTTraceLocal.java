@@ -0,0 +1,63 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.plan.refcount.immix;
+
+import org.mmtk.plan.Trace;
+import org.mmtk.plan.refcount.RCHeader;
+import org.mmtk.plan.refcount.backuptrace.BTTraceLocal;
+import org.mmtk.policy.Space;
+import org.mmtk.utility.deque.ObjectReferenceDeque;
+
+import org.vmmagic.pragma.*;
+import org.vmmagic.unboxed.*;
+
+/**
+ * This class implements the backup trace for a reference counting
+ * collector on Immix lines.  The line counts are rebuilt as objects are
+ * scanned, and since the space cannot be swept object by object, the
+ * objects marked are remembered so their marks can be cleared when the
+ * trace is done.
+ */
+@Uninterruptible
+public final class RCImmixBTTraceLocal extends BTTraceLocal {
+
+  private final ObjectReferenceDeque markedBuffer;
+
+  /**
+   * @param trace the associated global trace
+   * @param markedBuffer the buffer of marked Immix space objects
+   */
+  public RCImmixBTTraceLocal(Trace trace, ObjectReferenceDeque markedBuffer) {
+    super(trace);
+    this.markedBuffer = markedBuffer;
+  }
+
+  @Override
+  @Inline
+  protected void scanObject(ObjectReference object) {
+    super.scanObject(object);
+    if (Space.isInSpace(RCImmix.RC_IMMIX, object)) {
+      RCImmix.rcImmixSpace.countLines(object);
+      markedBuffer.push(object);
+    }
+  }
+
+  @Override
+  public void release() {
+    ObjectReference object;
+    while (!(object = markedBuffer.pop()).isNull()) {
+      RCHeader.clearMarked(object);
+    }
+    super.release();
+  }
+}
@@ -0,0 +1,145 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.plan.refcount.immix;
+
+import org.mmtk.plan.TraceLocal;
+import org.mmtk.plan.TransitiveClosure;
+import org.mmtk.plan.refcount.RCBase;
+import org.mmtk.plan.refcount.RCBaseCollector;
+import org.mmtk.plan.refcount.RCHeader;
+import org.mmtk.policy.Space;
+import org.mmtk.policy.immix.CollectorLocal;
+import org.mmtk.utility.ForwardingWord;
+import org.mmtk.utility.alloc.ImmixAllocator;
+import org.mmtk.utility.deque.ObjectReferenceDeque;
+import org.mmtk.vm.VM;
+import org.vmmagic.pragma.*;
+import org.vmmagic.unboxed.Address;
+import org.vmmagic.unboxed.ObjectReference;
+
+/**
+ * This class implements the collector context for a reference counting
+ * collector on Immix lines.
+ */
+@Uninterruptible
+public class RCImmixCollector extends RCBaseCollector {
+  private final RCImmixFindRootSetTraceLocal rootTrace;
+  private final RCImmixModifiedProcessor modProcessor;
+  private final ImmixAllocator copy;
+  private final CollectorLocal immix;
+
+  public RCImmixCollector() {
+    super(new RCImmixBTTraceLocal(global().backupTrace, new ObjectReferenceDeque("marked", global().markedPool)));
+    copy = new ImmixAllocator(RCImmix.rcImmixSpace, true, true);
+    immix = new CollectorLocal(RCImmix.rcImmixSpace);
+    rootTrace = new RCImmixFindRootSetTraceLocal(global().rootTrace, newRootBuffer);
+    modProcessor = new RCImmixModifiedProcessor(rootTrace);
+  }
+
+  /****************************************************************************
+   *
+   * Collection
+   */
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public final void collectionPhase(short phaseId, boolean primary) {
+    if (phaseId == RCBase.PREPARE) {
+      super.collectionPhase(phaseId, primary);
+      immix.prepare(true);
+      copy.reset();
+      return;
+    }
+
+    if (phaseId == RCBase.RELEASE) {
+      super.collectionPhase(phaseId, primary);
+      immix.release(true);
+      copy.reset();
+      return;
+    }
+
+    super.collectionPhase(phaseId, primary);
+  }
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * Objects of the Immix space take themselves out of the counts of
+   * the lines they touch.
+   */
+  @Override
+  protected final void free(ObjectReference object) {
+    if (Space.isInSpace(RCImmix.RC_IMMIX, object)) {
+      RCImmix.rcImmixSpace.uncountLines(object);
+    } else {
+      super.free(object);
+    }
+  }
+
+  /****************************************************************************
+   *
+   * Collection-time allocation
+   */
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  @Inline
+  public final Address allocCopy(ObjectReference original, int bytes,
+      int align, int offset, int allocator) {
+    if (VM.VERIFY_ASSERTIONS) {
+      VM.assertions._assert(allocator == RCImmix.ALLOC_COPY);
+    }
+    return copy.alloc(bytes, align, offset);
+  }
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * The copy of a young object is counted, in the lines it was
+   * copied into.
+   */
+  @Override
+  @Inline
+  public final void postCopy(ObjectReference object, ObjectReference typeRef,
+                             int bytes, int allocator) {
+    ForwardingWord.clearForwardingBits(object);
+    RCHeader.initializeHeader(object, false);
+    RCHeader.makeUnlogged(object);
+    RCImmix.rcImmixSpace.countLines(object);
+  }
+
+  @Override
+  protected final TransitiveClosure getModifiedProcessor() {
+    return modProcessor;
+  }
+
+  @Override
+  protected final TraceLocal getRootTrace() {
+    return rootTrace;
+  }
+
+  /****************************************************************************
+   *
+   * Miscellaneous
+   */
+
+  /** @return The active global plan as an <code>RCImmix</code> instance. */
+  @Inline
+  protected static RCImmix global() {
+    return (RCImmix) VM.activePlan.global();
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.plan.refcount.immix;
+
+import org.mmtk.plan.TraceLocal;
+import org.mmtk.plan.Trace;
+import org.mmtk.plan.refcount.RCHeader;
+import org.mmtk.policy.Space;
+import org.mmtk.utility.ForwardingWord;
+import org.mmtk.utility.deque.ObjectReferenceDeque;
+import org.mmtk.vm.VM;
+
+import org.vmmagic.pragma.*;
+import org.vmmagic.unboxed.*;
+
+/**
+ * This class implements the thread-local core functionality for a transitive
+ * closure over the heap graph, finding the roots and promoting the young
+ * objects reachable from them.
+ */
+@Uninterruptible
+public final class RCImmixFindRootSetTraceLocal extends TraceLocal {
+
+  private final ObjectReferenceDeque rootBuffer;
+
+  public RCImmixFindRootSetTraceLocal(Trace trace, ObjectReferenceDeque rootBuffer) {
+    super(trace);
+    this.rootBuffer = rootBuffer;
+  }
+
+  /****************************************************************************
+   *
+   * Externally visible Object processing and tracing
+   */
+
+  /**
+   * Is the specified object reachable?
+   *
+   * @return <code>true</code> if the object is reachable.
+   */
+  @Override
+  public boolean isLive(ObjectReference object) {
+    return RCImmix.isRCObject(object) && RCHeader.isLiveRC(object) ||
+          (!Space.isInSpace(RCImmix.RC_IMMIX, object) && super.isLive(object));
+  }
+
+  /**
+   * When we trace a non-root object we count the reference.
+   */
+  @Override
+  @Inline
+  public ObjectReference traceObject(ObjectReference object) {
+    return traceObject(object, false);
+  }
+
+  /**
+   * When we trace a root object we remember it.
+   */
+  @Override
+  @Inline
+  public ObjectReference traceObject(ObjectReference object, boolean root) {
+    if (object.isNull()) return object;
+
+    if (Space.isInSpace(RCImmix.RC_IMMIX, object) && RCImmix.isYoung(object)) {
+      object = promote(object);
+    } else if (!RCImmix.isRCObject(object)) {
+      return object;
+    }
+
+    if (root) {
+      rootBuffer.push(object);
+    } else {
+      RCHeader.incRC(object);
+    }
+
+    return object;
+  }
+
+  /**
+   * Promote a young object.  The first thread to reach it copies it
+   * to other lines if there is still room to copy into, or else leaves
+   * it where it is, counts it in the lines it touches and marks it
+   * unlogged with a single store, which is what other threads spinning
+   * on its forwarding bits wait for.  Either way it is then scanned, so
+   * the objects it refers to are counted, and promoted if young.
+   *
+   * @param object The young object
+   * @return The object, which may have been moved.
+   */
+  @Inline
+  public ObjectReference promote(ObjectReference object) {
+    Word priorStatusWord = ForwardingWord.attemptToForward(object);
+    if (ForwardingWord.stateIsForwardedOrBeingForwarded(priorStatusWord)) {
+      return ForwardingWord.spinAndGetForwardedObject(object, priorStatusWord);
+    }
+    ObjectReference newObject;
+    if (RCImmix.rcImmixSpace.copySpaceExhausted()) {
+      RCImmix.rcImmixSpace.countLines(object);
+      VM.objectModel.writeAvailableByte(object, (byte) RCHeader.UNLOGGED.toInt());
+      newObject = object;
+    } else {
+      newObject = ForwardingWord.forwardObject(object, RCImmix.ALLOC_COPY);
+    }
+    processNode(newObject);
+    return newObject;
+  }
+
+  @Override
+  public boolean willNotMoveInCurrentCollection(ObjectReference object) {
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(!object.isNull());
+    return !(Space.isInSpace(RCImmix.RC_IMMIX, object) && RCImmix.isYoung(object));
+  }
+}
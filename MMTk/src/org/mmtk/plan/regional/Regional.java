@@ -0,0 +1,419 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.plan.regional;
+
+import static org.mmtk.utility.Constants.LOG_BYTES_IN_PAGE;
+
+import org.mmtk.plan.*;
+import org.mmtk.plan.concurrent.Concurrent;
+import org.mmtk.policy.RegionSpace;
+import org.mmtk.policy.Space;
+import org.mmtk.utility.Log;
+import org.mmtk.utility.deque.SharedDeque;
+import org.mmtk.utility.heap.VMRequest;
+import org.mmtk.utility.options.Options;
+import org.mmtk.vm.Lock;
+import org.mmtk.vm.VM;
+
+import org.vmmagic.pragma.*;
+
+/**
+ * This class implements the global state of a region-based collector
+ * that tries to keep its pauses within a goal (see {@link PauseGoal}).<p>
+ *
+ * The heap is a {@link RegionSpace}.  Mutators allocate into eden
+ * regions, and each ordinary collection is an <i>evacuation</i>: all
+ * eden regions, plus some old regions, form the collection set, whose
+ * reachable objects are copied into fresh old regions.  The rest of
+ * the heap is not traced.  Instead, pointers into the collection set
+ * from outside it are found through a remembered set of objects,
+ * maintained by an object logging write barrier: the first write to an
+ * old (or other non-eden) object since it was last looked at logs it,
+ * each evacuation scans the logged objects, and those that still point
+ * out of their own region are remembered, and scanned again by every
+ * evacuation until they no longer do.<p>
+ *
+ * When old regions fill a share of the heap set by the concurrent
+ * trigger, a <i>mark</i> is started, which traces the whole heap
+ * concurrently with the mutators using the snapshot barrier of
+ * {@link Concurrent}, counting the live bytes in each old region.  The
+ * mark frees old regions with nothing live in them and makes the
+ * sparse ones candidates, which the following evacuations take,
+ * sparsest first, as far as the pause goal allows.  Evacuations do not
+ * run while a mark is in progress: a collection requested then
+ * finishes the mark instead.<p>
+ *
+ * The pause goal is met by prediction.  Each evacuation measures its
+ * cost per byte copied (scanning a remembered object counts as
+ * <code>REMSET_WEIGHT</code> bytes) and the share of eden that
+ * survives, and from these sets the size of eden, and the budget for
+ * candidates, for the next one.
+ */
+@Uninterruptible
+public class Regional extends Concurrent {
+
+  /****************************************************************************
+   * Constants
+   */
+
+  /** The cost of scanning a remembered object, in bytes copied */
+  private static final int REMSET_WEIGHT = 64;
+
+  /** The largest share of the heap eden may take, as a percentage */
+  private static final int MAX_EDEN_PERCENT = 60;
+
+  /** The share of the heap eden starts at, before there are any measurements */
+  private static final int INITIAL_EDEN_PERCENT = 5;
+
+  /** The weight of the latest measurement in the running averages */
+  private static final double DECAY = 0.3;
+
+  /** The least survival rate assumed when sizing eden */
+  private static final double MIN_SURVIVAL = 0.01;
+
+  /****************************************************************************
+   * Class variables
+   */
+
+  /**
+   *
+   */
+  public static final RegionSpace regionSpace = new RegionSpace("region", VMRequest.discontiguous());
+  public static final int REGIONS = regionSpace.getDescriptor();
+
+  public static final int ALLOC_OLD = Concurrent.ALLOCATORS + 1;
+
+  static {
+    smallCodeSpace.makeAllocAsMarked();
+    nonMovingSpace.makeAllocAsMarked();
+  }
+
+  // CHECKSTYLE:OFF
+
+  /**
+   * Mark from the roots concurrently.  Evacuations share the other
+   * phases of the collection with marks, so they are left atomic.
+   */
+  protected static final short markRootClosurePhase = Phase.createComplex("mark-initial-closure", null,
+      Phase.scheduleMutator    (PREPARE),
+      Phase.scheduleGlobal     (PREPARE),
+      Phase.scheduleCollector  (PREPARE),
+      Phase.scheduleComplex    (prepareStacks),
+      Phase.scheduleCollector  (STACK_ROOTS),
+      Phase.scheduleGlobal     (STACK_ROOTS),
+      Phase.scheduleCollector  (ROOTS),
+      Phase.scheduleGlobal     (ROOTS),
+      Phase.scheduleGlobal     (CLOSURE),
+      Phase.scheduleComplex    (concurrentClosure));
+
+  // CHECKSTYLE:ON
+
+  /****************************************************************************
+   * Instance variables
+   */
+
+  /**
+   *
+   */
+  public final Trace markTrace = new Trace(metaDataSpace);
+  public final Trace evacuateTrace = new Trace(metaDataSpace);
+
+  /** Objects logged by the write barrier since the last evacuation */
+  public final SharedDeque modPool = new SharedDeque("regional mod objects", metaDataSpace, 1);
+
+  /** The remembered set, which alternates between two pools, since evacuations rebuild it */
+  public final SharedDeque remsetPool0 = new SharedDeque("regional remset 0", metaDataSpace, 1);
+  public final SharedDeque remsetPool1 = new SharedDeque("regional remset 1", metaDataSpace, 1);
+  private boolean remsetFlipped = false;
+
+  /**
+   * This is the phase that is executed to perform a mark.
+   */
+  public short markCollection = Phase.createComplex("mark-collection", null,
+      Phase.scheduleComplex(initPhase),
+      Phase.scheduleComplex(markRootClosurePhase),
+      Phase.scheduleComplex(refTypeClosurePhase),
+      Phase.scheduleComplex(forwardPhase),
+      Phase.scheduleComplex(completeClosurePhase),
+      Phase.scheduleComplex(finishPhase));
+
+  /** Is the current collection a mark? */
+  boolean markCycle;
+  private boolean forceMark;
+  private boolean evacuatedSinceMark = true;
+
+  /* The pause model */
+  private final Lock statsLock = VM.newLock("regional-stats");
+  private long pauseStart;
+  private int edenRegionsCollected;
+  private long edenBytesCopied;
+  private long oldBytesCopied;
+  private long remsetScans;
+  private long remembered;
+  private double nsPerByte;
+  private double survival = 1.0;
+  private int edenTarget;
+  private long candidateBudget;
+
+  /*****************************************************************************
+   *
+   * Collection
+   */
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * Marks schedule their own concurrent closure, so the replacement of
+   * the closure made by {@link Concurrent} is refused, which leaves
+   * evacuations atomic.  Other replacements apply to both kinds of
+   * collection.
+   */
+  @Override
+  @Interruptible
+  public void replacePhase(int oldScheduledPhase, int newScheduledPhase) {
+    if (oldScheduledPhase == Phase.scheduleCollector(CLOSURE)) return;
+    super.replacePhase(oldScheduledPhase, newScheduledPhase);
+    ComplexPhase cp = (ComplexPhase)Phase.getPhase(markCollection);
+    cp.replacePhase(oldScheduledPhase, newScheduledPhase);
+  }
+
+  /**
+   * Should the next collection be a mark rather than an evacuation?
+   * Collector threads decide which phases to run from this before the
+   * collection starts, so it must not change during a collection.
+   *
+   * @return {@code true} if the next collection should be a mark
+   */
+  public final boolean markCycleRequested() {
+    return Plan.isInternalTriggeredCollection() || Plan.isUserTriggeredCollection() || forceMark;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  @Inline
+  public void collectionPhase(short phaseId) {
+    if (phaseId == SET_COLLECTION_KIND) {
+      markCycle = markCycleRequested();
+      super.collectionPhase(phaseId);
+      return;
+    }
+
+    if (phaseId == PREPARE) {
+      if (markCycle) {
+        super.collectionPhase(phaseId);
+        markTrace.prepareNonBlocking();
+        regionSpace.prepareMark();
+      } else {
+        pauseStart = VM.statistics.nanoTime();
+        evacuateTrace.prepare();
+        modPool.prepareNonBlocking();
+        remsetIn().prepareNonBlocking();
+        edenRegionsCollected = regionSpace.getEdenRegions();
+        regionSpace.prepareEvacuation(candidateBudget);
+        edenBytesCopied = 0;
+        oldBytesCopied = 0;
+        remsetScans = 0;
+        remembered = 0;
+      }
+      return;
+    }
+
+    if (phaseId == CLOSURE) {
+      if (!markCycle) evacuateTrace.prepare();
+      return;
+    }
+
+    if (phaseId == RELEASE) {
+      if (markCycle) {
+        markTrace.release();
+        modPool.reset();
+        remsetOut().reset();
+        regionSpace.releaseMark();
+        evacuatedSinceMark = false;
+        super.collectionPhase(phaseId);
+      } else {
+        evacuateTrace.release();
+        modPool.reset();
+        remsetIn().reset();
+        remsetFlipped = !remsetFlipped;
+        regionSpace.releaseEvacuation();
+        updatePauseModel();
+        evacuatedSinceMark = true;
+        if (getPagesAvail() < edenTarget * RegionSpace.PAGES_IN_REGION) {
+          forceMark = true;
+        }
+      }
+      return;
+    }
+
+    if (phaseId == COMPLETE) {
+      if (markCycle) forceMark = false;
+      super.collectionPhase(phaseId);
+      return;
+    }
+
+    super.collectionPhase(phaseId);
+  }
+
+  @Override
+  public void forceFullHeapCollection() {
+    forceMark = true;
+  }
+
+  /** @return The pool holding the remembered set, which an evacuation reads */
+  final SharedDeque remsetIn() {
+    return remsetFlipped ? remsetPool1 : remsetPool0;
+  }
+
+  /** @return The pool an evacuation writes the new remembered set to */
+  final SharedDeque remsetOut() {
+    return remsetFlipped ? remsetPool0 : remsetPool1;
+  }
+
+  /**
+   * Collector threads report their part of an evacuation here, at the
+   * end of it.
+   *
+   * @param edenCopied Bytes copied out of eden regions
+   * @param oldCopied Bytes copied out of old regions
+   * @param scans Remembered or logged objects scanned
+   * @param rememberedObjects Objects remembered for the next evacuation
+   */
+  public final void reportEvacuation(long edenCopied, long oldCopied, long scans, long rememberedObjects) {
+    statsLock.acquire();
+    edenBytesCopied += edenCopied;
+    oldBytesCopied += oldCopied;
+    remsetScans += scans;
+    remembered += rememberedObjects;
+    statsLock.release();
+  }
+
+  /****************************************************************************
+   *
+   * The pause model
+   */
+
+  /**
+   * Fold the measurements of the evacuation that is finishing into the
+   * model, then size eden and the candidate budget for the next one.
+   */
+  private void updatePauseModel() {
+    long pauseNs = VM.statistics.nanoTime() - pauseStart;
+    long bytes = edenBytesCopied + oldBytesCopied + REMSET_WEIGHT * remsetScans;
+    if (bytes > 0) {
+      nsPerByte = average(nsPerByte, (double) pauseNs / bytes);
+    }
+    if (edenRegionsCollected > 0) {
+      survival = average(survival, (double) edenBytesCopied / ((long) edenRegionsCollected * RegionSpace.BYTES_IN_REGION));
+    }
+    double goalBytes = (nsPerByte == 0) ? 0 : Options.pauseGoal.getMicroseconds() * 1000.0 / nsPerByte;
+    double edenBytes = goalBytes - REMSET_WEIGHT * remembered;
+    double edenSurvival = survival < MIN_SURVIVAL ? MIN_SURVIVAL : survival;
+    edenTarget = clampEden((int) (edenBytes / (edenSurvival * RegionSpace.BYTES_IN_REGION)));
+    double budget = edenBytes - edenSurvival * edenTarget * RegionSpace.BYTES_IN_REGION;
+    candidateBudget = budget < 0 ? 0 : (long) budget;
+
+    if (Options.verbose.getValue() >= 2) {
+      Log.write("[Regional pause "); Log.write(VM.statistics.nanosToMillis(pauseNs));
+      Log.write("ms copied "); Log.write(edenBytesCopied + oldBytesCopied);
+      Log.write(" remembered "); Log.write(remembered);
+      Log.write(" eden "); Log.write(edenTarget);
+      Log.write(" candidates "); Log.write(regionSpace.getCandidateRegions());
+      Log.writeln("]");
+    }
+  }
+
+  private static double average(double old, double sample) {
+    return old == 0 ? sample : old + DECAY * (sample - old);
+  }
+
+  private int clampEden(int regions) {
+    int max = (getTotalPages() / RegionSpace.PAGES_IN_REGION) * MAX_EDEN_PERCENT / 100;
+    if (regions > max) regions = max;
+    return regions < 1 ? 1 : regions;
+  }
+
+  /**
+   * @return The number of eden regions allocated before an evacuation
+   */
+  private int getEdenTarget() {
+    if (edenTarget == 0) {
+      edenTarget = clampEden((getTotalPages() / RegionSpace.PAGES_IN_REGION) * INITIAL_EDEN_PERCENT / 100);
+    }
+    return edenTarget;
+  }
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * An evacuation is due when eden reaches its target.
+   */
+  @Override
+  protected boolean collectionRequired(boolean spaceFull, Space space) {
+    if (space == regionSpace && regionSpace.getEdenRegions() >= getEdenTarget()) {
+      return true;
+    }
+    return super.collectionRequired(spaceFull, space);
+  }
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * A mark is due when old objects fill the share of the heap set by
+   * the concurrent trigger, unless candidates from the last mark are
+   * still waiting to be evacuated.
+   */
+  @Override
+  protected boolean concurrentCollectionRequired() {
+    if (Phase.concurrentPhaseActive() || !evacuatedSinceMark || regionSpace.getCandidateRegions() > 0) {
+      return false;
+    }
+    int oldPages = getPagesUsed() - regionSpace.getEdenRegions() * RegionSpace.PAGES_IN_REGION;
+    return ((oldPages * 100) / getTotalPages()) > Options.concurrentTrigger.getValue();
+  }
+
+  @Override
+  public boolean lastCollectionFullHeap() {
+    return markCycle;
+  }
+
+  /*****************************************************************************
+   *
+   * Accounting
+   */
+
+  /**
+   * {@inheritDoc}
+   * The superclass accounts for its spaces, we just
+   * augment this with the region space's contribution.
+   */
+  @Override
+  public int getPagesUsed() {
+    return regionSpace.reservedPages() + super.getPagesUsed();
+  }
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * An evacuation may copy all of eden and the candidate budget, and
+   * each collector thread may leave a region partly filled.
+   */
+  @Override
+  public int getCollectionReserve() {
+    int regions = regionSpace.getEdenRegions() + VM.activePlan.collectorCount();
+    return regions * RegionSpace.PAGES_IN_REGION + (int) (candidateBudget >>> LOG_BYTES_IN_PAGE) +
+      super.getCollectionReserve();
+  }
+}
@@ -0,0 +1,221 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.plan.regional;
+
+import org.mmtk.plan.*;
+import org.mmtk.plan.concurrent.ConcurrentCollector;
+import org.mmtk.policy.RegionLocal;
+import org.mmtk.policy.RegionSpace;
+import org.mmtk.utility.ForwardingWord;
+import org.mmtk.utility.HeaderByte;
+import org.mmtk.utility.deque.ObjectReferenceDeque;
+import org.mmtk.vm.VM;
+
+import org.vmmagic.pragma.*;
+import org.vmmagic.unboxed.*;
+
+/**
+ * This class implements <i>per-collector thread</i> behavior
+ * and state for the <i>Regional</i> plan.<p>
+ *
+ * Each collection is either a mark or an evacuation (see
+ * {@link Regional}), and the phases are told apart by the trace in use.
+ *
+ * @see Regional
+ * @see RegionalMutator
+ * @see ConcurrentCollector
+ */
+@Uninterruptible
+public class RegionalCollector extends ConcurrentCollector {
+
+  /****************************************************************************
+   * Instance fields
+   */
+
+  /**
+   *
+   */
+  private final RegionLocal old;
+  private final RegionalMarkTraceLocal markTrace;
+  private final RegionalEvacuateTraceLocal evacuateTrace;
+  private final ObjectReferenceDeque modBuffer;
+  private final ObjectReferenceDeque remset0;
+  private final ObjectReferenceDeque remset1;
+  private long edenCopied;
+  private long oldCopied;
+
+  /****************************************************************************
+   * Initialization
+   */
+
+  /**
+   * Constructor
+   */
+  public RegionalCollector() {
+    old = new RegionLocal(Regional.regionSpace, RegionSpace.OLD);
+    modBuffer = new ObjectReferenceDeque("mod buffer", global().modPool);
+    remset0 = new ObjectReferenceDeque("remset 0", global().remsetPool0);
+    remset1 = new ObjectReferenceDeque("remset 1", global().remsetPool1);
+    markTrace = new RegionalMarkTraceLocal(global().markTrace);
+    evacuateTrace = new RegionalEvacuateTraceLocal(global().evacuateTrace, modBuffer, remset0, remset1);
+  }
+
+  /****************************************************************************
+   *
+   * Collection-time allocation
+   */
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  @Inline
+  public Address allocCopy(ObjectReference original, int bytes,
+      int align, int offset, int allocator) {
+    if (VM.VERIFY_ASSERTIONS) {
+      VM.assertions._assert(bytes <= RegionSpace.MAX_OBJECT_BYTES);
+      VM.assertions._assert(allocator == Regional.ALLOC_OLD);
+    }
+    if (RegionSpace.isEden(original)) {
+      edenCopied += bytes;
+    } else {
+      oldCopied += bytes;
+    }
+    return old.alloc(bytes, align, offset);
+  }
+
+  @Override
+  @Inline
+  public void postCopy(ObjectReference object, ObjectReference typeRef,
+      int bytes, int allocator) {
+    ForwardingWord.clearForwardingBits(object);
+  }
+
+  /****************************************************************************
+   *
+   * Collection
+   */
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * Marks and evacuations run different phases, chosen here, before
+   * the collection starts.
+   */
+  @Override
+  public void collect() {
+    if (!Phase.isPhaseStackEmpty()) {
+      Phase.continuePhaseStack();
+    } else if (global().markCycleRequested()) {
+      Phase.beginNewPhaseStack(Phase.scheduleComplex(global().markCollection));
+    } else {
+      Phase.beginNewPhaseStack(Phase.scheduleComplex(global().collection));
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  @Inline
+  public void collectionPhase(short phaseId, boolean primary) {
+    if (phaseId == Regional.PREPARE) {
+      super.collectionPhase(phaseId, primary);
+      getCurrentTrace().prepare();
+      edenCopied = 0;
+      oldCopied = 0;
+      return;
+    }
+
+    if (phaseId == Regional.CLOSURE) {
+      getCurrentTrace().completeTrace();
+      return;
+    }
+
+    if (phaseId == Regional.RELEASE) {
+      if (global().markCycle) {
+        markTrace.release();
+        if (primary) filterRememberedSets();
+      } else {
+        old.retire();
+        global().reportEvacuation(edenCopied, oldCopied, evacuateTrace.getRemsetScans(), evacuateTrace.getRemembered());
+        evacuateTrace.release();
+      }
+      super.collectionPhase(phaseId, primary);
+      return;
+    }
+
+    super.collectionPhase(phaseId, primary);
+  }
+
+  /**
+   * Bring the remembered set up to date with a finished mark.  Dead
+   * objects are dropped, since the memory they are in may be freed,
+   * and so are duplicates: objects whose unlogged bit was set by the
+   * marking of other spaces may have been logged again while also
+   * remembered.  Logged objects join the remembered set, which the next
+   * evacuation scans anyway.  This is done by one thread, in two passes,
+   * the first setting the unlogged bit of every object kept, the second
+   * keeping only the first entry for an object to find the bit set.
+   */
+  private void filterRememberedSets() {
+    ObjectReferenceDeque in = global().remsetIn() == global().remsetPool0 ? remset0 : remset1;
+    ObjectReferenceDeque out = in == remset0 ? remset1 : remset0;
+    global().modPool.prepareNonBlocking();
+    global().remsetIn().prepareNonBlocking();
+    while (!modBuffer.isEmpty()) {
+      keepIfLive(modBuffer.pop(), out);
+    }
+    while (!in.isEmpty()) {
+      keepIfLive(in.pop(), out);
+    }
+    out.flushLocal();
+    global().remsetOut().prepareNonBlocking();
+    while (!out.isEmpty()) {
+      ObjectReference object = out.pop();
+      if (HeaderByte.isUnlogged(object)) {
+        HeaderByte.markAsLogged(object);
+        in.push(object);
+      }
+    }
+    in.flushLocal();
+  }
+
+  private void keepIfLive(ObjectReference object, ObjectReferenceDeque out) {
+    if (markTrace.isLive(object)) {
+      HeaderByte.markAsUnlogged(object);
+      out.push(object);
+    }
+  }
+
+  @Override
+  protected boolean concurrentTraceComplete() {
+    return !global().markTrace.hasWork();
+  }
+
+  /****************************************************************************
+   *
+   * Miscellaneous
+   */
+
+  /** @return The active global plan as a <code>Regional</code> instance. */
+  @Inline
+  private static Regional global() {
+    return (Regional) VM.activePlan.global();
+  }
+
+  @Override
+  public final TraceLocal getCurrentTrace() {
+    return global().markCycle ? (TraceLocal) markTrace : (TraceLocal) evacuateTrace;
+  }
+}
@@ -0,0 +1,225 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.plan.regional;
+
+import org.mmtk.plan.TraceLocal;
+import org.mmtk.plan.Trace;
+import org.mmtk.plan.TransitiveClosure;
+import org.mmtk.policy.RegionSpace;
+import org.mmtk.policy.Space;
+import org.mmtk.utility.HeaderByte;
+import org.mmtk.utility.deque.ObjectReferenceDeque;
+import org.mmtk.vm.VM;
+
+import org.vmmagic.pragma.*;
+import org.vmmagic.unboxed.*;
+
+/**
+ * This class implements the thread-local functionality for an
+ * evacuation of the <i>Regional</i> plan.<p>
+ *
+ * Only the collection set is traced.  Objects logged by the write
+ * barrier and remembered objects are scanned in place, and so are the
+ * copies made.  Every object scanned is then looked at again: if it
+ * still points out of its own region it is remembered for the next
+ * evacuation, otherwise its unlogged bit is set, so the write barrier
+ * logs it the next time it is written.
+ */
+@Uninterruptible
+public final class RegionalEvacuateTraceLocal extends TraceLocal {
+
+  /****************************************************************************
+   *
+   * Instance fields
+   */
+
+  /**
+   *
+   */
+  private final ObjectReferenceDeque modBuffer;
+  private final ObjectReferenceDeque remset0;
+  private final ObjectReferenceDeque remset1;
+  private final RemsetScanner scanner = new RemsetScanner();
+  private ObjectReferenceDeque remsetIn;
+  private ObjectReferenceDeque remsetOut;
+  private long remsetScans;
+  private long remembered;
+
+  /**
+   * Constructor
+   *
+   * @param trace The global trace to use.
+   * @param modBuffer The buffer of objects logged by the write barrier
+   * @param remset0 The buffer of remembered objects in the first pool
+   * @param remset1 The buffer of remembered objects in the second pool
+   */
+  public RegionalEvacuateTraceLocal(Trace trace, ObjectReferenceDeque modBuffer,
+      ObjectReferenceDeque remset0, ObjectReferenceDeque remset1) {
+    super(trace);
+    this.modBuffer = modBuffer;
+    this.remset0 = remset0;
+    this.remset1 = remset1;
+  }
+
+  /****************************************************************************
+   *
+   * Externally visible Object processing and tracing
+   */
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean isLive(ObjectReference object) {
+    if (object.isNull()) return false;
+    if (Space.isInSpace(Regional.REGIONS, object)) {
+      return Regional.regionSpace.isLive(object);
+    }
+    return true;
+  }
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * In this instance, objects in the collection set are forwarded,
+   * all others are left alone.
+   */
+  @Override
+  @Inline
+  public ObjectReference traceObject(ObjectReference object) {
+    if (object.isNull()) return object;
+    if (Space.isInSpace(Regional.REGIONS, object))
+      return Regional.regionSpace.traceEvacuateObject(this, object, Regional.ALLOC_OLD);
+    return object;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean willNotMoveInCurrentCollection(ObjectReference object) {
+    return !isEvacuating(object);
+  }
+
+  @Inline
+  private static boolean isEvacuating(ObjectReference object) {
+    return Space.isInSpace(Regional.REGIONS, object) && RegionSpace.inCollectionSet(object);
+  }
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * Once scanned, an object is remembered if it still points out of
+   * its own region.
+   */
+  @Override
+  @Inline
+  protected void scanObject(ObjectReference object) {
+    super.scanObject(object);
+    if (scanner.pointsOutOfRegion(object)) {
+      HeaderByte.markAsLogged(object);
+      remsetOut.push(object);
+      remembered++;
+    } else {
+      HeaderByte.markAsUnlogged(object);
+    }
+  }
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * Logged and remembered objects outside the collection set are
+   * scanned.  Those inside it are dropped: if they are reachable, their
+   * copies are scanned instead.
+   */
+  @Override
+  protected void processRememberedSets() {
+    logMessage(2, "processing modBuffer");
+    processRememberedSet(modBuffer);
+    logMessage(2, "processing remembered set");
+    processRememberedSet(remsetIn);
+  }
+
+  private void processRememberedSet(ObjectReferenceDeque deque) {
+    while (!deque.isEmpty()) {
+      ObjectReference object = deque.pop();
+      if (!isEvacuating(object)) {
+        remsetScans++;
+        processNode(object);
+      }
+    }
+  }
+
+  @Override
+  public void prepare() {
+    super.prepare();
+    boolean flipped = global().remsetIn() == global().remsetPool1;
+    remsetIn = flipped ? remset1 : remset0;
+    remsetOut = flipped ? remset0 : remset1;
+    remsetScans = 0;
+    remembered = 0;
+  }
+
+  @Override
+  public void release() {
+    remsetOut.flushLocal();
+    super.release();
+  }
+
+  /** @return The number of logged or remembered objects this thread scanned */
+  public long getRemsetScans() {
+    return remsetScans;
+  }
+
+  /** @return The number of objects this thread remembered */
+  public long getRemembered() {
+    return remembered;
+  }
+
+  /** @return The active global plan as a <code>Regional</code> instance. */
+  @Inline
+  private static Regional global() {
+    return (Regional) VM.activePlan.global();
+  }
+
+  /**
+   * Finds out whether an object has a reference to an object in the
+   * region space, in a region other than its own.
+   */
+  @Uninterruptible
+  private static final class RemsetScanner extends TransitiveClosure {
+    private Address region;
+    private boolean found;
+
+    /**
+     * @param object The object to scan
+     * @return {@code true} if the object points into another region
+     */
+    boolean pointsOutOfRegion(ObjectReference object) {
+      region = Space.isInSpace(Regional.REGIONS, object) ? RegionSpace.regionOf(object) : Address.zero();
+      found = false;
+      VM.scanning.scanObject(this, object);
+      return found;
+    }
+
+    @Override
+    @Inline
+    public void processEdge(ObjectReference source, Address slot) {
+      if (found) return;
+      ObjectReference target = VM.activePlan.global().loadObjectReference(slot);
+      if (!target.isNull() && Space.isInSpace(Regional.REGIONS, target)) {
+        found = RegionSpace.regionOf(target).NE(region);
+      }
+    }
+  }
+}
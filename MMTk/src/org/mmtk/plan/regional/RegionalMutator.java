@@ -0,0 +1,227 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.plan.regional;
+
+import org.mmtk.plan.*;
+import org.mmtk.plan.concurrent.ConcurrentMutator;
+import org.mmtk.policy.RegionLocal;
+import org.mmtk.policy.RegionSpace;
+import org.mmtk.policy.Space;
+import org.mmtk.utility.HeaderByte;
+import org.mmtk.utility.alloc.Allocator;
+import org.mmtk.utility.deque.ObjectReferenceDeque;
+import org.mmtk.vm.VM;
+
+import org.vmmagic.pragma.*;
+import org.vmmagic.unboxed.*;
+
+/**
+ * This class implements <i>per-mutator thread</i> behavior
+ * and state for the <i>Regional</i> plan.<p>
+ *
+ * Mutators allocate into their own eden region.  On top of the
+ * snapshot barrier of {@link ConcurrentMutator}, which is only active
+ * while marking, every reference write logs its source object the
+ * first time it is written after it was last looked at by an
+ * evacuation.  Eden objects are never logged, since every evacuation
+ * collects all of eden.
+ *
+ * @see Regional
+ * @see RegionalCollector
+ * @see ConcurrentMutator
+ * @see MutatorContext
+ */
+@Uninterruptible
+public class RegionalMutator extends ConcurrentMutator {
+
+  /****************************************************************************
+   * Instance fields
+   */
+
+  /**
+   *
+   */
+  private final RegionLocal eden;
+  private final TraceWriteBuffer remset;
+  private final ObjectReferenceDeque modBuffer;
+
+  /****************************************************************************
+   *
+   * Initialization
+   */
+
+  /**
+   * Constructor
+   */
+  public RegionalMutator() {
+    eden = new RegionLocal(Regional.regionSpace, RegionSpace.EDEN);
+    remset = new TraceWriteBuffer(global().markTrace);
+    modBuffer = new ObjectReferenceDeque("mod buf", global().modPool);
+  }
+
+  /****************************************************************************
+   *
+   * Mutator-time allocation
+   */
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * This class handles the default allocator from eden, and
+   * delegates everything else to the superclass.
+   */
+  @Inline
+  @Override
+  public Address alloc(int bytes, int align, int offset, int allocator, int site) {
+    if (allocator == Regional.ALLOC_DEFAULT) {
+      return eden.alloc(bytes, align, offset);
+    }
+    return super.alloc(bytes, align, offset, allocator, site);
+  }
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * Eden objects need no header initialization, since regions are
+   * zeroed and a zeroed header is neither marked nor unlogged.
+   */
+  @Inline
+  @Override
+  public void postAlloc(ObjectReference ref, ObjectReference typeRef,
+      int bytes, int allocator) {
+    if (allocator == Regional.ALLOC_DEFAULT) return;
+    super.postAlloc(ref, typeRef, bytes, allocator);
+  }
+
+  @Override
+  public Allocator getAllocatorFromSpace(Space space) {
+    if (space == Regional.regionSpace) return eden;
+    return super.getAllocatorFromSpace(space);
+  }
+
+  /****************************************************************************
+   *
+   * Collection
+   */
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * An evacuation collects eden and none of the other spaces, so only
+   * the eden region is given up.
+   */
+  @Override
+  @Inline
+  public void collectionPhase(short phaseId, boolean primary) {
+    boolean markCycle = global().markCycle;
+
+    if (phaseId == Regional.PREPARE) {
+      flushRememberedSets();
+      if (markCycle) {
+        super.collectionPhase(phaseId, primary);
+      } else {
+        eden.retire();
+      }
+      return;
+    }
+
+    if (phaseId == Regional.RELEASE) {
+      flushRememberedSets();
+      if (markCycle) {
+        super.collectionPhase(phaseId, primary);
+      }
+      return;
+    }
+
+    super.collectionPhase(phaseId, primary);
+  }
+
+  @Override
+  public void flushRememberedSets() {
+    remset.flush();
+    modBuffer.flushLocal();
+  }
+
+  /****************************************************************************
+   *
+   * Write and read barriers.
+   */
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * The snapshot barrier is followed by the object logging barrier.
+   */
+  @Inline
+  @Override
+  public void objectReferenceWrite(ObjectReference src, Address slot, ObjectReference tgt, Word metaDataA, Word metaDataB, int mode) {
+    if (barrierActive) checkAndEnqueueReference(slot.loadObjectReference());
+    if (HeaderByte.isUnlogged(src)) logSource(src);
+    VM.barriers.objectReferenceWrite(src, tgt, metaDataA, metaDataB, mode);
+  }
+
+  @Inline
+  @Override
+  public boolean objectReferenceTryCompareAndSwap(ObjectReference src, Address slot, ObjectReference old,
+                                               ObjectReference tgt, Word metaDataA, Word metaDataB, int mode) {
+    if (HeaderByte.isUnlogged(src)) logSource(src);
+    return super.objectReferenceTryCompareAndSwap(src, slot, old, tgt, metaDataA, metaDataB, mode);
+  }
+
+  @Inline
+  @Override
+  public boolean objectReferenceBulkCopy(ObjectReference src, Offset srcOffset, ObjectReference dst, Offset dstOffset, int bytes) {
+    if (HeaderByte.isUnlogged(dst)) logSource(dst);
+    return super.objectReferenceBulkCopy(src, srcOffset, dst, dstOffset, bytes);
+  }
+
+  /**
+   * Log an object.  The unlogged bit is cleared atomically, since the
+   * concurrent mark sets mark bits in the same byte.
+   *
+   * @param src The object being written
+   */
+  @NoInline
+  private void logSource(ObjectReference src) {
+    if (RegionSpace.attemptToLog(src)) {
+      modBuffer.push(src);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected void checkAndEnqueueReference(ObjectReference ref) {
+    if (ref.isNull()) return;
+    if (barrierActive) {
+      if      (Space.isInSpace(Regional.REGIONS,    ref)) Regional.regionSpace.traceMarkObject(remset, ref);
+      else if (Space.isInSpace(Regional.IMMORTAL,   ref)) Regional.immortalSpace.traceObject(remset, ref);
+      else if (Space.isInSpace(Regional.LOS,        ref)) Regional.loSpace.traceObject(remset, ref);
+      else if (Space.isInSpace(Regional.NON_MOVING, ref)) Regional.nonMovingSpace.traceObject(remset, ref);
+      else if (Space.isInSpace(Regional.SMALL_CODE, ref)) Regional.smallCodeSpace.traceObject(remset, ref);
+      else if (Space.isInSpace(Regional.LARGE_CODE, ref)) Regional.largeCodeSpace.traceObject(remset, ref);
+    }
+  }
+
+  /****************************************************************************
+   *
+   * Miscellaneous
+   */
+
+  /** @return The active global plan as a <code>Regional</code> instance. */
+  @Inline
+  private static Regional global() {
+    return (Regional) VM.activePlan.global();
+  }
+}
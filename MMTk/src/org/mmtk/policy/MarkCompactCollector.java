@@ -34,10 +34,13 @@ import org.vmmagic.unboxed.ObjectReference;
  *  <li>Performs the compaction pass over the heap.</li>
  * </ul>
  *<p>
- * Each collector thread maintains a private list of the pages that it compacts.
- * If it runs out of work during the calculateForwardingPointers pass, it requests
- * a new region from the global MarkCompactSpace.  Regions compacted by a collector
- * remain local to the collector.
+ * The regions of the space are shared out between the collector threads in
+ * contiguous slices holding roughly equal volumes of live data.  Each collector
+ * first records the live bytes of an equal number of regions in a side table,
+ * then claims the slice whose share of the running total (the prefix sum of the
+ * table) falls to it.  A collector compacts its slice into itself, independently
+ * of the others, and returns the regions that survive to the global
+ * MarkCompactSpace.
  *
  * @see MarkCompactSpace
  * @see MarkCompactLocal
@@ -56,6 +59,12 @@ public final class MarkCompactCollector {
    */
   private Address regions = Address.zero();
 
+  /**
+   * The last region of this collector's work list, until the list is cut
+   * from the regions of the other collectors
+   */
+  private Address lastRegion = Address.zero();
+
   private final FromCursor fromCursor = new FromCursor();
   private final ToCursor toCursor = new ToCursor();
 
@@ -286,27 +295,6 @@ public final class MarkCompactCollector {
       if (VM.VERIFY_ASSERTIONS) assertCursorInBounds();
     }
 
-    /**
-     * Advance the cursor either to the next region in the list,
-     * or to a new region allocated from the global list.
-     * @param space the space that acts as the global list
-     */
-    void advanceToNextForwardableRegion(MarkCompactSpace space) {
-      if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(get().EQ(getLimit()));
-      Address nextRegion = BumpPointer.getNextRegion(region);
-      if (nextRegion.isZero()) {
-        nextRegion = space.getNextRegion();
-        if (nextRegion.isZero()) {
-          region = Address.zero();
-          return;
-        }
-        MarkCompactLocal.setNextRegion(region,nextRegion);
-        MarkCompactLocal.clearNextRegion(nextRegion);
-      }
-      init(nextRegion);
-      if (VM.VERIFY_ASSERTIONS) assertCursorInBounds();
-    }
-
     /**
      * Override the superclass with an additional assertion - we only advance
      * when we have read to the end, and the cursor must point *precisely*
@@ -422,6 +410,82 @@ public final class MarkCompactCollector {
 
   /* ***************************************************************************************** */
 
+  /**
+   * Record the live bytes of this collector's share of the regions being
+   * compacted in the side table.  The regions are divided by number, so
+   * that the shares can be found without any knowledge of their contents.
+   */
+  public void summarize() {
+    int ordinal = VM.activePlan.collector().parallelWorkerOrdinal();
+    int workers = VM.activePlan.collector().parallelWorkerCount();
+    int count = space.getCompactionRegionCount();
+    int first = (int) ((long) count * ordinal / workers);
+    int last = (int) ((long) count * (ordinal + 1) / workers);
+
+    Address region = space.getCompactionList();
+    for (int i = 0; i < first; i++) {
+      region = MarkCompactLocal.getNextRegion(region);
+    }
+    long total = 0;
+    for (int i = first; i < last; i++) {
+      int live = liveBytes(region);
+      MarkCompactSpace.setLiveBytes(region, live);
+      total += live;
+      region = MarkCompactLocal.getNextRegion(region);
+    }
+    space.addCompactionLiveBytes(total);
+  }
+
+  /**
+   * @param region A region being compacted
+   * @return The bytes of the objects in the region that are to be compacted
+   */
+  private int liveBytes(Address region) {
+    int live = 0;
+    fromCursor.init(region);
+    while (fromCursor.hasMoreObjects()) {
+      ObjectReference current = fromCursor.advanceToObject();
+      fromCursor.advanceToObjectEnd(current);
+      if (MarkCompactSpace.toBeCompacted(current)) {
+        live += VM.objectModel.getSizeWhenCopied(current);
+      }
+    }
+    return live;
+  }
+
+  /**
+   * Claim this collector's slice of the regions being compacted.  The slice
+   * of a region is given by the live bytes of the regions ahead of it, so
+   * each collector finds its own slice with a pass over the side table,
+   * once every collector has summarized its share.  The regions themselves
+   * are left linked until all collectors have claimed their slices.
+   */
+  public void claimSlice() {
+    int ordinal = VM.activePlan.collector().parallelWorkerOrdinal();
+    int workers = VM.activePlan.collector().parallelWorkerCount();
+    long total = space.getCompactionLiveBytes();
+
+    regions = Address.zero();
+    lastRegion = Address.zero();
+    long offset = 0;
+    Address region = space.getCompactionList();
+    while (!region.isZero()) {
+      int slice = total == 0 ? 0 : (int) (offset * workers / total);
+      if (slice >= workers) slice = workers - 1;
+      if (slice > ordinal) break;
+      if (slice == ordinal) {
+        if (regions.isZero()) regions = region;
+        lastRegion = region;
+      }
+      offset += MarkCompactSpace.getLiveBytes(region);
+      region = MarkCompactLocal.getNextRegion(region);
+    }
+    if (VERBOSE) {
+      Log.write("Claimed slice from ", regions);
+      Log.writeln(" to ", lastRegion);
+    }
+  }
+
   /**
    * Perform a linear scan through the objects allocated by this bump pointer,
    * calculating where each live object will be post collection.<p>
@@ -435,13 +499,11 @@ public final class MarkCompactCollector {
    * The outer loop advances the 'from' pointer
    */
   public void calculateForwardingPointers() {
-    if (regions.isZero()) {
-      regions = space.getNextRegion();
-    }
-
     if (regions.isZero())
       return;
 
+    MarkCompactLocal.clearNextRegion(lastRegion);
+
     fromCursor.init(regions);
     toCursor.init(regions);
 
@@ -492,7 +554,7 @@ public final class MarkCompactCollector {
           }
         }
       }
-      fromCursor.advanceToNextForwardableRegion(space);
+      fromCursor.advanceToNextRegion();
     }
   }
 
@@ -556,5 +618,7 @@ public final class MarkCompactCollector {
       space.release(region);
       region = nextRegion;
     }
+    space.append(regions);
+    regions = Address.zero();
   }
 }
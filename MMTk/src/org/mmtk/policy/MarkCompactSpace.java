@@ -12,9 +12,12 @@
  */
 package org.mmtk.policy;
 
+import static org.mmtk.utility.Constants.*;
+
 import org.mmtk.plan.TraceLocal;
 import org.mmtk.plan.TransitiveClosure;
 import org.mmtk.utility.alloc.BumpPointer;
+import org.mmtk.utility.alloc.EmbeddedMetaData;
 import org.mmtk.utility.heap.*;
 import org.mmtk.utility.Log;
 
@@ -47,9 +50,27 @@ import org.vmmagic.pragma.*;
 
   private static final Lock lock = VM.newLock("mcSpace");
 
+  /**
+   * The live bytes of each region are kept in a side table, one int for
+   * each page a region may start on, after any card meta data.
+   */
+  private static final int LOG_LIVE_TABLE_COVERAGE = LOG_BYTES_IN_PAGE - LOG_BYTES_IN_INT;
+  private static final int LIVE_TABLE_OFFSET = CARD_META_PAGES_PER_REGION << LOG_BYTES_IN_PAGE;
+  private static final int LIVE_TABLE_PAGES = EmbeddedMetaData.PAGES_IN_REGION >> LOG_LIVE_TABLE_COVERAGE;
+  private static final int META_DATA_PAGES_PER_REGION = CARD_META_PAGES_PER_REGION + LIVE_TABLE_PAGES;
+
   /** The list of occupied regions */
   private Address regionList = Address.zero();
 
+  /** The regions being compacted by the current collection */
+  private Address compactionList = Address.zero();
+
+  /** The number of regions on the compaction list */
+  private int compactionRegions;
+
+  /** The bytes of live objects in the regions being compacted */
+  private long compactionLiveBytes;
+
   // TODO - maintain a separate list of partially allocated regions
   // for threads to allocate into immediately after a collection.
 
@@ -74,9 +95,9 @@ import org.vmmagic.pragma.*;
   public MarkCompactSpace(String name, VMRequest vmRequest) {
     super(name, true, false, true, vmRequest);
     if (vmRequest.isDiscontiguous()) {
-      pr = new FreeListPageResource(this, 0);
+      pr = new FreeListPageResource(this, META_DATA_PAGES_PER_REGION);
     } else {
-      pr = new FreeListPageResource(this, start, extent, 0);
+      pr = new FreeListPageResource(this, start, extent, META_DATA_PAGES_PER_REGION);
     }
   }
 
@@ -350,6 +371,79 @@ import org.vmmagic.pragma.*;
     lock.release();
   }
 
+  /**
+   * Take the list of occupied regions as the regions to be compacted
+   * by this collection.  Regions that survive compaction are appended
+   * to the (now empty) list of occupied regions again.
+   */
+  public void startCompaction() {
+    lock.acquire();
+    compactionList = regionList;
+    regionList = Address.zero();
+    compactionRegions = 0;
+    for (Address region = compactionList; !region.isZero(); region = BumpPointer.getNextRegion(region)) {
+      compactionRegions++;
+    }
+    compactionLiveBytes = 0;
+    lock.release();
+  }
+
+  /**
+   * @return The first of the regions being compacted by this collection
+   */
+  public Address getCompactionList() {
+    return compactionList;
+  }
+
+  /**
+   * @return The number of regions being compacted by this collection
+   */
+  public int getCompactionRegionCount() {
+    return compactionRegions;
+  }
+
+  /**
+   * Add to the live bytes of the regions being compacted
+   * @param bytes the live bytes found by one collector
+   */
+  public void addCompactionLiveBytes(long bytes) {
+    lock.acquire();
+    compactionLiveBytes += bytes;
+    lock.release();
+  }
+
+  /**
+   * @return The bytes of live objects in the regions being compacted.
+   * Only complete once every collector has added its share.
+   */
+  public long getCompactionLiveBytes() {
+    return compactionLiveBytes;
+  }
+
+  /**
+   * Record the live bytes of a region in the side table
+   * @param region the region
+   * @param bytes the bytes of live objects in the region
+   */
+  @Inline
+  public static void setLiveBytes(Address region, int bytes) {
+    getLiveBytesAddress(region).store(bytes);
+  }
+
+  /**
+   * @param region the region
+   * @return the live bytes of the region, as last recorded in the side table
+   */
+  @Inline
+  public static int getLiveBytes(Address region) {
+    return getLiveBytesAddress(region).loadInt();
+  }
+
+  private static Address getLiveBytesAddress(Address region) {
+    Address metadata = EmbeddedMetaData.getMetaDataBase(region).plus(LIVE_TABLE_OFFSET);
+    return metadata.plus(EmbeddedMetaData.getMetaDataOffset(region, LOG_LIVE_TABLE_COVERAGE, LOG_BYTES_IN_INT));
+  }
+
   public static void appendRegion(Address listHead, Address region) {
     if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(!listHead.isZero());
     if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(!region.isZero());
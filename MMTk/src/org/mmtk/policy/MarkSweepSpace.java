@@ -14,8 +14,10 @@ package org.mmtk.policy;
 
 import static org.mmtk.utility.Constants.*;
 
+import org.mmtk.plan.Plan;
 import org.mmtk.plan.TransitiveClosure;
 import org.mmtk.utility.heap.*;
+import org.mmtk.utility.options.ConcurrentSweep;
 import org.mmtk.utility.options.Options;
 import org.mmtk.utility.options.MarkSweepMarkBits;
 import org.mmtk.utility.options.EagerCompleteSweep;
@@ -91,6 +93,7 @@ public final class MarkSweepSpace extends SegregatedFreeListSpace {
   static {
     Options.markSweepMarkBits = new MarkSweepMarkBits();
     Options.eagerCompleteSweep = new EagerCompleteSweep();
+    Options.concurrentSweep = new ConcurrentSweep();
   }
 
   /**
@@ -183,14 +186,18 @@ public final class MarkSweepSpace extends SegregatedFreeListSpace {
   /**
    * Prepare for a new collection increment.  For the mark-sweep
    * collector we must flip the state of the mark bit between
-   * collections.
+   * collections.  Any blocks the last collection left unswept are
+   * first swept, if sweeping is to be completed eagerly, or else
+   * returned to be swept with the rest.
    *
    * @param gcWholeMS True if we are going to collect the whole marksweep space
    */
   public void prepare(boolean gcWholeMS) {
     if (HEADER_MARK_BITS && Options.eagerCompleteSweep.getValue()) {
+      completeSweep();
       consumeBlocks();
     } else {
+      returnUnsweptBlocks();
       flushAvailableBlocks();
     }
     if (HEADER_MARK_BITS) {
@@ -210,10 +217,17 @@ public final class MarkSweepSpace extends SegregatedFreeListSpace {
 
   /**
    * A new collection increment has completed.  For the mark-sweep
-   * collector this means we can perform the sweep phase.
- */
+   * collector this means we can perform the sweep phase.  Unless
+   * this is an emergency collection, the sweep is left to allocation
+   * and to {@link #sweepAhead()} when the concurrent sweep option is
+   * set, so that it takes no part of the pause.
+   */
   public void release() {
-    sweepConsumedBlocks(!EAGER_MARK_CLEAR);
+    if (Options.concurrentSweep.getValue() && !Plan.isEmergencyCollection()) {
+      deferSweep(!EAGER_MARK_CLEAR);
+    } else {
+      sweepConsumedBlocks(!EAGER_MARK_CLEAR);
+    }
     inMSCollection = false;
   }
 
@@ -0,0 +1,91 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.policy;
+
+import org.mmtk.utility.alloc.Allocator;
+
+import org.vmmagic.pragma.*;
+import org.vmmagic.unboxed.*;
+
+/**
+ * This class implements unsynchronized (local) allocation into a
+ * region space.  Each allocator owns a whole region at a time and bump
+ * allocates through it, taking a fresh region when an object does not
+ * fit in what is left.
+ *
+ * @see RegionSpace
+ */
+@Uninterruptible public final class RegionLocal extends Allocator {
+
+  /**
+   *
+   */
+  private final RegionSpace space;
+  private final int state;
+  private Address cursor = Address.zero();
+  private Address limit = Address.zero();
+
+  /**
+   * Constructor
+   *
+   * @param space The space to allocate into.
+   * @param state The kind of region to allocate into,
+   * <code>RegionSpace.EDEN</code> or <code>RegionSpace.OLD</code>
+   */
+  public RegionLocal(RegionSpace space, int state) {
+    this.space = space;
+    this.state = state;
+  }
+
+  /**
+   * Allocate space for a new object.
+   *
+   * @param bytes The number of bytes allocated
+   * @param align The requested alignment
+   * @param offset The offset from the alignment
+   * @return The address of the first byte of the allocated region
+   */
+  @Inline
+  public Address alloc(int bytes, int align, int offset) {
+    Address start = alignAllocationNoFill(cursor, align, offset);
+    Address end = start.plus(bytes);
+    if (end.GT(limit))
+      return allocSlow(bytes, align, offset);
+    fillAlignmentGap(cursor, start);
+    cursor = end;
+    return start;
+  }
+
+  @Override
+  protected Address allocSlowOnce(int bytes, int align, int offset) {
+    retire();
+    Address newRegion = space.acquireRegion(state);
+    if (newRegion.isZero()) return newRegion;
+    cursor = RegionSpace.firstObjectAddress(newRegion);
+    limit = RegionSpace.limitOf(newRegion);
+    return alloc(bytes, align, offset);
+  }
+
+  /**
+   * Give up the current region, so the next allocation takes a new one.
+   */
+  public void retire() {
+    cursor = Address.zero();
+    limit = Address.zero();
+  }
+
+  @Override
+  protected Space getSpace() {
+    return space;
+  }
+}
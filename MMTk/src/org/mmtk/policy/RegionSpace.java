@@ -0,0 +1,522 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.policy;
+
+import static org.mmtk.utility.Constants.*;
+
+import org.mmtk.plan.TransitiveClosure;
+import org.mmtk.utility.ForwardingWord;
+import org.mmtk.utility.HeaderByte;
+import org.mmtk.utility.heap.FreeListPageResource;
+import org.mmtk.utility.heap.VMRequest;
+import org.mmtk.vm.Lock;
+import org.mmtk.vm.VM;
+
+import org.vmmagic.pragma.*;
+import org.vmmagic.unboxed.*;
+
+/**
+ * This class implements a space made of fixed size regions, each of
+ * which is either <i>eden</i>, holding objects allocated by mutators
+ * since the last evacuation, or <i>old</i>, holding objects copied
+ * there by the collector.<p>
+ *
+ * Liveness of the old regions is measured by marking (see
+ * {@link #traceMarkObject}), which counts the live bytes of every
+ * region.  Regions found empty are freed at the end of marking, the
+ * rest that are sparse enough become <i>candidates</i>, kept in
+ * ascending order of live bytes.  An evacuation collects all eden
+ * regions plus as many candidates as the plan can afford, copying the
+ * survivors into fresh old regions (see {@link #traceEvacuateObject}).<p>
+ *
+ * Regions are aligned, so the region of an object is found by masking
+ * its address, and the region header is kept at the start of the region.
+ * Objects must be small enough that a region is not wasted on a few of
+ * them; larger ones belong in the large object space.
+ */
+@Uninterruptible
+public final class RegionSpace extends Space {
+
+  /****************************************************************************
+   *
+   * Class variables
+   */
+
+  /**
+   *
+   */
+  public static final int LOG_BYTES_IN_REGION = 20;
+  public static final int BYTES_IN_REGION = 1 << LOG_BYTES_IN_REGION;
+  public static final int PAGES_IN_REGION = BYTES_IN_REGION >>> LOG_BYTES_IN_PAGE;
+  private static final Word REGION_MASK = Word.fromIntZeroExtend(BYTES_IN_REGION - 1);
+
+  /** The largest object that may be allocated or copied into a region */
+  public static final int MAX_OBJECT_BYTES = BYTES_IN_REGION >>> 2;
+
+  /** A region is an evacuation candidate if no more of it than this is live */
+  private static final int CANDIDATE_LIVE_PERCENT = 85;
+
+  /* Region states */
+  public static final int FREE = 0;
+  public static final int EDEN = 1;
+  public static final int OLD = 2;
+  private static final int STATE_MASK = 3;
+  private static final int IN_CSET = 4;
+
+  /* Region header */
+  private static final Offset NEXT_OFFSET = Offset.zero();
+  private static final Offset STATE_OFFSET = NEXT_OFFSET.plus(BYTES_IN_ADDRESS);
+  private static final Offset LIVE_OFFSET = STATE_OFFSET.plus(BYTES_IN_INT);
+  private static final int HEADER_BYTES = 4 * BYTES_IN_LONG;
+
+  /* Mark bits sit above the forwarding bits and count 1, 2, 3, so the
+   * zeroed header of an object allocated during marking never looks marked */
+  public static final int LOCAL_GC_BITS_REQUIRED = ForwardingWord.FORWARDING_BITS + 2;
+  public static final int GLOBAL_GC_BITS_REQUIRED = 0;
+  public static final int GC_HEADER_WORDS_REQUIRED = 0;
+  private static final int MARK_SHIFT = ForwardingWord.FORWARDING_BITS;
+  private static final byte MARK_MASK = (byte) (3 << MARK_SHIFT);
+  private static final Word UNLOGGED = Word.fromIntZeroExtend(HeaderByte.UNLOGGED_BIT & 0xFF);
+
+  /****************************************************************************
+   *
+   * Instance variables
+   */
+
+  /**
+   *
+   */
+  private final Lock lock = VM.newLock("RegionSpace");
+  private byte markState = 0;
+  private boolean inMark = false;
+
+  private Address edenHead = Address.zero();
+  private Address oldHead = Address.zero();
+  private Address candidateHead = Address.zero();
+  private Address collectionSetHead = Address.zero();
+  private int edenRegions = 0;
+  private int oldRegions = 0;
+  private int candidateRegions = 0;
+  private int collectionSetRegions = 0;
+  private long candidateLiveBytes = 0;
+  private long collectionSetLiveBytes = 0;
+
+  /****************************************************************************
+   *
+   * Initialization
+   */
+
+  /**
+   * The caller specifies the region of virtual memory to be used for
+   * this space.  If this region conflicts with an existing space,
+   * then the constructor will fail.
+   *
+   * @param name The name of this space (used when printing error messages etc)
+   * @param vmRequest An object describing the virtual memory requested.
+   */
+  public RegionSpace(String name, VMRequest vmRequest) {
+    super(name, true, false, true, vmRequest);
+    if (vmRequest.isDiscontiguous()) {
+      pr = new FreeListPageResource(this, 0);
+    } else {
+      pr = new FreeListPageResource(this, start, extent);
+    }
+  }
+
+  /****************************************************************************
+   *
+   * Regions
+   */
+
+  /**
+   * @param address An address within a region
+   * @return The start of the region
+   */
+  @Inline
+  public static Address regionOf(Address address) {
+    return address.toWord().and(REGION_MASK.not()).toAddress();
+  }
+
+  /**
+   * @param object An object in this space
+   * @return The start of the region holding the object
+   */
+  @Inline
+  public static Address regionOf(ObjectReference object) {
+    return regionOf(VM.objectModel.refToAddress(object));
+  }
+
+  /**
+   * @param region A region
+   * @return The first address in the region available to objects
+   */
+  @Inline
+  public static Address firstObjectAddress(Address region) {
+    return region.plus(HEADER_BYTES);
+  }
+
+  /**
+   * @param region A region
+   * @return The end of the region
+   */
+  @Inline
+  public static Address limitOf(Address region) {
+    return region.plus(BYTES_IN_REGION);
+  }
+
+  @Inline
+  private static int getState(Address region) {
+    return region.loadInt(STATE_OFFSET);
+  }
+
+  @Inline
+  private static Address getNext(Address region) {
+    return region.loadAddress(NEXT_OFFSET);
+  }
+
+  @Inline
+  private static void setNext(Address region, Address next) {
+    region.store(next, NEXT_OFFSET);
+  }
+
+  @Inline
+  private static int getLive(Address region) {
+    return region.loadInt(LIVE_OFFSET);
+  }
+
+  /**
+   * @param object An object in this space
+   * @return {@code true} if the object is in an eden region
+   */
+  @Inline
+  public static boolean isEden(ObjectReference object) {
+    return (getState(regionOf(object)) & STATE_MASK) == EDEN;
+  }
+
+  /**
+   * @param object An object in this space
+   * @return {@code true} if the object is in a region being evacuated
+   */
+  @Inline
+  public static boolean inCollectionSet(ObjectReference object) {
+    return (getState(regionOf(object)) & IN_CSET) != 0;
+  }
+
+  /**
+   * Get a new region for an allocator.  Mutators may trigger a
+   * collection here, in which case no region is returned.
+   *
+   * @param state The kind of region, <code>EDEN</code> or <code>OLD</code>
+   * @return The start of the region, or zero if the space is full
+   */
+  public Address acquireRegion(int state) {
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(state == EDEN || state == OLD);
+    Address region = acquire(PAGES_IN_REGION);
+    if (region.isZero()) return region;
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(regionOf(region).EQ(region));
+    region.store(state, STATE_OFFSET);
+    region.store(0, LIVE_OFFSET);
+    lock.acquire();
+    if (state == EDEN) {
+      setNext(region, edenHead);
+      edenHead = region;
+      edenRegions++;
+    } else {
+      setNext(region, oldHead);
+      oldHead = region;
+      oldRegions++;
+    }
+    lock.release();
+    return region;
+  }
+
+  /**
+   * Release an allocated region.
+   *
+   * @param region The region to be released
+   */
+  @Override
+  @Inline
+  public void release(Address region) {
+    region.store(FREE, STATE_OFFSET);
+    ((FreeListPageResource) pr).releasePages(region);
+  }
+
+  /** @return The number of eden regions */
+  public int getEdenRegions() {
+    return edenRegions;
+  }
+
+  /** @return The number of old regions, including candidates */
+  public int getOldRegions() {
+    return oldRegions + candidateRegions;
+  }
+
+  /** @return The number of regions left from the last marking to evacuate */
+  public int getCandidateRegions() {
+    return candidateRegions;
+  }
+
+  /** @return The live bytes in the regions left from the last marking */
+  public long getCandidateLiveBytes() {
+    return candidateLiveBytes;
+  }
+
+  /****************************************************************************
+   *
+   * Marking
+   */
+
+  /**
+   * Prepare for marking.  Candidates go back to being ordinary old
+   * regions, since marking will measure them again.
+   */
+  public void prepareMark() {
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(collectionSetHead.isZero());
+    while (!candidateHead.isZero()) {
+      Address region = candidateHead;
+      candidateHead = getNext(region);
+      setNext(region, oldHead);
+      oldHead = region;
+      oldRegions++;
+    }
+    candidateRegions = 0;
+    candidateLiveBytes = 0;
+    for (Address region = oldHead; !region.isZero(); region = getNext(region)) {
+      region.store(0, LIVE_OFFSET);
+    }
+    markState = (byte) (markState % 3 + 1);
+    inMark = true;
+  }
+
+  /**
+   * Finish marking.  Old regions with nothing live in them are freed,
+   * the sparse ones become the candidates for evacuation, sparsest first.
+   */
+  public void releaseMark() {
+    inMark = false;
+    Address region = oldHead;
+    oldHead = Address.zero();
+    oldRegions = 0;
+    while (!region.isZero()) {
+      Address next = getNext(region);
+      int live = getLive(region);
+      if (live == 0) {
+        release(region);
+      } else if (live <= (BYTES_IN_REGION / 100) * CANDIDATE_LIVE_PERCENT) {
+        insertCandidate(region, live);
+      } else {
+        setNext(region, oldHead);
+        oldHead = region;
+        oldRegions++;
+      }
+      region = next;
+    }
+  }
+
+  private void insertCandidate(Address region, int live) {
+    if (candidateHead.isZero() || getLive(candidateHead) >= live) {
+      setNext(region, candidateHead);
+      candidateHead = region;
+    } else {
+      Address prev = candidateHead;
+      while (!getNext(prev).isZero() && getLive(getNext(prev)) < live) {
+        prev = getNext(prev);
+      }
+      setNext(region, getNext(prev));
+      setNext(prev, region);
+    }
+    candidateRegions++;
+    candidateLiveBytes += live;
+  }
+
+  /**
+   * Mark an object, adding its size to the live bytes of its region.
+   *
+   * @param trace The trace performing the transitive closure
+   * @param object The object to be traced.
+   * @return The object, which is not moved by marking
+   */
+  @Inline
+  public ObjectReference traceMarkObject(TransitiveClosure trace, ObjectReference object) {
+    if (testAndMark(object)) {
+      Address region = regionOf(object);
+      if ((getState(region) & STATE_MASK) == OLD) {
+        int bytes = VM.objectModel.getCurrentSize(object);
+        int old;
+        do {
+          old = region.prepareInt(LIVE_OFFSET);
+        } while (!region.attempt(old, old + bytes, LIVE_OFFSET));
+      }
+      trace.processNode(object);
+    }
+    return object;
+  }
+
+  /**
+   * Atomically set the mark bits of an object.  Mutators change the
+   * same header byte when they log an object, so a plain store could
+   * lose either change.
+   *
+   * @param object The object to be marked
+   * @return {@code true} if this call marked the object
+   */
+  @Inline
+  private boolean testAndMark(ObjectReference object) {
+    Word mark = Word.fromIntZeroExtend(markState << MARK_SHIFT);
+    Word mask = Word.fromIntZeroExtend(MARK_MASK & 0xFF);
+    Word oldValue;
+    do {
+      oldValue = VM.objectModel.prepareAvailableBits(object);
+      if (oldValue.and(mask).EQ(mark)) return false;
+    } while (!VM.objectModel.attemptAvailableBits(object, oldValue, oldValue.and(mask.not()).or(mark)));
+    return true;
+  }
+
+  /**
+   * @param object An object in this space
+   * @return {@code true} if the object was marked by the current or most recent marking
+   */
+  @Inline
+  public boolean isMarked(ObjectReference object) {
+    return (VM.objectModel.readAvailableByte(object) & MARK_MASK) == (markState << MARK_SHIFT);
+  }
+
+  /****************************************************************************
+   *
+   * Evacuation
+   */
+
+  /**
+   * Prepare for an evacuation.  All eden regions are evacuated, along
+   * with the sparsest candidates, as long as their live bytes (as of
+   * the last marking) fit within the budget.  At least one candidate
+   * is taken if there are any, so each evacuation makes progress on them.
+   *
+   * @param budget The number of bytes the plan can afford to copy out of candidates
+   */
+  public void prepareEvacuation(long budget) {
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(collectionSetHead.isZero());
+    collectionSetRegions = 0;
+    collectionSetLiveBytes = 0;
+    while (!edenHead.isZero()) {
+      Address region = edenHead;
+      edenHead = getNext(region);
+      addToCollectionSet(region);
+    }
+    edenRegions = 0;
+    while (!candidateHead.isZero()) {
+      int live = getLive(candidateHead);
+      if (collectionSetLiveBytes > 0 && collectionSetLiveBytes + live > budget) break;
+      Address region = candidateHead;
+      candidateHead = getNext(region);
+      candidateRegions--;
+      candidateLiveBytes -= live;
+      collectionSetLiveBytes += live;
+      addToCollectionSet(region);
+    }
+  }
+
+  private void addToCollectionSet(Address region) {
+    region.store(getState(region) | IN_CSET, STATE_OFFSET);
+    setNext(region, collectionSetHead);
+    collectionSetHead = region;
+    collectionSetRegions++;
+  }
+
+  /**
+   * Finish an evacuation, freeing every region in the collection set.
+   */
+  public void releaseEvacuation() {
+    while (!collectionSetHead.isZero()) {
+      Address region = collectionSetHead;
+      collectionSetHead = getNext(region);
+      release(region);
+    }
+    collectionSetRegions = 0;
+  }
+
+  /**
+   * Forward an object in the collection set.  We use the tri-state
+   * algorithm of {@link CopySpace} to deal with races to forward it.
+   *
+   * @param trace The trace being conducted.
+   * @param object The object to be forwarded.
+   * @param allocator The allocator to use when copying.
+   * @return The forwarded object, or the object itself if it is not being evacuated.
+   */
+  @Inline
+  public ObjectReference traceEvacuateObject(TransitiveClosure trace, ObjectReference object, int allocator) {
+    if (!inCollectionSet(object)) return object;
+    Word forwardingWord = ForwardingWord.attemptToForward(object);
+    if (ForwardingWord.stateIsForwardedOrBeingForwarded(forwardingWord)) {
+      return ForwardingWord.spinAndGetForwardedObject(object, forwardingWord);
+    }
+    ObjectReference newObject = ForwardingWord.forwardObject(object, allocator);
+    trace.processNode(newObject);
+    return newObject;
+  }
+
+  /****************************************************************************
+   *
+   * Object logging
+   */
+
+  /**
+   * Atomically clear the unlogged bit of an object, racing with other
+   * mutators and with concurrent marking.
+   *
+   * @param object The object to be logged
+   * @return {@code true} if this call logged the object
+   */
+  @Inline
+  public static boolean attemptToLog(ObjectReference object) {
+    Word oldValue;
+    do {
+      oldValue = VM.objectModel.prepareAvailableBits(object);
+      if (oldValue.and(UNLOGGED).isZero()) return false;
+    } while (!VM.objectModel.attemptAvailableBits(object, oldValue, oldValue.and(UNLOGGED.not())));
+    return true;
+  }
+
+  /****************************************************************************
+   *
+   * Tracing
+   */
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * Write barriers and other spaces' traces reach this space through
+   * here, which only happens while marking.
+   */
+  @Override
+  @Inline
+  public ObjectReference traceObject(TransitiveClosure trace, ObjectReference object) {
+    return traceMarkObject(trace, object);
+  }
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * While marking, an object is live if it is marked; during an
+   * evacuation, objects in the collection set are live if they have
+   * been forwarded and every other object is live.
+   */
+  @Override
+  public boolean isLive(ObjectReference object) {
+    if (inMark) return isMarked(object);
+    if (inCollectionSet(object)) return ForwardingWord.isForwarded(object);
+    return true;
+  }
+}
@@ -74,6 +74,9 @@ public abstract class SegregatedFreeListSpace extends Space {
   private static final int METADATA_OVERHEAD = META_DATA_PAGES_PER_REGION_WITH_BITMAP; // worst case scenario
   public static final float WORST_CASE_FRAGMENTATION = 1 + ((NEW_SIZECLASS_OVERHEAD + METADATA_OVERHEAD) / (float) EmbeddedMetaData.BYTES_IN_REGION);
 
+  /** The number of blocks swept by each call to {@link #sweepAhead()} */
+  private static final int SWEEP_AHEAD_BLOCKS = 16;
+
   /****************************************************************************
    *
    * Instance variables
@@ -86,6 +89,12 @@ public abstract class SegregatedFreeListSpace extends Space {
   protected final AddressArray consumedBlockHead = AddressArray.create(sizeClassCount());
   protected final AddressArray flushedBlockHead = AddressArray.create(sizeClassCount());
   protected final AddressArray availableBlockHead = AddressArray.create(sizeClassCount());
+  protected final AddressArray unsweptBlockHead = AddressArray.create(sizeClassCount());
+
+  /** Are there blocks the last collection left to be swept? */
+  private volatile boolean sweepPending = false;
+  /** Should block marks be cleared as those blocks are swept? */
+  private boolean sweepClearsMarks;
 
   private final int[] cellSize = new int[sizeClassCount()];
   private final byte[] blockSizeClass = new byte[sizeClassCount()];
@@ -198,6 +207,19 @@ public abstract class SegregatedFreeListSpace extends Space {
       consumedBlockHead.set(sizeClass, block);
     }
     lock.release();
+
+    /* Sweep the blocks the last collection left, until one has a free cell */
+    while (!(block = getUnsweptBlock(sizeClass)).isZero()) {
+      if (sweepUnsweptBlock(block, sizeClass)) {
+        Address cell = advanceToBlock(block, sizeClass);
+        if (!cell.isZero()) {
+          freeList.set(sizeClass, cell);
+          return block;
+        }
+        returnConsumedBlock(block, sizeClass);
+      }
+    }
+    sweepForFreeBlock();
     return expandSizeClass(sizeClass, freeList);
   }
 
@@ -534,18 +556,197 @@ public abstract class SegregatedFreeListSpace extends Space {
    * @return updated head of the blocks that still need to be swept
    */
   protected final Address sweepBlock(Address block, int sizeClass, Extent blockSize, Address availableHead, boolean clearMarks) {
+    if (sweepBlock(block, sizeClass, blockSize, clearMarks)) {
+      BlockAllocator.setNext(block, availableHead);
+      availableHead = block;
+    }
+    return availableHead;
+  }
+
+  /**
+   * Sweeps a block, freeing it if it contains no live objects.
+   *
+   * @param block the block's address
+   * @param sizeClass the block's size class
+   * @param blockSize the block's size, in bytes
+   * @param clearMarks should we clear block mark bits as we process.
+   * @return {@code true} if the block holds live objects and was kept
+   */
+  private boolean sweepBlock(Address block, int sizeClass, Extent blockSize, boolean clearMarks) {
     boolean liveBlock = containsLiveCell(block, blockSize, clearMarks);
     if (!liveBlock) {
       BlockAllocator.setNext(block, Address.zero());
       BlockAllocator.free(this, block);
-    } else {
-      BlockAllocator.setNext(block, availableHead);
-      availableHead = block;
-      if (!LAZY_SWEEP) {
-        setFreeList(block, makeFreeList(block, sizeClass));
+    } else if (!LAZY_SWEEP) {
+      setFreeList(block, makeFreeList(block, sizeClass));
+    }
+    return liveBlock;
+  }
+
+  /**
+   * Leave the blocks of this collection to be swept after it, by the
+   * allocators that come to need them and by {@link #sweepAhead()},
+   * instead of sweeping them now.  Only the heads of the block lists
+   * are moved, so this takes no time in proportion to the size of
+   * the space.  Blocks on the flushed lists are left there, and are
+   * swept along with the rest.
+   *
+   * @param clearMarks should we clear block mark bits as we sweep.
+   */
+  protected final void deferSweep(boolean clearMarks) {
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(!sweepPending);
+    for (int sizeClass = 0; sizeClass < sizeClassCount(); sizeClass++) {
+      unsweptBlockHead.set(sizeClass, consumedBlockHead.get(sizeClass));
+      consumedBlockHead.set(sizeClass, Address.zero());
+    }
+    sweepClearsMarks = clearMarks;
+    sweepPending = true;
+  }
+
+  /**
+   * Give the blocks that are still unswept back to the consumed lists
+   * at the start of a collection, so that they are swept with the
+   * rest once it has marked.  Their block marks are cleared as their
+   * sweep would have cleared them.  This must be done before the
+   * available blocks are flushed.
+   */
+  protected final void returnUnsweptBlocks() {
+    if (!sweepPending) return;
+    for (int sizeClass = 0; sizeClass < sizeClassCount(); sizeClass++) {
+      Extent blockSize = Extent.fromIntSignExtend(BlockAllocator.blockSize(blockSizeClass[sizeClass]));
+      Address consumedHead = consumedBlockHead.get(sizeClass);
+      /* Flushed blocks */
+      Address block = flushedBlockHead.get(sizeClass);
+      flushedBlockHead.set(sizeClass, Address.zero());
+      while (!block.isZero()) {
+        Address next = BlockAllocator.getNext(block);
+        if (sweepClearsMarks && !maintainSideBitmap()) clearBlockMark(block, blockSize);
+        BlockAllocator.setNext(block, consumedHead);
+        consumedHead = block;
+        block = next;
       }
+      /* Unswept blocks */
+      block = unsweptBlockHead.get(sizeClass);
+      unsweptBlockHead.set(sizeClass, Address.zero());
+      while (!block.isZero()) {
+        Address next = BlockAllocator.getNext(block);
+        if (sweepClearsMarks && !maintainSideBitmap()) clearBlockMark(block, blockSize);
+        BlockAllocator.setNext(block, consumedHead);
+        consumedHead = block;
+        block = next;
+      }
+      consumedBlockHead.set(sizeClass, consumedHead);
     }
-    return availableHead;
+    sweepPending = false;
+  }
+
+  /**
+   * Sweep a few of the blocks the last collection left to be swept,
+   * making those that hold live objects available for allocation.  This
+   * is called alongside the mutators, so that they mostly find blocks
+   * ready when they need them.
+   *
+   * @return {@code true} if there may be blocks left to sweep
+   */
+  public final boolean sweepAhead() {
+    if (!sweepPending) return false;
+    int swept = 0;
+    for (int sizeClass = 0; sizeClass < sizeClassCount(); sizeClass++) {
+      Address block;
+      while (!(block = getUnsweptBlock(sizeClass)).isZero()) {
+        if (sweepUnsweptBlock(block, sizeClass)) {
+          makeBlockAvailable(block, sizeClass);
+        }
+        if (++swept == SWEEP_AHEAD_BLOCKS) return true;
+      }
+    }
+    sweepPending = false;
+    return false;
+  }
+
+  /**
+   * Sweep all the blocks the last collection left to be swept.
+   */
+  protected final void completeSweep() {
+    while (sweepPending) {
+      sweepAhead();
+    }
+  }
+
+  /**
+   * Sweep the blocks the last collection left to be swept, of any size
+   * class, until one is found to be free and is released.  This keeps a
+   * space from growing while it still holds free blocks it has not yet
+   * swept.
+   */
+  private void sweepForFreeBlock() {
+    if (!sweepPending) return;
+    for (int sizeClass = 0; sizeClass < sizeClassCount(); sizeClass++) {
+      Address block;
+      while (!(block = getUnsweptBlock(sizeClass)).isZero()) {
+        if (!sweepUnsweptBlock(block, sizeClass)) return;
+        makeBlockAvailable(block, sizeClass);
+      }
+    }
+    sweepPending = false;
+  }
+
+  /**
+   * Get a block the last collection left to be swept.
+   *
+   * @param sizeClass The size class of the block to sweep.
+   * @return The block or zero if no blocks remain to be swept.
+   */
+  private Address getUnsweptBlock(int sizeClass) {
+    if (!sweepPending) return Address.zero();
+    lock.acquire();
+    Address block;
+
+    /* Flushed blocks */
+    block = flushedBlockHead.get(sizeClass);
+    if (!block.isZero()) {
+      flushedBlockHead.set(sizeClass, BlockAllocator.getNext(block));
+      lock.release();
+      BlockAllocator.setNext(block, Address.zero());
+      return block;
+    }
+
+    /* Unswept blocks */
+    block = unsweptBlockHead.get(sizeClass);
+    if (!block.isZero()) {
+      unsweptBlockHead.set(sizeClass, BlockAllocator.getNext(block));
+      lock.release();
+      BlockAllocator.setNext(block, Address.zero());
+      return block;
+    }
+
+    lock.release();
+    return Address.zero();
+  }
+
+  /**
+   * Sweep a block the last collection left to be swept.
+   *
+   * @param block the block's address
+   * @param sizeClass the block's size class
+   * @return {@code true} if the block holds live objects and was kept
+   */
+  private boolean sweepUnsweptBlock(Address block, int sizeClass) {
+    Extent blockSize = Extent.fromIntSignExtend(BlockAllocator.blockSize(blockSizeClass[sizeClass]));
+    return sweepBlock(block, sizeClass, blockSize, sweepClearsMarks);
+  }
+
+  /**
+   * Make a swept block available for allocation.
+   *
+   * @param block the block's address
+   * @param sizeClass the block's size class
+   */
+  private void makeBlockAvailable(Address block, int sizeClass) {
+    lock.acquire();
+    BlockAllocator.setNext(block, availableBlockHead.get(sizeClass));
+    availableBlockHead.set(sizeClass, block);
+    lock.release();
   }
 
   /**
@@ -498,7 +498,8 @@ public abstract class Space {
 
   /**
    * Release one or more contiguous chunks associated with a discontiguous
-   * space.
+   * space. The chunks are unmapped first, so their memory goes back to the
+   * system rather than staying with MMTk until it reuses the chunks.
    *
    * @param chunk The address of the start of the contiguous chunk or chunks
    * @return The number of chunks freed
@@ -508,6 +509,8 @@ public abstract class Space {
     if (chunk.EQ(headDiscontiguousRegion)) {
       headDiscontiguousRegion = HeapLayout.vmMap.getNextContiguousRegion(chunk);
     }
+    // unmap while the chunks are still ours so no other space can map them meanwhile
+    HeapLayout.mmapper.markAsUnmapped(chunk, HeapLayout.vmMap.getContiguousRegionSize(chunk).toInt());
     return HeapLayout.vmMap.freeContiguousChunks(chunk);
   }
 
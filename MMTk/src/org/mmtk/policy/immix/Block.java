@@ -163,6 +163,27 @@ public class Block  {
     return markCount;
   }
 
+  /**
+   * Counts the lines of a block that hold live objects, for a space
+   * whose line mark table holds counts of live objects.
+   *
+   * @param block the block's address
+   * @return number of lines with a non-zero count
+   */
+  static short countLiveLines(Address block) {
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(isAligned(block));
+    if (isUnused(block))
+      return 0;
+
+    Address markTable = Line.getBlockMarkTable(block);
+    short liveCount = 0;
+    for (int offset = 0; offset < (LINES_IN_BLOCK << Line.LOG_BYTES_IN_LINE_STATUS); offset += Line.BYTES_IN_LINE_STATUS) {
+      if (markTable.loadByte(Offset.fromIntZeroExtend(offset)) != 0)
+        liveCount++;
+    }
+    return liveCount;
+  }
+
   /****************************************************************************
    * Block defrag state
    */
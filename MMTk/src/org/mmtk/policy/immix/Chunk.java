@@ -72,6 +72,42 @@ public class Chunk {
     }
   }
 
+  /**
+   * Sweep a chunk of a space whose line mark table holds counts of
+   * live objects, releasing blocks with no live lines.
+   *
+   * @param chunk the chunk
+   * @param end the highest block of the chunk in use
+   * @param space the space the chunk belongs to
+   */
+  static void sweepCounted(Address chunk, Address end, ImmixSpace space) {
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(isAligned(chunk));
+    Address start = getFirstUsableBlock(chunk);
+    Address cursor = Block.getBlockMarkStateAddress(start);
+    for (int index = FIRST_USABLE_BLOCK_INDEX; index < BLOCKS_IN_CHUNK; index++) {
+      Address block = chunk.plus(index << LOG_BYTES_IN_BLOCK);
+      if (block.GT(end)) break;
+      short live = Block.countLiveLines(block);
+      if (live == 0) {
+        if (!Block.isUnusedState(cursor))
+          space.release(block);
+      } else {
+        Block.setState(cursor, live);
+      }
+      cursor = cursor.plus(Block.BYTES_IN_BLOCK_STATE_ENTRY);
+    }
+  }
+
+  /**
+   * Zero the line mark table of a chunk.
+   *
+   * @param chunk the chunk
+   */
+  static void clearLineMarks(Address chunk) {
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(isAligned(chunk));
+    VM.memory.zero(false, Line.getChunkMarkTable(chunk), Extent.fromIntZeroExtend(Line.LINE_MARK_TABLE_BYTES));
+  }
+
   static void clearMetaData(Address chunk) {
     if (VM.VERIFY_ASSERTIONS) {
       VM.assertions._assert(isAligned(chunk));
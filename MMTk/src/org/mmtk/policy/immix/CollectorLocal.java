@@ -103,7 +103,10 @@ public final class CollectorLocal {
    * @param majorGC whether the collection was a full heap collection
    */
   public void release(boolean majorGC) {
-    sweepAllBlocks(majorGC);
+    if (immixSpace.isLineCounting())
+      sweepCountedBlocks();
+    else
+      sweepAllBlocks(majorGC);
   }
 
   private void sweepAllBlocks(boolean majorGC) {
@@ -118,4 +121,18 @@ public final class CollectorLocal {
       chunk = chunkMap.nextChunk(chunk, ordinal, stride);
     }
   }
+
+  /**
+   * Sweep all blocks of a line counting space, releasing those
+   * whose lines are all free.
+   */
+  private void sweepCountedBlocks() {
+    int stride = VM.activePlan.collector().parallelWorkerCount();
+    int ordinal = VM.activePlan.collector().parallelWorkerOrdinal();
+    Address chunk = chunkMap.firstChunk(ordinal, stride);
+    while (!chunk.isZero()) {
+      Chunk.sweepCounted(chunk, Chunk.getHighWater(chunk), immixSpace);
+      chunk = chunkMap.nextChunk(chunk, ordinal, stride);
+    }
+  }
 }
@@ -78,6 +78,7 @@ public final class ImmixSpace extends Space {
 
   private final ChunkList chunkMap = new ChunkList();
   private final Defrag defrag;
+  private final boolean lineCounting;
 
   /****************************************************************************
    *
@@ -111,7 +112,28 @@ public final class ImmixSpace extends Space {
    * @param vmRequest The virtual memory request
    */
   public ImmixSpace(String name, boolean zeroed, VMRequest vmRequest) {
+    this(name, zeroed, false, vmRequest);
+  }
+
+  /**
+   * The caller specifies the region of virtual memory to be used for
+   * this space.  If this region conflicts with an existing space,
+   * then the constructor will fail.<p>
+   *
+   * In a line counting space the line mark table holds, for each line,
+   * the number of live objects touching it, kept up to date by the plan
+   * (see {@link #countLines(ObjectReference)}).  Objects are not marked,
+   * and a line is free for reuse when its count is zero.
+   *
+   * @param name The name of this space (used when printing error messages etc)
+   * @param zeroed if true, allocations return zeroed memory
+   * @param lineCounting if true, lines are reused by live object count
+   * rather than by mark
+   * @param vmRequest The virtual memory request
+   */
+  public ImmixSpace(String name, boolean zeroed, boolean lineCounting, VMRequest vmRequest) {
     super(name, false, false, zeroed, vmRequest);
+    this.lineCounting = lineCounting;
     if (vmRequest.isDiscontiguous())
       pr = new FreeListPageResource(this, Chunk.getRequiredMetaDataPages());
     else
@@ -135,7 +157,7 @@ public final class ImmixSpace extends Space {
    * @param majorGC whether the collection will be a full heap collection
    */
   public void prepare(boolean majorGC) {
-    if (majorGC) {
+    if (majorGC && !lineCounting) {
       markState = ObjectHeader.deltaMarkState(markState, true);
         lineMarkState++;
         if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(lineMarkState <= MAX_LINE_MARK_STATE);
@@ -226,6 +248,24 @@ public final class ImmixSpace extends Space {
     return inCollection && defrag.inDefrag();
   }
 
+  /**
+   * Return {@code true} if the clean blocks set aside for copying in
+   * the current collection have all been used.
+   *
+   * @return {@code true} if no more objects should be copied.
+   */
+  @Inline
+  public boolean copySpaceExhausted() {
+    return defrag.spaceExhausted();
+  }
+
+  /**
+   * @return {@code true} if this is a line counting space.
+   */
+  boolean isLineCounting() {
+    return lineCounting;
+  }
+
   /**
    * Return the number of pages allocated since the last collection
    *
@@ -301,6 +341,7 @@ public final class ImmixSpace extends Space {
       Address chunk = Conversions.chunkAlign(start.plus(bytes), true);
       if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(Conversions.chunkAlign(start.plus(bytes), true).EQ(chunk));
       Chunk.clearMetaData(chunk);
+      if (lineCounting) Line.probeCountOrder(chunk);
       chunkMap.addNewChunkToMap(chunk);
     }
   }
@@ -626,6 +667,51 @@ public final class ImmixSpace extends Space {
     return Line.getNextAvailable(baseLineAvailAddress, line, lineUnavailState);
   }
 
+  /****************************************************************************
+   *
+   * Line counting
+   */
+
+  /**
+   * Count a newly live object in the lines it touches.  Only used in a
+   * line counting space, by the plan, once for each object that becomes
+   * live, either at its first collection or while the counts are being
+   * rebuilt.  Collector threads may count objects in the same lines
+   * at the same time.
+   *
+   * @param object The object
+   */
+  @Inline
+  public void countLines(ObjectReference object) {
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(lineCounting);
+    Line.countLines(object, 1);
+  }
+
+  /**
+   * Remove a dead object from the counts of the lines it touches.
+   *
+   * @param object The object, which must have been counted
+   */
+  @Inline
+  public void uncountLines(ObjectReference object) {
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(lineCounting);
+    Line.countLines(object, -1);
+  }
+
+  /**
+   * Zero the counts of every line, before they are rebuilt from scratch.
+   * No objects may be copied into the space after this and before the
+   * next sweep.
+   */
+  public void clearLineCounts() {
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(lineCounting);
+    Address chunk = chunkMap.getHeadChunk();
+    while (!chunk.isZero()) {
+      Chunk.clearLineMarks(chunk);
+      chunk = chunkMap.nextChunk(chunk);
+    }
+  }
+
   /****************************************************************************
   *
   * Establish available lines
@@ -13,6 +13,8 @@
 package org.mmtk.policy.immix;
 
 import static org.mmtk.policy.immix.ImmixConstants.*;
+import static org.mmtk.utility.Constants.BYTES_IN_INT;
+import static org.mmtk.utility.Constants.LOG_BITS_IN_BYTE;
 
 import org.mmtk.vm.VM;
 
@@ -21,6 +23,7 @@ import org.vmmagic.pragma.Uninterruptible;
 import org.vmmagic.unboxed.Address;
 import org.vmmagic.unboxed.ObjectReference;
 import org.vmmagic.unboxed.Offset;
+import org.vmmagic.unboxed.Word;
 
 @Uninterruptible
 public class Line {
@@ -64,6 +67,59 @@ public class Line {
     }
   }
 
+ /***************************************************************************
+  * Line counting
+  */
+
+  /**
+   * Whether the first of the four line counts held in an int is its
+   * most significant byte.  Found by {@link #probeCountOrder(Address)}.
+   */
+  private static boolean countsBigEndian = false;
+
+  /**
+   * Find the byte order of the line counts held in an int.  The
+   * metadata of a new chunk is zeroed and not yet seen by any other
+   * thread, so its first entry can be written and read back.
+   *
+   * @param chunk a chunk whose metadata has just been cleared
+   */
+  static void probeCountOrder(Address chunk) {
+    Address table = getChunkMarkTable(chunk);
+    table.store((byte) 1);
+    countsBigEndian = table.loadInt() != 1;
+    table.store((byte) 0);
+  }
+
+  /**
+   * Atomically add to the counts of every line an object touches.
+   * Counts are bytes, so the int holding each one is updated.
+   *
+   * @param object the object
+   * @param delta the value to add to each count
+   */
+  static void countLines(ObjectReference object, int delta) {
+    Address line = align(VM.objectModel.objectStartRef(object));
+    Address endLine = align(VM.objectModel.getObjectEndAddress(object).minus(1));
+    while (line.LE(endLine)) {
+      Address count = getMarkAddress(line);
+      Address word = count.toWord().and(Word.fromIntZeroExtend(BYTES_IN_INT - 1).not()).toAddress();
+      int index = count.diff(word).toInt();
+      if (countsBigEndian) index = BYTES_IN_INT - 1 - index;
+      int shift = index << LOG_BITS_IN_BYTE;
+      int old, value;
+      do {
+        old = word.prepareInt();
+        if (VM.VERIFY_ASSERTIONS) {
+          int current = (old >>> shift) & 0xFF;
+          VM.assertions._assert(current + delta >= 0 && current + delta <= MAX_LINE_MARK_STATE);
+        }
+        value = old + (delta << shift);
+      } while (!word.attempt(old, value));
+      line = line.plus(BYTES_IN_LINE);
+    }
+  }
+
   /***************************************************************************
    * Scanning through avail lines
    */
@@ -25,6 +25,9 @@ import org.mmtk.policy.Space;
 import org.mmtk.utility.Conversions;
 import org.mmtk.utility.Log;
 import org.mmtk.utility.gcspy.drivers.LinearSpaceDriver;
+import org.mmtk.utility.statistics.EventCounter;
+import org.mmtk.utility.statistics.SizeCounter;
+import org.mmtk.utility.statistics.Stats;
 import org.mmtk.vm.VM;
 import org.vmmagic.pragma.Inline;
 import org.vmmagic.pragma.NoInline;
@@ -62,6 +65,15 @@ import org.vmmagic.unboxed.Word;
  * The minimum region size is 32768 bytes, so the 3 or 4 word overhead is
  * less than 0.05% of all space.<p>
  *
+ * The amount of memory taken from the space at each refill adapts to
+ * the rate at which this allocator consumes it.  It doubles, up to
+ * eight blocks, after {@code REFILLS_TO_GROW} refills at one size
+ * between resets (which plans perform at each collection).  It halves
+ * at a reset if there was at most one refill since the last and more
+ * than half of the last chunk is unused.  The first keeps busy threads
+ * off the slow path; the second stops idle threads holding memory they
+ * do not use.<p>
+ *
  * An intended enhancement is to facilitate a reallocation operation
  * where a second cursor is maintained over earlier regions (and at the
  * limit a lower location in the same region). This would be accompianied
@@ -106,8 +118,31 @@ import org.vmmagic.unboxed.Word;
 
   private static final int SIZE_OF_TWO_X86_CACHE_LINES_IN_BYTES = 128;
 
+  // Adaptive refill sizing
+  private static final int LOG_MAX_CHUNK_BLOCKS = 3;
+  private static final int REFILLS_TO_GROW = 4;
+
+  private static final EventCounter slowPaths;
+  private static final EventCounter refills;
+  private static final SizeCounter chunkWaste;
+
   private static final boolean VERBOSE = false;
 
+  /*
+   * Class initializer
+   */
+  static {
+    if (Stats.GATHER_ALLOCATOR_STATS) {
+      slowPaths = new EventCounter("bpSlow");
+      refills = new EventCounter("bpRefill");
+      chunkWaste = new SizeCounter("bpWaste");
+    } else {
+      slowPaths = null;
+      refills = null;
+      chunkWaste = null;
+    }
+  }
+
   /****************************************************************************
    *
    * Instance variables
@@ -127,6 +162,14 @@ import org.vmmagic.unboxed.Word;
   protected final boolean allowScanning;
   /** current contiguous region */
   protected Address region;
+  /** log of the number of blocks taken from the space at each refill */
+  private int logChunkBlocks;
+  /** refills at the current chunk size since the last reset */
+  private int refillsAtSize;
+  /** refills since the last reset */
+  private int refillsSinceReset;
+  /** the start of the current chunk */
+  private Address chunk = Address.zero();
 
 
   /**
@@ -146,6 +189,7 @@ import org.vmmagic.unboxed.Word;
    * This is must be done by the caller.
    */
   public final void reset() {
+    adaptChunkSizeAtReset();
     cursor = Address.zero();
     limit = Address.zero();
     internalLimit = Address.zero();
@@ -204,6 +248,7 @@ import org.vmmagic.unboxed.Word;
       int offset) {
     Address rtn = null;
     Address card = null;
+    if (Stats.GATHER_ALLOCATOR_STATS) slowPaths.inc();
     if (SUPPORT_CARD_SCANNING)
       card = getCard(start.plus(CARD_MASK)); // round up
     if (end.GT(limit)) { /* external slow path */
@@ -299,9 +344,17 @@ import org.vmmagic.unboxed.Word;
     /* Acquire space, block aligned, that can accommodate the request */
     Extent blockSize = Word.fromIntZeroExtend(bytes).plus(BLOCK_MASK)
                        .and(BLOCK_MASK.not()).toExtent();
+    Extent chunkSize = getChunkSize();
+    if (chunkSize.GT(blockSize)) blockSize = chunkSize;
     Address start = space.acquire(Conversions.bytesToPages(blockSize));
 
-    if (start.isZero()) return start; // failed allocation
+    if (start.isZero()) {
+      /* Ask for no more than is needed once the space has been collected */
+      logChunkBlocks = 0;
+      refillsAtSize = 0;
+      return start; // failed allocation
+    }
+    recordRefill(start);
 
     if (!allowScanning) { // simple allocator
       if (start.NE(limit)) cursor = start;  // discontiguous
@@ -311,6 +364,49 @@ import org.vmmagic.unboxed.Word;
     return alloc(bytes, align, offset);
   }
 
+  /**
+   * @return The amount of memory to take from the space at the next refill
+   */
+  private Extent getChunkSize() {
+    Extent chunkSize = Extent.fromIntZeroExtend(BLOCK_SIZE << logChunkBlocks);
+    Extent max = maximumRegionSize();
+    return chunkSize.GT(max) ? max : chunkSize;
+  }
+
+  /**
+   * Account for a refill, growing the chunk size if this allocator
+   * has refilled often since the last reset.  The unused end of the
+   * previous chunk is wasted unless the new one follows on from it.
+   *
+   * @param start The start of the memory acquired by the refill
+   */
+  private void recordRefill(Address start) {
+    if (Stats.GATHER_ALLOCATOR_STATS) refills.inc();
+    if (Stats.GATHER_ALLOCATOR_STATS && start.NE(limit) && limit.GT(cursor)) {
+      chunkWaste.inc(limit.diff(cursor).toWord().toExtent());
+    }
+    chunk = start;
+    refillsSinceReset++;
+    if (++refillsAtSize >= REFILLS_TO_GROW && logChunkBlocks < LOG_MAX_CHUNK_BLOCKS) {
+      logChunkBlocks++;
+      refillsAtSize = 0;
+    }
+  }
+
+  /**
+   * Shrink the chunk size at a reset if this allocator refilled at most
+   * once since the last reset and left more than half its chunk unused.
+   */
+  private void adaptChunkSizeAtReset() {
+    if (logChunkBlocks > 0 && refillsSinceReset <= 1 && !chunk.isZero() &&
+        limit.diff(cursor).toWord().GT(limit.diff(chunk).toWord().rshl(1))) {
+      logChunkBlocks--;
+    }
+    refillsAtSize = 0;
+    refillsSinceReset = 0;
+    chunk = Address.zero();
+  }
+
   /**
    * Update the limit pointer.  As a side effect update the internal limit
    * pointer appropriately.
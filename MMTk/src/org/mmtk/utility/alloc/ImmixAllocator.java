@@ -22,6 +22,9 @@ import static org.mmtk.policy.immix.ImmixConstants.*;
 
 import org.mmtk.utility.Log;
 import org.mmtk.utility.options.Options;
+import org.mmtk.utility.statistics.EventCounter;
+import org.mmtk.utility.statistics.SizeCounter;
+import org.mmtk.utility.statistics.Stats;
 import org.mmtk.vm.VM;
 
 import org.vmmagic.unboxed.*;
@@ -33,6 +36,33 @@ import org.vmmagic.pragma.*;
 @Uninterruptible
 public class ImmixAllocator extends Allocator {
 
+  /****************************************************************************
+   *
+   * Class variables
+   */
+
+  /**
+   *
+   */
+  private static final EventCounter slowPaths;
+  private static final EventCounter refills;
+  private static final SizeCounter holeWaste;
+
+  /*
+   * Class initializer
+   */
+  static {
+    if (Stats.GATHER_ALLOCATOR_STATS) {
+      slowPaths = new EventCounter("ixSlow");
+      refills = new EventCounter("ixRefill");
+      holeWaste = new SizeCounter("ixWaste");
+    } else {
+      slowPaths = null;
+      refills = null;
+      holeWaste = null;
+    }
+  }
+
   /****************************************************************************
    *
    * Instance variables
@@ -145,6 +175,7 @@ public class ImmixAllocator extends Allocator {
 
     /* check whether we've exceeded the limit */
     if (end.GT(largeLimit)) {
+      if (Stats.GATHER_ALLOCATOR_STATS) slowPaths.inc();
       requestForLarge = true;
       Address rtn =  allocSlowInline(bytes, align, offset);
       requestForLarge = false;
@@ -189,10 +220,13 @@ public class ImmixAllocator extends Allocator {
     if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(Block.isAligned(ptr));
     lineUseCount = LINES_IN_BLOCK;
 
+    if (Stats.GATHER_ALLOCATOR_STATS) refills.inc();
     if (requestForLarge) {
+      recordWaste(largeCursor, largeLimit);
       largeCursor = ptr;
       largeLimit = ptr.plus(BYTES_IN_BLOCK);
     } else {
+      recordWaste(cursor, limit);
       cursor = ptr;
       limit = ptr.plus(BYTES_IN_BLOCK);
     }
@@ -218,6 +252,7 @@ public class ImmixAllocator extends Allocator {
    */
   @NoInline
   private Address allocSlowHot(int bytes, int align, int offset) {
+    if (Stats.GATHER_ALLOCATOR_STATS) slowPaths.inc();
     if (acquireRecyclableLines(bytes, align, offset))
       return alloc(bytes, align, offset);
     else
@@ -229,6 +264,8 @@ public class ImmixAllocator extends Allocator {
       line = space.getNextAvailableLine(markTable, line);
       if (line < LINES_IN_BLOCK) {
         int endLine = space.getNextUnavailableLine(markTable, line);
+        if (Stats.GATHER_ALLOCATOR_STATS) refills.inc();
+        recordWaste(cursor, limit);
         cursor = recyclableBlock.plus(Extent.fromIntSignExtend(line << LOG_BYTES_IN_LINE));
         limit = recyclableBlock.plus(Extent.fromIntSignExtend(endLine << LOG_BYTES_IN_LINE));
         if (SANITY_CHECK_LINE_MARKS) {
@@ -275,6 +312,16 @@ public class ImmixAllocator extends Allocator {
     return false;
   }
 
+  /**
+   * Count the unused end of a hole or block that is being given up.
+   *
+   * @param cursor The bump pointer into the hole or block
+   * @param limit The end of the hole or block
+   */
+  private static void recordWaste(Address cursor, Address limit) {
+    if (Stats.GATHER_ALLOCATOR_STATS && limit.GT(cursor)) holeWaste.inc(limit.diff(cursor).toWord().toExtent());
+  }
+
   private boolean acquireRecyclableBlock() {
     boolean rtn;
     rtn = acquireRecyclableBlockAddressOrder();
@@ -109,6 +109,22 @@ import org.vmmagic.pragma.*;
     }
   }
 
+  /**
+   * Pop an address from the address queue without waiting for other
+   * clients of the shared queue, return zero if there is none to hand.
+   *
+   * @return The next address in the address queue, or zero if there
+   * is none without waiting
+   */
+  @Inline
+  public final Address popNonBlocking() {
+    if (checkDequeueNonBlocking(1)) {
+      return uncheckedDequeue();
+    } else {
+      return Address.zero();
+    }
+  }
+
   @Inline
   public final boolean isEmpty() {
     return !checkDequeue(1);
@@ -79,13 +79,29 @@ import org.vmmagic.unboxed.*;
   @Inline
   protected final boolean checkDequeue(int arity) {
     if (bufferOffset(head).isZero()) {
-      return dequeueUnderflow(arity);
+      return dequeueUnderflow(arity, true);
     } else {
       if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(bufferOffset(head).sGE(Word.fromIntZeroExtend(arity).lsh(LOG_BYTES_IN_ADDRESS).toOffset()));
       return true;
     }
   }
 
+  /**
+   * Check whether there are values for a pending dequeue as
+   * {@link #checkDequeue(int)} does, but return false rather than wait
+   * for other clients of the shared queue if there are none.
+   *
+   * @param arity The arity of the values stored in this queue
+   * @return whether there are values available for a dequeue
+   */
+  @Inline
+  protected final boolean checkDequeueNonBlocking(int arity) {
+    if (bufferOffset(head).isZero()) {
+      return dequeueUnderflow(arity, false);
+    }
+    return true;
+  }
+
   /**
    * Dequeue a value from the buffer.  This is <i>unchecked</i>.  The
    * caller must first call <code>checkDequeue()</code> to ensure the
@@ -114,10 +130,7 @@ import org.vmmagic.unboxed.*;
     if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(arity == queue.getArity());
 
     // If the tail has entries...
-    if (tail.NE(tailBufferEnd)) {
-      head = normalizeTail(arity).plus(BYTES_IN_ADDRESS);
-      tail = Deque.TAIL_INITIAL_VALUE;
-      tailBufferEnd = Deque.TAIL_INITIAL_VALUE;
+    if (consumeTail(arity)) {
       // Return that we acquired more entries
       return false;
     }
@@ -132,6 +145,22 @@ import org.vmmagic.unboxed.*;
    * Private instance methods
    */
 
+  /**
+   * Move the entries in the tail buffer, if any, to the head.
+   *
+   * @param arity The arity of this buffer
+   * @return True if the tail had entries
+   */
+  private boolean consumeTail(int arity) {
+    if (tail.NE(tailBufferEnd)) {
+      head = normalizeTail(arity).plus(BYTES_IN_ADDRESS);
+      tail = Deque.TAIL_INITIAL_VALUE;
+      tailBufferEnd = Deque.TAIL_INITIAL_VALUE;
+      return true;
+    }
+    return false;
+  }
+
   /**
    * There are not sufficient entries in the head buffer for a pending
    * dequeue.  Acquire a new head buffer.  If the shared queue has no
@@ -139,11 +168,13 @@ import org.vmmagic.unboxed.*;
    * if entries cannot be acquired.
    *
    * @param arity The arity of this buffer (used for sanity test only).
+   * @param wait Whether to wait for other clients of the shared queue
+   * when it has no buffers available
    * @return True if there the head buffer has been successfully
    * replenished.
    */
   @NoInline
-  private boolean dequeueUnderflow(int arity) {
+  private boolean dequeueUnderflow(int arity, boolean wait) {
     if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(arity == queue.getArity());
     do {
       if (head.NE(Deque.HEAD_INITIAL_VALUE))
@@ -152,7 +183,7 @@ import org.vmmagic.unboxed.*;
     } while (head.NE(Deque.HEAD_INITIAL_VALUE) && bufferOffset(head).isZero());
 
     if (head.EQ(Deque.HEAD_INITIAL_VALUE))
-      return !headStarved(arity);
+      return wait ? !headStarved(arity) : consumeTail(arity);
 
     return true;
   }
@@ -73,7 +73,7 @@ public class SharedDeque extends Deque {
    * @param arity the arity of this queue
    * @param toTail whether to enqueue to the tail of the shared queue
    */
-  final void enqueue(Address buf, int arity, boolean toTail) {
+  void enqueue(Address buf, int arity, boolean toTail) {
     if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(arity == this.arity);
     lock();
     if (toTail) {
@@ -114,7 +114,7 @@ public class SharedDeque extends Deque {
     return dequeue(arity, false);
   }
 
-  final Address dequeue(int arity, boolean fromTail) {
+  Address dequeue(int arity, boolean fromTail) {
     if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(arity == this.arity);
     return dequeue(false, fromTail);
   }
@@ -124,7 +124,7 @@ public class SharedDeque extends Deque {
     return dequeueAndWait(arity, false);
   }
 
-  final Address dequeueAndWait(int arity, boolean fromTail) {
+  Address dequeueAndWait(int arity, boolean fromTail) {
     if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(arity == this.arity);
     Address buf = dequeue(false, fromTail);
     if (buf.isZero() && (!complete())) {
@@ -138,7 +138,7 @@ public class SharedDeque extends Deque {
    * participate, and pop operations will block until all work
    * is complete.
    */
-  public final void prepare() {
+  public void prepare() {
     if (DISABLE_WAITING) {
       prepareNonBlocking();
     } else {
@@ -151,7 +151,7 @@ public class SharedDeque extends Deque {
    * Prepare for processing where pop operations on the deques
    * will never block.
    */
-  public final void prepareNonBlocking() {
+  public void prepareNonBlocking() {
     prepare(1);
   }
 
@@ -167,14 +167,14 @@ public class SharedDeque extends Deque {
     clearCompletionFlag();
   }
 
-  public final void reset() {
+  public void reset() {
     if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(numConsumersWaiting == 0);
     clearCompletionFlag();
     setNumConsumersWaiting(0);
     assertExhausted();
   }
 
-  public final void assertExhausted() {
+  public void assertExhausted() {
     if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(head.isZero() && tail.isZero());
   }
 
@@ -196,7 +196,7 @@ public class SharedDeque extends Deque {
   }
 
   @Inline
-  public final int enqueuedPages() {
+  public int enqueuedPages() {
     return bufsenqueued * PAGES_PER_BUFFER;
   }
 
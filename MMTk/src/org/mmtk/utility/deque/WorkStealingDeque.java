@@ -0,0 +1,343 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.utility.deque;
+
+import static org.mmtk.utility.Constants.*;
+
+import org.mmtk.policy.RawPageSpace;
+import org.mmtk.utility.statistics.EventCounter;
+import org.mmtk.vm.VM;
+import org.vmmagic.pragma.Inline;
+import org.vmmagic.pragma.Uninterruptible;
+import org.vmmagic.unboxed.Address;
+import org.vmmagic.unboxed.Extent;
+import org.vmmagic.unboxed.Offset;
+
+/**
+ * A shared deque where each collector thread keeps the buffers it fills
+ * in a deque of its own, so parallel tracing doesn't serialize on the
+ * shared deque's lock.<p>
+ *
+ * Each collector's deque is a bounded Chase-Lev deque of buffer
+ * addresses: the owner pushes and pops at the bottom without locking,
+ * and collectors that run out of work steal from the top of another
+ * collector's deque with a compare and swap.  Buffers that don't fit,
+ * and buffers enqueued by mutators (e.g. from write buffers during
+ * concurrent marking), go on the locked shared list inherited from
+ * {@link SharedDeque}.<p>
+ *
+ * Collectors own the deque indexed by their collector id, which is
+ * unique across the parallel and concurrent worker groups, so the two
+ * groups never share an owner's end.<p>
+ *
+ * Termination is non-blocking, as it is for {@link SharedDeque} while
+ * waiting is disabled: a collector that finds no work on its own deque,
+ * the shared list or any other collector's deque returns at once.
+ * Steals and failed steal rounds are counted per collector and merged
+ * into event counters when the deque is reset.
+ */
+@Uninterruptible
+public class WorkStealingDeque extends SharedDeque {
+  /** Buffers a collector's deque holds before they go on the shared list */
+  private static final int LOG_CAPACITY = 10;
+  private static final int CAPACITY = 1 << LOG_CAPACITY;
+  private static final int MASK = CAPACITY - 1;
+
+  /*
+   * Table layout.  Each collector has a block with its top, bottom and
+   * statistics in separate lines so owners and thieves don't share them,
+   * followed by the ring.
+   */
+  private static final int LINE = 128;
+  private static final Offset TOP = Offset.zero();
+  private static final Offset BOTTOM = Offset.fromIntZeroExtend(LINE);
+  private static final Offset STEALS = Offset.fromIntZeroExtend(2 * LINE);
+  private static final Offset FAILED_STEALS = STEALS.plus(BYTES_IN_INT);
+  private static final Offset RING = Offset.fromIntZeroExtend(3 * LINE);
+  private static final int WORKER_BYTES = 3 * LINE + (CAPACITY << LOG_BYTES_IN_ADDRESS);
+
+  private static final EventCounter steals = new EventCounter("steals", true, true);
+  private static final EventCounter failedSteals = new EventCounter("stealFail", true, true);
+
+  private final RawPageSpace rps;
+  private Address table = Address.zero();
+  private int workers;
+
+  /**
+   * Constructor
+   *
+   * @param name The name of this deque, for debugging
+   * @param rps The space from which the instance should obtain buffers.
+   * @param arity The arity of the data to be enqueued
+   */
+  public WorkStealingDeque(String name, RawPageSpace rps, int arity) {
+    super(name, rps, arity);
+    this.rps = rps;
+  }
+
+  /****************************************************************************
+   *
+   * Phase boundaries
+   */
+
+  /**
+   * Prepare for parallel processing.  Collectors that run out of work
+   * do not wait for the others.
+   */
+  @Override
+  public final void prepare() {
+    prepareNonBlocking();
+  }
+
+  /**
+   * Prepare for processing where a collector that runs out of work does
+   * not wait for the others.
+   */
+  @Override
+  public final void prepareNonBlocking() {
+    super.prepareNonBlocking();
+    if (table.isZero()) {
+      allocateTable();
+    }
+  }
+
+  /**
+   * The collector deques are allocated at the first prepare, once the
+   * number of collectors is known, and kept for the life of the deque.
+   * There is one for each parallel worker, each concurrent worker and the
+   * controller, which is how collector ids are handed out.
+   */
+  private void allocateTable() {
+    int count = 2 * VM.activePlan.collectorCount() + 1;
+    int pages = (count * WORKER_BYTES + BYTES_IN_PAGE - 1) >>> LOG_BYTES_IN_PAGE;
+    Address start = rps.acquire(pages);
+    if (start.isZero()) {
+      VM.assertions.fail("Failed to allocate space for work stealing deques");
+    }
+    VM.memory.zero(false, start, Extent.fromIntZeroExtend(pages << LOG_BYTES_IN_PAGE));
+    workers = count;
+    table = start;
+  }
+
+  /**
+   * Finish a phase: fold the collector statistics into the event counters
+   * and start the collector deques over from index zero.
+   */
+  @Override
+  public final void reset() {
+    super.reset();
+    if (table.isZero()) return;
+    for (int i = 0; i < workers; i++) {
+      Address w = worker(i);
+      steals.inc(w.loadInt(STEALS));
+      failedSteals.inc(w.loadInt(FAILED_STEALS));
+      w.store(0, STEALS);
+      w.store(0, FAILED_STEALS);
+      w.store(0, TOP);
+      w.store(0, BOTTOM);
+    }
+  }
+
+  @Override
+  public final void assertExhausted() {
+    super.assertExhausted();
+    if (VM.VERIFY_ASSERTIONS && !table.isZero()) {
+      for (int i = 0; i < workers; i++) {
+        VM.assertions._assert(size(worker(i)) == 0);
+      }
+    }
+  }
+
+  /**
+   * @return the number of pages in the shared list and the collector deques
+   */
+  @Override
+  public final int enqueuedPages() {
+    int buffers = 0;
+    if (!table.isZero()) {
+      for (int i = 0; i < workers; i++) {
+        int size = size(worker(i));
+        if (size > 0) buffers += size;
+      }
+    }
+    return super.enqueuedPages() + (buffers << LOG_PAGES_PER_BUFFER);
+  }
+
+  /****************************************************************************
+   *
+   * Enqueuing and dequeuing buffers
+   */
+
+  /**
+   * Enqueue a buffer on the calling collector's deque, or on the shared
+   * list if the caller is a mutator or the collector's deque is full.
+   * Collector deques have no ends to choose from, the owner always takes
+   * back the most recently enqueued buffer.
+   *
+   * @param buf The address of the buffer to be enqueued
+   * @param arity The arity of this buffer
+   * @param toTail whether the buffer goes on the tail of the shared list
+   */
+  @Override
+  final void enqueue(Address buf, int arity, boolean toTail) {
+    int me = ordinal();
+    if (me < 0 || !push(worker(me), buf)) {
+      super.enqueue(buf, arity, toTail);
+    }
+  }
+
+  /**
+   * Dequeue a buffer from the calling collector's deque, the shared list
+   * or, failing both, another collector's deque.
+   *
+   * @param arity The arity of the buffer
+   * @param fromTail whether the buffer comes from the tail of the shared list
+   * @return The address of the buffer, or zero if there was no work
+   */
+  @Override
+  final Address dequeue(int arity, boolean fromTail) {
+    int me = ordinal();
+    if (me >= 0) {
+      Address buf = pop(worker(me));
+      if (!buf.isZero()) return buf;
+    }
+    if (!head.isZero()) {
+      Address buf = super.dequeue(arity, fromTail);
+      if (!buf.isZero()) return buf;
+    }
+    return stealAny(me);
+  }
+
+  /**
+   * Dequeue a buffer without waiting: termination is non-blocking, so
+   * this is the same as {@link #dequeue(int, boolean)}.
+   *
+   * @param arity The arity of the buffer
+   * @param fromTail whether the buffer comes from the tail of the shared list
+   * @return The address of the buffer, or zero if there was no work
+   */
+  @Override
+  final Address dequeueAndWait(int arity, boolean fromTail) {
+    return dequeue(arity, fromTail);
+  }
+
+  /****************************************************************************
+   *
+   * The collector deques
+   */
+
+  /**
+   * Owner push and pop are not synchronized, so collectors are keyed by
+   * id rather than by their ordinal within a worker group, which the
+   * parallel and concurrent groups both number from zero.
+   *
+   * @return the calling collector's deque, or -1 for the shared list
+   */
+  @Inline
+  private int ordinal() {
+    if (table.isZero() || VM.activePlan.isMutator()) return -1;
+    int id = VM.activePlan.collector().getId();
+    return id < workers ? id : -1;
+  }
+
+  @Inline
+  private Address worker(int ordinal) {
+    return table.plus(ordinal * WORKER_BYTES);
+  }
+
+  @Inline
+  private static Offset slot(int index) {
+    return RING.plus((index & MASK) << LOG_BYTES_IN_ADDRESS);
+  }
+
+  @Inline
+  private static int size(Address w) {
+    return w.loadInt(BOTTOM) - w.loadInt(TOP);
+  }
+
+  /**
+   * Owner only.  The buffer is stored before the bottom moves past it.
+   */
+  @Inline
+  private static boolean push(Address w, Address buf) {
+    int b = w.loadInt(BOTTOM);
+    if (b - w.loadInt(TOP) >= CAPACITY) return false;
+    w.store(buf, slot(b));
+    VM.memory.fence();
+    w.store(b + 1, BOTTOM);
+    return true;
+  }
+
+  /**
+   * Owner only.  The bottom is taken back before top is read, so a thief
+   * and the owner only race for the last buffer, and that race is decided
+   * on top.
+   */
+  @Inline
+  private static Address pop(Address w) {
+    int b = w.loadInt(BOTTOM) - 1;
+    w.store(b, BOTTOM);
+    VM.memory.fence();
+    int t = w.loadInt(TOP);
+    if (t > b) {
+      w.store(b + 1, BOTTOM);
+      return Address.zero();
+    }
+    Address buf = w.loadAddress(slot(b));
+    if (t == b) {
+      if (!w.attempt(t, t + 1, TOP)) buf = Address.zero();
+      w.store(b + 1, BOTTOM);
+    }
+    return buf;
+  }
+
+  /**
+   * Take the oldest buffer of another collector's deque.  The owner can't
+   * reuse the slot until top moves past it, so the buffer read is the one
+   * the compare and swap claims.
+   */
+  @Inline
+  private static Address steal(Address w) {
+    int t = w.loadInt(TOP);
+    VM.memory.combinedLoadBarriers();
+    int b = w.loadInt(BOTTOM);
+    if (t >= b) return Address.zero();
+    Address buf = w.loadAddress(slot(t));
+    if (!w.attempt(t, t + 1, TOP)) return Address.zero();
+    return buf;
+  }
+
+  /**
+   * One round over the other collectors' deques, starting after our own
+   */
+  private Address stealAny(int me) {
+    if (table.isZero()) return Address.zero();
+    for (int i = 1; i <= workers; i++) {
+      int victim = (me + i) % workers;
+      if (victim == me) continue;
+      Address buf = steal(worker(victim));
+      if (!buf.isZero()) {
+        if (me >= 0) {
+          Address w = worker(me);
+          w.store(w.loadInt(STEALS) + 1, STEALS);
+        }
+        return buf;
+      }
+    }
+    if (me >= 0) {
+      Address w = worker(me);
+      w.store(w.loadInt(FAILED_STEALS) + 1, FAILED_STEALS);
+    }
+    return Address.zero();
+  }
+}
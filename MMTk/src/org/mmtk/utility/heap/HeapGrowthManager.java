@@ -25,7 +25,15 @@ import org.vmmagic.unboxed.*;
 
 /**
  * This class is responsible for growing and shrinking the
- * heap size by observing heap utilization and GC load.
+ * heap size by observing heap utilization and GC load.<p>
+ *
+ * By default the heap is resized from a fixed table of GC load against
+ * live ratio.  Goal driven sizing instead aims for a given GC overhead:
+ * the cost of collection per byte allocated falls in proportion to the
+ * headroom above the live data, so the measured cost and allocation rate
+ * give the headroom at which the overhead meets the goal.  The nursery
+ * of generational plans is sized so that nursery pauses meet the pause
+ * goal, taking pause time to grow in proportion to the nursery size.
  */
 @Uninterruptible public abstract class HeapGrowthManager {
 
@@ -87,6 +95,30 @@ import org.vmmagic.unboxed.*;
   private static long endLastMajorGC;
   private static double accumulatedGCTime;
 
+  /**
+   * Bounds on the change a single step of goal driven sizing may make,
+   * to damp the response to a short lived change in behaviour.
+   */
+  private static final double MIN_GOAL_CHANGE_RATIO = 0.75;
+  private static final double MAX_GOAL_CHANGE_RATIO = 2.0;
+  private static final double MIN_NURSERY_CHANGE_RATIO = 0.5;
+  private static final double MAX_NURSERY_CHANGE_RATIO = 2.0;
+
+  /** The longest pause since the last major GC, in milliseconds */
+  private static double maxPause;
+
+  /** The bytes allocated since the last major GC */
+  private static long allocatedBytes;
+
+  /** The memory reserved at the end of the last GC */
+  private static Extent reservedAfterGC = Extent.zero();
+
+  /** The size of the nursery when the current GC started, in pages */
+  private static int collectedNurseryPages;
+
+  /** The goal driven bound on the size of the nursery, in pages, or zero */
+  private static int nurseryPages;
+
   /**
    * Initialize heap size parameters and the mechanisms
    * used to adaptively change heap size.
@@ -151,6 +183,27 @@ import org.vmmagic.unboxed.*;
    */
   public static void recordGCTime(double time) {
     accumulatedGCTime += time;
+    if (time > maxPause) maxPause = time;
+    reservedAfterGC = Plan.reservedMemory();
+  }
+
+  /**
+   * Record the start of a GC, once the mutators have stopped; used to
+   * compute the allocation rate.  Allocation is measured as the growth
+   * in reserved memory since the end of the last GC.
+   */
+  public static void recordGCStart() {
+    long allocated = Plan.reservedMemory().toLong() - reservedAfterGC.toLong();
+    if (allocated > 0) allocatedBytes += allocated;
+  }
+
+  /**
+   * Record the size of the nursery being collected by a nursery GC
+   *
+   * @param pages the pages in the nursery
+   */
+  public static void recordNurseryPages(int pages) {
+    collectedNurseryPages = pages;
   }
 
   /**
@@ -159,6 +212,26 @@ import org.vmmagic.unboxed.*;
   public static void reset() {
     endLastMajorGC = VM.statistics.nanoTime();
     accumulatedGCTime = 0;
+    maxPause = 0;
+    allocatedBytes = 0;
+  }
+
+  /**
+   * @return the number of pages the nursery may grow to before a
+   * nursery GC is required
+   */
+  @Inline
+  public static int getMaxNurseryPages() {
+    return nurseryPages == 0 ? Options.nurserySize.getMaxNursery() : nurseryPages;
+  }
+
+  /**
+   * @return the size the heap may not grow beyond
+   */
+  private static Extent getHeapCeiling() {
+    if (Options.heapCeiling.getPages() == 0) return maxHeapSize;
+    Extent ceiling = Options.heapCeiling.getBytes();
+    return ceiling.GT(maxHeapSize) ? maxHeapSize : ceiling;
   }
 
   /**
@@ -170,10 +243,12 @@ import org.vmmagic.unboxed.*;
     Extent oldSize = currentHeapSize;
     Extent reserved = Plan.reservedMemory();
     double liveRatio = reserved.toLong() / ((double) currentHeapSize.toLong());
-    double ratio = computeHeapChangeRatio(liveRatio);
+    double ratio = Options.heapSizing.getGoals() ? computeGoalHeapChangeRatio(reserved) : computeHeapChangeRatio(liveRatio);
     Extent newSize = Word.fromIntSignExtend((int)(ratio * (oldSize.toLong() >> LOG_BYTES_IN_MBYTE))).lsh(LOG_BYTES_IN_MBYTE).toExtent(); // do arith in MB to avoid overflow
     if (newSize.LT(reserved)) newSize = reserved;
     newSize = newSize.plus(BYTES_IN_MBYTE - 1).toWord().rshl(LOG_BYTES_IN_MBYTE).lsh(LOG_BYTES_IN_MBYTE).toExtent(); // round to next megabyte
+    Extent ceiling = getHeapCeiling();
+    if (newSize.GT(ceiling)) newSize = ceiling.LT(reserved) ? reserved : ceiling;
     if (newSize.GT(maxHeapSize)) newSize = maxHeapSize;
     if (newSize.NE(oldSize) && newSize.GT(Extent.zero())) {
       // Heap size is going to change
@@ -292,6 +367,74 @@ import org.vmmagic.unboxed.*;
     return factor;
   }
 
+  /**
+   * Compute the heap change ratio that meets the GC overhead goal.  Over
+   * the time since the last major GC, the collection time per byte
+   * allocated is taken to be inversely proportional to the headroom,
+   * the heap less the live data.  The headroom that meets the goal is
+   * the one at which the collection time for the measured allocation
+   * rate is the goal's share of execution time.
+   *
+   * @param live the memory reserved at the end of this major GC
+   * @return the ratio of the new to the current heap size
+   */
+  private static double computeGoalHeapChangeRatio(Extent live) {
+    long totalNanos = VM.statistics.nanoTime() - endLastMajorGC;
+    double mutatorTime = VM.statistics.nanosToMillis(totalNanos) - accumulatedGCTime;
+    double heap = currentHeapSize.toLong();
+    double headroom = heap - live.toLong();
+    if (headroom <= 0) return MAX_GOAL_CHANGE_RATIO;
+    if (mutatorTime <= 0 || allocatedBytes == 0) return 1.0;
+
+    double allocationRate = allocatedBytes / mutatorTime;
+    double costPerByte = accumulatedGCTime * headroom / allocatedBytes;
+    double goal = Options.gcOverheadGoal.getValue() / 100.0;
+    double goalHeadroom = costPerByte * allocationRate * (1 - goal) / goal;
+    double ratio = (live.toLong() + goalHeadroom) / heap;
+    if (ratio < MIN_GOAL_CHANGE_RATIO) ratio = MIN_GOAL_CHANGE_RATIO;
+    if (ratio > MAX_GOAL_CHANGE_RATIO) ratio = MAX_GOAL_CHANGE_RATIO;
+
+    if (Options.verbose.getValue() > 2) {
+      Log.write("Allocation rate (KB/ms) ");
+      Log.writeln(allocationRate / BYTES_IN_KBYTE);
+      Log.write("GC time (ms) ");
+      Log.write(accumulatedGCTime);
+      Log.write(", longest pause (ms) ");
+      Log.writeln(maxPause);
+      Log.write("Heap adjustment factor is ");
+      Log.writeln(ratio);
+    }
+    return ratio;
+  }
+
+  /**
+   * Resize the nursery after a nursery GC, so that the next nursery
+   * pause meets the pause goal.  Only done for goal driven sizing, and
+   * always within the bounds of the nursery size options.
+   *
+   * @param pause the length of the nursery GC, in milliseconds
+   */
+  public static void considerNurserySize(double pause) {
+    if (!Options.heapSizing.getGoals() || collectedNurseryPages == 0 || pause <= 0) return;
+    double ratio = Options.pauseGoal.getMicroseconds() / (pause * 1000);
+    if (ratio < MIN_NURSERY_CHANGE_RATIO) ratio = MIN_NURSERY_CHANGE_RATIO;
+    if (ratio > MAX_NURSERY_CHANGE_RATIO) ratio = MAX_NURSERY_CHANGE_RATIO;
+    int pages = (int) (collectedNurseryPages * ratio);
+    if (pages < Options.nurserySize.getMinNursery()) pages = Options.nurserySize.getMinNursery();
+    if (pages > Options.nurserySize.getMaxNursery()) pages = Options.nurserySize.getMaxNursery();
+    if (Options.verbose.getValue() > 2) {
+      Log.write("Nursery pause (ms) ");
+      Log.write(pause);
+      Log.write(", nursery resized from ");
+      Log.write(collectedNurseryPages);
+      Log.write(" to ");
+      Log.write(pages);
+      Log.writeln(" pages");
+    }
+    nurseryPages = pages;
+    collectedNurseryPages = 0;
+  }
+
   /**
    * Check that function satisfies the invariants
    */
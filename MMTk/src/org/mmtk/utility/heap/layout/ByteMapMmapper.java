@@ -183,6 +183,27 @@ public final class ByteMapMmapper extends Mmapper {
 
   }
 
+  @Override
+  public void markAsUnmapped(Address start, int bytes) {
+    if (VM.VERIFY_ASSERTIONS) {
+      VM.assertions._assert(start.EQ(chunkAlignDown(start)));
+      VM.assertions._assert((bytes & MMAP_CHUNK_MASK) == 0);
+    }
+    int startChunk = addressToMmapChunksDown(start);
+    int endChunk = addressToMmapChunksDown(start.plus(bytes));
+    lock.acquire();
+    for (int chunk = startChunk; chunk < endChunk; chunk++) {
+      if (mapped[chunk] == UNMAPPED) continue;
+      Address mmapStart = mmapChunksToAddress(chunk);
+      if (!VM.memory.munmap(mmapStart, MMAP_CHUNK_BYTES)) {
+        lock.release();
+        VM.assertions.fail("Mmapper.markAsUnmapped (munmap) failed");
+      }
+      mapped[chunk] = UNMAPPED;
+    }
+    lock.release();
+  }
+
   /**
    * Memory protect a range of pages (using mprotect or equivalent).  Note
    * that protection occurs at chunk granularity, not page granularity.
@@ -452,6 +452,42 @@ public final class FragmentedMmapper extends Mmapper {
     }
   }
 
+  @Override
+  public void markAsUnmapped(Address start, int bytes) {
+    final Address end = start.plus(bytes);
+    if (VM.VERIFY_ASSERTIONS) {
+      VM.assertions._assert(start.EQ(chunkAlignDown(start)));
+      VM.assertions._assert(end.EQ(chunkAlignDown(end)));
+    }
+    if (VERBOSE) {
+      Log.write("Unmapping [", start);
+      Log.write(":", end);
+      Log.writeln("]");
+    }
+    lock.acquire();
+    // Iterate over the slabs covered
+    while (start.LT(end)) {
+      Address base = slabAlignDown(start);
+      Address high = end.GT(slabLimit(start)) && !slabLimit(start).isZero() ? slabLimit(start) : end;
+
+      int startChunk = chunkIndex(base, start);
+      int endChunk = chunkIndex(base, chunkAlignUp(high));
+
+      byte[] mapped = slabTable(start, false /* don't allocate */);
+      for (int chunk = startChunk; mapped != null && chunk < endChunk; chunk++) {
+        if (mapped[chunk] == UNMAPPED) continue;
+        Address mmapStart = chunkIndexToAddress(base, chunk);
+        if (!VM.memory.munmap(mmapStart, MMAP_CHUNK_BYTES)) {
+          lock.release();
+          VM.assertions.fail("Mmapper.markAsUnmapped (munmap) failed");
+        }
+        mapped[chunk] = UNMAPPED;
+      }
+      start = high;
+    }
+    lock.release();
+  }
+
   /**
    * Memory protect a range of pages (using mprotect or equivalent).  Note
    * that protection occurs at chunk granularity, not page granularity.
@@ -61,6 +61,16 @@ public abstract class Mmapper {
    */
   public abstract void ensureMapped(Address start, int pages);
 
+  /**
+   * Unmap a range of chunks that no space is using any more, so the memory
+   * behind them goes back to the system.  The range must be mmap chunk
+   * aligned, and nothing may touch it again before a later ensureMapped.
+   *
+   * @param start The start of the range to be unmapped.
+   * @param bytes The size of the range, in bytes
+   */
+  public abstract void markAsUnmapped(Address start, int bytes);
+
   /**
    * Is the page occupied by this object mapped ?
    * @param object Object in question
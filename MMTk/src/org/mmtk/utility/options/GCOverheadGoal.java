@@ -0,0 +1,36 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.utility.options;
+
+/**
+ * The percentage of execution time goal driven heap sizing allows for collection.
+ */
+public final class GCOverheadGoal extends org.vmutil.options.IntOption {
+  /**
+   * Create the option.
+   */
+  public GCOverheadGoal() {
+    super(Options.set, "GC Overhead Goal",
+          "The percentage of execution time goal driven heap sizing allows for collection",
+          5);
+  }
+
+  /**
+   * Only accept values between 1 and 99 (inclusive)
+   */
+  @Override
+  protected void validate() {
+    failIf(this.value <= 0, "GC overhead goal must be between 1 and 99");
+    failIf(this.value >= 100, "GC overhead goal must be between 1 and 99");
+  }
+}
@@ -0,0 +1,35 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.utility.options;
+
+/**
+ * The size a variable size heap may not grow beyond, if below the maximum heap size.
+ */
+public final class HeapCeiling extends org.vmutil.options.PagesOption {
+  /**
+   * Create the option.
+   */
+  public HeapCeiling() {
+    super(Options.set, "Heap Ceiling",
+          "The size a variable size heap may not grow beyond (zero for the maximum heap size)",
+          0);
+  }
+
+  /**
+   * Only accept non-negative sizes
+   */
+  @Override
+  protected void validate() {
+    failIf(this.value < 0, "Heap ceiling must not be negative");
+  }
+}
@@ -0,0 +1,42 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.utility.options;
+
+import org.vmmagic.pragma.Uninterruptible;
+
+/**
+ * How a variable size heap is resized after a full heap collection.
+ */
+@Uninterruptible
+public final class HeapSizing extends org.vmutil.options.EnumOption {
+
+  public final int TABLE = 0;
+  public final int GOALS = 1;
+
+  /**
+   * Create the option.
+   */
+  public HeapSizing() {
+    super(Options.set, "Heap Sizing",
+          "Resize the heap from a fixed table of GC load against liveness, or to meet the GC overhead and pause goals",
+          new String[] {"table", "goals"},
+          "table");
+  }
+
+  /**
+   * @return {@code true} if the heap is sized to meet the GC overhead and pause goals.
+   */
+  public boolean getGoals() {
+    return getValue() == GOALS;
+  }
+}
@@ -21,6 +21,7 @@ public final class Options {
   public static OptionSet set;
 
   /* Other options */
+  public static ConcurrentSweep concurrentSweep;
   public static ConcurrentTrigger concurrentTrigger;
   public static CycleFilterThreshold cycleFilterThreshold;
   public static CycleMetaDataLimit cycleMetaDataLimit;
@@ -42,9 +43,12 @@ public final class Options {
   public static GCspyPort gcspyPort;
   public static GCspyTileSize gcspyTileSize;
   public static GCspyWait gcspyWait;
+  public static GCOverheadGoal gcOverheadGoal;
   public static GCTimeCap gcTimeCap;
   public static GenCycleDetection genCycleDetection;
   public static HarnessAll harnessAll;
+  public static HeapCeiling heapCeiling;
+  public static HeapSizing heapSizing;
   public static IgnoreSystemGC ignoreSystemGC;
   public static LineReuseRatio lineReuseRatio;
   public static MarkSweepMarkBits markSweepMarkBits;
@@ -52,6 +56,7 @@ public final class Options {
   public static NoFinalizer noFinalizer;
   public static NoReferenceTypes noReferenceTypes;
   public static NurserySize nurserySize;
+  public static PauseGoal pauseGoal;
   public static PerfEvents perfEvents;
   public static PretenureThresholdFraction pretenureThresholdFraction;
   public static PrintPhaseStats printPhaseStats;
@@ -0,0 +1,37 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.utility.options;
+
+/**
+ * The pause time collections should try to keep within.  Used by the
+ * region-based collector, and by goal driven heap sizing to size the
+ * nursery of generational plans.
+ */
+public final class PauseGoal extends org.vmutil.options.MicrosecondsOption {
+  /**
+   * Create the option.
+   */
+  public PauseGoal() {
+    super(Options.set, "Pause Goal",
+          "The pause time collections should try to keep within",
+          200000);
+  }
+
+  /**
+   * Only accept positive goals
+   */
+  @Override
+  protected void validate() {
+    failIf(this.value <= 0, "Pause goal must be positive");
+  }
+}
@@ -0,0 +1,217 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.utility.statistics;
+
+import static org.mmtk.utility.Constants.LOG_BYTES_IN_PAGE;
+
+import org.mmtk.plan.Phase;
+import org.mmtk.vm.VM;
+
+import org.vmmagic.pragma.*;
+
+/**
+ * This class keeps a record of each of the most recent collection
+ * pauses, and histograms of the length of all of them.  Unlike the
+ * counters in {@link Stats}, these are kept whether or not statistics
+ * are being gathered, so that tail pause times can be observed in a
+ * running system.<p>
+ *
+ * Records are kept in a ring of {@link #RECORDS} entries.  They are
+ * written by the controller thread alone, and published by a count
+ * of the records completed, so that they can be read by any thread
+ * without locking: a reader copies a record with
+ * {@link #copyRecord(long, long[], long[])}, which reports whether it
+ * was overwritten while being copied.
+ */
+@Uninterruptible
+public final class GCEventLog {
+
+  /****************************************************************************
+   *
+   * Class variables
+   */
+
+  /** The pause was needed to satisfy allocation */
+  public static final int CAUSE_ALLOCATION = 0;
+  /** The pause was requested by the application */
+  public static final int CAUSE_USER = 1;
+  /** The pause was requested by the plan, for example to finish concurrent work */
+  public static final int CAUSE_INTERNAL = 2;
+  /** The pause was a last attempt to free memory before running out */
+  public static final int CAUSE_EMERGENCY = 3;
+
+  /* The fields of a record */
+  public static final int GC_NUMBER = 0;
+  public static final int CAUSE = 1;
+  public static final int FULL_HEAP = 2;
+  public static final int START_TIME = 3;
+  public static final int END_TIME = 4;
+  public static final int BYTES_BEFORE = 5;
+  public static final int BYTES_AFTER = 6;
+  public static final int BYTES_PROMOTED = 7;
+  public static final int FIELDS = 8;
+
+  /** The number of phases whose time is recorded */
+  public static final int PHASES = Phase.MAX_PHASES;
+
+  private static final int LOG_RECORDS = 6;
+  public static final int RECORDS = 1 << LOG_RECORDS;
+  private static final int RECORD_MASK = RECORDS - 1;
+
+  private static final long[] fields = new long[RECORDS * FIELDS];
+  private static final long[] phaseTimes = new long[RECORDS * PHASES];
+
+  /** The number of records completed */
+  private static volatile long published = 0;
+  private static boolean inPause = false;
+  private static long matureBytesBefore;
+
+  /** The length of every pause */
+  public static final PauseHistogram pauses = new PauseHistogram();
+  /** The length of every full heap pause */
+  public static final PauseHistogram fullHeapPauses = new PauseHistogram();
+
+  /****************************************************************************
+   *
+   * Recording
+   */
+
+  /**
+   * Start the record of a pause.
+   *
+   * @param startTime The time the pause started, in nanoseconds
+   * @param pagesReserved The number of pages reserved before the pause
+   * @param maturePagesReserved The number of pages reserved by the space
+   * objects are promoted to before the pause
+   */
+  public static void startPause(long startTime, int pagesReserved, int maturePagesReserved) {
+    /* Readers must see the new count before the slot is overwritten */
+    VM.memory.fence();
+    int slot = (int) (published & RECORD_MASK);
+    fields[slot * FIELDS + START_TIME] = startTime;
+    fields[slot * FIELDS + BYTES_BEFORE] = pagesToBytes(pagesReserved);
+    for (int p = 0; p < PHASES; p++) {
+      phaseTimes[slot * PHASES + p] = 0;
+    }
+    matureBytesBefore = pagesToBytes(maturePagesReserved);
+    inPause = true;
+  }
+
+  /**
+   * Add to the time spent in a phase during the current pause.
+   *
+   * @param phaseId The phase
+   * @param nanos The time spent, in nanoseconds
+   */
+  public static void recordPhase(short phaseId, long nanos) {
+    if (!inPause) return;
+    int slot = (int) (published & RECORD_MASK);
+    phaseTimes[slot * PHASES + phaseId] += nanos;
+  }
+
+  /**
+   * Complete and publish the record of the current pause.
+   *
+   * @param endTime The time the pause ended, in nanoseconds
+   * @param cause The cause of the pause, one of the <code>CAUSE_</code> constants
+   * @param fullHeap Whether the whole heap was collected
+   * @param pagesReserved The number of pages reserved after the pause
+   * @param maturePagesReserved The number of pages reserved by the space
+   * objects are promoted to after the pause
+   */
+  public static void endPause(long endTime, int cause, boolean fullHeap, int pagesReserved, int maturePagesReserved) {
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(inPause);
+    int slot = (int) (published & RECORD_MASK);
+    long promoted = pagesToBytes(maturePagesReserved) - matureBytesBefore;
+    fields[slot * FIELDS + GC_NUMBER] = Stats.gcCount();
+    fields[slot * FIELDS + CAUSE] = cause;
+    fields[slot * FIELDS + FULL_HEAP] = fullHeap ? 1 : 0;
+    fields[slot * FIELDS + END_TIME] = endTime;
+    fields[slot * FIELDS + BYTES_AFTER] = pagesToBytes(pagesReserved);
+    fields[slot * FIELDS + BYTES_PROMOTED] = (fullHeap || promoted < 0) ? 0 : promoted;
+    inPause = false;
+
+    long micros = (endTime - fields[slot * FIELDS + START_TIME]) / 1000;
+    pauses.record(micros);
+    if (fullHeap) fullHeapPauses.record(micros);
+    published = published + 1;
+  }
+
+  /**
+   * @param pages A number of pages
+   * @return The number of bytes in that many pages
+   */
+  private static long pagesToBytes(int pages) {
+    return ((long) pages) << LOG_BYTES_IN_PAGE;
+  }
+
+  /****************************************************************************
+   *
+   * Reading
+   */
+
+  /**
+   * @return The number of pauses recorded so far.  The record of the
+   * next pause will have this number.
+   */
+  public static long getRecordCount() {
+    return published;
+  }
+
+  /**
+   * @return The number of the oldest record that may still be read
+   */
+  public static long getOldestRecord() {
+    long oldest = published - RECORDS + 1;
+    return oldest > 0 ? oldest : 0;
+  }
+
+  /**
+   * Copy a record.  The copy is only good if this returns {@code true}:
+   * otherwise the record was never written or has been overwritten.
+   *
+   * @param record The number of the record
+   * @param recordFields An array of {@link #FIELDS} elements to copy
+   * the fields into, indexed by the field constants
+   * @param recordPhaseTimes An array of {@link #PHASES} elements to copy
+   * the time spent in each phase into, in nanoseconds, indexed by phase id
+   * @return {@code true} if the record was copied whole
+   */
+  public static boolean copyRecord(long record, long[] recordFields, long[] recordPhaseTimes) {
+    if (record < 0 || record >= published) return false;
+    int slot = (int) (record & RECORD_MASK);
+    for (int f = 0; f < FIELDS; f++) {
+      recordFields[f] = fields[slot * FIELDS + f];
+    }
+    for (int p = 0; p < PHASES; p++) {
+      recordPhaseTimes[p] = phaseTimes[slot * PHASES + p];
+    }
+    /* The copy must be complete before we check it was not overwritten */
+    VM.memory.combinedLoadBarriers();
+    return record + RECORDS > published;
+  }
+
+  /**
+   * @param cause One of the <code>CAUSE_</code> constants
+   * @return A short name for the cause
+   */
+  public static String getCauseName(int cause) {
+    switch (cause) {
+      case CAUSE_ALLOCATION: return "allocation";
+      case CAUSE_USER:       return "user";
+      case CAUSE_INTERNAL:   return "internal";
+      case CAUSE_EMERGENCY:  return "emergency";
+      default:               return "unknown";
+    }
+  }
+}
@@ -0,0 +1,155 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.utility.statistics;
+
+import org.vmmagic.pragma.*;
+
+/**
+ * This class implements a histogram of pause times, in the manner of
+ * an HDR histogram.  Pauses are counted in microseconds in buckets of
+ * log-linear width: values below {@link #SUB_BUCKETS} have a bucket of
+ * their own, and each power of two above that is split into
+ * {@link #SUB_BUCKETS} equal buckets, so that the value reported for
+ * any percentile is within about 3% of the true value.<p>
+ *
+ * A histogram is written by one thread at a time, at the end of each
+ * pause, and may be read by any thread at any time without locking.
+ * A reader may see one pause more or less than has been recorded.
+ */
+@Uninterruptible
+public final class PauseHistogram {
+
+  /****************************************************************************
+   *
+   * Class variables
+   */
+
+  /**
+   *
+   */
+  private static final int LOG_SUB_BUCKETS = 5;
+  public static final int SUB_BUCKETS = 1 << LOG_SUB_BUCKETS;
+  /** Pauses of 2^LOG_MAX_VALUE microseconds (about 12 days) and above share the last bucket */
+  private static final int LOG_MAX_VALUE = 40;
+  public static final int BUCKETS = (LOG_MAX_VALUE - LOG_SUB_BUCKETS + 1) * SUB_BUCKETS;
+
+  /****************************************************************************
+   *
+   * Instance variables
+   */
+
+  /**
+   *
+   */
+  private final long[] counts = new long[BUCKETS];
+  private volatile long totalCount = 0;
+  private long maxValue = 0;
+
+  /****************************************************************************
+   *
+   * Recording
+   */
+
+  /**
+   * Count a pause.
+   *
+   * @param micros The length of the pause, in microseconds
+   */
+  public void record(long micros) {
+    if (micros < 0) micros = 0;
+    counts[getBucket(micros)]++;
+    if (micros > maxValue) maxValue = micros;
+    totalCount++;
+  }
+
+  /**
+   * Find the bucket that counts a value.
+   *
+   * @param value The value, in microseconds
+   * @return The index of its bucket
+   */
+  @Inline
+  private static int getBucket(long value) {
+    if (value < SUB_BUCKETS) return (int) value;
+    int shift = 0;
+    while (value >= (SUB_BUCKETS << 1)) {
+      value >>= 1;
+      shift++;
+    }
+    int bucket = (shift + 1) * SUB_BUCKETS + (int) (value - SUB_BUCKETS);
+    return bucket < BUCKETS ? bucket : BUCKETS - 1;
+  }
+
+  /**
+   * @param bucket The index of a bucket
+   * @return The largest value the bucket counts, in microseconds
+   */
+  public static long getBucketLimit(int bucket) {
+    if (bucket < SUB_BUCKETS) return bucket;
+    int shift = bucket / SUB_BUCKETS - 1;
+    long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+    return lowest + (1L << shift) - 1;
+  }
+
+  /****************************************************************************
+   *
+   * Querying
+   */
+
+  /**
+   * @return The number of pauses counted
+   */
+  public long getCount() {
+    return totalCount;
+  }
+
+  /**
+   * @param bucket The index of a bucket
+   * @return The number of pauses counted in the bucket
+   */
+  public long getCount(int bucket) {
+    return counts[bucket];
+  }
+
+  /**
+   * @return The longest pause counted, in microseconds
+   */
+  public long getMax() {
+    return maxValue;
+  }
+
+  /**
+   * Find the pause time that a given percentage of pauses did not
+   * exceed, such as 99.9 for the p999 pause.  This is the limit of the
+   * bucket holding that pause, or the longest pause if that is less.
+   *
+   * @param percentile The percentage of pauses, from 0 to 100
+   * @return The pause time, in microseconds, or 0 if no pause was counted
+   */
+  public long getValueAtPercentile(double percentile) {
+    long total = totalCount;
+    if (total == 0) return 0;
+    double exact = total * percentile / 100.0;
+    long target = (long) exact;
+    if (target < exact || target < 1) target++;
+    long seen = 0;
+    for (int b = 0; b < BUCKETS; b++) {
+      seen += counts[b];
+      if (seen >= target) {
+        long limit = getBucketLimit(b);
+        return limit < maxValue ? limit : maxValue;
+      }
+    }
+    return maxValue;
+  }
+}
@@ -41,6 +41,13 @@ public class Stats {
    */
   public static final boolean GATHER_MARK_CONS_STATS = false;
 
+  /**
+   * Count allocator slow paths, refills and the memory they waste.  The
+   * counters are shared by all mutators and updated without
+   * synchronization, so they are approximate and off by default.
+   */
+  public static final boolean GATHER_ALLOCATOR_STATS = false;
+
   /** Maximum number of gc/mutator phases that can be counted */
   static final int MAX_PHASES = 1 << 12;
   /** Maximum number of counters that can be in operation */
@@ -77,6 +77,17 @@ import org.vmmagic.pragma.*;
    */
   public abstract int dzmmap(Address start, int size);
 
+  /**
+   * Unmaps an area of virtual memory, handing the memory behind it back
+   * to the system.
+   *
+   * @param start the address of the start of the area to be unmapped
+   * @param size the size, in bytes, of the area to be unmapped
+   * @return <code>true</code> if successful, otherwise
+   * <code>false</code>
+   */
+  public abstract boolean munmap(Address start, int size);
+
   /**
    * Protects access to an area of virtual memory.
    *
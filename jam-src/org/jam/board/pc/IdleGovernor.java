@@ -0,0 +1,218 @@
+/**
+ * Created on Oct 19, 2026
+ *
+ * Copyright (C) Joe Kulig, 2026
+ * All rights reserved.
+ */
+package org.jam.board.pc;
+
+import org.jam.cpu.intel.CpuId;
+import org.jikesrvm.VM;
+import org.jikesrvm.runtime.Magic;
+import org.jikesrvm.runtime.Time;
+import org.vmmagic.pragma.Uninterruptible;
+
+/**
+ * @author Joe Kulig
+ *
+ * Decides how the idle thread waits when there is nothing to run.
+ *
+ * The periodic tick is stopped and the timer is set to interrupt once at
+ * the next timer deadline, so an idle cpu isn't woken every millisecond
+ * for nothing. The wait itself is a HLT or, when the cpu has MONITOR/MWAIT,
+ * an MWAIT with a C-state hint. Deeper C-states save more power but take
+ * longer to get out of, so a state is only used when the cpu is expected to
+ * idle at least its target residency. The expected idle time is the time
+ * to the next deadline, cut short by how long recent idles really lasted
+ * when something else, like a network interrupt, keeps waking the cpu
+ * early. A state is also given up while the wake latency measured on
+ * timer wake ups from it is over the latency limit.
+ */
+@Uninterruptible
+public class IdleGovernor
+{
+    private final static int HLT = 0;
+    private final static int STATES = 5;
+    /*
+     * MWAIT hints for C1 to C4 and the cpu's exit latency and the target
+     * residency of each state in nanoseconds. The numbers are typical, the
+     * measured wake latency corrects them.
+     */
+    private final static int hint[] = { 0, 0x00, 0x10, 0x20, 0x30 };
+    private final static long exitLatency[] = { 2000, 2000, 20000, 100000, 200000 };
+    private final static long targetResidency[] = { 2000, 2000, 80000, 400000, 800000 };
+    private final static long LATENCY_LIMIT_NS = 250000;
+
+    /*
+     * Nothing else writes it on one cpu, interrupts end the MWAIT
+     */
+    private final static int monitorLine[] = new int[16];
+
+    private static boolean available[] = new boolean[STATES];
+    private static long wakeLatency[] = new long[STATES];
+    private static long recentResidency = Long.MAX_VALUE;
+
+    // statistics
+    private static long entries[] = new long[STATES];
+    private static long residency[] = new long[STATES];
+    private static long ticklessIdles;
+    private static long earlyWakes;
+
+    /**
+     * Find the C-states the cpu has. CpuId.boot() must have run.
+     */
+    public static void boot()
+    {
+        available[HLT] = true;
+        wakeLatency[HLT] = exitLatency[HLT];
+        for(int state=1; state < STATES; state++)
+        {
+            // a C-state is there if it has at least one MWAIT sub state
+            available[state] = CpuId.hasMwaitInterruptBreak && ((CpuId.mwaitSubStates >> (state * 4)) & 0xF) != 0;
+            wakeLatency[state] = exitLatency[state];
+        }
+        VM.sysWrite("IdleGovernor: MWAIT C-states");
+        for(int state=1; state < STATES; state++)
+        {
+            if(available[state])
+            {
+                VM.sysWrite(" C", state);
+            }
+        }
+        VM.sysWriteln();
+    }
+
+    /**
+     * Wait for an interrupt unless there is a thread ready to run. The
+     * calling idle thread may be switched out before it returns.
+     */
+    public static void idle()
+    {
+        Magic.disableInterrupts();
+        if(!Platform.scheduler.noRunnableThreads())
+        {
+            Magic.enableInterrupts();
+            return;
+        }
+        long start = Time.nanoTime();
+        long deadline = Platform.timer.nextDeadline();
+        long untilDeadline = Long.MAX_VALUE;
+        if(deadline != Long.MAX_VALUE)
+        {
+            untilDeadline = deadline - start;
+            if(untilDeadline <= 0)
+            {
+                // it's due; the next tick wakes the thread
+                Magic.enableInterrupts();
+                return;
+            }
+        }
+        long expected = untilDeadline;
+        if(recentResidency < Long.MAX_VALUE / 2 && recentResidency * 2 < expected)
+        {
+            expected = recentResidency * 2;
+        }
+        int state = select(expected);
+        long oneShot = Platform.timer.stopTick(untilDeadline);
+        if(oneShot != 0)
+        {
+            ticklessIdles++;
+        }
+        long wake;
+        if(state == HLT)
+        {
+            /*
+             * STI holds off interrupts for one more instruction so one
+             * can't slip in between it and the HLT. The interrupt runs
+             * first and may switch to another thread before we get back.
+             */
+            Magic.enableInterrupts();
+            Magic.halt();
+            Magic.disableInterrupts();
+            wake = Time.nanoTime();
+            long timerWake = Platform.timer.lastInterrupt();
+            if(timerWake > start && timerWake < wake)
+            {
+                wake = timerWake;
+            }
+        }
+        else
+        {
+            /*
+             * MWAIT with interrupts disabled, the pending interrupt
+             * wakes the cpu but isn't taken until they are enabled.
+             */
+            Magic.monitor(Magic.objectAsAddress(monitorLine));
+            Magic.mwait(hint[state]);
+            wake = Time.nanoTime();
+            /*
+             * Take the interrupt that ended the MWAIT now. If it is the
+             * one shot the handler restarts the tick itself and counts
+             * the time that went by, rather than seeing a running tick
+             * and counting an extra one. STI holds off interrupts for one
+             * instruction so there has to be one before the CLI.
+             */
+            Magic.enableInterrupts();
+            Magic.pause();
+            Magic.disableInterrupts();
+        }
+        /*
+         * Another interrupt may have woken the cpu before the one shot
+         */
+        Platform.timer.restartTick();
+        if(oneShot != 0 && wake - start >= oneShot)
+        {
+            long latency = wake - start - oneShot;
+            wakeLatency[state] = (wakeLatency[state] * 7 + latency) / 8;
+        }
+        else if(wake - start < expected)
+        {
+            earlyWakes++;
+        }
+        long idled = wake - start;
+        recentResidency = recentResidency == Long.MAX_VALUE ? idled : (recentResidency * 7 + idled) / 8;
+        entries[state]++;
+        residency[state] += idled;
+        Magic.enableInterrupts();
+    }
+
+    /*
+     * The deepest state worth entering for the expected idle time
+     */
+    private static int select(long expected)
+    {
+        int best = HLT;
+        for(int state=1; state < STATES; state++)
+        {
+            if(available[state] && targetResidency[state] <= expected && wakeLatency[state] <= LATENCY_LIMIT_NS)
+            {
+                best = state;
+            }
+        }
+        return best;
+    }
+
+    public static void dumpStatistics()
+    {
+        VM.sysWrite("IdleGovernor: tickless=", ticklessIdles);
+        VM.sysWriteln(" early wakes=", earlyWakes);
+        for(int state=0; state < STATES; state++)
+        {
+            if(entries[state] == 0)
+            {
+                continue;
+            }
+            if(state == HLT)
+            {
+                VM.sysWrite("  HLT");
+            }
+            else
+            {
+                VM.sysWrite("  C", state);
+            }
+            VM.sysWrite(" entries=", entries[state]);
+            VM.sysWrite(" residency ns=", residency[state]);
+            VM.sysWriteln(" wake latency ns=", wakeLatency[state]);
+        }
+    }
+}
@@ -0,0 +1,239 @@
+/**
+ * Created on Oct 19, 2026
+ *
+ * Copyright (C) Joe Kulig, 2026
+ * All rights reserved.
+ */
+package org.jam.board.pc;
+
+import org.jikesrvm.VM;
+import org.vmmagic.pragma.Uninterruptible;
+import org.vmmagic.unboxed.Address;
+import org.vmmagic.unboxed.Offset;
+
+/**
+ * @author Joe Kulig
+ *
+ * The multiboot information the boot loader handed to the startup code.
+ * The startup code saves the magic and the information pointer at
+ * BOOT_INFO_SAVE. The memory map and the module list are copied into
+ * static tables by boot() because the boot loader puts the information
+ * structures in memory the page frame allocator is about to hand out.
+ */
+@Uninterruptible
+public class Multiboot
+{
+    /** Must agree with the boot image writer's Multiboot.BOOT_INFO_SAVE */
+    private final static Address BOOT_INFO_SAVE = Address.fromIntZeroExtend(0x100900);
+    private final static int BOOTLOADER_MAGIC = 0x2BADB002;
+
+    private final static int MEM_FLAG = 0x0001;
+    private final static int CMDLINE_FLAG = 0x0004;
+    private final static int MODS_FLAG = 0x0008;
+    private final static int MEMMAP_FLAG = 0x0040;
+
+    // offsets in the multiboot information structure
+    private final static Offset FLAGS = Offset.fromIntZeroExtend(0);
+    private final static Offset MEM_LOWER = Offset.fromIntZeroExtend(4);
+    private final static Offset MEM_UPPER = Offset.fromIntZeroExtend(8);
+    private final static Offset CMDLINE = Offset.fromIntZeroExtend(16);
+    private final static Offset MODS_COUNT = Offset.fromIntZeroExtend(20);
+    private final static Offset MODS_ADDR = Offset.fromIntZeroExtend(24);
+    private final static Offset MMAP_LENGTH = Offset.fromIntZeroExtend(44);
+    private final static Offset MMAP_ADDR = Offset.fromIntZeroExtend(48);
+
+    /** Memory map type of RAM that is free to use */
+    public final static int MEMORY_AVAILABLE = 1;
+
+    public final static int MAX_REGIONS = 32;
+    public final static int MAX_MODULES = 16;
+    public final static int MAX_MODULE_NAME = 128;
+    public final static int MAX_COMMAND_LINE = 256;
+
+    private static boolean valid;
+    private static int regionCount;
+    private static final long regionBase[] = new long[MAX_REGIONS];
+    private static final long regionLength[] = new long[MAX_REGIONS];
+    private static final int regionType[] = new int[MAX_REGIONS];
+    private static int moduleCount;
+    // multiboot addresses are 32 bits
+    private static final int moduleStart[] = new int[MAX_MODULES];
+    private static final int moduleEnd[] = new int[MAX_MODULES];
+    private static final byte moduleNames[] = new byte[MAX_MODULES * MAX_MODULE_NAME];
+    private static final byte commandLine[] = new byte[MAX_COMMAND_LINE];
+
+    /**
+     * Copy the memory map and module list. Must run before anything
+     * allocates physical memory.
+     */
+    public static void boot()
+    {
+        valid = BOOT_INFO_SAVE.loadInt() == BOOTLOADER_MAGIC;
+        if(!valid)
+        {
+            VM.sysWriteln("Multiboot: no boot loader information");
+            return;
+        }
+        Address info = Address.fromIntZeroExtend(BOOT_INFO_SAVE.loadInt(Offset.fromIntZeroExtend(4)));
+        int flags = info.loadInt(FLAGS);
+        if((flags & MEMMAP_FLAG) != 0)
+        {
+            Address entry = Address.fromIntZeroExtend(info.loadInt(MMAP_ADDR));
+            Address end = entry.plus(info.loadInt(MMAP_LENGTH));
+            while(entry.LT(end) && regionCount < MAX_REGIONS)
+            {
+                // size does not count the size field itself
+                int size = entry.loadInt();
+                addRegion(entry.loadLong(Offset.fromIntZeroExtend(4)),
+                          entry.loadLong(Offset.fromIntZeroExtend(12)),
+                          entry.loadInt(Offset.fromIntZeroExtend(20)));
+                entry = entry.plus(size + 4);
+            }
+        }
+        else if((flags & MEM_FLAG) != 0)
+        {
+            addRegion(0, (info.loadInt(MEM_LOWER) & 0xFFFFFFFFL) << 10, MEMORY_AVAILABLE);
+            addRegion(0x100000, (info.loadInt(MEM_UPPER) & 0xFFFFFFFFL) << 10, MEMORY_AVAILABLE);
+        }
+        if((flags & CMDLINE_FLAG) != 0)
+        {
+            copyString(Address.fromIntZeroExtend(info.loadInt(CMDLINE)), commandLine, 0, MAX_COMMAND_LINE);
+        }
+        if((flags & MODS_FLAG) != 0)
+        {
+            Address module = Address.fromIntZeroExtend(info.loadInt(MODS_ADDR));
+            int count = info.loadInt(MODS_COUNT);
+            for(int i=0; i < count && moduleCount < MAX_MODULES; i++, module = module.plus(16))
+            {
+                moduleStart[moduleCount] = module.loadInt();
+                moduleEnd[moduleCount] = module.loadInt(Offset.fromIntZeroExtend(4));
+                copyString(Address.fromIntZeroExtend(module.loadInt(Offset.fromIntZeroExtend(8))),
+                           moduleNames, moduleCount * MAX_MODULE_NAME, MAX_MODULE_NAME);
+                moduleCount++;
+            }
+        }
+        VM.sysWriteln("Multiboot: regions=", regionCount, " modules=", moduleCount);
+        for(int i=0; i < regionCount; i++)
+        {
+            VM.sysWrite("  ", Address.fromLong(regionBase[i]));
+            VM.sysWrite(" ", Address.fromLong(regionBase[i] + regionLength[i]));
+            VM.sysWriteln(" type=", regionType[i]);
+        }
+    }
+
+    private static void addRegion(long base, long length, int type)
+    {
+        regionBase[regionCount] = base;
+        regionLength[regionCount] = length;
+        regionType[regionCount] = type;
+        regionCount++;
+    }
+
+    /*
+     * Copy a zero terminated string, leaving room for the terminator
+     */
+    private static void copyString(Address string, byte to[], int offset, int max)
+    {
+        if(string.isZero())
+        {
+            return;
+        }
+        for(int i=0; i < max - 1; i++)
+        {
+            byte b = string.loadByte(Offset.fromIntZeroExtend(i));
+            if(b == 0)
+            {
+                break;
+            }
+            to[offset + i] = b;
+        }
+    }
+
+    /**
+     * @return true if a multiboot boot loader started JOE
+     */
+    public static boolean isValid()
+    {
+        return valid;
+    }
+
+    public static int getRegionCount()
+    {
+        return regionCount;
+    }
+
+    public static long getRegionBase(int region)
+    {
+        return regionBase[region];
+    }
+
+    public static long getRegionLength(int region)
+    {
+        return regionLength[region];
+    }
+
+    public static boolean isRegionAvailable(int region)
+    {
+        return regionType[region] == MEMORY_AVAILABLE;
+    }
+
+    public static int getModuleCount()
+    {
+        return moduleCount;
+    }
+
+    public static Address getModuleStart(int module)
+    {
+        return Address.fromIntZeroExtend(moduleStart[module]);
+    }
+
+    public static Address getModuleEnd(int module)
+    {
+        return Address.fromIntZeroExtend(moduleEnd[module]);
+    }
+
+    /**
+     * Record that a module's contents were moved
+     *
+     * @param module the module
+     * @param start the new start of the module
+     */
+    public static void setModuleStart(int module, Address start)
+    {
+        moduleEnd[module] = start.toInt() + moduleEnd[module] - moduleStart[module];
+        moduleStart[module] = start.toInt();
+    }
+
+    /**
+     * @param line where to copy the command line the boot loader started
+     * JOE with, including the image's own path
+     * @return the length of the command line
+     */
+    public static int getCommandLine(byte line[])
+    {
+        int length = 0;
+        while(length < line.length && length < MAX_COMMAND_LINE && commandLine[length] != 0)
+        {
+            line[length] = commandLine[length];
+            length++;
+        }
+        return length;
+    }
+
+    /**
+     * @param module the module
+     * @param name where to copy the module's command line
+     * @return the length of the command line
+     */
+    public static int getModuleName(int module, byte name[])
+    {
+        int offset = module * MAX_MODULE_NAME;
+        int length = 0;
+        while(length < name.length && length < MAX_MODULE_NAME && moduleNames[offset + length] != 0)
+        {
+            name[length] = moduleNames[offset + length];
+            length++;
+        }
+        return length;
+    }
+}
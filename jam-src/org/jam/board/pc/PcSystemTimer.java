@@ -40,6 +40,19 @@ implements Timer
 	private static final boolean trace1 = false;
     private PriorityQueue timerQueue;
     private ThreadQueue threadQueue;
+    /*
+     * Longest one shot the 16 bit counter can do, about 54.9 ms
+     */
+    private static final int  MAX_COUNT      = 0xFFFF;
+    private static final long MAX_ONE_SHOT_NS = MAX_COUNT * 1000000000L / sourceFreq;
+    /*
+     * The periodic tick is stopped while the cpu idles. The counter
+     * is in mode 0 and interrupts once when it runs out.
+     */
+    private boolean tickless;
+    private long ticklessStart;                              // Time.nanoTime() when the tick was stopped
+    private long ticklessNs;                                 // time not yet counted in tick
+    private long lastInterrupt;                              // Time.nanoTime() of the last interrupt
     
     /*
      * how many ticks to wait to reschedule
@@ -90,12 +103,24 @@ implements Timer
      */
     public void handler()
     {
-        tick++;
-        overflow += 193180;
-        if (overflow >= 1000000)
+        lastInterrupt = Time.nanoTime();
+        if(tickless)
+        {
+            /*
+             * The one shot ran out or an earlier wake up left it
+             * armed. Either way the periodic tick is needed again.
+             */
+            restartTick();
+        }
+        else
         {
             tick++;
-            overflow -= 1000000;
+            overflow += 193180;
+            if (overflow >= 1000000)
+            {
+                tick++;
+                overflow -= 1000000;
+            }
         }
 
         //if (RVMThread.bootThread.isTerminated()==false) return;
@@ -120,6 +145,16 @@ implements Timer
          */
         RVMThread currentThread = Magic.getThreadRegister();
         
+        /*
+         * The idle thread gives up the cpu as soon as there is
+         * something to run. It isn't queued, nextThread() falls back
+         * to it when the run queue is empty.
+         */
+        if(currentThread == RVMThread.idleThread)
+        {
+            Platform.scheduler.nextThread();
+            return;
+        }
         /*
          * Current thread has had its time allotment so put it on queue 
          * and schedule a new thread
@@ -212,6 +247,73 @@ implements Timer
       return t;
     }
     
+    /* (non-Javadoc)
+     * @see org.jam.interfaces.Timer#nextDeadline()
+     */
+    public long nextDeadline()
+    {
+        if(timerQueue.isEmpty())
+        {
+            return Long.MAX_VALUE;
+        }
+        return timerQueue.rootValue();
+    }
+
+    /* (non-Javadoc)
+     * @see org.jam.interfaces.Timer#stopTick(long)
+     */
+    public long stopTick(long timeNs)
+    {
+        if(timeNs > MAX_ONE_SHOT_NS)
+        {
+            timeNs = MAX_ONE_SHOT_NS;
+        }
+        /*
+         * Round up so the one shot never fires before the deadline,
+         * which would leave the sleeping thread waiting another tick
+         */
+        int count = (int)((timeNs * sourceFreq + 999999999L) / 1000000000L);
+        /*
+         * Not worth it if the next tick comes first anyway
+         */
+        if(count <= counterDivisor)
+        {
+            return 0;
+        }
+        ticklessStart = Time.nanoTime();
+        I82c54.counter0(I82c54.MODE0, count);
+        tickless = true;
+        return count * 1000000000L / sourceFreq;
+    }
+
+    /* (non-Javadoc)
+     * @see org.jam.interfaces.Timer#restartTick()
+     */
+    public void restartTick()
+    {
+        if(!tickless)
+        {
+            return;
+        }
+        I82c54.counter0(I82c54.MODE2, counterDivisor);
+        tickless = false;
+        /*
+         * Count the whole milliseconds that went by and carry the
+         * rest over to the next time
+         */
+        ticklessNs += Time.nanoTime() - ticklessStart;
+        tick += ticklessNs / TIMERTICKSPERNSECS;
+        ticklessNs %= TIMERTICKSPERNSECS;
+    }
+
+    /* (non-Javadoc)
+     * @see org.jam.interfaces.Timer#lastInterrupt()
+     */
+    public long lastInterrupt()
+    {
+        return lastInterrupt;
+    }
+
     /**
      * Remove timer associated with thread
      */
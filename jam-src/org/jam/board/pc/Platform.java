@@ -61,6 +61,7 @@ public class Platform {
     {
         CpuId.boot();
         CpuId.print();
+        IdleGovernor.boot();
         Pci.boot();
         Pci.enumeratePci();
         apicTimer = new ApicTimer();
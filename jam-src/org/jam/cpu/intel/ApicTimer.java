@@ -165,5 +165,42 @@ implements Timer
     // TODO Auto-generated method stub
     return null;
   }
+
+  /*
+   * Tickless idle is only done with the PIT (PcSystemTimer), which is the
+   * system timer. The APIC timer keeps no timer queue and never stops a
+   * tick, so it reports no deadline and no interrupts.
+   */
+
+  /* (non-Javadoc)
+   * @see org.jam.interfaces.Timer#nextDeadline()
+   */
+  public long nextDeadline()
+  {
+    return Long.MAX_VALUE;
+  }
+
+  /* (non-Javadoc)
+   * @see org.jam.interfaces.Timer#stopTick(long)
+   */
+  public long stopTick(long timeNs)
+  {
+    return 0;
+  }
+
+  /* (non-Javadoc)
+   * @see org.jam.interfaces.Timer#restartTick()
+   */
+  public void restartTick()
+  {
+  }
+
+  /* (non-Javadoc)
+   * @see org.jam.interfaces.Timer#lastInterrupt()
+   */
+  public long lastInterrupt()
+  {
+    return 0;
+  }
   
 }
@@ -29,6 +29,13 @@ public class CpuId {
   private static int cflushLineSize;
   private static int maxApicIds;
   private static int apicId;
+  /*
+   * MONITOR/MWAIT leaf; the number of MWAIT sub states of C-state n
+   * is in bits 4n+3:4n of mwaitSubStates
+   */
+  public static int monitorLineSize;
+  public static int mwaitSubStates;
+  public static boolean hasMwaitInterruptBreak;
   public static boolean hasFPU;
   public static boolean hasVME;
   public static boolean hasDE;
@@ -102,6 +109,7 @@ public class CpuId {
   {
     cpuId0();
     cpuId1();
+    cpuId5();
     extendedCpuId0();
     extendedCpuId1();
     extendedCpuId2();
@@ -222,6 +230,27 @@ public class CpuId {
       hasPBE = (regs[3] & 0x80000000) != 0;
     }
     
+    static void cpuId5()
+    {
+      if(maxCpuId < 5 || !hasMONITOR)
+      {
+        return;
+      }
+      Magic.cpuId(5, regs);
+      monitorLineSize = regs[1] & 0xFFFF;
+      // only trust the sub state enumeration if the extensions are there
+      if((regs[2] & 0x1) != 0)
+      {
+        mwaitSubStates = regs[3];
+        hasMwaitInterruptBreak = (regs[2] & 0x2) != 0;
+      }
+      if(trace)
+      {
+        VM.sysWrite("CPUID 5: line ", monitorLineSize);
+        VM.sysWriteln(" C-states ", VM.intAsHexString(mwaitSubStates));
+      }
+    }
+
     static void cpuId15()
     {
         long misc_enable = MSR.readMsr(0x1a0);
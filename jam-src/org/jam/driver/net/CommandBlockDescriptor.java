@@ -191,6 +191,7 @@ public class CommandBlockDescriptor {
     buffer[0] = 0;
     buffer[1] = 0;
     buffer[2] = TRANSMIT | SF;
+    buffer[3] = 0;
     buffer[15] = 1;  // tbd count
     buffer[14] = (byte) 0xe0;  // transmit threshold
     // setup the transmit buffer descriptor address
@@ -199,7 +200,6 @@ public class CommandBlockDescriptor {
 //    VM.sysWrite("packet: ", packet.getAddress()); VM.sysWriteln(" ",packet.getSize());
     bufferAddr.store(packet.getPacketAddress(), Offset.zero().plus(16));
     bufferAddr.store(packet.getSize(), Offset.zero().plus(20));
-    VM.sysWrite("xmit packet: ", bufferAddr); VM.sysWriteln(" ", packet.getAddress());
   }
 
     public boolean isComplete()
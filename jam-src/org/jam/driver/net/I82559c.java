@@ -15,6 +15,7 @@ import java.util.LinkedList;
 import org.jam.board.pc.Pci;
 import org.jam.board.pc.PciDevice;
 import org.jam.cpu.intel.Tsc;
+import org.jam.net.LinkStats;
 import org.jam.net.NetworkInterface;
 import org.jam.net.Route;
 import org.jam.net.ethernet.Ethernet;
@@ -62,6 +63,10 @@ implements NetworkInterface, NapiInterface, BufferFree
   
   // RU status
   private static final int       SCB_STAT_RNR                 = 1<<4;
+  private static final int       SCB_RUS_MASK                 = 0x3C;
+  private static final int       SCB_RUS_IDLE                 = 0<<2;
+  private static final int       SCB_RUS_NO_RESOURCES         = 2<<2;
+  private static final int       SCB_RUS_READY                = 4<<2;
   
   private final static Offset    SCB_STATUS                   = Offset.fromIntZeroExtend(1);
   private final static Offset    SCB_CMD                      = Offset.fromIntZeroExtend(2);
@@ -92,11 +97,28 @@ implements NetworkInterface, NapiInterface, BufferFree
   private static final int       WAIT_SCB_FAST     = 20;           // Try 20 iterations first before delay
   
   private static final boolean DEBUG_CONFIG = false;
-  private static final boolean DEBUG_RX = true;
+  private static final boolean DEBUG_RX = false;
   private static final int CBD_COUNT = 256;
   private static final boolean DEBUG_ACKS = false;
   private static final int NAPI_WORK = 16;
+  private static final int NAPI_WORK_MAX = 64;
   private static final int NAPI_SCHEDULE = 10;  // in milliseconds
+  private static final int TX_BATCH = 32;       // most frames chained per CU resume
+  private static final int IDLE_POLLS = 8;      // empty polls before leaving coalescing
+  /*
+   * Interrupt sources masked while the ring is busy and polled, and while idle.
+   * RNR is never masked so running out of receive buffers is always signalled.
+   */
+  private static final int BUSY_IRQ_MASK = ScbIrqMasks.MASK_FR.register() | ScbIrqMasks.MASK_CX.register()
+                                         | ScbIrqMasks.MASK_CNA.register() | ScbIrqMasks.MASK_ER.register()
+                                         | ScbIrqMasks.MASK_FCP.register();
+  private static final int IDLE_IRQ_MASK = ScbIrqMasks.MASK_CX.register() | ScbIrqMasks.MASK_CNA.register()
+                                         | ScbIrqMasks.MASK_ER.register() | ScbIrqMasks.MASK_FCP.register();
+  /*
+   * No interrupt handler is installed yet so MASK_ALL stays set on top of the
+   * per source masks. Clearing this only needs the handler to schedule poll().
+   */
+  private static final boolean IRQ_DELIVERY = false;
 
   private final int phyAddress;
   private int phyId;
@@ -111,12 +133,13 @@ implements NetworkInterface, NapiInterface, BufferFree
   private int cbdAvailable;
   private CommandBlockDescriptor cbdToClean;
   private CucCommand cucCommand;
-  private boolean txCleaned=false;
+  private int irqMask;
+  private int idlePolls;
   
   private NetworkQueue txQueue;
   
   private static final RuntimeException freePacketException = new RuntimeException("i82559c:free()");
-private static final boolean DEBUG_TX = true;
+  private static final boolean DEBUG_TX = false;
   
 /*
  * I82559C parameters
@@ -210,18 +233,30 @@ private static final boolean DEBUG_TX = true;
 };
   private EthernetAddr macAddress;
   private CommandBlockDescriptor[] cbds;
-  private boolean transmitting;
+  /*
+   * Serializes the command block ring between the poll thread and
+   * threads calling transmitFrame()
+   */
+  private final Object txLock = new Object();
   private int napiWork=NAPI_WORK;
   private int napiSchedule=NAPI_SCHEDULE;
   
-  // Statistics
+  // Receive ring statistics
   private int statsBuffersCleaned=0;
   private int statsFreeListEmpty=0;
   private int statsBufferFilled=0;
+  private int statsRefills=0;
   private int statsStopPointMoved=0;
+  private int statsRuRestarts=0;
+  
+  // Transmit ring statistics
+  private int statsTxBatches=0;
+  private int statsTxResumes=0;
+  private int statsTxRingFull=0;
   
-  private long txPackets=0;
-  private long txBytes=0;
+  // Interrupt coalescing statistics
+  private int statsBusyPolls=0;
+  private int statsIrqMaskChanges=0;
   
   public I82559c() throws NoDeviceFoundException
   {
@@ -241,9 +276,9 @@ private static final boolean DEBUG_TX = true;
     phyAddress = 1;
     rfds = new ReceiveFrameDescriptor[RFD_COUNT];
     rfdFreeList = new LinkedList<ReceiveFrameDescriptor>();
-    transmitting = false;
     txQueue = new NetworkQueue();
     arpTable = new ArpTable();
+    linkStats = new LinkStats("e100");
     setNetworkInterface(this);
     Route.addRoute(InetAddress.HOST, InetAddress.HOST, 0xffffffff, this);
   }
@@ -259,7 +294,27 @@ private static final boolean DEBUG_TX = true;
   
   private void scbIrq(ScbIrqMasks mask)
   {
-    csr.store((byte)mask.ordinal(), SCB_IRQ);
+    csr.store(mask.register(), SCB_IRQ);
+  }
+  
+  /**
+   * Write a combination of interrupt source masks. Only touches the
+   * register when the mask changes.
+   * @param mask ScbIrqMasks values or'ed together
+   */
+  private void scbIrq(int mask)
+  {
+    if(!IRQ_DELIVERY)
+    {
+      mask |= ScbIrqMasks.MASK_ALL.register();
+    }
+    if(mask == irqMask)
+    {
+      return;
+    }
+    irqMask = mask;
+    csr.store((byte)mask, SCB_IRQ);
+    statsIrqMaskChanges++;
   }
   
   
@@ -330,32 +385,138 @@ private static final boolean DEBUG_TX = true;
   }
   public void poll()
   {
-    rxClean();
-    txClean();
+    int received = rxClean(napiWork);
+    synchronized(txLock)
+    {
+      txClean();
+      txFlush();
+    }
+    adaptCoalescing(received);
   }
+  
+  /**
+   * Adjust the poll budget and the SCB interrupt masks to the receive load.
+   * A poll that uses its whole budget means frames are backing up, so poll
+   * more per pass and keep frame interrupts masked. After a run of empty
+   * polls go back to the default budget and unmask frame received.
+   * @param received frames processed by the last poll
+   */
+  private void adaptCoalescing(int received)
+  {
+    if(received >= napiWork)
+    {
+      idlePolls = 0;
+      statsBusyPolls++;
+      if(napiWork < NAPI_WORK_MAX)
+      {
+        napiWork <<= 1;
+      }
+      scbIrq(BUSY_IRQ_MASK);
+    }
+    else if(received == 0)
+    {
+      if(++idlePolls >= IDLE_POLLS)
+      {
+        napiWork = NAPI_WORK;
+        scbIrq(IDLE_IRQ_MASK);
+      }
+    }
+    else
+    {
+      idlePolls = 0;
+    }
+  }
+  
   /**
    * Return used tx blocks
    */
   private void txClean()
   {
       CommandBlockDescriptor toClean;
-      for(toClean=cbdToClean; toClean.isComplete();)
+      for(toClean=cbdToClean; toClean != cbdToSend && toClean.isComplete(); toClean = toClean.next())
       {
           if(DEBUG_TX) VM.sysWriteln("Cleaning "+VM.addressAsHexString(Magic.objectAsAddress(toClean)));
           if(toClean.hasBuffer())
           {
-              txPackets++;
-              txBytes += toClean.transmitBytes();
+              linkStats.txPacket(toClean.transmitBytes());
               toClean.cleanCbd();
-              txCleaned = true;
           }
-          toClean = cbdToClean = toClean.next();
+          cbdAvailable++;
       }
-      
-      if(txCleaned)
+      cbdToClean = toClean;
+  }
+  
+  /**
+   * Chain queued frames onto the command block ring and hand them to the
+   * CU with a single resume. Only the last block of the chain has the
+   * suspend bit set.
+   */
+  private void txFlush()
+  {
+    CommandBlockDescriptor first = null;
+    CommandBlockDescriptor last = null;
+    int frames = 0;
+    
+    /*
+     * Keep one block between the tail and the clean point so the
+     * block the CU is suspended on is never reused
+     */
+    while(frames < TX_BATCH && cbdAvailable > 1)
+    {
+      Packet packet = txQueue.get();
+      if(packet == null)
+      {
+        break;
+      }
+      CommandBlockDescriptor cbd = getCommandBlock();
+      cbd.configureTransmitPacket(packet);
+      if(first == null)
       {
-          
+        first = cbd;
       }
+      last = cbd;
+      frames++;
+    }
+    if(txQueue.size() != 0)
+    {
+      statsTxRingFull++;
+    }
+    if(last != null)
+    {
+      last.suspend();
+      Magic.fence();
+      first.previous().unsetSuspend();
+      statsTxBatches++;
+    }
+    /*
+     * Also retries a chain whose resume timed out on an earlier flush
+     */
+    if(moreToSend() && cuResume(cbdToSend))
+    {
+      cbdToSend = cbdToUse;
+    }
+  }
+  
+  /**
+   * Start or resume the CU without waiting for the commands to complete.
+   * Completed blocks are reclaimed by txClean().
+   * @param first first command block that has not been sent
+   * @return true if the CU accepted the command
+   */
+  private boolean cuResume(CommandBlockDescriptor first)
+  {
+    if(!scbWait())
+    {
+      return false;
+    }
+    if(cucCommand == START)
+    {
+      scbPointer(first);
+    }
+    scbCommand(cucCommand);
+    cucCommand = RESUME;
+    statsTxResumes++;
+    return true;
   }
 
   /**
@@ -368,17 +529,28 @@ private static final boolean DEBUG_TX = true;
     scbWait();
     scbPointer(rfds[rfdToUse].getAddress());
     scbCommand(RucCommand.START);
+    running = RuState.RUNNING;
     
     // Start the timer
     NapiManager.addInterface(this);
   }
-
-  private void xmitFrame(Packet packet)
+  
+  /**
+   * Restart the RU at the next buffer to clean after it ran out of
+   * resources. Called after the ring has been refilled. A suspended RU
+   * still owns its buffers and is left alone.
+   */
+  private void restartReceiver()
   {
-    CommandBlockDescriptor cbd = getCommandBlock();
-    cbd.configureTransmitPacket(packet);
-    execute(cbd);
-    VM.sysWriteln("xmit packet done!");
+    int rus = csr.loadByte() & SCB_RUS_MASK;
+    if(rus != SCB_RUS_NO_RESOURCES && rus != SCB_RUS_IDLE)
+    {
+      return;
+    }
+    scbWait();
+    scbPointer(rfds[rfdToClean].getAddress());
+    scbCommand(RucCommand.START);
+    statsRuRestarts++;
   }
   /**
    * 
@@ -490,9 +662,12 @@ private static final boolean DEBUG_TX = true;
     CommandBlockDescriptor newCbd = cbdToUse;
     cbdToUse = cbdToUse.next();
     cbdAvailable--;
-    VM.sysWrite("Get cmd block: ", Magic.objectAsAddress(newCbd)); 
-    VM.sysWrite(" ", VM.intAsHexString(newCbd.getScbPointer()));
-    VM.sysWriteln(" ", cbdAvailable);
+    if(DEBUG_TX)
+    {
+      VM.sysWrite("Get cmd block: ", Magic.objectAsAddress(newCbd)); 
+      VM.sysWrite(" ", VM.intAsHexString(newCbd.getScbPointer()));
+      VM.sysWriteln(" ", cbdAvailable);
+    }
     return newCbd;
   }
 
@@ -701,6 +876,7 @@ private static final boolean DEBUG_TX = true;
     cbdToUse.previous(cbd);
     cbdAvailable = CBD_COUNT;
     cucCommand = START;
+    irqMask = ScbIrqMasks.MASK_ALL.register();
   }
 
   /**
@@ -760,17 +936,20 @@ private static final boolean DEBUG_TX = true;
       rfd.dump();
     }
     
-//    rxQueue.put(rfd.packet());
+    linkStats.rxPacket(actualSize);
+    /*
+     * The protocol processor owns the buffer now and returns it with free().
+     * The slot is refilled from the free list by rxFillBuffers().
+     */
     inet4.put(rfd.packet());
-//    rfds[rfdToClean] = null;
-//    free(rfd);
+    rfds[rfdToClean] = null;
   }
   
   public void receive()
   {
     while(true)
     {
-      rxClean();
+      rxClean(RFD_COUNT);
       Tsc.udelay(10000);
     }
   }
@@ -786,47 +965,76 @@ private static final boolean DEBUG_TX = true;
   }
   
   /**
-   * Fill a new rx buffer
+   * Refill all empty rx slots from the free list. The new buffers are
+   * reset and linked to each other first; the chain is published to the
+   * hardware with a single link write on the buffer before it.
    */
   final private void rxFillBuffers()
   {
+    int first = rfdToUse;
+    ReceiveFrameDescriptor chain = null;
+    ReceiveFrameDescriptor previous = null;
+    int filled = 0;
+    
     /*
      * fill it only when it is null
      */
-    for( ;rfds[rfdToUse]==null; )
+    while(rfds[rfdToUse] == null)
     {
-      if(rfds[rfdToUse] == null)
+      if(rfdFreeList.isEmpty())
+      {
+        if(DEBUG_RX) VM.sysWriteln("RFD free list empty!");
+        statsFreeListEmpty++;
+        break;
+      }
+      ReceiveFrameDescriptor nuBuffer = rfdFreeList.remove();
+      nuBuffer.reset();
+      if(previous == null)
+      {
+        chain = nuBuffer;
+      }
+      else
       {
-        if(rfdFreeList.isEmpty())
-        {
-          VM.sysWriteln("RFD free list empty!");
-          statsFreeListEmpty++;
-          return;
-        }
-        ReceiveFrameDescriptor nuBuffer = rfdFreeList.remove();
-        rfds[advanceRfdIndex(rfdToUse, -1)].link(nuBuffer);
-        nuBuffer.link(rfds[advanceRfdIndex(rfdToUse)]);
-        rfds[rfdToUse] = nuBuffer;
-        nuBuffer.reset();
-        if(DEBUG_RX) { VM.sysWrite("rxFill: "); VM.sysWriteln(nuBuffer.toString()); }
-        statsBufferFilled++;
+        previous.link(nuBuffer);
       }
+      rfds[rfdToUse] = nuBuffer;
+      previous = nuBuffer;
+      if(DEBUG_RX) { VM.sysWrite("rxFill: "); VM.sysWriteln(nuBuffer.toString()); }
       rfdToUse = advanceRfdIndex(rfdToUse);
+      filled++;
     }
+    if(chain == null)
+    {
+      return;
+    }
+    /*
+     * Close the chain back onto the ring. If the free list ran dry the
+     * last buffer is behind the stop point and is linked on the next fill.
+     */
+    if(rfds[rfdToUse] != null)
+    {
+      previous.link(rfds[rfdToUse]);
+    }
+    Magic.fence();
+    rfds[advanceRfdIndex(first, -1)].link(chain);
+    statsBufferFilled += filled;
+    statsRefills++;
   }
   /**
    * find RFDS to clean
+   * @param budget most buffers to process
+   * @return number of buffers processed
    */
-  private void rxClean()
+  private int rxClean(int budget)
   {
-    boolean restartRequired = false;
     boolean printstats =false;
+    int processed = 0;
     /*
      * Keep processing buffers until one that is not complete
      */
-    for(; ; )
+    for(; processed < budget; processed++)
     {
-      if(rfds[rfdToClean].notComplete())
+      if(rfds[rfdToClean] == null || rfds[rfdToClean].notComplete())
       {
         break;
       }
@@ -866,9 +1074,9 @@ private static final boolean DEBUG_TX = true;
       statsStopPointMoved++;
       
     }
-    if(running == SUSPENDED)
+    if(running == RuState.RUNNING && rfds[rfdToClean] != null)
     {
-      restartRequired = true;
+      restartReceiver();
     }
     if(printstats && DEBUG_RX)
     {
@@ -877,17 +1085,31 @@ private static final boolean DEBUG_TX = true;
       VM.sysWrite(" ", oldStoppingPoint);
       VM.sysWriteln(" ", newStoppingPoint);
     }
+    return processed;
   }
   
+  /**
+   * Queue a frame for transmission. The queue is flushed right away when
+   * the CU has nothing in flight or a full batch is waiting; otherwise the
+   * frames are chained behind the running commands on the next poll.
+   */
   public void transmitFrame(Packet packet)
   {
-    if(transmitting)
-    {
-      txQueue.put(packet);
-    }
-    else
+    /*
+     * The queue takes one producer at a time, so the put is under the
+     * ring lock too
+     */
+    synchronized(txLock)
     {
-      xmitFrame(packet);
+      if(!txQueue.put(packet))
+      {
+        linkStats.txQueueOverflow();
+      }
+      txClean();
+      if(cbdToClean == cbdToSend || txQueue.size() >= TX_BATCH)
+      {
+        txFlush();
+      }
     }
   }
   /**
@@ -896,10 +1118,7 @@ private static final boolean DEBUG_TX = true;
    */
   public void transmit(Ethernet packet)
   {
-    // queue packet for transmission
-    transmitting = false;
     transmitFrame(packet.getPacket());
-    transmitting =false;
   }
 
   /**
@@ -1117,15 +1336,29 @@ private static final boolean DEBUG_TX = true;
   
   final public void printStats()
   {
-    VM.sysWrite("cleaned  ", statsBuffersCleaned);
+    VM.sysWrite("rx packets ", linkStats.rxPackets());
+    VM.sysWrite(" bytes ", linkStats.rxBytes());
+    VM.sysWrite(" cleaned ", statsBuffersCleaned);
     VM.sysWrite(" filled ", statsBufferFilled);
+    VM.sysWrite(" refills ", statsRefills);
     VM.sysWrite(" moved ", statsStopPointMoved);
-    VM.sysWriteln(" empty ", statsFreeListEmpty);
+    VM.sysWrite(" empty ", statsFreeListEmpty);
+    VM.sysWriteln(" restarts ", statsRuRestarts);
+    VM.sysWrite("tx packets ", linkStats.txPackets());
+    VM.sysWrite(" bytes ", linkStats.txBytes());
+    VM.sysWrite(" batches ", statsTxBatches);
+    VM.sysWrite(" resumes ", statsTxResumes);
+    VM.sysWrite(" ring full ", statsTxRingFull);
+    VM.sysWriteln(" free cbds ", cbdAvailable);
+    VM.sysWrite("napi work ", napiWork);
+    VM.sysWrite(" busy polls ", statsBusyPolls);
+    VM.sysWrite(" irq mask ", VM.intAsHexString(irqMask));
+    VM.sysWriteln(" mask changes ", statsIrqMaskChanges);
   }
 
     public void send(EthernetAddr destinationMac, Packet packet, short proto)
     {
-        System.out.println("eepro100 send 1");
+        if(DEBUG_TX) System.out.println("eepro100 send 1");
         Ethernet frame = new Ethernet(destinationMac, packet, proto);
         // Set the src address
         frame.setSource(macAddress);
@@ -1134,7 +1367,7 @@ private static final boolean DEBUG_TX = true;
 
     public void send(SendPacket packet)
     {
-        System.out.println("eepro100 send");
+        if(DEBUG_TX) System.out.println("eepro100 send");
         Ethernet frame = new Ethernet(EthernetAddr.BROADCAST_ADDRESS, packet.getPacket(), packet.getProto());
         // Set the src address
         frame.setSource(macAddress);
@@ -5,6 +5,7 @@ import java.net.UnknownHostException;
 
 import org.jam.board.pc.Platform;
 import org.jam.net.InetProtocolProcessor;
+import org.jam.net.LinkStats;
 import org.jam.net.NetworkInterface;
 import org.jam.net.Route;
 import org.jam.net.ethernet.EthernetAddr;
@@ -12,17 +13,20 @@ import org.jam.net.inet4.Arp;
 import org.jam.net.inet4.ArpTable;
 import org.jam.net.inet4.ArpThread;
 import org.jam.net.inet4.InetAddress;
+import org.jam.net.inet6.Inet6Interface;
 
 public class InetNetworkInterface
 {
 
     protected InetAddress ipAddress;
     protected int netmask;
-    int mtu;
+    int mtu = 1500;
     protected ArpTable arpTable;
     private NetworkInterface networkInterface;
     protected ArpThread arp;
     protected InetProtocolProcessor inet4;
+    protected Inet6Interface inet6;
+    protected LinkStats linkStats;
     private Thread arpThread;
     private Thread inetThread;
     
@@ -56,6 +60,11 @@ public class InetNetworkInterface
         ipAddress = inetAddress;
     }
 
+    public Inet6Interface getInet6Interface()
+    {
+        return inet6;
+    }
+
     public EthernetAddr arp(InetAddress inet)
     {
         /*
@@ -100,7 +109,8 @@ public class InetNetworkInterface
         arp = new ArpThread(networkInterface);
         arpThread = new Thread(arp);
         arpThread.setName("ARP Thread");
-        inet4 = new InetProtocolProcessor(arp);
+        inet6 = new Inet6Interface(networkInterface);
+        inet4 = new InetProtocolProcessor(networkInterface, arp, linkStats, inet6);
         /*
          * Setup the route
          */
@@ -116,6 +126,10 @@ public class InetNetworkInterface
         inetThread.setName("INET Thread");
         arpThread.start();
         inetThread.start();
+        /*
+         * Link local address and router solicitation for SLAAC
+         */
+        inet6.boot();
         Dhcp.discover(networkInterface);
     }
 }
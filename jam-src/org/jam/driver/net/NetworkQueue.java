@@ -6,9 +6,6 @@
  */
 package org.jam.driver.net;
 
-import org.jikesrvm.VM;
-import org.jikesrvm.runtime.Magic;
-
 /**
  * @author Joe Kulig
  *
@@ -32,17 +29,21 @@ public class NetworkQueue {
     head = 0;
     tail = 0;
   }
-  final public void put(Packet packet)
+  /**
+   * Add a packet to the queue
+   * @param packet
+   * @return false if the queue is full and the packet was not added
+   */
+  final public boolean put(Packet packet)
   {
     // check for overflow
     if(full())
     {
-      VM.sysWrite("Network Queue full ", Magic.objectAsAddress(this)); VM.sysWrite(" head ", head);
-      VM.sysWrite(" tail ", tail);
-      return;
+      return false;
     }
     queue[head] = packet;
     head = nextHead();
+    return true;
   }
   final public Packet get()
   {
@@ -54,6 +55,10 @@ public class NetworkQueue {
     tail = nextTail();
     return packet;
   }
+  final public int size()
+  {
+    return (head-tail) & (SIZE-1);
+  }
   final private int nextTail()
   {
     return (tail+1) & (SIZE-1);
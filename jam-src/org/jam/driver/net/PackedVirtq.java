@@ -0,0 +1,348 @@
+/**
+ * Created on Oct 19, 2026
+ *
+ * Copyright (C) Joe Kulig, 2026
+ * All rights reserved.
+ */
+package org.jam.driver.net;
+
+import org.jikesrvm.runtime.Magic;
+import org.vmmagic.unboxed.Address;
+import org.vmmagic.unboxed.Offset;
+
+/**
+ * @author Joe Kulig
+ *
+ * Packed virtqueue layout (VIRTIO_F_RING_PACKED). The descriptor, available
+ * and used state share one ring so the driver and device touch a single
+ * cache line per buffer instead of three.
+ *
+ * Descriptor entry: addr(8) len(4) id(2) flags(2)
+ * Event suppression area: off_wrap(2) flags(2)
+ */
+public class PackedVirtq implements VirtQueue {
+  final Address ring;
+  final Address driverEvent;
+  final Address deviceEvent;
+  final byte memory[];
+  final byte buffers[][];
+  final int size;
+  private boolean writeable;
+
+  /*
+   * Driver side ring state
+   */
+  private int nextAvail;
+  private boolean availWrapCounter;
+  private int nextUsed;
+  private boolean usedWrapCounter;
+  private int numFree;
+  /*
+   * Id of the buffer last returned by waitForBuffer
+   */
+  private int lastUsedId;
+  /*
+   * Buffer ids not owned by the device
+   */
+  private final short freeIds[];
+
+  static final private Offset ADDR  = Offset.fromIntZeroExtend(0);
+  static final private Offset LEN   = Offset.fromIntZeroExtend(8);
+  static final private Offset ID    = Offset.fromIntZeroExtend(12);
+  static final private Offset FLAGS = Offset.fromIntZeroExtend(14);
+
+  static final public int FLAG_NEXT     = 0x0001;
+  static final public int FLAG_WRITE    = 0x0002;
+  static final public int FLAG_INDIRECT = 0x0004;
+  static final public int FLAG_AVAIL    = 0x0080;
+  static final public int FLAG_USED     = 0x8000;
+
+  /*
+   * Event suppression flags
+   */
+  static final private Offset EVENT_FLAGS       = Offset.fromIntZeroExtend(2);
+  static final public short   EVENT_FLAGS_ENABLE  = 0;
+  static final public short   EVENT_FLAGS_DISABLE = 1;
+  static final public short   EVENT_FLAGS_DESC    = 2;
+
+  static final private int ENTRY_SIZE = 16;
+  static final private int EVENT_SIZE = 4;
+  private final static int MAX_BUFFER = 1528;
+  private final static int NET_HDR_SIZE = 12;
+
+  public PackedVirtq(int size)
+  {
+    int ALIGNMENT = 16;
+    int space = (ENTRY_SIZE * size) + (2 * EVENT_SIZE) + ALIGNMENT;
+    this.size = size;
+    memory = new byte[space];
+    buffers = new byte[size][];
+    freeIds = new short[size];
+    /*
+     * Descriptor ring is aligned on a 16 byte boundary
+     */
+    int align = (Magic.objectAsAddress(memory).toInt() + 15) & ~0xF;
+    ring = Address.fromIntZeroExtend(align);
+    /*
+     * Event suppression areas follow on 4 byte boundaries
+     */
+    align = align + (size * ENTRY_SIZE);
+    driverEvent = Address.fromIntZeroExtend(align);
+    deviceEvent = Address.fromIntZeroExtend(align + EVENT_SIZE);
+
+    nextAvail = 0;
+    availWrapCounter = true;
+    nextUsed = 0;
+    usedWrapCounter = true;
+    numFree = size;
+  }
+
+  /**
+   * Allocates a buffer for every descriptor in the ring.
+   */
+  public void allocate(boolean writeable)
+  {
+    this.writeable = writeable;
+    for(int id=0; id < size; id++)
+    {
+      freeIds[id] = (short)id;
+      buffers[id] = new byte[MAX_BUFFER];
+      setAddress(id, Magic.objectAsAddress(buffers[id]));
+      setLen(id, MAX_BUFFER);
+      setId(id, (short)id);
+      setFlags(id, writeable ? FLAG_WRITE : 0);
+    }
+    Magic.fence();
+  }
+
+  /**
+   * Makes every buffer available to the device. Used for the receive queue.
+   */
+  public void initializeAvailableBuffers()
+  {
+    for(int id=0; id < size; id++)
+    {
+      makeAvailable(id, MAX_BUFFER, writeable ? FLAG_WRITE : 0);
+    }
+  }
+
+  /*
+   * Waits for a buffer to be used by the device
+   */
+  public byte[] waitForBuffer()
+  {
+    while(!isUsed(nextUsed))
+    {
+      // Just spin until a buffer is received
+    }
+    int id = getId(nextUsed);
+    advanceUsed();
+    numFree++;
+    lastUsedId = id;
+    return buffers[id];
+  }
+
+  /**
+   * Makes a received buffer available to the device again. Buffers are
+   * normally released in the order they were received, so the last id
+   * handed out is tried before searching.
+   */
+  public void releaseBuffer(byte buffer[])
+  {
+    int id = lastUsedId;
+    if(buffers[id] != buffer)
+    {
+      for(id=0; id < size && buffers[id] != buffer; id++)
+      {
+        // search for the buffer's id
+      }
+      if(id == size)
+      {
+        return;
+      }
+    }
+    makeAvailable(id, MAX_BUFFER, FLAG_WRITE);
+  }
+
+  /**
+   * Reclaims descriptors the device has finished with.
+   *
+   * @return number of descriptors reclaimed
+   */
+  public int reclaim()
+  {
+    int reclaimed = 0;
+
+    while(numFree < size && isUsed(nextUsed))
+    {
+      freeIds[numFree++] = (short)getId(nextUsed);
+      advanceUsed();
+      reclaimed++;
+    }
+    return reclaimed;
+  }
+
+  public void send(byte packet[])
+  {
+    while(numFree == 0)
+    {
+      reclaim();
+    }
+    /*
+     * The device may complete buffers out of order so take any free id
+     * rather than the one matching the ring slot.
+     */
+    int id = freeIds[numFree-1];
+    byte transmitBuffer[] = buffers[id];
+    /*
+     * Virtio net header: flags, gso_type, hdr_len, gso_size, csum_start,
+     * csum_offset and num_buffers are all zero.
+     */
+    int i;
+    for(i=0; i < NET_HDR_SIZE; i++)
+    {
+      transmitBuffer[i] = 0;
+    }
+    /*
+     * Copy the packet
+     */
+    int length = packet.length;
+    if(length > MAX_BUFFER - NET_HDR_SIZE)
+    {
+      length = MAX_BUFFER - NET_HDR_SIZE;
+    }
+    for(int packetIndex=0; packetIndex < length; i++, packetIndex++)
+    {
+      transmitBuffer[i] = packet[packetIndex];
+    }
+    makeAvailable(id, length + NET_HDR_SIZE, 0);
+  }
+
+  /**
+   * Writes a descriptor into the next available slot. The flags word is
+   * written last, after a fence, since it hands the descriptor to the device.
+   */
+  private void makeAvailable(int id, int length, int flags)
+  {
+    int slot = nextAvail;
+    setAddress(slot, Magic.objectAsAddress(buffers[id]));
+    setLen(slot, length);
+    setId(slot, (short)id);
+    if(availWrapCounter)
+    {
+      flags |= FLAG_AVAIL;
+    }
+    else
+    {
+      flags |= FLAG_USED;
+    }
+    Magic.fence();
+    setFlags(slot, flags);
+    numFree--;
+    nextAvail++;
+    if(nextAvail == size)
+    {
+      nextAvail = 0;
+      availWrapCounter = !availWrapCounter;
+    }
+  }
+
+  /**
+   * A descriptor is used when its AVAIL and USED bits are equal and match the
+   * driver's used wrap counter.
+   */
+  private boolean isUsed(int slot)
+  {
+    int flags = getFlags(slot);
+    boolean avail = (flags & FLAG_AVAIL) != 0;
+    boolean used = (flags & FLAG_USED) != 0;
+    return avail == used && used == usedWrapCounter;
+  }
+
+  private void advanceUsed()
+  {
+    nextUsed++;
+    if(nextUsed == size)
+    {
+      nextUsed = 0;
+      usedWrapCounter = !usedWrapCounter;
+    }
+  }
+
+  public void noInterrupts()
+  {
+    driverEvent.store(EVENT_FLAGS_DISABLE, EVENT_FLAGS);
+  }
+
+  /**
+   * Returns true if the device wants to be notified of new buffers.
+   * RING_EVENT_IDX is not negotiated so the device only ever enables or
+   * disables notifications. The fence orders the descriptor flag writes
+   * before the read of the device's event suppression flags.
+   */
+  public boolean needsNotify()
+  {
+    Magic.fence();
+    return deviceEvent.loadShort(EVENT_FLAGS) != EVENT_FLAGS_DISABLE;
+  }
+
+  public int getNumFree()
+  {
+    return numFree;
+  }
+
+  public Address getDescArea()
+  {
+    return ring;
+  }
+
+  public Address getDriverArea()
+  {
+    return driverEvent;
+  }
+
+  public Address getDeviceArea()
+  {
+    return deviceEvent;
+  }
+
+  private void setAddress(int index, Address buffer)
+  {
+    ring.store(0, ADDR.plus(index*ENTRY_SIZE + 4));
+    ring.store(buffer, ADDR.plus(index*ENTRY_SIZE));
+  }
+
+  private void setLen(int index, int len)
+  {
+    ring.store(len, LEN.plus(index*ENTRY_SIZE));
+  }
+
+  private void setId(int index, short id)
+  {
+    ring.store(id, ID.plus(index*ENTRY_SIZE));
+  }
+
+  private int getId(int index)
+  {
+    int id = ring.loadShort(ID.plus(index*ENTRY_SIZE));
+    return id & 0xFFFF;
+  }
+
+  private void setFlags(int index, int flags)
+  {
+    ring.store((short)flags, FLAGS.plus(index*ENTRY_SIZE));
+  }
+
+  private int getFlags(int index)
+  {
+    int flags = ring.loadShort(FLAGS.plus(index*ENTRY_SIZE));
+    return flags & 0xFFFF;
+  }
+
+  public String toString()
+  {
+    return Integer.toHexString(ring.toInt()) + "/"
+    + Integer.toHexString(driverEvent.toInt()) + "/"
+    + Integer.toHexString(deviceEvent.toInt());
+  }
+}
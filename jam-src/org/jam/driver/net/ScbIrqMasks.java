@@ -9,9 +9,29 @@ package org.jam.driver.net;
 /**
  * @author Joe Kulig
  *
+ * SCB interrupt control byte. MASK_ALL and SW_GEN are control bits,
+ * the rest mask individual interrupt sources.
  */
 public enum ScbIrqMasks {
-  MASK_NONE,
-  MASK_ALL,
-  SW_GEN;
+  MASK_NONE(0),
+  MASK_ALL(0x01),
+  SW_GEN(0x02),
+  MASK_FCP(0x04),   // flow control pause
+  MASK_ER(0x08),    // early receive
+  MASK_RNR(0x10),   // receive not ready
+  MASK_CNA(0x20),   // command unit not active
+  MASK_FR(0x40),    // frame received
+  MASK_CX(0x80);    // command executed
+  
+  private final byte mask;
+  
+  private ScbIrqMasks(int value)
+  {
+    mask = (byte)value;
+  }
+  
+  public byte register()
+  {
+    return mask;
+  }
 }
@@ -0,0 +1,59 @@
+/**
+ * Created on Oct 19, 2026
+ *
+ * Copyright (C) Joe Kulig, 2026
+ * All rights reserved.
+ */
+package org.jam.driver.net;
+
+import org.vmmagic.unboxed.Address;
+
+/**
+ * @author Joe Kulig
+ *
+ * Operations common to the split (Virtq) and packed (PackedVirtq) virtqueue
+ * layouts. The driver selects the layout during feature negotiation.
+ */
+public interface VirtQueue {
+  /*
+   * Descriptor table (split) or descriptor ring (packed)
+   */
+  Address getDescArea();
+  /*
+   * Available ring (split) or driver event suppression area (packed)
+   */
+  Address getDriverArea();
+  /*
+   * Used ring (split) or device event suppression area (packed)
+   */
+  Address getDeviceArea();
+  /*
+   * Allocate buffers for every descriptor
+   */
+  void allocate(boolean writeable);
+  /*
+   * Hand all descriptor buffers to the device
+   */
+  void initializeAvailableBuffers();
+  /*
+   * Spin until the device returns a buffer
+   */
+  byte[] waitForBuffer();
+  /*
+   * Hand a buffer returned by waitForBuffer back to the device once its
+   * data has been consumed
+   */
+  void releaseBuffer(byte buffer[]);
+  /*
+   * Queue a packet for transmission
+   */
+  void send(byte packet[]);
+  /*
+   * True if the device asked to be notified of newly available buffers
+   */
+  boolean needsNotify();
+  /*
+   * Ask the device not to interrupt on used buffers
+   */
+  void noInterrupts();
+}
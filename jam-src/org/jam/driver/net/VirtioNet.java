@@ -57,21 +57,37 @@ public class VirtioNet {
   final private static int ANY_LAYOUT          = 0x08000000;
   final private static int RING_INDIRECT_DESC  = 0x10000000;
   final private static int RING_EVENT_IDX      = 0x20000000;
+  /*
+   * Features in the upper 32 bits (feature select 1)
+   */
+  final private static int VERSION_1           = 0x00000001;
+  final private static int RING_PACKED         = 0x00000004;
   private static final short RECEIVE_VIRTQ_INDEX = 0;
   private static final short TRANSMIT_VIRTQ_INDEX = 1;
   private static final short CONTROL_VIRTQ_INDEX = 2;
   
-  private Virtq receiveVirtq;
+  private VirtQueue receiveVirtq;
   private short rxNotifyOffset;
-  private Virtq transmitVirtq;
+  private VirtQueue transmitVirtq;
   private short txNotifyOffset;
-  private Virtq controlVirtq;
+  private VirtQueue controlVirtq;
   private short ctlNotifyOffset;
   private NetDeviceCfg deviceCfg;
   private NotifyCfg notifyCfg;
+  /*
+   * Use the packed ring layout if the device offers it
+   */
+  private boolean preferPackedRing;
+  private boolean packedRing;
   
   public VirtioNet() throws NoDeviceFoundException
   {
+    this(false);
+  }
+
+  public VirtioNet(boolean preferPackedRing) throws NoDeviceFoundException
+  {
+    this.preferPackedRing = preferPackedRing;
     pci = Pci.find((short)0x1AF4, (short)0x1000);
     if(pci == null)
     {
@@ -138,6 +154,16 @@ public class VirtioNet {
 
   public void boot()
   {
+    boot(preferPackedRing);
+  }
+
+  /**
+   * Resets the device and sets it up with the given ring layout preference.
+   * May be called again to switch layouts.
+   */
+  public void boot(boolean preferPackedRing)
+  {
+    this.preferPackedRing = preferPackedRing;
     negotiate();
 //    cfg.configMsixNoVector();
     queueSetup();
@@ -152,6 +178,18 @@ public class VirtioNet {
     cfg.driver();
     cfg.setDriverFeatureSelect(0);
     cfg.setDriverFeature(MAC | STATUS | CTRL_VQ);
+    cfg.setDeviceFeatureSelect(1);
+    int deviceFeatures = cfg.getDeviceFeature();
+    /*
+     * The packed layout is only defined for VERSION_1 devices
+     */
+    packedRing = preferPackedRing
+      && (deviceFeatures & (VERSION_1 | RING_PACKED)) == (VERSION_1 | RING_PACKED);
+    if(packedRing)
+    {
+      cfg.setDriverFeatureSelect(1);
+      cfg.setDriverFeature(VERSION_1 | RING_PACKED);
+    }
     cfg.featuresOK();
     if(!cfg.areFeaturesOk())
     {
@@ -164,6 +202,27 @@ public class VirtioNet {
       System.exit(0);
     }
     VM.sysWriteln("Features have been accepted!");
+    if(packedRing)
+    {
+      VM.sysWriteln("Using packed virtqueues");
+    }
+  }
+  
+  /*
+   * Creates a virtq with the negotiated ring layout
+   */
+  private VirtQueue newVirtq(int queueSize)
+  {
+    if(packedRing)
+    {
+      return new PackedVirtq(queueSize);
+    }
+    return new Virtq(queueSize);
+  }
+  
+  public boolean isPackedRing()
+  {
+    return packedRing;
   }
   
   private void queueSetup()
@@ -185,22 +244,22 @@ public class VirtioNet {
      */
     cfg.setQueueSelect(RECEIVE_VIRTQ_INDEX);
     int queueSize = cfg.getQueueSize();
-    receiveVirtq = new Virtq(queueSize);
+    receiveVirtq = newVirtq(queueSize);
     /*
      * Allocates the rx virtq descriptor table
      */
     receiveVirtq.allocate(true);
     receiveVirtq.initializeAvailableBuffers();
-    receiveVirtq.availTable.noInterrupts();
+    receiveVirtq.noInterrupts();
     VM.sysWrite("RX virtq: "); VM.sysWriteln(receiveVirtq.toString());
     /*
      * Configure device with rx virtq
      */
     VM.sysWriteln("RX virtq size:", queueSize);
 //    cfg.setQueueSize((short)queueSize);
-    cfg.setDescQueue(receiveVirtq.virtDescTable);
-    cfg.setAvailQueue(receiveVirtq.virtAvail);
-    cfg.setUsedQueue(receiveVirtq.virtUsed);
+    cfg.setDescQueue(receiveVirtq.getDescArea());
+    cfg.setAvailQueue(receiveVirtq.getDriverArea());
+    cfg.setUsedQueue(receiveVirtq.getDeviceArea());
     cfg.setQueueMsix(RECEIVE_VIRTQ_INDEX);
     MessageDataRegister mdr=MessageDataRegister.lowPriorityEdgeVector(94);
     MessageAddressRegister mar=MessageAddressRegister.logicalDestination(0xFF);
@@ -217,17 +276,17 @@ public class VirtioNet {
     cfg.setQueueSelect(TRANSMIT_VIRTQ_INDEX);
     queueSize = cfg.getQueueSize();
     VM.sysWriteln("TX virtq size:", queueSize);
-    transmitVirtq = new Virtq(queueSize);
+    transmitVirtq = newVirtq(queueSize);
     transmitVirtq.allocate(false);
-    cfg.setDescQueue(transmitVirtq.virtDescTable);
-    cfg.setAvailQueue(transmitVirtq.virtAvail);
-    cfg.setUsedQueue(transmitVirtq.virtUsed);
+    cfg.setDescQueue(transmitVirtq.getDescArea());
+    cfg.setAvailQueue(transmitVirtq.getDriverArea());
+    cfg.setUsedQueue(transmitVirtq.getDeviceArea());
     cfg.setQueueMsix(TRANSMIT_VIRTQ_INDEX);
     mdr=MessageDataRegister.lowPriorityEdgeVector(93);
     msixCap.setMessageData(TRANSMIT_VIRTQ_INDEX, mdr);
     msixCap.setMessageAddress(TRANSMIT_VIRTQ_INDEX, mar);
     msixCap.enableInterrupt(TRANSMIT_VIRTQ_INDEX);
-    rxNotifyOffset = cfg.getQueueNotifyOffset();
+    txNotifyOffset = cfg.getQueueNotifyOffset();
     cfg.displayQueues();
 
     /*
@@ -236,11 +295,11 @@ public class VirtioNet {
     cfg.setQueueSelect(CONTROL_VIRTQ_INDEX);
     queueSize = cfg.getQueueSize();
     VM.sysWriteln("CTL virtq size:", queueSize);
-    controlVirtq = new Virtq(queueSize);
+    controlVirtq = newVirtq(queueSize);
     controlVirtq.allocate(false);
-    cfg.setDescQueue(controlVirtq.virtDescTable);
-    cfg.setAvailQueue(controlVirtq.virtAvail);
-    cfg.setUsedQueue(controlVirtq.virtUsed);
+    cfg.setDescQueue(controlVirtq.getDescArea());
+    cfg.setAvailQueue(controlVirtq.getDriverArea());
+    cfg.setUsedQueue(controlVirtq.getDeviceArea());
     cfg.setQueueMsix(CONTROL_VIRTQ_INDEX);
     mdr=MessageDataRegister.lowPriorityEdgeVector(92);
     msixCap.setMessageData(CONTROL_VIRTQ_INDEX, mdr);
@@ -271,6 +330,11 @@ public class VirtioNet {
         }
         VM.sysWriteln();
       }
+      receiveVirtq.releaseBuffer(buffer);
+      if(receiveVirtq.needsNotify())
+      {
+        notifyCfg.notify(rxNotifyOffset, RECEIVE_VIRTQ_INDEX);
+      }
     }
   }
   
@@ -280,8 +344,11 @@ public class VirtioNet {
   }
   public void transmit(byte data[])
   {
-    VM.hexDump(data);
     transmitVirtq.send(data);
+    if(transmitVirtq.needsNotify())
+    {
+      notifyCfg.notify(txNotifyOffset, TRANSMIT_VIRTQ_INDEX);
+    }
   }
   
   public EthernetAddr getEthernetAddress()
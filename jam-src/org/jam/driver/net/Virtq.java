@@ -13,7 +13,7 @@ import org.vmmagic.unboxed.Address;
  * @author Joe Kulig
  *
  */
-public class Virtq {
+public class Virtq implements VirtQueue {
   final Address virtDescTable;
   final Address virtAvail;
   final Address virtUsed;
@@ -23,6 +23,8 @@ public class Virtq {
   final VirtUsed usedTable;
   final int size;
   
+  private int lastUsedDescriptor;
+  
   private final static int MAX_BUFFER = 1528;
   private static final byte GSO_NONE = 0;
   
@@ -90,8 +92,29 @@ public class Virtq {
     }
     int bufferDescriptor = usedTable.getNextBufferDescriptor();
     usedTable.next();
+    lastUsedDescriptor = bufferDescriptor;
     return descTable.getBuffer(bufferDescriptor);
   }
+
+  /**
+   * Adds a received buffer back to the available queue
+   */
+  public void releaseBuffer(byte buffer[])
+  {
+    int descriptor = lastUsedDescriptor;
+    if(descTable.getBuffer(descriptor) != buffer)
+    {
+      for(descriptor=0; descriptor < size && descTable.getBuffer(descriptor) != buffer; descriptor++)
+      {
+        // search for the buffer's descriptor
+      }
+      if(descriptor == size)
+      {
+        return;
+      }
+    }
+    availTable.setAvailable((short)descriptor);
+  }
   
   public int getFreeBuffer()
   {
@@ -138,6 +161,35 @@ public class Virtq {
     availTable.setAvailable((short)next);
   }
 
+  /**
+   * Event suppression is not negotiated for the split ring, so the device
+   * is always notified.
+   */
+  public boolean needsNotify()
+  {
+    return true;
+  }
+
+  public Address getDescArea()
+  {
+    return virtDescTable;
+  }
+
+  public Address getDriverArea()
+  {
+    return virtAvail;
+  }
+
+  public Address getDeviceArea()
+  {
+    return virtUsed;
+  }
+
+  public void noInterrupts()
+  {
+    availTable.noInterrupts();
+  }
+
   public String toString()
   {
     return Integer.toHexString(virtDescTable.toInt()) + "/"
@@ -19,4 +19,24 @@ public interface Timer {
   void startTimer(long timeNs);
   Address getHandlerStack();
   RVMThread removeTimer(long timeKey);
+  /**
+   * @return Time.nanoTime() of the earliest pending timer or Long.MAX_VALUE
+   */
+  long nextDeadline();
+  /**
+   * Stop the periodic tick and interrupt once after timeNs instead.
+   * Interrupts must be disabled.
+   * @param timeNs how long the cpu is expected to idle
+   * @return nanoseconds until the one shot fires, 0 if the tick was left running
+   */
+  long stopTick(long timeNs);
+  /**
+   * Restart the periodic tick after stopTick and account for the time
+   * that passed without ticks. Does nothing if the tick is running.
+   */
+  void restartTick();
+  /**
+   * @return Time.nanoTime() of the last timer interrupt
+   */
+  long lastInterrupt();
 }
@@ -1,8 +1,8 @@
 package org.jam.mm;
 
+import org.jam.board.pc.Multiboot;
 import org.jikesrvm.VM;
 import org.jikesrvm.runtime.BootRecord;
-import org.jikesrvm.runtime.Memory;
 import org.vmmagic.pragma.Uninterruptible;
 import org.vmmagic.unboxed.Address;
 import org.vmmagic.unboxed.Extent;
@@ -13,26 +13,34 @@ import org.vmmagic.unboxed.Word;
 public class MemoryManager {
 	static Address freeMemStart;
 	static Address freeMemEnd;
-	static Address cursor;
 	
 	public static void boot(BootRecord bootRecord) {
 		Word start = bootRecord.bootImageRMapEnd.toWord().plus(Offset.fromIntZeroExtend(0x1000)).and(Word.fromIntZeroExtend(~0xFFF));
 		freeMemStart = start.toAddress();
 		freeMemEnd = freeMemStart.plus(bootRecord.maximumHeapSize);
-		cursor = freeMemStart;
 		VM.sysWrite("MemoryManager: start=", freeMemStart);
 		VM.sysWrite(" end=", freeMemEnd);
 		VM.sysWrite(" maxHeapSize=", bootRecord.maximumHeapSize.toInt());
 		VM.sysWriteln();
+		Multiboot.boot();
+		// the heap zone is where the old bump allocator put the heap
+		PageFrameAllocator.boot(freeMemStart, freeMemStart, bootRecord.maximumHeapSize);
 	}
 	
+	/**
+	 * Take the page frames of a fixed address range, zeroing the ones
+	 * that aren't zero already
+	 */
 	public static Address alloc(Address address, Extent size) {
-		Address cursor = address;
-		if(cursor.plus(size).GT(freeMemEnd)) {
-			VM.sysWriteln("PANIC: ", cursor.toInt(), " ", size.toInt());
+		if(!PageFrameAllocator.claim(address, size)) {
+			VM.sysWriteln("PANIC: ", address, " ", size.toInt());
 			VM.sysFail("Out of Memory");
 		}
-		Memory.zero(false, address,  size);
-		return cursor;
+		PageFrameAllocator.zeroDirty(address, size);
+		return address;
+	}
+	
+	public static void free(Address address, Extent size) {
+		PageFrameAllocator.release(address, size);
 	}
 }
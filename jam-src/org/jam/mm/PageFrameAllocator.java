@@ -0,0 +1,794 @@
+/**
+ * Created on Oct 19, 2026
+ *
+ * Copyright (C) Joe Kulig, 2026
+ * All rights reserved.
+ */
+package org.jam.mm;
+
+import org.jam.board.pc.Multiboot;
+import org.jikesrvm.VM;
+import org.jikesrvm.runtime.Magic;
+import org.jikesrvm.runtime.Memory;
+import org.jikesrvm.scheduler.SpinLock;
+import org.vmmagic.pragma.Uninterruptible;
+import org.vmmagic.unboxed.Address;
+import org.vmmagic.unboxed.Extent;
+import org.vmmagic.unboxed.Offset;
+import org.vmmagic.unboxed.Word;
+
+/**
+ * @author Joe Kulig
+ *
+ * Buddy allocator for the physical page frames the multiboot memory map
+ * says are available. Blocks are 2^order frames, order 0 to MAX_ORDER
+ * (4KB to 4MB), and free blocks are kept on doubly linked lists threaded
+ * through the free frames themselves. A byte per frame records its state,
+ * so a freed block finds its buddy without searching.
+ *
+ * The frames are split in two zones. The heap zone is the range MMTk maps
+ * its spaces into with MAP_FIXED; claim() takes frames at fixed addresses
+ * out of it. Everything else is the kernel zone, where anonymous page
+ * allocations and malloc() are served first so they stay out of the way of
+ * the heap. Only memory the startup code identity maps is managed.
+ *
+ * MMTk expects mmap to hand out zeroed memory. Rather than clearing it when
+ * it is asked for, each frame's state says whether it is known to be zero
+ * and the free lists are split into zeroed and dirty blocks. The idle
+ * thread zeroes dirty blocks a piece at a time with zeroIdlePages(), and
+ * requests that need zeroed memory take zeroed blocks first and only clear
+ * the frames that are still dirty.
+ */
+@Uninterruptible
+public class PageFrameAllocator
+{
+    public final static int PAGE_SHIFT = 12;
+    public final static int PAGE_SIZE = 1 << PAGE_SHIFT;
+    public final static int MAX_ORDER = 10;
+    /** The startup code identity maps the first 1GB */
+    private final static long LIMIT = 0x40000000L;
+
+    private final static int KERNEL_ZONE = 0;
+    private final static int HEAP_ZONE = 1;
+    private final static int ZONES = 2;
+
+    // frame states; the low bits hold the block order or the slab size class
+    private final static int RESERVED = 0;
+    private final static int TAIL = 0x20;
+    private final static int FREE = 0x40;
+    private final static int USED = 0x80;
+    private final static int SLAB = 0xC0;
+    private final static int KIND_MASK = 0xE0;
+    /** The frame's contents are known to be zero */
+    private final static int ZEROED = 0x10;
+    private final static int ORDER_MASK = 0x0F;
+
+    // the free list links are at the start of the first frame of a free block
+    private final static Offset NEXT = Offset.fromIntZeroExtend(0);
+    private final static Offset PREV = Offset.fromIntZeroExtend(4);
+    private final static Offset ON_ZEROED_LIST = Offset.fromIntZeroExtend(8);
+
+    /** The idle thread zeroes 64KB at a time */
+    private final static int ZERO_ORDER = 4;
+
+    private final static int NONE = -1;
+
+    // malloc size classes are 16 bytes to 2KB
+    private final static int MIN_CLASS_SHIFT = 4;
+    private final static int MAX_CLASS_SHIFT = 11;
+    private final static int SIZE_CLASSES = MAX_CLASS_SHIFT - MIN_CLASS_SHIFT + 1;
+
+    /** First frame of each free list, indexed by zone, dirty or zeroed and order */
+    private static final int freeLists[] = new int[ZONES * 2 * (MAX_ORDER + 1)];
+    /** First free chunk of each malloc size class */
+    private static final int freeChunks[] = new int[SIZE_CLASSES];
+    private static final SpinLock lock = new SpinLock();
+
+    private static Address stateMap;
+    private static int frameCount;
+    private static int heapZoneStart;
+    private static int heapZoneEnd;
+    private static int freeFrames;
+    private static int totalFrames;
+    private static int slabFrames;
+    private static int zeroedFreeFrames;
+    private static int preZeroedFrames;
+    private static int demandZeroedFrames;
+    private static int idleZeroedFrames;
+    /** The piece the idle thread is zeroing, or NONE */
+    private static int zeroingStart = NONE;
+    private static int zeroingEnd = NONE;
+
+    /**
+     * Build the free lists from the multiboot memory map. Multiboot.boot()
+     * must have run.
+     *
+     * @param kernelEnd end of the boot image; nothing below it is managed
+     * @param heapStart start of the heap zone
+     * @param heapSize size of the heap zone
+     */
+    public static void boot(Address kernelEnd, Address heapStart, Extent heapSize)
+    {
+        for(int i=0; i < freeLists.length; i++)
+        {
+            freeLists[i] = NONE;
+        }
+        for(int i=0; i < SIZE_CLASSES; i++)
+        {
+            freeChunks[i] = NONE;
+        }
+        // the zone boundaries are on MAX_ORDER blocks so no buddies straddle them
+        heapZoneStart = frame(heapStart) & ~((1 << MAX_ORDER) - 1);
+        heapZoneEnd = (frame(heapStart.plus(heapSize)) + (1 << MAX_ORDER) - 1) & ~((1 << MAX_ORDER) - 1);
+        long top = 0;
+        for(int i=0; i < regionCount(); i++)
+        {
+            long end = regionEnd(i) < LIMIT ? regionEnd(i) : LIMIT;
+            if(end > top)
+            {
+                top = end;
+            }
+        }
+        frameCount = (int)(top >>> PAGE_SHIFT);
+        // the state map goes at the top of RAM, well away from the heap zone
+        Extent mapSize = Extent.fromIntZeroExtend((frameCount + PAGE_SIZE - 1) & ~(PAGE_SIZE - 1));
+        stateMap = Address.fromLong(top).minus(mapSize);
+        Memory.zero(false, stateMap, mapSize);
+
+        long low = pageAlign(kernelEnd.toLong());
+        for(int i=0; i < regionCount(); i++)
+        {
+            long start = pageAlign(regionStart(i));
+            long end = regionEnd(i);
+            if(start < low)
+            {
+                start = low;
+            }
+            if(end > stateMap.toLong())
+            {
+                end = stateMap.toLong();
+            }
+            end &= ~(long)(PAGE_SIZE - 1);
+            if(start < end)
+            {
+                addFrames((int)(start >>> PAGE_SHIFT), (int)(end >>> PAGE_SHIFT));
+            }
+        }
+        reserveModules();
+        VM.sysWrite("PageFrameAllocator: frames=", totalFrames);
+        VM.sysWrite(" free=", freeFrames);
+        VM.sysWrite(" heap zone=", address(heapZoneStart));
+        VM.sysWriteln("-", address(heapZoneEnd));
+    }
+
+    /*
+     * Without a multiboot memory map assume the heap zone and the state
+     * map above it are RAM, which is all the old bump allocator assumed.
+     */
+    private static int regionCount()
+    {
+        return Multiboot.getRegionCount() == 0 ? 1 : Multiboot.getRegionCount();
+    }
+
+    private static long regionStart(int region)
+    {
+        if(Multiboot.getRegionCount() == 0)
+        {
+            return address(heapZoneStart).toLong();
+        }
+        return Multiboot.isRegionAvailable(region) ? Multiboot.getRegionBase(region) : 0;
+    }
+
+    private static long regionEnd(int region)
+    {
+        if(Multiboot.getRegionCount() == 0)
+        {
+            return address(heapZoneEnd + (1 << MAX_ORDER)).toLong();
+        }
+        if(!Multiboot.isRegionAvailable(region))
+        {
+            return 0;
+        }
+        return Multiboot.getRegionBase(region) + Multiboot.getRegionLength(region);
+    }
+
+    private static void addFrames(int start, int end)
+    {
+        for(int f=start; f < end; f++)
+        {
+            setState(f, TAIL);
+        }
+        while(start < end)
+        {
+            int order = MAX_ORDER;
+            while(order > 0 && ((start & ((1 << order) - 1)) != 0 || start + (1 << order) > end))
+            {
+                order--;
+            }
+            totalFrames += 1 << order;
+            freeBlock(start, order);
+            start += 1 << order;
+        }
+    }
+
+    /*
+     * Take the boot modules out of the free lists and move the ones the
+     * boot loader put in the heap zone somewhere MMTk won't want
+     */
+    private static void reserveModules()
+    {
+        for(int i=0; i < Multiboot.getModuleCount(); i++)
+        {
+            Address start = Multiboot.getModuleStart(i);
+            Extent size = Multiboot.getModuleEnd(i).diff(start).toWord().toExtent();
+            Address pageStart = start.toWord().and(Word.fromIntZeroExtend(~(PAGE_SIZE - 1))).toAddress();
+            Extent pageSize = Extent.fromLong(pageAlign(start.plus(size).toLong()) - pageStart.toLong());
+            if(!claim(pageStart, pageSize))
+            {
+                continue;
+            }
+            int first = frame(pageStart);
+            int last = frame(pageStart.plus(pageSize)) - 1;
+            if(last < heapZoneStart || first >= heapZoneEnd)
+            {
+                continue;
+            }
+            int order = orderOf(pageSize);
+            Address copy = order > MAX_ORDER ? Address.zero() : allocZone(order, KERNEL_ZONE, false);
+            if(copy.isZero())
+            {
+                VM.sysWriteln("PageFrameAllocator: module in the heap zone at ", start);
+                continue;
+            }
+            copy = copy.plus(start.diff(pageStart));
+            Memory.memcopy(copy, start, size);
+            release(pageStart, pageSize);
+            Multiboot.setModuleStart(i, copy);
+        }
+    }
+
+    /**
+     * Allocate 2^order contiguous page frames, kernel zone first. The
+     * contents are whatever was there, dirty blocks are taken first.
+     *
+     * @param order log2 of the number of frames
+     * @return the first frame's address, or zero if there is no block that big
+     */
+    public static Address allocPages(int order)
+    {
+        return allocPages(order, false);
+    }
+
+    /**
+     * Allocate 2^order contiguous zeroed page frames, kernel zone first.
+     * Zeroed blocks are taken first.
+     *
+     * @param order log2 of the number of frames
+     * @return the first frame's address, or zero if there is no block that big
+     */
+    public static Address allocZeroedPages(int order)
+    {
+        Address block = allocPages(order, true);
+        if(!block.isZero())
+        {
+            zeroDirty(block, Extent.fromIntZeroExtend(PAGE_SIZE << order));
+        }
+        return block;
+    }
+
+    private static Address allocPages(int order, boolean zeroed)
+    {
+        if(order > MAX_ORDER)
+        {
+            return Address.zero();
+        }
+        Address block = allocZone(order, KERNEL_ZONE, zeroed);
+        if(block.isZero())
+        {
+            block = allocZone(order, HEAP_ZONE, zeroed);
+        }
+        return block;
+    }
+
+    private static Address allocZone(int order, int zone, boolean zeroed)
+    {
+        lock.lock();
+        // the lists with the contents asked for first, then the others
+        for(int pass=0; pass < 2; pass++, zeroed = !zeroed)
+        {
+            for(int o=order; o <= MAX_ORDER; o++)
+            {
+                int f = freeLists[list(zone, zeroed, o)];
+                if(f == NONE)
+                {
+                    continue;
+                }
+                removeBlock(f, o);
+                // put the upper halves back until the block is the right size
+                while(o > order)
+                {
+                    o--;
+                    int upper = f + (1 << o);
+                    insertBlock(upper, o, zeroed || isZeroed(upper, o));
+                }
+                setState(f, USED | (getState(f) & ZEROED) | order);
+                freeFrames -= 1 << order;
+                lock.unlock();
+                return address(f);
+            }
+        }
+        lock.unlock();
+        return Address.zero();
+    }
+
+    /**
+     * Free a block from allocPages()
+     *
+     * @param block the block's address
+     */
+    public static void freePages(Address block)
+    {
+        int f = frame(block);
+        lock.lock();
+        int state = getState(f);
+        if((state & KIND_MASK) != USED)
+        {
+            lock.unlock();
+            VM.sysWriteln("PageFrameAllocator: freeing unallocated frame ", block);
+            VM.sysFail("PageFrameAllocator: bad free");
+        }
+        freeBlock(f, state & ORDER_MASK);
+        lock.unlock();
+    }
+
+    /**
+     * Take the page frames of a fixed address range, for MAP_FIXED
+     *
+     * @param start page aligned start of the range
+     * @param size page multiple size of the range
+     * @return false, leaving the frames untouched, if any of them isn't free
+     */
+    public static boolean claim(Address start, Extent size)
+    {
+        int first = frame(start);
+        int end = frame(start.plus(size));
+        lock.lock();
+        // the idle thread has the frames it is zeroing for a moment only
+        while(first < zeroingEnd && end > zeroingStart)
+        {
+            lock.unlock();
+            Magic.pause();
+            lock.lock();
+        }
+        for(int f=first; f < end; f++)
+        {
+            if(freeBlockOf(f) == NONE)
+            {
+                lock.unlock();
+                return false;
+            }
+        }
+        for(int f=first; f < end; f++)
+        {
+            int head = freeBlockOf(f);
+            int order = getState(head) & ORDER_MASK;
+            boolean zeroed = removeBlock(head, order);
+            // split down to the single frame, freeing the halves without it
+            while(order > 0)
+            {
+                order--;
+                if(f >= head + (1 << order))
+                {
+                    insertBlock(head, order, zeroed || isZeroed(head, order));
+                    head += 1 << order;
+                }
+                else
+                {
+                    insertBlock(head + (1 << order), order, zeroed || isZeroed(head + (1 << order), order));
+                }
+            }
+            setState(f, USED | (getState(f) & ZEROED));
+            freeFrames--;
+        }
+        lock.unlock();
+        return true;
+    }
+
+    /**
+     * Free the page frames of a range taken by claim() or allocPages()
+     *
+     * @param start page aligned start of the range
+     * @param size page multiple size of the range
+     */
+    public static void release(Address start, Extent size)
+    {
+        int end = frame(start.plus(size));
+        lock.lock();
+        for(int f=frame(start); f < end; f++)
+        {
+            int state = getState(f);
+            if((state & KIND_MASK) == USED)
+            {
+                freeBlock(f, state & ORDER_MASK);
+            }
+        }
+        lock.unlock();
+    }
+
+    /**
+     * Zero the frames of a range just taken by claim() or allocPages() that
+     * aren't known to be zero already. Must be called before the range is
+     * written to.
+     *
+     * @param start page aligned start of the range
+     * @param size page multiple size of the range
+     */
+    public static void zeroDirty(Address start, Extent size)
+    {
+        int end = frame(start.plus(size));
+        for(int f=frame(start); f < end; f++)
+        {
+            if((getState(f) & ZEROED) != 0)
+            {
+                preZeroedFrames++;
+                continue;
+            }
+            Memory.zero(false, address(f), Extent.fromIntZeroExtend(PAGE_SIZE));
+            demandZeroedFrames++;
+        }
+    }
+
+    /**
+     * Zero a piece of a dirty free block, for the idle thread. Each call
+     * does a bounded amount of work so it can be called in a loop that
+     * yields in between.
+     *
+     * @return false if there was nothing left to zero
+     */
+    public static boolean zeroIdlePages()
+    {
+        lock.lock();
+        int f = NONE;
+        int order = 0;
+        // the heap zone first, MMTk is the biggest user of zeroed memory
+        for(int zone=HEAP_ZONE; f == NONE && zone >= KERNEL_ZONE; zone--)
+        {
+            for(order=0; order <= MAX_ORDER; order++)
+            {
+                f = freeLists[list(zone, false, order)];
+                if(f != NONE)
+                {
+                    break;
+                }
+            }
+        }
+        if(f == NONE)
+        {
+            lock.unlock();
+            return false;
+        }
+        removeBlock(f, order);
+        // split down to a piece with dirty frames in it; a dirty block always has some
+        while(order > ZERO_ORDER)
+        {
+            order--;
+            int upper = f + (1 << order);
+            if(isZeroed(f, order))
+            {
+                insertBlock(f, order, true);
+                f = upper;
+            }
+            else
+            {
+                insertBlock(upper, order, isZeroed(upper, order));
+            }
+        }
+        zeroingStart = f;
+        zeroingEnd = f + (1 << order);
+        lock.unlock();
+
+        for(int i=zeroingStart; i < zeroingEnd; i++)
+        {
+            if((getState(i) & ZEROED) == 0)
+            {
+                Memory.zero(false, address(i), Extent.fromIntZeroExtend(PAGE_SIZE));
+                idleZeroedFrames++;
+            }
+        }
+
+        lock.lock();
+        for(int i=zeroingStart; i < zeroingEnd; i++)
+        {
+            setState(i, TAIL | ZEROED);
+        }
+        coalesce(f, order, true);
+        zeroingStart = NONE;
+        zeroingEnd = NONE;
+        lock.unlock();
+        return true;
+    }
+
+    /**
+     * Allocate memory for the C library style interfaces. Small requests
+     * come from per size class free lists carved out of single frames,
+     * larger ones are whole blocks. Memory is page aligned from 4KB up.
+     *
+     * @param size bytes wanted
+     * @return the memory, or zero if there isn't any
+     */
+    public static Address malloc(int size)
+    {
+        if(size > (1 << MAX_CLASS_SHIFT))
+        {
+            return allocPages(orderOf(Extent.fromIntZeroExtend(size)));
+        }
+        int sizeClass = 0;
+        while((1 << (sizeClass + MIN_CLASS_SHIFT)) < size)
+        {
+            sizeClass++;
+        }
+        lock.lock();
+        if(freeChunks[sizeClass] == NONE)
+        {
+            lock.unlock();
+            Address page = allocPages(0);
+            if(page.isZero())
+            {
+                return page;
+            }
+            lock.lock();
+            setState(frame(page), SLAB | sizeClass);
+            slabFrames++;
+            int chunkSize = 1 << (sizeClass + MIN_CLASS_SHIFT);
+            for(int offset=PAGE_SIZE - chunkSize; offset >= 0; offset -= chunkSize)
+            {
+                page.store(freeChunks[sizeClass], Offset.fromIntZeroExtend(offset));
+                freeChunks[sizeClass] = page.toInt() + offset;
+            }
+        }
+        Address chunk = Address.fromIntZeroExtend(freeChunks[sizeClass]);
+        freeChunks[sizeClass] = chunk.loadInt();
+        lock.unlock();
+        return chunk;
+    }
+
+    /**
+     * Free memory from malloc()
+     *
+     * @param chunk the memory
+     */
+    public static void free(Address chunk)
+    {
+        int state = getState(frame(chunk));
+        if((state & KIND_MASK) != SLAB)
+        {
+            freePages(chunk);
+            return;
+        }
+        // slab frames stay with their size class
+        int sizeClass = state & ORDER_MASK;
+        lock.lock();
+        chunk.store(freeChunks[sizeClass]);
+        freeChunks[sizeClass] = chunk.toInt();
+        lock.unlock();
+    }
+
+    /**
+     * @param size bytes
+     * @return the smallest order with at least size bytes
+     */
+    public static int orderOf(Extent size)
+    {
+        int order = 0;
+        while(Extent.fromIntZeroExtend(PAGE_SIZE << order).LT(size))
+        {
+            order++;
+        }
+        return order;
+    }
+
+    public static Extent getFreeBytes()
+    {
+        return Extent.fromLong((long)freeFrames << PAGE_SHIFT);
+    }
+
+    public static Extent getTotalBytes()
+    {
+        return Extent.fromLong((long)totalFrames << PAGE_SHIFT);
+    }
+
+    public static Extent getSlabBytes()
+    {
+        return Extent.fromLong((long)slabFrames << PAGE_SHIFT);
+    }
+
+    /**
+     * @return bytes on the zeroed free lists
+     */
+    public static Extent getZeroedFreeBytes()
+    {
+        return Extent.fromLong((long)zeroedFreeFrames << PAGE_SHIFT);
+    }
+
+    /**
+     * Write how much memory was zeroed where
+     */
+    public static void dumpZeroingStatistics()
+    {
+        VM.sysWrite("PageFrameAllocator: zeroed free=", zeroedFreeFrames);
+        VM.sysWrite(" pre-zeroed=", preZeroedFrames);
+        VM.sysWrite(" zeroed on demand=", demandZeroedFrames);
+        VM.sysWriteln(" zeroed when idle=", idleZeroedFrames);
+    }
+
+    /*
+     * The free block containing a frame, or NONE. Only the first frame of
+     * a free block is marked FREE so look at each possible block start.
+     */
+    private static int freeBlockOf(int f)
+    {
+        if(f < 0 || f >= frameCount)
+        {
+            return NONE;
+        }
+        for(int order=0; order <= MAX_ORDER; order++)
+        {
+            int head = f & ~((1 << order) - 1);
+            int state = getState(head);
+            if((state & KIND_MASK) == FREE)
+            {
+                return head + (1 << (state & ORDER_MASK)) > f ? head : NONE;
+            }
+            if((state & KIND_MASK) != TAIL)
+            {
+                return NONE;
+            }
+        }
+        return NONE;
+    }
+
+    /*
+     * Free a block that was in use, so all its frames are dirty
+     */
+    private static void freeBlock(int f, int order)
+    {
+        freeFrames += 1 << order;
+        for(int i=0; i < (1 << order); i++)
+        {
+            setState(f + i, TAIL);
+        }
+        coalesce(f, order, false);
+    }
+
+    /*
+     * Merge a block with its buddy for as long as the buddy is free and the
+     * same size, and put the result on a free list. Frames keep their
+     * ZEROED state so merging a zeroed block with a dirty one loses nothing,
+     * and a zeroed block that took in a dirty buddy is checked again, since
+     * the idle thread may have just zeroed the buddy's last dirty frames.
+     */
+    private static void coalesce(int f, int order, boolean zeroed)
+    {
+        boolean wasZeroed = zeroed;
+        while(order < MAX_ORDER)
+        {
+            int buddy = f ^ (1 << order);
+            if(buddy >= frameCount || (getState(buddy) & ~ZEROED) != (FREE | order) || zone(buddy) != zone(f))
+            {
+                break;
+            }
+            zeroed &= removeBlock(buddy, order);
+            f &= buddy;
+            order++;
+        }
+        if(wasZeroed && !zeroed)
+        {
+            zeroed = isZeroed(f, order);
+        }
+        insertBlock(f, order, zeroed);
+    }
+
+    /*
+     * Whether all frames of a block are zero
+     */
+    private static boolean isZeroed(int f, int order)
+    {
+        for(int i=0; i < (1 << order); i++)
+        {
+            if((getState(f + i) & ZEROED) == 0)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void insertBlock(int f, int order, boolean zeroed)
+    {
+        int list = list(zone(f), zeroed, order);
+        int next = freeLists[list];
+        setState(f, FREE | (getState(f) & ZEROED) | order);
+        address(f).store(next, NEXT);
+        address(f).store(NONE, PREV);
+        address(f).store(zeroed ? 1 : 0, ON_ZEROED_LIST);
+        if(next != NONE)
+        {
+            address(next).store(f, PREV);
+        }
+        freeLists[list] = f;
+        if(zeroed)
+        {
+            zeroedFreeFrames += 1 << order;
+        }
+    }
+
+    /*
+     * Take a block off its free list and clear the links so a zeroed block
+     * is all zero again
+     *
+     * @return whether the block was on a zeroed list
+     */
+    private static boolean removeBlock(int f, int order)
+    {
+        Address block = address(f);
+        int next = block.loadInt(NEXT);
+        int prev = block.loadInt(PREV);
+        boolean zeroed = block.loadInt(ON_ZEROED_LIST) != 0;
+        if(prev == NONE)
+        {
+            freeLists[list(zone(f), zeroed, order)] = next;
+        }
+        else
+        {
+            address(prev).store(next, NEXT);
+        }
+        if(next != NONE)
+        {
+            address(next).store(prev, PREV);
+        }
+        block.store(0, NEXT);
+        block.store(0, PREV);
+        block.store(0, ON_ZEROED_LIST);
+        setState(f, TAIL | (getState(f) & ZEROED));
+        if(zeroed)
+        {
+            zeroedFreeFrames -= 1 << order;
+        }
+        return zeroed;
+    }
+
+    private static int zone(int f)
+    {
+        return f >= heapZoneStart && f < heapZoneEnd ? HEAP_ZONE : KERNEL_ZONE;
+    }
+
+    private static int list(int zone, boolean zeroed, int order)
+    {
+        return ((zone << 1) + (zeroed ? 1 : 0)) * (MAX_ORDER + 1) + order;
+    }
+
+    private static int getState(int f)
+    {
+        return stateMap.loadByte(Offset.fromIntZeroExtend(f)) & 0xFF;
+    }
+
+    private static void setState(int f, int state)
+    {
+        stateMap.store((byte)state, Offset.fromIntZeroExtend(f));
+    }
+
+    private static int frame(Address address)
+    {
+        return address.toWord().rshl(PAGE_SHIFT).toInt();
+    }
+
+    private static Address address(int frame)
+    {
+        return Address.fromLong((long)frame << PAGE_SHIFT);
+    }
+
+    private static long pageAlign(long address)
+    {
+        return (address + PAGE_SIZE - 1) & ~(long)(PAGE_SIZE - 1);
+    }
+}
@@ -0,0 +1,37 @@
+package org.jam.net;
+
+public class ArpStats extends NetCounters {
+    private static final int REQUESTS_SENT = 0;
+    private static final int REPLIES_RECEIVED = 1;
+    private static final int NOT_FOR_US = 2;
+    private static final int BAD_PACKETS = 3;
+    
+    private static final String NAMES[] = {
+        "requestsSent", "repliesReceived", "notForUs", "badPackets"
+    };
+    
+    public ArpStats()
+    {
+        super("arp", NAMES);
+    }
+    
+    public void requestSent()
+    {
+        increment(REQUESTS_SENT);
+    }
+    
+    public void replyReceived()
+    {
+        increment(REPLIES_RECEIVED);
+    }
+    
+    public void notForUs()
+    {
+        increment(NOT_FOR_US);
+    }
+    
+    public void badPacket()
+    {
+        increment(BAD_PACKETS);
+    }
+}
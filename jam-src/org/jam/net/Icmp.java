@@ -0,0 +1,281 @@
+/**
+ * Created on Oct 19, 2026
+ *
+ * Copyright (C) Joe Kulig, 2026
+ * All rights reserved.
+ */
+package org.jam.net;
+
+import org.jam.driver.net.PacketBuffer;
+import org.jam.net.ethernet.Ethernet;
+import org.jam.net.ethernet.EthernetAddr;
+import org.jikesrvm.runtime.Magic;
+import org.jikesrvm.runtime.Time;
+import org.vmmagic.unboxed.Address;
+import org.vmmagic.unboxed.Offset;
+
+/**
+ * @author Joe Kulig
+ *
+ * ICMP for ipv4. Echo requests are answered in place in the received frame.
+ * Destination unreachable messages are generated for unknown protocols and
+ * ports, limited by a token bucket, and fragmentation needed messages update
+ * the path MTU cache.
+ *
+ * Replies go to the link layer source of the received frame so the protocol
+ * processor never has to wait for ARP.
+ */
+public class Icmp
+{
+    private static final boolean DEBUG = false;
+    /*
+     * Message types
+     */
+    private final static int ECHO_REPLY = 0;
+    private final static int DESTINATION_UNREACHABLE = 3;
+    private final static int ECHO_REQUEST = 8;
+    /*
+     * Destination unreachable codes
+     */
+    public final static int PROTOCOL_UNREACHABLE = 2;
+    public final static int PORT_UNREACHABLE = 3;
+    public final static int FRAGMENTATION_NEEDED = 4;
+
+    private final static Offset TYPE = Offset.zero();
+    private final static Offset CHECKSUM = Offset.fromIntZeroExtend(2);
+    private final static Offset NEXT_HOP_MTU = Offset.fromIntZeroExtend(6);
+    private final static int HEADER_SIZE = 8;
+    /*
+     * ipv4 header fields used here
+     */
+    private final static int IP_HEADER_SIZE = 20;
+    private final static Offset IP_LENGTH = Offset.fromIntZeroExtend(2);
+    private final static Offset IP_FRAGMENT = Offset.fromIntZeroExtend(6);
+    private final static Offset IP_TTL = Offset.fromIntZeroExtend(8);
+    private final static Offset IP_PROTOCOL = Offset.fromIntZeroExtend(9);
+    private final static Offset IP_CHECKSUM = Offset.fromIntZeroExtend(10);
+    private final static Offset IP_SRCADDR = Offset.fromIntZeroExtend(12);
+    private final static Offset IP_DSTADDR = Offset.fromIntZeroExtend(16);
+    private final static short FRAGMENT_OFFSET_MASK = 0x1FFF;
+    private final static short DONT_FRAGMENT = 0x4000;
+    private final static byte TTL = 64;
+    /*
+     * Error rate limit: up to BURST messages then one every TOKEN_INTERVAL
+     */
+    private final static int BURST = 50;
+    private final static long TOKEN_INTERVAL = 1000000;     // nanoseconds
+
+    private static final IcmpStats stats = new IcmpStats();
+    private final NetworkInterface netIf;
+    private int tokens;
+    private long lastRefill;
+
+    Icmp(NetworkInterface netIf)
+    {
+        this.netIf = netIf;
+        tokens = BURST;
+        lastRefill = Time.nanoTime();
+    }
+
+    /**
+     * @param packet packet starting at the icmp header
+     * @param ipHeader start of the ip header
+     * @param headerLength ip header length in bytes
+     * @param destination destination address in host order
+     */
+    final void receive(InetPacket packet, Address ipHeader, int headerLength, int destination)
+    {
+        stats.inMsg();
+        Address icmp = packet.getPacketAddress();
+        int length = packet.getSize();
+        if(length < HEADER_SIZE || checksum(icmp, length) != 0)
+        {
+            stats.inError();
+            return;
+        }
+        int type = icmp.loadByte(TYPE) & 0xFF;
+        if(DEBUG) System.out.println("icmp type "+type);
+        if(type == ECHO_REQUEST)
+        {
+            stats.inEcho();
+            // Broadcast and multicast pings are ignored
+            if(!isBroadcast(destination))
+            {
+                echoReply(packet, icmp, ipHeader, headerLength);
+            }
+        }
+        else if(type == DESTINATION_UNREACHABLE)
+        {
+            stats.inDestUnreach();
+            int code = icmp.loadByte(Offset.fromIntZeroExtend(1)) & 0xFF;
+            if(code == FRAGMENTATION_NEEDED && length >= HEADER_SIZE + IP_HEADER_SIZE)
+            {
+                Address original = icmp.plus(HEADER_SIZE);
+                int mtu = ByteOrder.networkToHost(icmp.loadShort(NEXT_HOP_MTU)) & 0xFFFF;
+                int originalLength = ByteOrder.networkToHost(original.loadShort(IP_LENGTH)) & 0xFFFF;
+                int originalDestination = ByteOrder.networkToHost(original.loadInt(IP_DSTADDR));
+                if(PathMtu.update(originalDestination, mtu, originalLength))
+                {
+                    stats.pmtuUpdate();
+                }
+            }
+        }
+    }
+
+    /**
+     * Turn the request into the reply in the received buffer; only the
+     * type, the addresses and the checksums change.
+     */
+    private void echoReply(InetPacket packet, Address icmp, Address ipHeader, int headerLength)
+    {
+        int oldWord = icmp.loadShort(TYPE) & 0xFFFF;
+        icmp.store((byte)ECHO_REPLY, TYPE);
+        int newWord = icmp.loadShort(TYPE) & 0xFFFF;
+        icmp.store(updateChecksum(icmp.loadShort(CHECKSUM), oldWord, newWord), CHECKSUM);
+
+        int source = ipHeader.loadInt(IP_SRCADDR);
+        ipHeader.store(ipHeader.loadInt(IP_DSTADDR), IP_SRCADDR);
+        ipHeader.store(source, IP_DSTADDR);
+        ipHeader.store(TTL, IP_TTL);
+        ipHeader.store((short)0, IP_CHECKSUM);
+        ipHeader.store(Ip.headerChecksum(ipHeader, headerLength), IP_CHECKSUM);
+
+        packet.setHeadroom(headerLength);
+        stats.outEchoRep();
+        netIf.send(sourceMac(packet), packet, EtherType.IPV4.type());
+    }
+
+    /**
+     * Send a destination unreachable message back to the sender of a packet
+     * @param packet the received packet
+     * @param ipHeader start of its ip header
+     * @param headerLength ip header length in bytes
+     * @param code unreachable code
+     */
+    final void destinationUnreachable(InetPacket packet, Address ipHeader, int headerLength, int code)
+    {
+        int source = ByteOrder.networkToHost(ipHeader.loadInt(IP_SRCADDR));
+        int destination = ByteOrder.networkToHost(ipHeader.loadInt(IP_DSTADDR));
+        /*
+         * No errors about broadcasts, multicasts or non-initial fragments
+         * (RFC 1122 3.2.2)
+         */
+        if(isBroadcast(destination) || isBroadcast(source) || source == 0
+           || (ByteOrder.networkToHost(ipHeader.loadShort(IP_FRAGMENT)) & FRAGMENT_OFFSET_MASK) != 0)
+        {
+            return;
+        }
+        if(!allowError())
+        {
+            stats.rateLimited();
+            return;
+        }
+        /*
+         * Quote the ip header and the first 8 bytes of the payload
+         */
+        int totalLength = ByteOrder.networkToHost(ipHeader.loadShort(IP_LENGTH)) & 0xFFFF;
+        int quote = headerLength + HEADER_SIZE;
+        if(quote > totalLength)
+        {
+            quote = totalLength;
+        }
+        int length = HEADER_SIZE + quote;
+        byte frame[] = new byte[Ethernet.HEADER_SIZE + IP_HEADER_SIZE + length];
+        Address reply = Magic.objectAsAddress(frame).plus(Ethernet.HEADER_SIZE);
+        reply.store((byte)0x45);
+        reply.store(ByteOrder.hostToNetwork((short)(IP_HEADER_SIZE + length)), IP_LENGTH);
+        reply.store(ByteOrder.hostToNetwork(DONT_FRAGMENT), IP_FRAGMENT);
+        reply.store(TTL, IP_TTL);
+        reply.store(IpProto.ICMP.protocol(), IP_PROTOCOL);
+        reply.store(ipHeader.loadInt(IP_DSTADDR), IP_SRCADDR);
+        reply.store(ipHeader.loadInt(IP_SRCADDR), IP_DSTADDR);
+        reply.store(Ip.headerChecksum(reply, IP_HEADER_SIZE), IP_CHECKSUM);
+
+        Address icmp = reply.plus(IP_HEADER_SIZE);
+        icmp.store((byte)DESTINATION_UNREACHABLE, TYPE);
+        icmp.store((byte)code, Offset.fromIntZeroExtend(1));
+        for(int i=0; i < quote; i++)
+        {
+            icmp.store(ipHeader.loadByte(Offset.fromIntZeroExtend(i)), Offset.fromIntZeroExtend(HEADER_SIZE + i));
+        }
+        icmp.store(checksum(icmp, length), CHECKSUM);
+        stats.outDestUnreach();
+        netIf.send(sourceMac(packet), new PacketBuffer(frame, Ethernet.HEADER_SIZE), EtherType.IPV4.type());
+    }
+
+    /**
+     * Token bucket limiting the rate of error messages
+     */
+    private boolean allowError()
+    {
+        long now = Time.nanoTime();
+        long refill = (now - lastRefill) / TOKEN_INTERVAL;
+        if(refill > 0)
+        {
+            tokens += refill > BURST ? BURST : (int)refill;
+            if(tokens >= BURST)
+            {
+                tokens = BURST;
+                lastRefill = now;
+            }
+            else
+            {
+                lastRefill += refill * TOKEN_INTERVAL;
+            }
+        }
+        if(tokens == 0)
+        {
+            return false;
+        }
+        tokens--;
+        return true;
+    }
+
+    private static boolean isBroadcast(int inet)
+    {
+        // limited broadcast or class D multicast
+        return inet == 0xFFFFFFFF || (inet & 0xF0000000) == 0xE0000000;
+    }
+
+    /**
+     * The received frame still holds its ethernet header in front of the
+     * ip header
+     */
+    private static EthernetAddr sourceMac(InetPacket packet)
+    {
+        byte frame[] = packet.getArray();
+        return new EthernetAddr(frame[6], frame[7], frame[8], frame[9], frame[10], frame[11]);
+    }
+
+    /**
+     * Ones complement checksum in memory order; stored as is it is correct
+     * on the wire. Returns 0 when verifying a correct message.
+     */
+    private static short checksum(Address data, int length)
+    {
+        int sum = 0;
+        int i;
+        for(i=0; i + 1 < length; i+=2)
+        {
+            sum += data.loadShort(Offset.fromIntZeroExtend(i)) & 0xFFFF;
+        }
+        if(i < length)
+        {
+            sum += data.loadByte(Offset.fromIntZeroExtend(i)) & 0xFF;
+        }
+        sum = (sum >> 16) + (sum & 0xFFFF);
+        sum += (sum >> 16);
+        return (short)~sum;
+    }
+
+    /**
+     * Incremental checksum update for one changed 16 bit word (RFC 1624)
+     */
+    private static short updateChecksum(short checksum, int oldWord, int newWord)
+    {
+        int sum = (~checksum & 0xFFFF) + (~oldWord & 0xFFFF) + newWord;
+        sum = (sum >> 16) + (sum & 0xFFFF);
+        sum += (sum >> 16);
+        return (short)~sum;
+    }
+}
@@ -0,0 +1,62 @@
+package org.jam.net;
+
+public class IcmpStats extends NetCounters {
+    private static final int IN_MSGS = 0;
+    private static final int IN_ERRORS = 1;           // bad checksum or short message
+    private static final int IN_ECHOS = 2;
+    private static final int IN_DEST_UNREACHS = 3;
+    private static final int OUT_ECHO_REPS = 4;
+    private static final int OUT_DEST_UNREACHS = 5;
+    private static final int RATE_LIMITED = 6;        // errors not sent because of the rate limit
+    private static final int PMTU_UPDATES = 7;
+
+    private static final String NAMES[] = {
+        "inMsgs", "inErrors", "inEchos", "inDestUnreachs",
+        "outEchoReps", "outDestUnreachs", "rateLimited", "pmtuUpdates"
+    };
+
+    public IcmpStats()
+    {
+        super("icmp", NAMES);
+    }
+
+    public void inMsg()
+    {
+        increment(IN_MSGS);
+    }
+
+    public void inError()
+    {
+        increment(IN_ERRORS);
+    }
+
+    public void inEcho()
+    {
+        increment(IN_ECHOS);
+    }
+
+    public void inDestUnreach()
+    {
+        increment(IN_DEST_UNREACHS);
+    }
+
+    public void outEchoRep()
+    {
+        increment(OUT_ECHO_REPS);
+    }
+
+    public void outDestUnreach()
+    {
+        increment(OUT_DEST_UNREACHS);
+    }
+
+    public void rateLimited()
+    {
+        increment(RATE_LIMITED);
+    }
+
+    public void pmtuUpdate()
+    {
+        increment(PMTU_UPDATES);
+    }
+}
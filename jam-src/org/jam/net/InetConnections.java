@@ -4,26 +4,41 @@ import java.net.InetSocketAddress;
 import java.util.HashMap;
 
 import org.jam.net.inet4.InetAddress;
+import org.jam.net.inet6.Inet6Address;
 
 /**
- * Keeps try of ipv4 connections
+ * Keeps try of ipv4 and ipv6 connections. A socket bound to the
+ * any-address, either 0.0.0.0 or ::, receives both ipv4 and ipv6 packets.
  * @author joe
  *
  */
 public class InetConnections
 {
+    private static final boolean DEBUG = false;
     private HashMap<Long, Udp> table;
+    private HashMap<Key6, Udp> table6;
     
     public InetConnections()
     {
         table = new HashMap<Long, Udp>();
+        table6 = new HashMap<Key6, Udp>();
     }
     
     public final void add(InetSocketAddress addr, Udp connection)
     {
-        byte[] inet = addr.getAddress().getAddress();
-        long key = ((long)addr.getPort() << 32) | (inet[0] << 24) | (inet[1] << 16) | (inet[2] << 8) | inet[3];
-        System.out.println("InetConnections add "+addr);
+        java.net.InetAddress address = addr.getAddress();
+        if(DEBUG) System.out.println("InetConnections add "+addr);
+        if(address instanceof java.net.Inet6Address && !address.isAnyLocalAddress())
+        {
+            table6.put(new Key6(new Inet6Address(address), addr.getPort()), connection);
+            return;
+        }
+        byte[] inet = address.getAddress();
+        long key = ((long)addr.getPort() << 32);
+        if(!address.isAnyLocalAddress())
+        {
+            key |= ((inet[0] & 0xFFL) << 24) | ((inet[1] & 0xFF) << 16) | ((inet[2] & 0xFF) << 8) | (inet[3] & 0xFF);
+        }
         table.put(key, connection);
     }
     
@@ -50,7 +65,7 @@ public class InetConnections
     {
         Udp conn = null;
         
-        long key = ((long)port<<32)|inetAddr;
+        long key = ((long)port<<32)|(inetAddr & 0xFFFFFFFFL);
         conn = table.get(key);
         /*
          * Try any-address, 0.0.0.0
@@ -60,8 +75,55 @@ public class InetConnections
             key = (long)port<<32;
             conn = table.get(key);
         }
-        if(conn != null) System.out.println("Connection found!");
-        System.out.println("key "+Long.toHexString(key));
+        if(DEBUG)
+        {
+            if(conn != null) System.out.println("Connection found!");
+            System.out.println("key "+Long.toHexString(key));
+        }
         return conn;
     }
+
+    public final Udp find6(Inet6Address inetAddress, int port)
+    {
+        /*
+         * An ipv4 mapped destination is looked up as ipv4
+         */
+        if(inetAddress.isInet4Mapped())
+        {
+            return find(inetAddress.inet4(), port);
+        }
+        Udp conn = table6.get(new Key6(inetAddress, port));
+        if(conn == null)
+        {
+            conn = table.get((long)port<<32);
+        }
+        return conn;
+    }
+
+    private static class Key6
+    {
+        final Inet6Address address;
+        final int port;
+
+        Key6(Inet6Address address, int port)
+        {
+            this.address = address;
+            this.port = port;
+        }
+
+        public boolean equals(Object other)
+        {
+            if(!(other instanceof Key6))
+            {
+                return false;
+            }
+            Key6 key = (Key6)other;
+            return port == key.port && address.equals(key.address);
+        }
+
+        public int hashCode()
+        {
+            return address.hashCode() ^ port;
+        }
+    }
 }
@@ -17,6 +17,7 @@ public class InetPacket implements Packet {
 	private byte buffer[];
 	private static int UDP_HEADROOM = 42;		// size of the udp, ip, and ethernet headers
 	private static int TCP_HEADROOM = 54;
+	private static final boolean DEBUG = false;
 	private int packetSize;
 	private Connection connection;
 	private NetworkInterface netInterface;
@@ -25,7 +26,7 @@ public class InetPacket implements Packet {
 		int bufferSize = packet.getLength()+UDP_HEADROOM;
 		byte[] srcBuffer = packet.getData();
 		buffer = new byte[bufferSize];
-		System.out.println("InetPacket "+packet.getOffset()+" "+bufferSize);
+		if(DEBUG) System.out.println("InetPacket "+packet.getOffset()+" "+bufferSize);
 		RVMArray.arraycopy(srcBuffer, packet.getOffset(), buffer, UDP_HEADROOM, packet.getLength());
 		offset = UDP_HEADROOM;
 		packetSize = packet.getLength();
@@ -39,7 +40,7 @@ public class InetPacket implements Packet {
         byte[] srcBuffer = src.array();
         buffer = new byte[bufferSize];
         RVMArray.arraycopy(srcBuffer, 0, buffer, UDP_HEADROOM, src.capacity());
-        System.out.println("InetPacket1 "+bufferSize);
+        if(DEBUG) System.out.println("InetPacket1 "+bufferSize);
         offset = UDP_HEADROOM - headroom;
         packetSize = src.capacity() + headroom;
         this.connection = connection;
@@ -101,7 +102,7 @@ public class InetPacket implements Packet {
 	}
 
 	public void setHeadroom(int size) {
-	    System.out.println("inetpacket.setheadroom "+size+" "+offset);
+	    if(DEBUG) System.out.println("inetpacket.setheadroom "+size+" "+offset);
 		if(size > offset)
 		{
 			throw new RuntimeException("No Headroom");
@@ -114,8 +115,16 @@ public class InetPacket implements Packet {
 		return connection.getProtocol();
 	}
 
+	/**
+	 * True if the packet, starting at the ip header, is larger than the
+	 * path MTU to its destination
+	 */
 	public boolean needToFragment() {
-		return false;
+		if(netInterface == null)
+		{
+			return false;
+		}
+		return packetSize > PathMtu.get(connection.getRemoteInet(), netInterface.getMtu());
 	}
 
 	public int getLocalAddress() {
@@ -131,9 +140,9 @@ public class InetPacket implements Packet {
 		 * At this point the packet has a route. We just need
 		 * to get the mac  address of the destination
 		 */
-	    System.out.println("Inet send "+netInterface);
+	    if(DEBUG) System.out.println("Inet send "+netInterface);
 		EthernetAddr destinationMac = netInterface.arp(connection.getRemote());
-		System.out.println("Arp done");
+		if(DEBUG) System.out.println("Arp done");
 		netInterface.send(destinationMac, this, EtherType.IPV4.type());
 	}
 
@@ -153,6 +162,17 @@ public class InetPacket implements Packet {
        packetSize -= size;
     }
 
+    /**
+     * Shorten the packet, e.g. to drop link layer padding
+     */
+    public void trim(int size)
+    {
+        if(size < packetSize)
+        {
+            packetSize = size;
+        }
+    }
+
     public void free()
     {
         // TODO Auto-generated method stub
@@ -6,22 +6,29 @@ import org.jam.net.ethernet.Ethernet;
 import org.jam.net.inet4.Arp;
 import org.jam.net.inet4.ArpPacket;
 import org.jam.net.inet4.ArpThread;
+import org.jam.net.inet6.Inet6Interface;
+import org.jam.net.inet6.Ip6;
 import org.jikesrvm.VM;
 import org.jikesrvm.scheduler.RVMThread;
 
 public class InetProtocolProcessor
 implements Runnable
 {
+    private static final boolean DEBUG = false;
     private NetworkQueue rxQueue;
     private ArpThread arp;
     private static int QUEUE_SIZE = 256;
     private Ip ip;
+    private Ip6 ip6;
+    private LinkStats stats;
     
-    public InetProtocolProcessor(ArpThread arp)
+    public InetProtocolProcessor(NetworkInterface netIf, ArpThread arp, LinkStats stats, Inet6Interface inet6)
     {
         this.arp = arp;
+        this.stats = stats;
         rxQueue = new NetworkQueue();
-        ip = new Ip();
+        ip = new Ip(netIf);
+        ip6 = new Ip6(inet6);
     }
     public void run()
     {
@@ -30,7 +37,7 @@ implements Runnable
 
     private void processPackets()
     {
-        System.out.println("INET protocol processor started");
+        if(DEBUG) System.out.println("INET protocol processor started");
         while(true)
         {
             try
@@ -42,21 +49,40 @@ implements Runnable
                 {
                     wait();
                 }
-                System.out.println("inetpp got rx");
+                if(DEBUG) System.out.println("inetpp got rx");
                 Packet packet = rxQueue.get();
                 if(Ethernet.isIPv4(packet))
+                {
+                    /*
+                     * The copy keeps the ethernet header so ICMP can answer
+                     * the sender without an ARP lookup
+                     */
+                    InetPacket inetPacket = new InetPacket(packet);
+                    inetPacket.pull(Ethernet.HEADER_SIZE);
+                    // the frame has been copied so give the buffer back to the driver
+                    packet.free();
+                    ip.receive(inetPacket);
+                }
+                else if(Ethernet.isIPv6(packet))
                 {
                     packet.pull(Ethernet.HEADER_SIZE);
-                    ip.receive(new InetPacket(packet));
+                    InetPacket inetPacket = new InetPacket(packet);
+                    packet.free();
+                    ip6.receive(inetPacket);
                 }
                 else if(Ethernet.isArp(packet))
                 {
-                    System.out.println("inetpp arp packet");
+                    if(DEBUG) System.out.println("inetpp arp packet");
                     packet.pull(Ethernet.HEADER_SIZE);
                     Arp arp = new Arp(packet);
                     packet.free();
                     this.arp.reply(arp);
                 }
+                else if(packet != null)
+                {
+                    stats.rxDrop();
+                    packet.free();
+                }
             } catch (InterruptedException e)
             {
                 e.printStackTrace();
@@ -71,8 +97,13 @@ implements Runnable
          * This is called from an interrupt so there is no synchronization
          * on 'this'
          */
-        rxQueue.put(packet);
-        VM.sysWriteln("inetpp notify");
+        if(!rxQueue.put(packet))
+        {
+            stats.rxQueueOverflow();
+            packet.free();
+            return;
+        }
+        if(DEBUG) VM.sysWriteln("inetpp notify");
         RVMThread.nosyncNotify(this);
     }
 }
@@ -1,5 +1,7 @@
 package org.jam.net;
 
+import java.net.SocketException;
+
 import org.jam.driver.net.Packet;
 import org.jikesrvm.VM;
 import org.vmmagic.unboxed.Address;
@@ -19,39 +21,51 @@ public class Ip {
 	private final static Offset CHECKSUM_FIELD = Offset.fromIntSignExtend(10);
 	private final static Offset SRCADDR_FIELD = Offset.fromIntSignExtend(12);
 	private final static Offset DSTADDR_FIELD = Offset.fromIntSignExtend(16);
-    private static final boolean DEBUG = true;
-    private static final boolean DEBUG_RX = true;
+    private static final boolean DEBUG = false;
+    private static final boolean DEBUG_RX = false;
 	
-    private IpStats stats;
+    private static final IpStats stats = new IpStats();
+    private Icmp icmp;
 	private byte tos = 0; // best effort
 	private byte ttl = (byte)255; 
 	
 	public Ip()
 	{
-	    stats = new IpStats();
 	}
 	
-	public void send(InetPacket packet) {
-	    VM.sysWriteln("IP send ", packet.getOffset());
+	/**
+	 * Receive side ip; ICMP replies are sent on netIf
+	 */
+	public Ip(NetworkInterface netIf)
+	{
+	    this();
+	    icmp = new Icmp(netIf);
+	}
+	
+	/**
+	 * Packets are always sent with don't fragment set. A packet larger than
+	 * the path MTU is refused rather than fragmented.
+	 */
+	public void send(InetPacket packet) throws SocketException {
+	    if(DEBUG) VM.sysWriteln("IP send ", packet.getOffset());
+	    stats.outRequest();
+		if(packet.needToFragment())
+		{
+			stats.outTooBig();
+			throw new SocketException("Message too long");
+		}
 		Address ipHeader = packet.getPacketAddress();
 		int vhlen = (VERSION<<4) | HEADER_LEN;
 		ipHeader.store((byte)vhlen);
 		ipHeader.store(tos, TOS_FIELD);
 		ipHeader.store(ttl, TTL_FIELD);
 		ipHeader.store(packet.getProtocol(), PROTOCOL_FIELD);
-		ipHeader.store(0, CHECKSUM_FIELD);
+		ipHeader.store((short)0, CHECKSUM_FIELD);
 		ipHeader.store(ByteOrder.hostToNetwork(packet.getLocalAddress()), SRCADDR_FIELD);
 		ipHeader.store(ByteOrder.hostToNetwork(packet.getRemoteAddress()), DSTADDR_FIELD);
 		ipHeader.store(ByteOrder.hostToNetwork((short)packet.getSize()),LENGTH_FIELD);
-		if(packet.needToFragment())
-		{
-			fragmentPacket(packet);
-		}
-		else
-		{
-			ipHeader.store(ByteOrder.hostToNetwork(DONT_FRAGMENT), FRAGMENT_FIELD);
-		}
-		short csum = checksum(packet);
+		ipHeader.store(ByteOrder.hostToNetwork(DONT_FRAGMENT), FRAGMENT_FIELD);
+		short csum = headerChecksum(ipHeader, HEADER_LEN*4);
 		ipHeader.store(csum, CHECKSUM_FIELD);
         if (DEBUG) VM.hexDump(packet.getArray(),0,packet.getBufferSize());
 		packet.send();
@@ -60,34 +74,41 @@ public class Ip {
 	final public void receive(InetPacket packet)
 	{
 	    if(DEBUG_RX) System.out.println("ip.receive"); 
-	    Address ipHeader = packet.getAddress();
+	    stats.inReceive();
+	    Address ipHeader = packet.getPacketAddress();
 	    byte vhl = ipHeader.loadByte();
-	    int headerLength = vhl & 0xF;
-	    if((vhl>>4) != 4 || headerLength < 5)
+	    int headerLength = (vhl & 0xF) * 4;
+	    if(((vhl>>4) & 0xF) != VERSION || headerLength < HEADER_LEN*4 || packet.getSize() < headerLength)
         {
             // drop packet
-	        System.out.println("dropped vhl "+Integer.toHexString(vhl));
+	        if(DEBUG_RX) System.out.println("dropped vhl "+Integer.toHexString(vhl));
 	        stats.headerError();
 	        return;
         }
-	    int csum = checksum(packet);
+	    int csum = headerChecksum(ipHeader, headerLength);
         if(DEBUG_RX) System.out.println("ip.receive csum "+Integer.toHexString(csum)+" "+Integer.toHexString(ipHeader.loadShort(CHECKSUM_FIELD)&0xFFFF));
 	    if(csum !=0)
 	    {
-	        System.out.println("csum failure");
+	        if(DEBUG_RX) System.out.println("csum failure");
 	        stats.checksumError();
+	        return;
 	    }
 	    int len = ByteOrder.networkToHost(ipHeader.loadShort(LENGTH_FIELD)) & 0xFFFF;
 	    if(packet.getSize() < len)
 	    {
 	        stats.truncated();
+	        return;
 	    }
-	    else if(len < headerLength * 4)
+	    else if(len < headerLength)
 	    {
 	        stats.headerError();
+	        return;
 	    }
+	    // drop any ethernet padding
+	    packet.trim(len);
 	    if((ByteOrder.networkToHost(ipHeader.loadShort(FRAGMENT_FIELD)) & MORE_FRAGMENTS) !=0)
 	    {
+	        stats.fragment();
 	        processFragment(packet);
 	    }
         if(DEBUG_RX) System.out.println("ip.receive checks done");
@@ -97,8 +118,26 @@ public class Ip {
         if(protocol==IpProto.UDP.protocol())
         {
             // udp receive
-            packet.pull(headerLength*4);
-            Udp.receive(packet, sourceAddress, destinationAddress);
+            packet.pull(headerLength);
+            stats.inDeliver();
+            if(!Udp.receive(packet, sourceAddress, destinationAddress) && icmp != null)
+            {
+                icmp.destinationUnreachable(packet, ipHeader, headerLength, Icmp.PORT_UNREACHABLE);
+            }
+        }
+        else if(protocol==IpProto.ICMP.protocol() && icmp != null)
+        {
+            packet.pull(headerLength);
+            stats.inDeliver();
+            icmp.receive(packet, ipHeader, headerLength, destinationAddress);
+        }
+        else
+        {
+            stats.unknownProto();
+            if(icmp != null)
+            {
+                icmp.destinationUnreachable(packet, ipHeader, headerLength, Icmp.PROTOCOL_UNREACHABLE);
+            }
         }
         if(DEBUG_RX) System.out.println("ip.receive done");
 	}
@@ -108,31 +147,23 @@ public class Ip {
         
     }
 
-    private short checksum(InetPacket packet) {
+    /**
+     * Ones complement sum of the header in memory order so the result can
+     * be stored without a byte swap. Returns 0 for a correct header.
+     * @param header start of the ip header
+     * @param length header length in bytes
+     */
+    static short headerChecksum(Address header, int length) {
 		int csum=0;
 		
-		/*
-		 * Assumes a 20 byte IP header with no options
-		 */
-		Address headerAddress = packet.getPacketAddress();
-		csum += headerAddress.loadShort();
-		csum += (headerAddress.loadShort(Offset.fromIntZeroExtend(2)) & 0xffff);
-		csum += (headerAddress.loadShort(Offset.fromIntZeroExtend(4)) & 0xffff);
-		csum += (headerAddress.loadShort(Offset.fromIntZeroExtend(6)) & 0xffff);
-		csum += (headerAddress.loadShort(Offset.fromIntZeroExtend(8)) & 0xffff);
-		csum += (headerAddress.loadShort(Offset.fromIntZeroExtend(10)) & 0xffff);
-		csum += (headerAddress.loadShort(Offset.fromIntZeroExtend(12)) & 0xffff);
-		csum += (headerAddress.loadShort(Offset.fromIntZeroExtend(14)) & 0xffff);
-		csum += (headerAddress.loadShort(Offset.fromIntZeroExtend(16)) & 0xffff);
-		csum += (headerAddress.loadShort(Offset.fromIntZeroExtend(18)) & 0xffff);
+		for(int i=0; i < length; i+=2)
+		{
+		    csum += (header.loadShort(Offset.fromIntZeroExtend(i)) & 0xffff);
+		}
 		// Add the carry overs
 		csum = (csum >> 16) + (csum & 0xFFFF);
+		csum += (csum >> 16);
 
 		return (short)~csum;
 	}
-
-	private void fragmentPacket(InetPacket packet) {
-		throw new Error("IP fragmentation not implemented");
-	}
-
 }
@@ -0,0 +1,80 @@
+package org.jam.net;
+
+public class Ip6Stats extends NetCounters {
+    private static final int IN_RECEIVES = 0;
+    private static final int HEADER_ERROR = 1;
+    private static final int TRUNCATED = 2;
+    private static final int ADDRESS_ERROR = 3;    // not one of our unicast or multicast addresses
+    private static final int UNKNOWN_PROTO = 4;
+    private static final int IN_DELIVERS = 5;
+    private static final int OUT_REQUESTS = 6;
+    private static final int NO_ROUTE = 7;         // neighbour could not be resolved
+    private static final int ICMP_IN = 8;
+    private static final int ICMP_OUT = 9;
+    private static final int ICMP_CHECKSUM_ERROR = 10;
+    
+    private static final String NAMES[] = {
+        "inReceives", "headerError", "truncated", "addressError", "unknownProto",
+        "inDelivers", "outRequests", "noRoute", "icmpIn", "icmpOut", "icmpChecksumError"
+    };
+    
+    public Ip6Stats()
+    {
+        super("ip6", NAMES);
+    }
+    
+    public void inReceive()
+    {
+        increment(IN_RECEIVES);
+    }
+    
+    public void headerError()
+    {
+        increment(HEADER_ERROR);
+    }
+    
+    public void truncated()
+    {
+        increment(TRUNCATED);
+    }
+    
+    public void addressError()
+    {
+        increment(ADDRESS_ERROR);
+    }
+    
+    public void unknownProto()
+    {
+        increment(UNKNOWN_PROTO);
+    }
+    
+    public void inDeliver()
+    {
+        increment(IN_DELIVERS);
+    }
+    
+    public void outRequest()
+    {
+        increment(OUT_REQUESTS);
+    }
+    
+    public void noRoute()
+    {
+        increment(NO_ROUTE);
+    }
+    
+    public void icmpIn()
+    {
+        increment(ICMP_IN);
+    }
+    
+    public void icmpOut()
+    {
+        increment(ICMP_OUT);
+    }
+    
+    public void icmpChecksumError()
+    {
+        increment(ICMP_CHECKSUM_ERROR);
+    }
+}
@@ -7,7 +7,8 @@ public enum IpProto {
 	TCP(6),
 	UDP(17),
 	IPV6(41),
-	GRE(47);
+	GRE(47),
+	ICMPV6(58);
 	
 	int protocol;
 	
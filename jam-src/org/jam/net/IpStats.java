@@ -1,23 +1,68 @@
 package org.jam.net;
 
-public class IpStats {
-    private int headerError=0;
-    private int checksumError=0;
-    private int truncated=0;        // truncated packet; packet lenght < ip len
+public class IpStats extends NetCounters {
+    private static final int IN_RECEIVES = 0;
+    private static final int HEADER_ERROR = 1;
+    private static final int CHECKSUM_ERROR = 2;
+    private static final int TRUNCATED = 3;        // truncated packet; packet lenght < ip len
+    private static final int UNKNOWN_PROTO = 4;
+    private static final int IN_DELIVERS = 5;
+    private static final int OUT_REQUESTS = 6;
+    private static final int FRAGMENTS = 7;
+    private static final int OUT_TOO_BIG = 8;      // refused on send; larger than the path MTU
+    
+    private static final String NAMES[] = {
+        "inReceives", "headerError", "checksumError", "truncated",
+        "unknownProto", "inDelivers", "outRequests", "fragments", "outTooBig"
+    };
+    
+    public IpStats()
+    {
+        super("ip", NAMES);
+    }
+    
+    public void inReceive()
+    {
+        increment(IN_RECEIVES);
+    }
     
     public void headerError()
     {
-        headerError++;
+        increment(HEADER_ERROR);
     }
 
     public void checksumError()
     {
-        checksumError++;
+        increment(CHECKSUM_ERROR);
     }
 
     public void truncated()
     {
-        truncated++;
+        increment(TRUNCATED);
     }
 
+    public void unknownProto()
+    {
+        increment(UNKNOWN_PROTO);
+    }
+
+    public void inDeliver()
+    {
+        increment(IN_DELIVERS);
+    }
+
+    public void outRequest()
+    {
+        increment(OUT_REQUESTS);
+    }
+
+    public void fragment()
+    {
+        increment(FRAGMENTS);
+    }
+
+    public void outTooBig()
+    {
+        increment(OUT_TOO_BIG);
+    }
 }
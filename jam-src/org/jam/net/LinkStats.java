@@ -0,0 +1,71 @@
+package org.jam.net;
+
+public class LinkStats extends NetCounters {
+    private static final int RX_PACKETS = 0;
+    private static final int RX_BYTES = 1;
+    private static final int RX_DROPS = 2;
+    private static final int RX_QUEUE_OVERFLOW = 3;
+    private static final int TX_PACKETS = 4;
+    private static final int TX_BYTES = 5;
+    private static final int TX_QUEUE_OVERFLOW = 6;
+    
+    private static final String NAMES[] = {
+        "rxPackets", "rxBytes", "rxDrops", "rxQueueOverflow",
+        "txPackets", "txBytes", "txQueueOverflow"
+    };
+    
+    /**
+     * @param netIf interface name
+     */
+    public LinkStats(String netIf)
+    {
+        super("link " + netIf, NAMES);
+    }
+    
+    public void rxPacket(int bytes)
+    {
+        increment(RX_PACKETS);
+        add(RX_BYTES, bytes);
+    }
+    
+    public void rxDrop()
+    {
+        increment(RX_DROPS);
+    }
+    
+    public void rxQueueOverflow()
+    {
+        increment(RX_QUEUE_OVERFLOW);
+    }
+    
+    public void txPacket(int bytes)
+    {
+        increment(TX_PACKETS);
+        add(TX_BYTES, bytes);
+    }
+    
+    public void txQueueOverflow()
+    {
+        increment(TX_QUEUE_OVERFLOW);
+    }
+    
+    public long rxPackets()
+    {
+        return get(RX_PACKETS);
+    }
+    
+    public long rxBytes()
+    {
+        return get(RX_BYTES);
+    }
+    
+    public long txPackets()
+    {
+        return get(TX_PACKETS);
+    }
+    
+    public long txBytes()
+    {
+        return get(TX_BYTES);
+    }
+}
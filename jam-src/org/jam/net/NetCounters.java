@@ -0,0 +1,147 @@
+/**
+ * Created on Oct 19, 2026
+ *
+ * Copyright (C) Joe Kulig, 2026 All rights reserved.
+ */
+package org.jam.net;
+
+import org.jikesrvm.VM;
+import org.jikesrvm.runtime.Magic;
+import org.jikesrvm.scheduler.Synchronization;
+import org.vmmagic.unboxed.Offset;
+
+/**
+ * @author Joe Kulig
+ *
+ * A named group of counters, e.g. "ip" or "udp 10.0.2.15:53". Counters are
+ * updated with a compare and swap so they can be bumped from the driver
+ * poll thread and from socket threads without taking a lock. Groups add
+ * themselves to the NetStats registry when they are created.
+ */
+public class NetCounters
+{
+    private final String group;
+    private final String names[];
+    private final long values[];
+
+    public NetCounters(String group, String names[])
+    {
+        this.group = group;
+        this.names = names;
+        values = new long[names.length];
+        NetStats.register(this);
+    }
+
+    /**
+     * Add one to a counter
+     * @param counter counter index
+     */
+    public final void increment(int counter)
+    {
+        add(counter, 1);
+    }
+
+    /**
+     * Add a value to a counter
+     * @param counter counter index
+     * @param value amount to add
+     */
+    public final void add(int counter, long value)
+    {
+        Offset offset = Offset.fromIntZeroExtend(counter << 3);
+        long oldValue;
+        do
+        {
+            oldValue = Magic.getLongAtOffset(values, offset);
+        } while(!Synchronization.tryCompareAndSwap(values, offset, oldValue, oldValue + value));
+    }
+
+    public final long get(int counter)
+    {
+        return values[counter];
+    }
+
+    /**
+     * Look up a counter by name
+     * @param name counter name
+     * @return counter value or -1 if the group has no such counter
+     */
+    public final long get(String name)
+    {
+        int counter = indexOf(name);
+        if(counter < 0)
+        {
+            return -1;
+        }
+        return values[counter];
+    }
+
+    public final int indexOf(String name)
+    {
+        for(int counter=0; counter < names.length; counter++)
+        {
+            if(names[counter].equals(name))
+            {
+                return counter;
+            }
+        }
+        return -1;
+    }
+
+    public final String getGroup()
+    {
+        return group;
+    }
+
+    public final String getName(int counter)
+    {
+        return names[counter];
+    }
+
+    public final int size()
+    {
+        return names.length;
+    }
+
+    public final void reset()
+    {
+        for(int counter=0; counter < values.length; counter++)
+        {
+            values[counter] = 0;
+        }
+    }
+
+    /**
+     * Remove the group from the registry, e.g. when a socket is closed
+     */
+    public final void unregister()
+    {
+        NetStats.unregister(this);
+    }
+
+    /**
+     * Write the group on the console
+     */
+    public void print()
+    {
+        VM.sysWrite(group);
+        VM.sysWrite(":");
+        for(int counter=0; counter < names.length; counter++)
+        {
+            VM.sysWrite(" ", names[counter]);
+            VM.sysWrite("=", values[counter]);
+        }
+        VM.sysWriteln();
+    }
+
+    public String toString()
+    {
+        StringBuilder str = new StringBuilder(group);
+        str.append(':');
+        for(int counter=0; counter < names.length; counter++)
+        {
+            str.append(' ').append(names[counter]).append('=').append(values[counter]);
+        }
+        return str.toString();
+    }
+}
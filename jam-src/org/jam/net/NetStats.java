@@ -0,0 +1,115 @@
+/**
+ * Created on Oct 19, 2026
+ *
+ * Copyright (C) Joe Kulig, 2026 All rights reserved.
+ */
+package org.jam.net;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+
+/**
+ * @author Joe Kulig
+ *
+ * Registry of the network stack counters. Link, ARP, IP and UDP counter
+ * groups register themselves here and can be queried by group and counter
+ * name or dumped periodically with startDump().
+ */
+public class NetStats
+{
+    private static ArrayList<NetCounters> groups = new ArrayList<NetCounters>();
+    private static Thread dumpThread;
+
+    static synchronized void register(NetCounters counters)
+    {
+        groups.add(counters);
+    }
+
+    static synchronized void unregister(NetCounters counters)
+    {
+        groups.remove(counters);
+    }
+
+    /**
+     * Find a counter group
+     * @param group group name, e.g. "ip"
+     * @return the group or null
+     */
+    public static synchronized NetCounters find(String group)
+    {
+        int size = groups.size();
+        for(int index=0; index < size; index++)
+        {
+            NetCounters counters = groups.get(index);
+            if(counters.getGroup().equals(group))
+            {
+                return counters;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Query a single counter
+     * @param group group name
+     * @param counter counter name
+     * @return counter value or -1 if it does not exist
+     */
+    public static long get(String group, String counter)
+    {
+        NetCounters counters = find(group);
+        if(counters == null)
+        {
+            return -1;
+        }
+        return counters.get(counter);
+    }
+
+    /**
+     * @return a snapshot of the registered groups
+     */
+    public static synchronized NetCounters[] groups()
+    {
+        return groups.toArray(new NetCounters[groups.size()]);
+    }
+
+    /**
+     * Write all counters on the console
+     */
+    public static void print()
+    {
+        NetCounters snapshot[] = groups();
+        for(int index=0; index < snapshot.length; index++)
+        {
+            snapshot[index].print();
+        }
+    }
+
+    /**
+     * Dump all counters on the console every interval milliseconds
+     * @param interval dump period in milliseconds
+     */
+    public static void startDump(int interval)
+    {
+        startDump(interval, null);
+    }
+
+    /**
+     * Dump all counters every interval milliseconds. Each group is sent as
+     * one text datagram to destination, or written on the console if
+     * destination is null.
+     * @param interval dump period in milliseconds
+     * @param destination UDP collector address or null
+     */
+    public static synchronized void startDump(int interval, InetSocketAddress destination)
+    {
+        if(dumpThread != null)
+        {
+            return;
+        }
+        dumpThread = new Thread(new NetStatsDump(interval, destination));
+        dumpThread.setName("NetStats dump");
+        dumpThread.setDaemon(true);
+        dumpThread.start();
+    }
+}
@@ -0,0 +1,78 @@
+/**
+ * Created on Oct 19, 2026
+ *
+ * Copyright (C) Joe Kulig, 2026 All rights reserved.
+ */
+package org.jam.net;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+
+/**
+ * @author Joe Kulig
+ *
+ * Periodically writes the NetStats counters on the console or sends them
+ * to a UDP collector.
+ */
+public class NetStatsDump
+implements Runnable
+{
+    private final int interval;
+    private final InetSocketAddress destination;
+    private DatagramSocket socket;
+
+    public NetStatsDump(int interval, InetSocketAddress destination)
+    {
+        this.interval = interval;
+        this.destination = destination;
+    }
+
+    public void run()
+    {
+        while(true)
+        {
+            try
+            {
+                Thread.sleep(interval);
+            }
+            catch (InterruptedException e)
+            {
+                return;
+            }
+            if(destination == null)
+            {
+                NetStats.print();
+            }
+            else
+            {
+                send();
+            }
+        }
+    }
+
+    private void send()
+    {
+        try
+        {
+            if(socket == null)
+            {
+                socket = new DatagramSocket();
+            }
+            NetCounters snapshot[] = NetStats.groups();
+            for(int index=0; index < snapshot.length; index++)
+            {
+                byte data[] = snapshot[index].toString().getBytes();
+                socket.send(new DatagramPacket(data, data.length, destination));
+            }
+        }
+        catch (IOException e)
+        {
+            /*
+             * Fall back to the console if the collector is unreachable
+             */
+            NetStats.print();
+        }
+    }
+}
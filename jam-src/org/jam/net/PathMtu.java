@@ -0,0 +1,111 @@
+/**
+ * Created on Oct 19, 2026
+ *
+ * Copyright (C) Joe Kulig, 2026
+ * All rights reserved.
+ */
+package org.jam.net;
+
+import java.util.HashMap;
+
+import org.jikesrvm.runtime.Time;
+
+/**
+ * @author Joe Kulig
+ *
+ * Path MTU cache (RFC 1191). Entries are lowered by ICMP fragmentation
+ * needed messages and expire after ten minutes so a larger path MTU is
+ * discovered again when the route changes.
+ */
+public class PathMtu
+{
+    private static final boolean DEBUG = false;
+    private final static int MIN_MTU = 68;
+    private final static long EXPIRE = 10L * 60 * 1000 * 1000 * 1000;   // nanoseconds
+    /*
+     * Plateau table for routers that do not report the next hop MTU
+     */
+    private final static int PLATEAUS[] = {
+        32000, 17914, 8166, 4352, 2002, 1492, 1006, 508, 296, MIN_MTU
+    };
+    private static HashMap<Integer, Entry> cache = new HashMap<Integer, Entry>();
+
+    private static class Entry
+    {
+        int mtu;
+        long expires;
+    }
+
+    /**
+     * Lower the path MTU to a destination
+     * @param destination destination inet4 address
+     * @param mtu next hop MTU from the ICMP message; 0 if it was not reported
+     * @param length total length of the datagram that was too big
+     * @return true if the cached value changed
+     */
+    public static synchronized boolean update(int destination, int mtu, int length)
+    {
+        if(mtu == 0)
+        {
+            mtu = plateau(length);
+        }
+        if(mtu < MIN_MTU)
+        {
+            return false;
+        }
+        Entry entry = cache.get(destination);
+        long now = Time.nanoTime();
+        if(entry == null)
+        {
+            entry = new Entry();
+            cache.put(destination, entry);
+        }
+        else if(entry.expires > now && entry.mtu <= mtu)
+        {
+            return false;
+        }
+        if(DEBUG) System.out.println("pmtu "+Integer.toHexString(destination)+" "+mtu);
+        entry.mtu = mtu;
+        entry.expires = now + EXPIRE;
+        return true;
+    }
+
+    /**
+     * @param destination destination inet4 address
+     * @param linkMtu MTU of the outgoing interface
+     * @return the path MTU to destination
+     */
+    public static synchronized int get(int destination, int linkMtu)
+    {
+        if(cache.isEmpty())
+        {
+            return linkMtu;
+        }
+        Entry entry = cache.get(destination);
+        if(entry == null)
+        {
+            return linkMtu;
+        }
+        if(entry.expires < Time.nanoTime())
+        {
+            cache.remove(destination);
+            return linkMtu;
+        }
+        return entry.mtu < linkMtu ? entry.mtu : linkMtu;
+    }
+
+    /**
+     * Largest plateau smaller than the datagram length
+     */
+    private static int plateau(int length)
+    {
+        for(int i=0; i < PLATEAUS.length; i++)
+        {
+            if(PLATEAUS[i] < length)
+            {
+                return PLATEAUS[i];
+            }
+        }
+        return MIN_MTU;
+    }
+}
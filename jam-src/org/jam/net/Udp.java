@@ -20,6 +20,10 @@ import java.util.ArrayDeque;
 import java.util.ArrayList;
 
 import org.jam.driver.net.Packet;
+import org.jam.net.inet6.Inet6Address;
+import org.jam.net.inet6.Inet6Interface;
+import org.jam.net.inet6.Ip6;
+import org.jikesrvm.runtime.Magic;
 import org.jikesrvm.VM;
 import org.vmmagic.unboxed.Address;
 import org.vmmagic.unboxed.Offset;
@@ -37,10 +41,11 @@ public class Udp {
     private static final Offset LENGTH = Offset.fromIntSignExtend(4);
     private static final Offset CHECKSUM = Offset.fromIntSignExtend(6);
     static final int UDP_HEADER_SIZE = 8;
+    private static final int DEFAULT_HOP_LIMIT = 64;
     
-    private static final boolean DEBUG_PSEUDOHEADER = true;
-    private static final boolean DEBUG = true;
-    private static final boolean DEBUG_TRACE = true;
+    private static final boolean DEBUG_PSEUDOHEADER = false;
+    private static final boolean DEBUG = false;
+    private static final boolean DEBUG_TRACE = false;
     private static InetConnections connectionTable = new InetConnections();
     
     InetSocketAddress localAddress;
@@ -54,14 +59,14 @@ public class Udp {
     private short packetChecksum;
     private boolean disableCheckSum = false;
     private boolean pseudoSum = false;
-    private static UdpStats stats;
+    private static final UdpStats stats = new UdpStats();
+    private UdpStats socketStats;
     
     private ArrayDeque<Packet> packetFifo;
     
     public Udp()
     {
         ip = new Ip();
-        if(stats == null) stats = new UdpStats();
         packetFifo = new ArrayDeque<Packet>();
     }
 
@@ -73,6 +78,18 @@ public class Udp {
         localAddress = inetSocketAddress;
         // put it in the connection table
         connectionTable.add(inetSocketAddress, this);
+        registerStats();
+    }
+    
+    /**
+     * Start the per socket counters once the local address is known
+     */
+    private void registerStats()
+    {
+        if(socketStats == null)
+        {
+            socketStats = new UdpStats(localAddress.toString());
+        }
     }
 
     /**
@@ -87,6 +104,7 @@ public class Udp {
             localAddress = new InetSocketAddress(10000);
         }
         connectionTable.add(localAddress, this);
+        registerStats();
         // check if address is routable
         // Create a new connection
     }
@@ -134,6 +152,11 @@ public class Udp {
         {
             throw new IOException("Packet too big");
         }
+        if(remoteAddress.getAddress() instanceof java.net.Inet6Address)
+        {
+            sendInet6(packet);
+            return;
+        }
         if(DEBUG_TRACE) VM.sysWriteln("get new inet packet");
         this.packet = new InetPacket(packet, connection);
         this.packet.setHeadroom(UDP_HEADER_SIZE);
@@ -141,7 +164,7 @@ public class Udp {
         send();
     }
 
-    private void send()
+    private void send() throws SocketException
     {
         Address udpPacket = packet.getPacketAddress();
         // Setup the udp packet header
@@ -158,11 +181,86 @@ public class Udp {
         // send it on for IP processing
         if(DEBUG_TRACE) System.out.println("private send "+packet.getOffset()+" "+packet.getSize());
         packet.setHeadroom(20);
-        VM.hexDump(packet.getArray(),0,packet.getBufferSize());
+        if(DEBUG) VM.hexDump(packet.getArray(),0,packet.getBufferSize());
+        stats.outDatagram();
+        if(socketStats != null) socketStats.outDatagram();
         ip.send(packet);
     }
 
-    static final void receive(InetPacket packet, int sourceAddress, int destinationAddress)
+    /**
+     * Send a datagram to an ipv6 destination. The whole frame is built here
+     * since the ipv6 path does not use Connection or Route.
+     */
+    private void sendInet6(DatagramPacket datagram) throws IOException
+    {
+        Inet6Interface netIf = Inet6Interface.getDefault();
+        if(netIf == null)
+        {
+            throw new NoRouteToHostException("No ipv6 interface");
+        }
+        Inet6Address destination = new Inet6Address(remoteAddress.getAddress());
+        Inet6Address source = netIf.sourceFor(destination);
+        int length = UDP_HEADER_SIZE + datagram.getLength();
+        byte frame[] = Ip6.allocate(length);
+        System.arraycopy(datagram.getData(), datagram.getOffset(), frame, Ip6.PAYLOAD_OFFSET + UDP_HEADER_SIZE,
+                         datagram.getLength());
+        Address udpPacket = Magic.objectAsAddress(frame).plus(Ip6.PAYLOAD_OFFSET);
+        udpPacket.store(ByteOrder.hostToNetwork((short) localAddress.getPort()));
+        udpPacket.store(ByteOrder.hostToNetwork((short) remoteAddress.getPort()), DESTINATION_PORT);
+        udpPacket.store(ByteOrder.hostToNetwork((short) length), LENGTH);
+        udpPacket.store((short)0, CHECKSUM);
+        short checksum = Ip6.checksum(udpPacket, length,
+                                      Ip6.pseudoHeaderSum(source, destination, length, IpProto.UDP.protocol()));
+        /*
+         * The checksum is mandatory for ipv6 so a computed zero is sent as all ones
+         */
+        if(checksum == 0)
+        {
+            checksum = (short)0xFFFF;
+        }
+        udpPacket.store(ByteOrder.hostToNetwork(checksum), CHECKSUM);
+        stats.outDatagram();
+        if(socketStats != null) socketStats.outDatagram();
+        if(!Ip6.send(netIf, source, destination, IpProto.UDP.protocol(), frame, length,
+                     ttl > 0 ? ttl : DEFAULT_HOP_LIMIT, true))
+        {
+            throw new NoRouteToHostException(destination.toString());
+        }
+    }
+
+    /**
+     * Receive a datagram from the ipv6 layer
+     * @param packet packet starting at the udp header
+     * @param source source address
+     * @param destination destination address
+     * @param length payload length from the ipv6 header
+     */
+    public static final void receive6(InetPacket packet, Inet6Address source, Inet6Address destination, int length)
+    {
+        Address udpHeader = packet.getPacketAddress();
+        int destinationPort = ByteOrder.networkToHost(udpHeader.loadShort(DESTINATION_PORT)) & 0xFFFF;
+        Udp udp = connectionTable.find6(destination, destinationPort);
+        if(udp == null)
+        {
+            stats.noPort();
+            return;
+        }
+        int ulen = ByteOrder.networkToHost(udpHeader.loadShort(LENGTH)) & 0xFFFF;
+        if(ulen < UDP_HEADER_SIZE || ulen > length || udpHeader.loadShort(CHECKSUM) == 0
+           || Ip6.checksum(udpHeader, ulen, Ip6.pseudoHeaderSum(source, destination, ulen, IpProto.UDP.protocol())) != 0)
+        {
+            udp.inError();
+            return;
+        }
+        stats.inDatagram();
+        if(udp.socketStats != null) udp.socketStats.inDatagram();
+        udp.put(packet);
+    }
+
+    /**
+     * @return false if no socket is bound to the destination port
+     */
+    static final boolean receive(InetPacket packet, int sourceAddress, int destinationAddress)
     {
         if(DEBUG_TRACE) System.out.println("udp.receive "+Integer.toHexString(sourceAddress));
         Address udpHeader = packet.getPacketAddress();
@@ -173,11 +271,12 @@ public class Udp {
         if(udp == null)
         {
             stats.noPort();
-            return;
+            return false;
         }
         
         udp.packet(packet);
         udp.receive(sourceAddress, destinationAddress);
+        return true;
     }
     
     private final void receive(int sourceAddress, int destinationAddress)
@@ -192,18 +291,26 @@ public class Udp {
         if(ulen > packet.getSize())
         {        
             if(DEBUG_TRACE) System.out.println("udp.receive2 "+packet.getSize());
-            stats.inError();
+            inError();
             return;
         }
         int csum = computePseudoHeaderSum2(sourceAddress, destinationAddress, ulen);
         if(!verifyChecksum(csum))
         {
-            stats.inError();
+            inError();
             return;
         }
+        stats.inDatagram();
+        if(socketStats != null) socketStats.inDatagram();
         put(packet);
     }
     
+    private final void inError()
+    {
+        stats.inError();
+        if(socketStats != null) socketStats.inError();
+    }
+    
     /**
      * Puts a packet the end of the UDP buffer fifo
      * @param packet UDP rx packet
@@ -376,7 +483,7 @@ public class Udp {
                 }
             }
         }
-        System.out.println("udp.receive3 "+waiting);
+        if(DEBUG_TRACE) System.out.println("udp.receive3 "+waiting);
         packet.setLength(p.getSize()-UDP_HEADER_SIZE);
         System.arraycopy(p.getArray(), p.getOffset()+UDP_HEADER_SIZE, packet.getData(), packet.getOffset(), p.getSize()-UDP_HEADER_SIZE);
         return remoteAddress;
@@ -427,8 +534,11 @@ public class Udp {
      */
     public void close() throws IOException
     {
-        // TODO Auto-generated method stub
-
+        if(socketStats != null)
+        {
+            socketStats.unregister();
+            socketStats = null;
+        }
     }
 
     /**
@@ -1,16 +1,46 @@
 package org.jam.net;
 
-public class UdpStats {
-    private int noPorts=0;
-    private int inErrors=0;
+public class UdpStats extends NetCounters {
+    private static final int IN_DATAGRAMS = 0;
+    private static final int NO_PORTS = 1;
+    private static final int IN_ERRORS = 2;
+    private static final int OUT_DATAGRAMS = 3;
+    
+    private static final String NAMES[] = {
+        "inDatagrams", "noPorts", "inErrors", "outDatagrams"
+    };
+    
+    public UdpStats()
+    {
+        super("udp", NAMES);
+    }
+    
+    /**
+     * Per socket counters
+     * @param socket local socket address
+     */
+    public UdpStats(String socket)
+    {
+        super("udp " + socket, NAMES);
+    }
+    
+    public void inDatagram()
+    {
+        increment(IN_DATAGRAMS);
+    }
     
     public void noPort()
     {
-        noPorts++;
+        increment(NO_PORTS);
     }
     
     public void inError()
     {
-        inErrors++;
+        increment(IN_ERRORS);
+    }
+    
+    public void outDatagram()
+    {
+        increment(OUT_DATAGRAMS);
     }
 }
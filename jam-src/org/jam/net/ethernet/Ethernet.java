@@ -24,8 +24,10 @@ import org.vmmagic.unboxed.Offset;
  *         packet that can be transmitted by a ethernet device
  */
 public class Ethernet {
+    private static final boolean DEBUG = false;
     public final static short PROTO_IP4 = 0x800;
     public final static short PROTO_ARP = 0x806;
+    public final static short PROTO_IP6 = (short)0x86DD;
     private final static int MAX_PAYLOAD = 1500;
     private final static int MIN_PAYLOAD = 46;
     public final static int FRAME_LENGTH = 1518; // does not include FCS
@@ -59,7 +61,7 @@ public class Ethernet {
         }
         // ARP type
         packetAddress.store(ByteOrder.hostToNetwork(ARP_PROTO), PROTO_OFFSET);
-        VM.sysWriteln("ethernet packetaddr ", packetAddress);
+        if(DEBUG) VM.sysWriteln("ethernet packetaddr ", packetAddress);
     }
 
     public Ethernet(EthernetAddr dst, PacketBuffer packet, short protocol)
@@ -71,7 +73,7 @@ public class Ethernet {
         packetAddress = Magic.objectAsAddress(packetArray);
         byte[] ethAddress = dst.asArray();
         targetIndex = packet.getOffset();
-        VM.sysWriteln("Ethernet new: targetIndex: ", targetIndex);
+        if(DEBUG) VM.sysWriteln("Ethernet new: targetIndex: ", targetIndex);
         for (srcIndex = 0; srcIndex < ethAddress.length; srcIndex++, targetIndex++)
         {
             packetArray[targetIndex] = ethAddress[srcIndex];
@@ -79,7 +81,7 @@ public class Ethernet {
         // ARP type
         packetAddress.store(ByteOrder.hostToNetwork(protocol), PROTO_OFFSET);
         this.packet = packet;
-        VM.sysWriteln("ethernet packetaddr ", packetAddress);
+        if(DEBUG) VM.sysWriteln("ethernet packetaddr ", packetAddress);
     }
 
     public Ethernet(EthernetAddr dst, Packet packet, short protocol)
@@ -91,15 +93,15 @@ public class Ethernet {
         packetAddress = Magic.objectAsAddress(packetArray);
         byte[] ethAddress = dst.asArray();
         targetIndex = packet.getOffset();
-        VM.sysWriteln("Ethernet new: targetIndex: ", targetIndex);
+        if(DEBUG) VM.sysWriteln("Ethernet new: targetIndex: ", targetIndex);
         for (srcIndex = 0; srcIndex < ethAddress.length; srcIndex++, targetIndex++)
         {
             packetArray[targetIndex] = ethAddress[srcIndex];
         }
         packetAddress.store(ByteOrder.hostToNetwork(protocol), PROTO_OFFSET);
         this.packet = packet;
-        VM.sysWrite("ethernet packetaddr ", packetAddress);
-        VM.sysWriteln(" size ", packet.getSize());
+        if(DEBUG) VM.sysWrite("ethernet packetaddr ", packetAddress);
+        if(DEBUG) VM.sysWriteln(" size ", packet.getSize());
     }
 
     public byte[] getFrame()
@@ -133,4 +135,9 @@ public class Ethernet {
     {
         return packet.getPacketAddress().loadShort(PROTO_OFFSET) == ByteOrder.networkToHost(PROTO_IP4);
     }
+
+    public static boolean isIPv6(Packet packet)
+    {
+        return packet.getPacketAddress().loadShort(PROTO_OFFSET) == ByteOrder.networkToHost(PROTO_IP6);
+    }
 }
@@ -4,6 +4,7 @@ import java.util.HashMap;
 import java.util.LinkedList;
 
 import org.jam.driver.net.InetNetworkInterface;
+import org.jam.net.ArpStats;
 import org.jam.net.NetworkInterface;
 import org.jam.net.ethernet.EthernetAddr;
 
@@ -21,9 +22,12 @@ implements Runnable
     private ArpTable arpTable;
     private NetworkInterface netIf;
     private HashMap<Integer, Arp> arpRequests;
+    private ArpStats stats;
+    private static final boolean DEBUG = false;
     
     public ArpThread(NetworkInterface networkInterface)
     {
+        stats = new ArpStats();
         netIf = networkInterface;
         arpTable = new ArpTable();
         arpRequests = new HashMap<Integer, Arp>(); // make map sendingip, arprequest
@@ -31,7 +35,7 @@ implements Runnable
 
     public void run()
     {
-        System.out.println("Arp Thread running!");
+        if(DEBUG) System.out.println("Arp Thread running!");
         while(true)
         {
             try
@@ -47,12 +51,19 @@ implements Runnable
 
     public void reply(Arp arpPacket)
     {
-        System.out.println("received reply packet");
+        if(DEBUG) System.out.println("received reply packet");
+        stats.replyReceived();
         /*
          * Need to sync up on the original request packet. This will get
          * the request() restarted.
          */
         Arp request = arpRequests.get(arpPacket.targetInet());
+        if(request == null)
+        {
+            // nobody is waiting on this reply
+            stats.notForUs();
+            return;
+        }
         // Replace the request with the reply
         arpRequests.put(arpPacket.targetInet(), arpPacket);
         synchronized(request)
@@ -64,8 +75,9 @@ implements Runnable
     public void request(InetAddress senderIp, InetAddress targetIp)
     {
         Arp arpRequest = new Arp(netIf.getEthernetAddress(), senderIp, targetIp);
-        System.out.println("at: arp request");
+        if(DEBUG) System.out.println("at: arp request");
         netIf.send(arpRequest);
+        stats.requestSent();
         Arp arpReply = null;
         try
         {
@@ -80,7 +92,7 @@ implements Runnable
                 arpRequests.put(senderIp.inet4(), arpRequest);
                 arpRequest.wait();
             }
-            System.out.println("request -> Got ARP reply");
+            if(DEBUG) System.out.println("request -> Got ARP reply");
             /*
              * get the reply
              */
@@ -91,7 +103,8 @@ implements Runnable
             if(!arpReply.verifyEthernet() || !arpReply.verifyIpv4()) 
             {
                 // ignore packet
-                System.out.println("ARP is not ethernet or inet");
+                if(DEBUG) System.out.println("ARP is not ethernet or inet");
+                stats.badPacket();
                 return;
             }
             /*
@@ -100,7 +113,8 @@ implements Runnable
             if(arpReply.targetInet() != netIf.getInetAddress().inet4() || arpReply.senderInet() != targetIp.inet4())
             {
                 // ignore packet
-                System.out.println("ARP is not for me");
+                if(DEBUG) System.out.println("ARP is not for me");
+                stats.notForUs();
             }
             /*
              * Put it into the arp table
@@ -0,0 +1,315 @@
+/**
+ * Created on Oct 19, 2026
+ *
+ * Copyright (C) Joe Kulig, 2026
+ * All rights reserved.
+ */
+package org.jam.net.inet6;
+
+import org.jam.net.ByteOrder;
+import org.jam.net.InetPacket;
+import org.jam.net.IpProto;
+import org.jam.net.ethernet.EthernetAddr;
+import org.jikesrvm.runtime.Magic;
+import org.vmmagic.unboxed.Address;
+import org.vmmagic.unboxed.Offset;
+
+/**
+ * @author Joe Kulig
+ *
+ * ICMPv6 echo and the neighbour discovery messages (RFC 4861) needed for
+ * address resolution and stateless address autoconfiguration (RFC 4862).
+ */
+public class Icmp6
+{
+    private static final boolean DEBUG = false;
+    /*
+     * Message types
+     */
+    private final static int ECHO_REQUEST = 128;
+    private final static int ECHO_REPLY = 129;
+    private final static int ROUTER_SOLICITATION = 133;
+    private final static int ROUTER_ADVERTISEMENT = 134;
+    private final static int NEIGHBOR_SOLICITATION = 135;
+    private final static int NEIGHBOR_ADVERTISEMENT = 136;
+    /*
+     * Neighbour discovery options
+     */
+    private final static int OPTION_SOURCE_LL = 1;
+    private final static int OPTION_TARGET_LL = 2;
+    private final static int OPTION_PREFIX_INFO = 3;
+    private final static int LL_OPTION_SIZE = 8;
+    /*
+     * Neighbour advertisement flags
+     */
+    private final static int NA_SOLICITED = 0x40000000;
+    private final static int NA_OVERRIDE = 0x20000000;
+    /*
+     * Prefix information flags
+     */
+    private final static int PREFIX_AUTONOMOUS = 0x40;
+    private final static int SLAAC_PREFIX_LENGTH = 64;
+    /*
+     * Neighbour discovery packets must be sent and received with a hop
+     * limit of 255 so they can not come from off link.
+     */
+    private final static int ND_HOP_LIMIT = 255;
+    private final static int DEFAULT_HOP_LIMIT = 64;
+
+    private final static Offset TYPE = Offset.zero();
+    private final static Offset CODE = Offset.fromIntZeroExtend(1);
+    private final static Offset CHECKSUM = Offset.fromIntZeroExtend(2);
+    private final static Offset FLAGS = Offset.fromIntZeroExtend(4);
+    private final static Offset TARGET = Offset.fromIntZeroExtend(8);
+    private final static Offset ROUTER_LIFETIME = Offset.fromIntZeroExtend(6);
+    private final static int HEADER_SIZE = 8;
+    private final static int ND_SIZE = HEADER_SIZE + Inet6Address.SIZE;
+    private final static int RA_SIZE = 16;
+
+    private final Inet6Interface netIf;
+
+    Icmp6(Inet6Interface netIf)
+    {
+        this.netIf = netIf;
+    }
+
+    final void receive(InetPacket packet, Inet6Address source, Inet6Address destination, int length, int hopLimit)
+    {
+        Ip6.stats.icmpIn();
+        Address icmp = packet.getPacketAddress();
+        if(length < HEADER_SIZE
+           || Ip6.checksum(icmp, length, Ip6.pseudoHeaderSum(source, destination, length, IpProto.ICMPV6.protocol())) != 0)
+        {
+            Ip6.stats.icmpChecksumError();
+            return;
+        }
+        int type = icmp.loadByte(TYPE) & 0xFF;
+        if(DEBUG) System.out.println("icmp6 type "+type+" from "+source);
+        if(type == ECHO_REQUEST)
+        {
+            echoReply(icmp, source, destination, length);
+            return;
+        }
+        if(hopLimit != ND_HOP_LIMIT || icmp.loadByte(CODE) != 0)
+        {
+            return;
+        }
+        switch(type)
+        {
+        case NEIGHBOR_SOLICITATION:
+            if(length >= ND_SIZE) neighborSolicitation(icmp, source, length);
+            break;
+        case NEIGHBOR_ADVERTISEMENT:
+            if(length >= ND_SIZE) neighborAdvertisement(icmp, length);
+            break;
+        case ROUTER_ADVERTISEMENT:
+            if(length >= RA_SIZE) routerAdvertisement(icmp, source, length);
+            break;
+        default:
+            break;
+        }
+    }
+
+    private void echoReply(Address request, Inet6Address source, Inet6Address destination, int length)
+    {
+        byte frame[] = Ip6.allocate(length);
+        Address reply = Magic.objectAsAddress(frame).plus(Ip6.PAYLOAD_OFFSET);
+        for(int i=0; i < length; i++)
+        {
+            reply.store(request.loadByte(Offset.fromIntZeroExtend(i)), Offset.fromIntZeroExtend(i));
+        }
+        reply.store((byte)ECHO_REPLY, TYPE);
+        Inet6Address replySource = destination.isMulticast() ? netIf.sourceFor(source) : destination;
+        send(netIf, replySource, source, frame, length, DEFAULT_HOP_LIMIT, false);
+    }
+
+    /**
+     * Answer a solicitation for one of our addresses. The soliciting node's
+     * link layer address is learned from its option so the advertisement can
+     * be sent without resolving it.
+     */
+    private void neighborSolicitation(Address icmp, Inet6Address source, int length)
+    {
+        Inet6Address target = new Inet6Address(icmp, TARGET);
+        if(!netIf.hasAddress(target))
+        {
+            return;
+        }
+        EthernetAddr sourceMac = findLinkLayerOption(icmp, ND_SIZE, length, OPTION_SOURCE_LL);
+        if(sourceMac != null && !source.isUnspecified())
+        {
+            netIf.getNeighborCache().update(source, sourceMac);
+        }
+        int flags = NA_OVERRIDE;
+        Inet6Address destination;
+        if(source.isUnspecified())
+        {
+            // duplicate address detection probe
+            destination = Inet6Address.ALL_NODES;
+        }
+        else
+        {
+            destination = source;
+            flags |= NA_SOLICITED;
+        }
+        int size = ND_SIZE + LL_OPTION_SIZE;
+        byte frame[] = Ip6.allocate(size);
+        Address na = Magic.objectAsAddress(frame).plus(Ip6.PAYLOAD_OFFSET);
+        na.store((byte)NEIGHBOR_ADVERTISEMENT, TYPE);
+        na.store(ByteOrder.hostToNetwork(flags), FLAGS);
+        target.store(na, TARGET);
+        storeLinkLayerOption(na, ND_SIZE, OPTION_TARGET_LL);
+        send(netIf, target, destination, frame, size, ND_HOP_LIMIT, false);
+    }
+
+    private void neighborAdvertisement(Address icmp, int length)
+    {
+        Inet6Address target = new Inet6Address(icmp, TARGET);
+        EthernetAddr targetMac = findLinkLayerOption(icmp, ND_SIZE, length, OPTION_TARGET_LL);
+        if(targetMac != null)
+        {
+            netIf.getNeighborCache().update(target, targetMac);
+        }
+    }
+
+    /**
+     * Learn the default router and configure addresses from autonomous
+     * /64 prefixes.
+     */
+    private void routerAdvertisement(Address icmp, Inet6Address source, int length)
+    {
+        if(!source.isLinkLocal())
+        {
+            return;
+        }
+        int lifetime = ByteOrder.networkToHost(icmp.loadShort(ROUTER_LIFETIME)) & 0xFFFF;
+        if(lifetime != 0)
+        {
+            netIf.setDefaultRouter(source);
+        }
+        else if(source.equals(netIf.getDefaultRouter()))
+        {
+            netIf.setDefaultRouter(null);
+        }
+        int offset = RA_SIZE;
+        while(offset + 2 <= length)
+        {
+            int type = icmp.loadByte(Offset.fromIntZeroExtend(offset)) & 0xFF;
+            int size = (icmp.loadByte(Offset.fromIntZeroExtend(offset + 1)) & 0xFF) * 8;
+            if(size == 0 || offset + size > length)
+            {
+                return;
+            }
+            Address option = icmp.plus(offset);
+            if(type == OPTION_SOURCE_LL)
+            {
+                netIf.getNeighborCache().update(source, readMac(option));
+            }
+            else if(type == OPTION_PREFIX_INFO && size == 32)
+            {
+                int prefixLength = option.loadByte(Offset.fromIntZeroExtend(2)) & 0xFF;
+                int flags = option.loadByte(Offset.fromIntZeroExtend(3)) & 0xFF;
+                if((flags & PREFIX_AUTONOMOUS) != 0 && prefixLength == SLAAC_PREFIX_LENGTH)
+                {
+                    byte prefix[] = new byte[8];
+                    for(int i=0; i < prefix.length; i++)
+                    {
+                        prefix[i] = option.loadByte(Offset.fromIntZeroExtend(16 + i));
+                    }
+                    netIf.addPrefix(prefix);
+                }
+            }
+            offset += size;
+        }
+    }
+
+    /**
+     * Solicit the link local address of a neighbour
+     */
+    static void sendNeighborSolicitation(Inet6Interface netIf, Inet6Address target)
+    {
+        int size = ND_SIZE + LL_OPTION_SIZE;
+        byte frame[] = Ip6.allocate(size);
+        Address ns = Magic.objectAsAddress(frame).plus(Ip6.PAYLOAD_OFFSET);
+        ns.store((byte)NEIGHBOR_SOLICITATION, TYPE);
+        target.store(ns, TARGET);
+        storeLinkLayerOption(netIf, ns, ND_SIZE, OPTION_SOURCE_LL);
+        send(netIf, netIf.sourceFor(target), target.solicitedNode(), frame, size, ND_HOP_LIMIT, false);
+    }
+
+    /**
+     * Ask routers to send an advertisement now instead of waiting for the
+     * periodic one
+     */
+    static void sendRouterSolicitation(Inet6Interface netIf)
+    {
+        int size = HEADER_SIZE + LL_OPTION_SIZE;
+        byte frame[] = Ip6.allocate(size);
+        Address rs = Magic.objectAsAddress(frame).plus(Ip6.PAYLOAD_OFFSET);
+        rs.store((byte)ROUTER_SOLICITATION, TYPE);
+        storeLinkLayerOption(netIf, rs, HEADER_SIZE, OPTION_SOURCE_LL);
+        send(netIf, netIf.getLinkLocal(), Inet6Address.ALL_ROUTERS, frame, size, ND_HOP_LIMIT, false);
+    }
+
+    private static void send(Inet6Interface netIf, Inet6Address source, Inet6Address destination, byte frame[],
+                             int length, int hopLimit, boolean wait)
+    {
+        Address icmp = Magic.objectAsAddress(frame).plus(Ip6.PAYLOAD_OFFSET);
+        icmp.store((short)0, CHECKSUM);
+        short checksum = Ip6.checksum(icmp, length,
+                                      Ip6.pseudoHeaderSum(source, destination, length, IpProto.ICMPV6.protocol()));
+        icmp.store(ByteOrder.hostToNetwork(checksum), CHECKSUM);
+        Ip6.stats.icmpOut();
+        Ip6.send(netIf, source, destination, IpProto.ICMPV6.protocol(), frame, length, hopLimit, wait);
+    }
+
+    private void storeLinkLayerOption(Address icmp, int offset, int type)
+    {
+        storeLinkLayerOption(netIf, icmp, offset, type);
+    }
+
+    private static void storeLinkLayerOption(Inet6Interface netIf, Address icmp, int offset, int type)
+    {
+        byte mac[] = netIf.getNetworkInterface().getEthernetAddress().asArray();
+        Address option = icmp.plus(offset);
+        option.store((byte)type);
+        option.store((byte)(LL_OPTION_SIZE / 8), CODE);
+        for(int i=0; i < mac.length; i++)
+        {
+            option.store(mac[i], Offset.fromIntZeroExtend(2 + i));
+        }
+    }
+
+    /**
+     * Walk the options looking for a link layer address option
+     * @return the mac address or null if the option is not present
+     */
+    private static EthernetAddr findLinkLayerOption(Address icmp, int offset, int length, int type)
+    {
+        while(offset + 2 <= length)
+        {
+            int optionType = icmp.loadByte(Offset.fromIntZeroExtend(offset)) & 0xFF;
+            int size = (icmp.loadByte(Offset.fromIntZeroExtend(offset + 1)) & 0xFF) * 8;
+            if(size == 0 || offset + size > length)
+            {
+                return null;
+            }
+            if(optionType == type && size == LL_OPTION_SIZE)
+            {
+                return readMac(icmp.plus(offset));
+            }
+            offset += size;
+        }
+        return null;
+    }
+
+    private static EthernetAddr readMac(Address option)
+    {
+        byte mac[] = new byte[6];
+        for(int i=0; i < mac.length; i++)
+        {
+            mac[i] = option.loadByte(Offset.fromIntZeroExtend(2 + i));
+        }
+        return new EthernetAddr(mac);
+    }
+}
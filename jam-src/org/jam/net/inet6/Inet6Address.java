@@ -0,0 +1,249 @@
+/**
+ * Created on Oct 19, 2026
+ *
+ * Copyright (C) Joe Kulig, 2026
+ * All rights reserved.
+ */
+package org.jam.net.inet6;
+
+import org.jam.net.ethernet.EthernetAddr;
+import org.jam.utilities.HexChar;
+import org.vmmagic.unboxed.Address;
+import org.vmmagic.unboxed.Offset;
+
+/**
+ * @author Joe Kulig
+ *
+ * A 128 bit IPv6 address kept in network byte order
+ */
+public class Inet6Address
+{
+    public static final int         SIZE        = 16;
+    final private byte              addrBytes[];
+    private String                  string      = null;
+    public static final Inet6Address UNSPECIFIED = new Inet6Address(new byte[SIZE]);
+    public static final Inet6Address ALL_NODES   = new Inet6Address(0xFF02, 0, 0, 0, 0, 0, 0, 1);
+    public static final Inet6Address ALL_ROUTERS = new Inet6Address(0xFF02, 0, 0, 0, 0, 0, 0, 2);
+
+    public Inet6Address(byte[] address)
+    {
+        addrBytes = address;
+    }
+
+    public Inet6Address(java.net.InetAddress inetAddress)
+    {
+        this(inetAddress.getAddress());
+    }
+
+    /*
+     * Create address from eight 16 bit groups
+     */
+    public Inet6Address(int g0, int g1, int g2, int g3, int g4, int g5, int g6, int g7)
+    {
+        addrBytes = new byte[SIZE];
+        int groups[] = { g0, g1, g2, g3, g4, g5, g6, g7 };
+        for(int i=0; i < 8; i++)
+        {
+            addrBytes[2*i] = (byte)(groups[i] >> 8);
+            addrBytes[2*i+1] = (byte)groups[i];
+        }
+    }
+
+    /**
+     * Read an address out of a packet header
+     * @param header start of the header
+     * @param offset offset of the address field
+     */
+    public Inet6Address(Address header, Offset offset)
+    {
+        addrBytes = new byte[SIZE];
+        for(int i=0; i < SIZE; i++)
+        {
+            addrBytes[i] = header.loadByte(offset.plus(i));
+        }
+    }
+
+    /**
+     * Build an address from a 64 bit prefix and the modified EUI-64
+     * interface identifier of a mac address
+     * @param prefix the prefix; only the first 8 bytes are used
+     * @param mac interface mac address
+     */
+    public Inet6Address(byte[] prefix, EthernetAddr mac)
+    {
+        byte macBytes[] = mac.asArray();
+        addrBytes = new byte[SIZE];
+        for(int i=0; i < 8; i++)
+        {
+            addrBytes[i] = prefix[i];
+        }
+        addrBytes[8] = (byte)(macBytes[0] ^ 0x02);
+        addrBytes[9] = macBytes[1];
+        addrBytes[10] = macBytes[2];
+        addrBytes[11] = (byte)0xFF;
+        addrBytes[12] = (byte)0xFE;
+        addrBytes[13] = macBytes[3];
+        addrBytes[14] = macBytes[4];
+        addrBytes[15] = macBytes[5];
+    }
+
+    /**
+     * Link local address (fe80::/64) for a mac address
+     */
+    public static Inet6Address linkLocal(EthernetAddr mac)
+    {
+        byte prefix[] = new byte[8];
+        prefix[0] = (byte)0xFE;
+        prefix[1] = (byte)0x80;
+        return new Inet6Address(prefix, mac);
+    }
+
+    /**
+     * Solicited-node multicast address (ff02::1:ffXX:XXXX) used for
+     * neighbour solicitations
+     */
+    public Inet6Address solicitedNode()
+    {
+        byte addr[] = new byte[SIZE];
+        addr[0] = (byte)0xFF;
+        addr[1] = (byte)0x02;
+        addr[11] = 0x01;
+        addr[12] = (byte)0xFF;
+        addr[13] = addrBytes[13];
+        addr[14] = addrBytes[14];
+        addr[15] = addrBytes[15];
+        return new Inet6Address(addr);
+    }
+
+    /**
+     * Ethernet multicast address (33:33:xx:xx:xx:xx) for a multicast address
+     */
+    public EthernetAddr multicastMac()
+    {
+        return new EthernetAddr((byte)0x33, (byte)0x33, addrBytes[12], addrBytes[13], addrBytes[14], addrBytes[15]);
+    }
+
+    /**
+     * Store the address into a packet header
+     */
+    public void store(Address header, Offset offset)
+    {
+        for(int i=0; i < SIZE; i++)
+        {
+            header.store(addrBytes[i], offset.plus(i));
+        }
+    }
+
+    /**
+     * Ones complement sum of the address as 16 bit words, used for the
+     * upper layer pseudo header checksum
+     */
+    public int sum()
+    {
+        int sum = 0;
+        for(int i=0; i < SIZE; i+=2)
+        {
+            sum += ((addrBytes[i] & 0xFF) << 8) | (addrBytes[i+1] & 0xFF);
+        }
+        return sum;
+    }
+
+    public boolean isUnspecified()
+    {
+        for(int i=0; i < SIZE; i++)
+        {
+            if(addrBytes[i] != 0)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean isMulticast()
+    {
+        return addrBytes[0] == (byte)0xFF;
+    }
+
+    public boolean isLinkLocal()
+    {
+        return addrBytes[0] == (byte)0xFE && (addrBytes[1] & 0xC0) == 0x80;
+    }
+
+    /**
+     * @return true if the address is an IPv4 mapped address (::ffff:a.b.c.d)
+     */
+    public boolean isInet4Mapped()
+    {
+        for(int i=0; i < 10; i++)
+        {
+            if(addrBytes[i] != 0)
+            {
+                return false;
+            }
+        }
+        return addrBytes[10] == (byte)0xFF && addrBytes[11] == (byte)0xFF;
+    }
+
+    /**
+     * @return the IPv4 part of a mapped address
+     */
+    public int inet4()
+    {
+        return ((addrBytes[12] & 0xFF) << 24) | ((addrBytes[13] & 0xFF) << 16) | ((addrBytes[14] & 0xFF) << 8)
+                | (addrBytes[15] & 0xFF);
+    }
+
+    final public byte[] asArray()
+    {
+        return addrBytes;
+    }
+
+    public boolean equals(Object other)
+    {
+        if(!(other instanceof Inet6Address))
+        {
+            return false;
+        }
+        byte otherBytes[] = ((Inet6Address)other).addrBytes;
+        for(int i=0; i < SIZE; i++)
+        {
+            if(addrBytes[i] != otherBytes[i])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int hashCode()
+    {
+        int hash = 0;
+        for(int i=0; i < SIZE; i+=4)
+        {
+            hash ^= ((addrBytes[i] & 0xFF) << 24) | ((addrBytes[i+1] & 0xFF) << 16) | ((addrBytes[i+2] & 0xFF) << 8)
+                    | (addrBytes[i+3] & 0xFF);
+        }
+        return hash;
+    }
+
+    public String toString()
+    {
+        if (string == null)
+        {
+            char addrChar[] = new char[39];
+            int index = 0;
+            for(int i=0; i < SIZE; i++)
+            {
+                if(i > 0 && (i & 1) == 0)
+                {
+                    addrChar[index++] = ':';
+                }
+                addrChar[index++] = HexChar.getChar((addrBytes[i]>>4) & 0xF);
+                addrChar[index++] = HexChar.getChar(addrBytes[i] & 0xF);
+            }
+            string = new String(addrChar);
+        }
+        return string;
+    }
+}
@@ -0,0 +1,194 @@
+/**
+ * Created on Oct 19, 2026
+ *
+ * Copyright (C) Joe Kulig, 2026
+ * All rights reserved.
+ */
+package org.jam.net.inet6;
+
+import java.util.ArrayList;
+
+import org.jam.net.NetworkInterface;
+import org.jam.net.ethernet.EthernetAddr;
+
+/**
+ * @author Joe Kulig
+ *
+ * IPv6 state of a network interface: its addresses, the neighbour cache and
+ * the default router learned from router advertisements.
+ *
+ * Duplicate address detection is not done; addresses are used as soon as
+ * they are configured.
+ */
+public class Inet6Interface
+{
+    private static final boolean DEBUG = false;
+    private final static int PREFIX_SIZE = 8;
+    private static Inet6Interface defaultInterface;
+
+    private final NetworkInterface networkInterface;
+    private final NeighborCache neighbors;
+    private final ArrayList<Inet6Address> addresses;
+    private Inet6Address linkLocal;
+    private Inet6Address defaultRouter;
+
+    public Inet6Interface(NetworkInterface networkInterface)
+    {
+        this.networkInterface = networkInterface;
+        neighbors = new NeighborCache(this);
+        addresses = new ArrayList<Inet6Address>();
+    }
+
+    /**
+     * Configure the link local address and ask for router advertisements
+     * so a global address can be configured.
+     */
+    public void boot()
+    {
+        linkLocal = Inet6Address.linkLocal(networkInterface.getEthernetAddress());
+        addAddress(linkLocal);
+        if(defaultInterface == null)
+        {
+            defaultInterface = this;
+        }
+        Icmp6.sendRouterSolicitation(this);
+    }
+
+    public static Inet6Interface getDefault()
+    {
+        return defaultInterface;
+    }
+
+    public NetworkInterface getNetworkInterface()
+    {
+        return networkInterface;
+    }
+
+    public NeighborCache getNeighborCache()
+    {
+        return neighbors;
+    }
+
+    public Inet6Address getLinkLocal()
+    {
+        return linkLocal;
+    }
+
+    public synchronized void addAddress(Inet6Address address)
+    {
+        if(!addresses.contains(address))
+        {
+            if(DEBUG) System.out.println("inet6 address "+address);
+            addresses.add(address);
+        }
+    }
+
+    /**
+     * Configure an address from an advertised 64 bit prefix (SLAAC)
+     */
+    void addPrefix(byte prefix[])
+    {
+        addAddress(new Inet6Address(prefix, networkInterface.getEthernetAddress()));
+    }
+
+    public synchronized boolean hasAddress(Inet6Address address)
+    {
+        return addresses.contains(address);
+    }
+
+    void setDefaultRouter(Inet6Address router)
+    {
+        defaultRouter = router;
+    }
+
+    public Inet6Address getDefaultRouter()
+    {
+        return defaultRouter;
+    }
+
+    /**
+     * @return true if a packet sent to destination is for this interface
+     */
+    public synchronized boolean accepts(Inet6Address destination)
+    {
+        if(destination.equals(Inet6Address.ALL_NODES))
+        {
+            return true;
+        }
+        for(int i=0; i < addresses.size(); i++)
+        {
+            Inet6Address address = addresses.get(i);
+            if(destination.equals(address) || destination.equals(address.solicitedNode()))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Pick a source address for a destination. Link local and multicast
+     * destinations use the link local address, everything else the first
+     * global address.
+     */
+    public synchronized Inet6Address sourceFor(Inet6Address destination)
+    {
+        if(!destination.isLinkLocal() && !destination.isMulticast())
+        {
+            for(int i=0; i < addresses.size(); i++)
+            {
+                Inet6Address address = addresses.get(i);
+                if(!address.isLinkLocal())
+                {
+                    return address;
+                }
+            }
+        }
+        return linkLocal;
+    }
+
+    /**
+     * A destination is on link if it is link local or shares the prefix of
+     * one of the configured addresses. Otherwise it goes to the default router.
+     */
+    public synchronized Inet6Address nextHop(Inet6Address destination)
+    {
+        if(destination.isLinkLocal())
+        {
+            return destination;
+        }
+        byte dst[] = destination.asArray();
+        for(int i=0; i < addresses.size(); i++)
+        {
+            byte src[] = addresses.get(i).asArray();
+            int b;
+            for(b=0; b < PREFIX_SIZE && src[b] == dst[b]; b++)
+                ;
+            if(b == PREFIX_SIZE)
+            {
+                return destination;
+            }
+        }
+        return defaultRouter;
+    }
+
+    /**
+     * Find the mac address to send a packet to
+     * @param destination destination address
+     * @param wait block waiting for neighbour advertisements
+     * @return the mac address or null if there is no route
+     */
+    public EthernetAddr resolve(Inet6Address destination, boolean wait)
+    {
+        if(destination.isMulticast())
+        {
+            return destination.multicastMac();
+        }
+        Inet6Address hop = nextHop(destination);
+        if(hop == null)
+        {
+            return null;
+        }
+        return neighbors.resolve(hop, wait);
+    }
+}
@@ -0,0 +1,195 @@
+/**
+ * Created on Oct 19, 2026
+ *
+ * Copyright (C) Joe Kulig, 2026
+ * All rights reserved.
+ */
+package org.jam.net.inet6;
+
+import org.jam.driver.net.PacketBuffer;
+import org.jam.net.ByteOrder;
+import org.jam.net.EtherType;
+import org.jam.net.InetPacket;
+import org.jam.net.Ip6Stats;
+import org.jam.net.IpProto;
+import org.jam.net.Udp;
+import org.jam.net.ethernet.Ethernet;
+import org.jam.net.ethernet.EthernetAddr;
+import org.jikesrvm.VM;
+import org.jikesrvm.runtime.Magic;
+import org.vmmagic.unboxed.Address;
+import org.vmmagic.unboxed.Offset;
+
+/**
+ * @author Joe Kulig
+ *
+ * IPv6 header processing. Like Ip the header fields are read and written in
+ * place through the packet address.
+ */
+public class Ip6 {
+    private final static int VERSION = 6;
+    public final static int HEADER_SIZE = 40;
+    /*
+     * Offset of the upper layer payload in a frame from allocate()
+     */
+    public final static int PAYLOAD_OFFSET = Ethernet.HEADER_SIZE + HEADER_SIZE;
+    private final static Offset LENGTH_FIELD = Offset.fromIntSignExtend(4);
+    private final static Offset NEXT_HEADER_FIELD = Offset.fromIntSignExtend(6);
+    private final static Offset HOP_LIMIT_FIELD = Offset.fromIntSignExtend(7);
+    private final static Offset SRCADDR_FIELD = Offset.fromIntSignExtend(8);
+    private final static Offset DSTADDR_FIELD = Offset.fromIntSignExtend(24);
+    /*
+     * Extension headers that are skipped on receive
+     */
+    private final static int HOP_BY_HOP = 0;
+    private final static int ROUTING = 43;
+    private final static int DEST_OPTIONS = 60;
+    private static final boolean DEBUG_RX = false;
+
+    static final Ip6Stats stats = new Ip6Stats();
+    private final Inet6Interface netIf;
+    private final Icmp6 icmp;
+
+    public Ip6(Inet6Interface netIf)
+    {
+        this.netIf = netIf;
+        icmp = new Icmp6(netIf);
+    }
+
+    final public void receive(InetPacket packet)
+    {
+        stats.inReceive();
+        Address ipHeader = packet.getPacketAddress();
+        int version = (ipHeader.loadByte() >> 4) & 0xF;
+        if(version != VERSION || packet.getSize() < HEADER_SIZE)
+        {
+            stats.headerError();
+            return;
+        }
+        int payloadLength = ByteOrder.networkToHost(ipHeader.loadShort(LENGTH_FIELD)) & 0xFFFF;
+        if(packet.getSize() < HEADER_SIZE + payloadLength)
+        {
+            stats.truncated();
+            return;
+        }
+        Inet6Address destination = new Inet6Address(ipHeader, DSTADDR_FIELD);
+        if(!netIf.accepts(destination))
+        {
+            stats.addressError();
+            return;
+        }
+        Inet6Address source = new Inet6Address(ipHeader, SRCADDR_FIELD);
+        int hopLimit = ipHeader.loadByte(HOP_LIMIT_FIELD) & 0xFF;
+        int nextHeader = ipHeader.loadByte(NEXT_HEADER_FIELD) & 0xFF;
+        packet.pull(HEADER_SIZE);
+        /*
+         * Skip over extension headers. Their length is in 8 octet units
+         * not counting the first 8 octets.
+         */
+        while(nextHeader == HOP_BY_HOP || nextHeader == ROUTING || nextHeader == DEST_OPTIONS)
+        {
+            Address extension = packet.getPacketAddress();
+            int length = ((extension.loadByte(Offset.fromIntZeroExtend(1)) & 0xFF) + 1) * 8;
+            if(length > payloadLength)
+            {
+                stats.headerError();
+                return;
+            }
+            nextHeader = extension.loadByte() & 0xFF;
+            packet.pull(length);
+            payloadLength -= length;
+        }
+        if(DEBUG_RX) VM.sysWriteln("ip6.receive next header ", nextHeader);
+        if(nextHeader == IpProto.ICMPV6.protocol())
+        {
+            stats.inDeliver();
+            icmp.receive(packet, source, destination, payloadLength, hopLimit);
+        }
+        else if(nextHeader == IpProto.UDP.protocol())
+        {
+            stats.inDeliver();
+            Udp.receive6(packet, source, destination, payloadLength);
+        }
+        else
+        {
+            // fragment headers (44) are not supported and are counted here too
+            stats.unknownProto();
+        }
+    }
+
+    /**
+     * Allocate a frame with room for the ethernet and IPv6 headers in
+     * front of the payload. The payload starts at PAYLOAD_OFFSET.
+     * @param payloadLength size of the upper layer payload
+     */
+    public static byte[] allocate(int payloadLength)
+    {
+        return new byte[PAYLOAD_OFFSET + payloadLength];
+    }
+
+    /**
+     * Fill in the IPv6 header of a frame from allocate() and send it
+     * @param netIf interface to send on
+     * @param source source address
+     * @param destination destination address
+     * @param nextHeader upper layer protocol
+     * @param frame frame from allocate()
+     * @param payloadLength size of the upper layer payload
+     * @param hopLimit hop limit
+     * @param wait block waiting for neighbour resolution
+     * @return false if the next hop could not be resolved
+     */
+    public static boolean send(Inet6Interface netIf, Inet6Address source, Inet6Address destination,
+                               int nextHeader, byte frame[], int payloadLength, int hopLimit, boolean wait)
+    {
+        stats.outRequest();
+        EthernetAddr mac = netIf.resolve(destination, wait);
+        if(mac == null)
+        {
+            stats.noRoute();
+            return false;
+        }
+        Address ipHeader = Magic.objectAsAddress(frame).plus(Ethernet.HEADER_SIZE);
+        // version, traffic class 0, flow label 0
+        ipHeader.store(ByteOrder.hostToNetwork(VERSION << 28));
+        ipHeader.store(ByteOrder.hostToNetwork((short)payloadLength), LENGTH_FIELD);
+        ipHeader.store((byte)nextHeader, NEXT_HEADER_FIELD);
+        ipHeader.store((byte)hopLimit, HOP_LIMIT_FIELD);
+        source.store(ipHeader, SRCADDR_FIELD);
+        destination.store(ipHeader, DSTADDR_FIELD);
+        netIf.getNetworkInterface().send(mac, new PacketBuffer(frame, Ethernet.HEADER_SIZE), EtherType.IPV6.type());
+        return true;
+    }
+
+    /**
+     * Sum of the upper layer pseudo header
+     */
+    public static int pseudoHeaderSum(Inet6Address source, Inet6Address destination, int length, int nextHeader)
+    {
+        return source.sum() + destination.sum() + length + nextHeader;
+    }
+
+    /**
+     * Ones complement checksum of an upper layer packet
+     * @param data start of the upper layer header
+     * @param length upper layer length
+     * @param sum pseudo header sum
+     * @return checksum in host order; 0 means the packet verified
+     */
+    public static short checksum(Address data, int length, int sum)
+    {
+        for (int words = length >> 1; words > 0; words--)
+        {
+            sum += ByteOrder.networkToHost(data.loadShort()) & 0xFFFF;
+            data = data.plus(2);
+        }
+        if ((length & 0x1) != 0)
+        {
+            sum += (data.loadByte() & 0xFF) << 8;
+        }
+        // Add the carry overs
+        sum = (sum >> 16) + (sum & 0xFFFF);
+        sum += (sum >> 16);
+        return (short)~sum;
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * Created on Oct 19, 2026
+ *
+ * Copyright (C) Joe Kulig, 2026
+ * All rights reserved.
+ */
+package org.jam.net.inet6;
+
+import java.util.HashMap;
+
+import org.jam.net.ethernet.EthernetAddr;
+
+/**
+ * @author Joe Kulig
+ *
+ * IPv6 neighbour cache. This is the IPv6 counterpart of the ArpTable;
+ * entries are learned from neighbour advertisements and from the link layer
+ * address options of solicitations and router advertisements.
+ */
+public class NeighborCache
+{
+    private static final boolean DEBUG = false;
+    private final static int RETRIES = 3;
+    private final static long RETRANS_TIMER = 1000; // milliseconds
+    private final HashMap<Inet6Address, EthernetAddr> table;
+    private final Inet6Interface netIf;
+
+    NeighborCache(Inet6Interface netIf)
+    {
+        this.netIf = netIf;
+        table = new HashMap<Inet6Address, EthernetAddr>();
+    }
+
+    public synchronized EthernetAddr find(Inet6Address inet)
+    {
+        return table.get(inet);
+    }
+
+    /**
+     * Add or replace an entry and wake up any thread waiting in resolve()
+     */
+    public synchronized void update(Inet6Address inet, EthernetAddr mac)
+    {
+        if(DEBUG) System.out.println("neighbor update "+inet+" "+mac);
+        table.put(inet, mac);
+        notifyAll();
+    }
+
+    public synchronized void remove(Inet6Address inet)
+    {
+        table.remove(inet);
+    }
+
+    /**
+     * Find the link layer address of a neighbour, sending neighbour
+     * solicitations if it is not cached.
+     * @param inet neighbour address
+     * @param wait if false only one solicitation is sent and the call does
+     * not block. The protocol processor uses this since it is the thread that
+     * receives the advertisement.
+     * @return the mac address or null if the neighbour did not answer
+     */
+    public EthernetAddr resolve(Inet6Address inet, boolean wait)
+    {
+        EthernetAddr mac = find(inet);
+        if(mac != null)
+        {
+            return mac;
+        }
+        for(int retry=0; retry < RETRIES; retry++)
+        {
+            Icmp6.sendNeighborSolicitation(netIf, inet);
+            if(!wait)
+            {
+                return null;
+            }
+            synchronized(this)
+            {
+                mac = table.get(inet);
+                if(mac == null)
+                {
+                    try
+                    {
+                        wait(RETRANS_TIMER);
+                    }
+                    catch (InterruptedException e)
+                    {
+                        return null;
+                    }
+                    mac = table.get(inet);
+                }
+            }
+            if(mac != null)
+            {
+                return mac;
+            }
+        }
+        if(DEBUG) System.out.println("neighbor unreachable "+inet);
+        return null;
+    }
+}
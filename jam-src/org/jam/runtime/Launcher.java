@@ -0,0 +1,190 @@
+/**
+ * Created on Oct 19, 2026
+ *
+ * Copyright (C) Joe Kulig, 2026
+ * All rights reserved.
+ */
+package org.jam.runtime;
+
+import org.jam.board.pc.Multiboot;
+import org.jikesrvm.VM;
+import org.jikesrvm.classloader.RVMClassLoader;
+
+/**
+ * @author Joe Kulig
+ *
+ * Runs an application from jars loaded as multiboot modules, so the same
+ * image can run different applications without being rebuilt. The kernel
+ * command line is read like a java command line
+ *   jam.out -jar app.jar [args]
+ *   jam.out -cp app.jar:lib.jar main.Class [args]
+ * where each jar names the module whose command line has it as a word or
+ * as the last part of a path. The classes are loaded on demand by a
+ * ModuleClassLoader and baseline compiled when first called, an adaptive
+ * image recompiles the hot ones like any other code.
+ */
+public class Launcher extends Thread
+{
+    private final static boolean DEBUG = false;
+    private final String classPath[];
+    private final boolean jar;
+    private final String args[];
+
+    private Launcher(String classPath[], boolean jar, String args[])
+    {
+        super("Launcher");
+        setDaemon(false);
+        this.classPath = classPath;
+        this.jar = jar;
+        this.args = args;
+    }
+
+    /**
+     * Start the launcher if the command line asks for it. Called by the
+     * boot thread, the jars are read by the launcher thread.
+     */
+    public static void boot()
+    {
+        byte line[] = new byte[Multiboot.MAX_COMMAND_LINE];
+        String words[] = split(ascii(line, Multiboot.getCommandLine(line)), ' ');
+        String classPath = null;
+        boolean jar = false;
+        // the first word is the image
+        int i = 1;
+        while(i < words.length && words[i].startsWith("-"))
+        {
+            if(words[i].equals("-jar") && i + 1 < words.length)
+            {
+                classPath = words[i + 1];
+                jar = true;
+                i += 2;
+                break;
+            }
+            else if((words[i].equals("-cp") || words[i].equals("-classpath")) && i + 1 < words.length)
+            {
+                classPath = words[i + 1];
+                i += 2;
+            }
+            else
+            {
+                VM.sysWriteln("Launcher: ignoring ", words[i]);
+                i++;
+            }
+        }
+        if(classPath == null)
+        {
+            return;
+        }
+        if(!jar && i == words.length)
+        {
+            VM.sysWriteln("Launcher: no main class given");
+            return;
+        }
+        String args[] = new String[words.length - i];
+        System.arraycopy(words, i, args, 0, args.length);
+        new Launcher(split(classPath, ':'), jar, args).start();
+    }
+
+    @Override
+    public void run()
+    {
+        int modules[] = new int[classPath.length];
+        for(int i=0; i < classPath.length; i++)
+        {
+            modules[i] = findModule(classPath[i]);
+            if(modules[i] < 0)
+            {
+                VM.sysWriteln("Launcher: no module ", classPath[i]);
+                return;
+            }
+        }
+        ModuleClassLoader loader;
+        String mainArgs[] = args;
+        try
+        {
+            loader = new ModuleClassLoader(modules, RVMClassLoader.getApplicationClassLoader());
+            if(jar)
+            {
+                String mainClass = loader.getMainClass();
+                if(mainClass == null)
+                {
+                    VM.sysWriteln("Launcher: no Main-Class in ", classPath[0]);
+                    return;
+                }
+                mainArgs = new String[args.length + 1];
+                mainArgs[0] = mainClass;
+                System.arraycopy(args, 0, mainArgs, 1, args.length);
+            }
+        }
+        catch (ClassFormatError e)
+        {
+            VM.sysWriteln("Launcher: ", e.getMessage());
+            return;
+        }
+        if(DEBUG) VM.sysWriteln("Launcher: starting ", mainArgs[0]);
+        new MainThread(mainArgs, loader).start();
+    }
+
+    /*
+     * The module whose command line has the name as a word or as the
+     * last part of a path
+     */
+    private static int findModule(String name)
+    {
+        byte line[] = new byte[Multiboot.MAX_MODULE_NAME];
+        for(int module=0; module < Multiboot.getModuleCount(); module++)
+        {
+            String words[] = split(ascii(line, Multiboot.getModuleName(module, line)), ' ');
+            for(int i=0; i < words.length; i++)
+            {
+                if(words[i].equals(name) || words[i].endsWith("/" + name))
+                {
+                    return module;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static String ascii(byte text[], int length)
+    {
+        char chars[] = new char[length];
+        for(int i=0; i < length; i++)
+        {
+            chars[i] = (char)(text[i] & 0xFF);
+        }
+        return new String(chars);
+    }
+
+    /*
+     * Split text into words at a separator
+     */
+    private static String[] split(String text, char separator)
+    {
+        int count = 0;
+        int length = text.length();
+        for(int i=0; i < length; i++)
+        {
+            if(text.charAt(i) != separator && (i == 0 || text.charAt(i - 1) == separator))
+            {
+                count++;
+            }
+        }
+        String words[] = new String[count];
+        int word = 0;
+        int start = 0;
+        for(int i=0; i <= length; i++)
+        {
+            if(i < length && text.charAt(i) != separator)
+            {
+                continue;
+            }
+            if(i > start)
+            {
+                words[word++] = text.substring(start, i);
+            }
+            start = i + 1;
+        }
+        return words;
+    }
+}
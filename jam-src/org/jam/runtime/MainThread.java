@@ -27,6 +27,7 @@ import org.vmmagic.pragma.Entrypoint;
  */
 public final class MainThread extends Thread {
   private final String[] args;
+  private final ClassLoader loader;
   private RVMMethod mainMethod;
   protected boolean launched = false;
   
@@ -38,9 +39,21 @@ public final class MainThread extends Thread {
    *  {@code args[1..N]}: parameters to pass to "main" method
    */
   public MainThread(String[] args) {
+    this(args, null);
+  }
+
+  /**
+   * Create "main" thread that loads the class with its own class loader.
+   * @param args {@code args[0]}: name of class containing "main" method;
+   *  {@code args[1..N]}: parameters to pass to "main" method
+   * @param loader class loader of the main class, {@code null} for the
+   *  application class loader
+   */
+  public MainThread(String[] args, ClassLoader loader) {
     super(args[0]);
     setDaemon(false); // NB otherwise we inherit the boot threads daemon status
     this.args = args;
+    this.loader = loader;
     
     if (dbg) {
       VM.sysWriteln("MainThread(args.length == ", args.length, "): constructor done");
@@ -70,7 +83,7 @@ public final class MainThread extends Thread {
     if (dbg) VM.sysWriteln("MainThread.run() starting ");
 
     // Set up application class loader
-    ClassLoader cl = RVMClassLoader.getApplicationClassLoader();
+    ClassLoader cl = loader != null ? loader : RVMClassLoader.getApplicationClassLoader();
     setContextClassLoader(cl);
 
     if (dbg) VM.sysWrite("[MainThread.run() loading class to run... ");
@@ -0,0 +1,229 @@
+/**
+ * Created on Oct 19, 2026
+ *
+ * Copyright (C) Joe Kulig, 2026
+ * All rights reserved.
+ */
+package org.jam.runtime;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.jam.board.pc.Multiboot;
+import org.vmmagic.unboxed.Address;
+import org.vmmagic.unboxed.Offset;
+
+/**
+ * @author Joe Kulig
+ *
+ * Loads classes from jar files the boot loader put in memory as multiboot
+ * modules. JOE has no file system, so the zip central directory is read
+ * straight out of the module and an entry is only inflated when its class
+ * or resource is asked for. Classes in the boot image come first, the
+ * parent is the application class loader.
+ */
+public class ModuleClassLoader extends ClassLoader
+{
+    private final static int END_SIGNATURE = 0x06054b50;
+    private final static int CENTRAL_SIGNATURE = 0x02014b50;
+    private final static int LOCAL_SIGNATURE = 0x04034b50;
+    private final static int END_SIZE = 22;
+    private final static int MAX_COMMENT = 0xFFFF;
+    private final static int STORED = 0;
+    private final static int DEFLATED = 8;
+    private final static String MANIFEST = "META-INF/MANIFEST.MF";
+    private final static String MAIN_CLASS = "Main-Class:";
+
+    private final static class Entry
+    {
+        Address start;                  // module start
+        int method;
+        int compressedSize;
+        int size;
+        int localHeader;                // offset in the module
+    }
+
+    private final HashMap<String, Entry> entries = new HashMap<String, Entry>();
+
+    /**
+     * @param modules the multiboot modules to load from, searched in order
+     * @param parent where to look first
+     * @throws ClassFormatError if a module isn't a jar
+     */
+    public ModuleClassLoader(int modules[], ClassLoader parent)
+    {
+        super(parent);
+        for(int i=0; i < modules.length; i++)
+        {
+            readDirectory(Multiboot.getModuleStart(modules[i]), Multiboot.getModuleEnd(modules[i]));
+        }
+    }
+
+    private void readDirectory(Address start, Address end)
+    {
+        int length = end.diff(start).toInt();
+        int endRecord = length - END_SIZE;
+        int limit = length - END_SIZE - MAX_COMMENT;
+        while(endRecord >= 0 && endRecord >= limit && start.loadInt(Offset.fromIntZeroExtend(endRecord)) != END_SIGNATURE)
+        {
+            endRecord--;
+        }
+        if(endRecord < 0 || endRecord < limit)
+        {
+            throw new ClassFormatError("module at " + Integer.toHexString(start.toInt()) + " is not a jar");
+        }
+        int count = loadShort(start, endRecord + 10);
+        int offset = start.loadInt(Offset.fromIntZeroExtend(endRecord + 16));
+        for(int i=0; i < count; i++)
+        {
+            if(start.loadInt(Offset.fromIntZeroExtend(offset)) != CENTRAL_SIGNATURE)
+            {
+                throw new ClassFormatError("bad jar directory entry " + i);
+            }
+            int nameLength = loadShort(start, offset + 28);
+            String name = loadName(start, offset + 46, nameLength);
+            // the first module with an entry wins, like a class path
+            if(!name.endsWith("/") && !entries.containsKey(name))
+            {
+                Entry entry = new Entry();
+                entry.start = start;
+                entry.method = loadShort(start, offset + 10);
+                entry.compressedSize = start.loadInt(Offset.fromIntZeroExtend(offset + 20));
+                entry.size = start.loadInt(Offset.fromIntZeroExtend(offset + 24));
+                entry.localHeader = start.loadInt(Offset.fromIntZeroExtend(offset + 42));
+                entries.put(name, entry);
+            }
+            offset += 46 + nameLength + loadShort(start, offset + 30) + loadShort(start, offset + 32);
+        }
+    }
+
+    private static int loadShort(Address start, int offset)
+    {
+        return start.loadChar(Offset.fromIntZeroExtend(offset));
+    }
+
+    /*
+     * Jar entry names are UTF-8. Class and resource names are ASCII in
+     * practice.
+     */
+    private static String loadName(Address start, int offset, int length)
+    {
+        char name[] = new char[length];
+        for(int i=0; i < length; i++)
+        {
+            name[i] = (char)(start.loadByte(Offset.fromIntZeroExtend(offset + i)) & 0xFF);
+        }
+        return new String(name);
+    }
+
+    /*
+     * Copy out and inflate an entry
+     */
+    private byte[] read(Entry entry)
+    {
+        Address start = entry.start;
+        int local = entry.localHeader;
+        if(start.loadInt(Offset.fromIntZeroExtend(local)) != LOCAL_SIGNATURE)
+        {
+            throw new ClassFormatError("bad jar entry header");
+        }
+        int data = local + 30 + loadShort(start, local + 26) + loadShort(start, local + 28);
+        byte compressed[] = new byte[entry.compressedSize];
+        for(int i=0; i < compressed.length; i++)
+        {
+            compressed[i] = start.loadByte(Offset.fromIntZeroExtend(data + i));
+        }
+        if(entry.method == STORED)
+        {
+            return compressed;
+        }
+        if(entry.method != DEFLATED)
+        {
+            throw new ClassFormatError("jar compression method " + entry.method);
+        }
+        byte bytes[] = new byte[entry.size];
+        Inflater inflater = new Inflater(true);
+        inflater.setInput(compressed);
+        try
+        {
+            int length = 0;
+            while(length < bytes.length && !inflater.finished())
+            {
+                length += inflater.inflate(bytes, length, bytes.length - length);
+            }
+        }
+        catch (DataFormatException e)
+        {
+            throw new ClassFormatError("corrupt jar entry: " + e.getMessage());
+        }
+        finally
+        {
+            inflater.end();
+        }
+        return bytes;
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException
+    {
+        Entry entry = entries.get(name.replace('.', '/') + ".class");
+        if(entry == null)
+        {
+            throw new ClassNotFoundException(name);
+        }
+        byte bytes[] = read(entry);
+        return defineClass(name, bytes, 0, bytes.length);
+    }
+
+    @Override
+    public InputStream getResourceAsStream(String name)
+    {
+        InputStream in = super.getResourceAsStream(name);
+        if(in != null)
+        {
+            return in;
+        }
+        Entry entry = entries.get(name.startsWith("/") ? name.substring(1) : name);
+        if(entry == null)
+        {
+            return null;
+        }
+        return new ByteArrayInputStream(read(entry));
+    }
+
+    /**
+     * @return the Main-Class attribute of the first manifest in the modules or null
+     */
+    public String getMainClass()
+    {
+        Entry entry = entries.get(MANIFEST);
+        if(entry == null)
+        {
+            return null;
+        }
+        byte manifest[] = read(entry);
+        int lineStart = 0;
+        for(int i=0; i <= manifest.length; i++)
+        {
+            if(i < manifest.length && manifest[i] != '\n' && manifest[i] != '\r')
+            {
+                continue;
+            }
+            char chars[] = new char[i - lineStart];
+            for(int c=0; c < chars.length; c++)
+            {
+                chars[c] = (char)(manifest[lineStart + c] & 0xFF);
+            }
+            String line = new String(chars);
+            if(line.startsWith(MAIN_CLASS))
+            {
+                return line.substring(MAIN_CLASS.length()).trim();
+            }
+            lineStart = i + 1;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,69 @@
+/**
+ * Created on Oct 19, 2026
+ *
+ * Copyright (C) Joe Kulig, 2026
+ * All rights reserved.
+ */
+package org.jam.runtime;
+
+import org.jikesrvm.VM;
+import org.jikesrvm.adaptive.controller.Controller;
+import org.jikesrvm.compilers.baseline.EdgeCounts;
+import org.jikesrvm.runtime.Callbacks;
+
+/**
+ * @author Joe Kulig
+ *
+ * Dump the profile gathered by a training run to the console so it can be
+ * fed back into the boot image writer. JOE has no file system so the
+ * sections the compilers already know how to read are written between
+ * markers and the boot image writer picks them out of the captured console
+ * log with -X:bc:profile=&lt;log&gt;.
+ *
+ * Edge counts need an image built with -X:bc:profile_edge_counters=true.
+ * The call graph is only available in adaptive builds.
+ */
+public class ProfileDump implements Callbacks.ExitMonitor
+{
+    public final static String BEGIN = "=== JOE PROFILE BEGIN ===";
+    public final static String END = "=== JOE PROFILE END ===";
+    public final static String EDGES = "--- edges";
+    public final static String CALLS = "--- calls";
+
+    private static boolean registered;
+
+    /**
+     * Write the profile now, e.g. at the end of the workload's warm-up
+     */
+    public static synchronized void dump()
+    {
+        System.out.println(BEGIN);
+        System.out.println(EDGES);
+        EdgeCounts.dumpCountsToStream(System.out);
+        if(VM.BuildForAdaptiveSystem && Controller.dcgAvailable())
+        {
+            System.out.println(CALLS);
+            Controller.dcg.dumpGraph(System.out);
+        }
+        System.out.println(END);
+        System.out.flush();
+    }
+
+    /**
+     * Write the profile when the VM exits
+     */
+    public static synchronized void dumpAtExit()
+    {
+        if(!registered)
+        {
+            registered = true;
+            Callbacks.addExitMonitor(new ProfileDump());
+        }
+    }
+
+    @Override
+    public void notifyExit(int value)
+    {
+        dump();
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * Created on Oct 19, 2026
+ *
+ * Copyright (C) Joe Kulig, 2026
+ * All rights reserved.
+ */
+package org.jam.tests;
+
+import java.util.HashMap;
+
+import org.jam.cpu.intel.Tsc;
+import org.jam.runtime.ProfileDump;
+import org.jikesrvm.runtime.Time;
+
+/**
+ * @author Joe Kulig
+ *
+ * Startup and steady state benchmark for the boot image layout. Build two
+ * images, one with the default placement and one with
+ *   -order &lt;log&gt;
+ * where the log is the console output of this benchmark run with the
+ * argument "profile" on an image built with
+ *   -X:bc:profile_edge_counters=true
+ * It dumps the profile once after the first iteration (startup) and again
+ * at the end (steady state). Compare the numbers printed by both images.
+ */
+public class BootImageLayoutBenchmark {
+  private final static int ITERATIONS = 1000;
+  private final static int ENTRIES = 256;
+
+  public static void main(String[] args)
+  {
+    long startupMs = Time.currentTimeMillis() - Time.bootTime();
+    long startupCycles = Tsc.getCycles();
+    boolean profile = args.length > 0 && args[0].equals("profile");
+
+    long start = Tsc.getCycles();
+    int check = iteration(0);
+    long firstCycles = Tsc.getCycles() - start;
+    if(profile)
+    {
+      ProfileDump.dump();
+    }
+    start = Tsc.getCycles();
+    for(int i=1; i < ITERATIONS; i++)
+    {
+      check += iteration(i);
+    }
+    long steadyCycles = (Tsc.getCycles() - start) / (ITERATIONS - 1);
+    if(profile)
+    {
+      ProfileDump.dump();
+    }
+    System.out.println("startup: " + startupMs + " ms since boot, " + startupCycles + " cycles since reset");
+    System.out.println("first iteration: " + firstCycles + " cycles");
+    System.out.println("steady state: " + steadyCycles + " cycles/iteration (check " + check + ")");
+  }
+
+  /**
+   * A mix of the library and runtime code applications spend their time in:
+   * boxing, hashing, string building and formatting
+   */
+  private static int iteration(int seed)
+  {
+    HashMap<String, Integer> map = new HashMap<String, Integer>();
+    StringBuilder sb = new StringBuilder();
+    for(int i=0; i < ENTRIES; i++)
+    {
+      sb.setLength(0);
+      sb.append("key").append(seed + i);
+      map.put(sb.toString(), i);
+    }
+    int sum = 0;
+    for(int i=0; i < ENTRIES; i++)
+    {
+      Integer value = map.get("key" + (seed + i));
+      if(value != null)
+      {
+        sum += value;
+      }
+    }
+    return sum + Long.toHexString(seed).length();
+  }
+}
@@ -0,0 +1,45 @@
+/**
+ * Created on Oct 19, 2026
+ *
+ * Copyright (C) Joe Kulig, 2026
+ * All rights reserved.
+ */
+package org.jam.tests;
+
+import org.jam.mm.PageFrameAllocator;
+
+/**
+ * @author Joe Kulig
+ *
+ * Checks that the idle thread's zeroing makes progress: repeated calls to
+ * zeroIdlePages() must run out of work with every free frame zeroed. Each
+ * call zeroes at least one dirty frame, so there can't be more calls than
+ * there are frames.
+ */
+public class IdleZeroingTest {
+    public static void main(String[] args)
+    {
+        long frames = PageFrameAllocator.getTotalBytes().toLong() >>> PageFrameAllocator.PAGE_SHIFT;
+        long calls = 0;
+        while(PageFrameAllocator.zeroIdlePages())
+        {
+            if(++calls > frames)
+            {
+                System.out.println("FAILED: zeroIdlePages() still busy after " + calls + " calls");
+                PageFrameAllocator.dumpZeroingStatistics();
+                return;
+            }
+        }
+        long free = PageFrameAllocator.getFreeBytes().toLong();
+        long zeroed = PageFrameAllocator.getZeroedFreeBytes().toLong();
+        if(zeroed != free)
+        {
+            System.out.println("FAILED: " + zeroed + " of " + free + " free bytes zeroed");
+        }
+        else
+        {
+            System.out.println("PASSED: " + free + " free bytes zeroed in " + calls + " calls");
+        }
+        PageFrameAllocator.dumpZeroingStatistics();
+    }
+}
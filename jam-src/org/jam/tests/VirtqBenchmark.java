@@ -0,0 +1,79 @@
+/**
+ * Created on Oct 19, 2026
+ *
+ * Copyright (C) Joe Kulig, 2026
+ * All rights reserved.
+ */
+package org.jam.tests;
+
+import org.jam.cpu.intel.Tsc;
+import org.jam.driver.net.VirtioNet;
+import org.jam.system.NoDeviceFoundException;
+
+/**
+ * @author Joe Kulig
+ *
+ * Transmit microbenchmark comparing the split and packed virtqueue layouts.
+ * Run under QEMU with a packed capable device, e.g.
+ *   -device virtio-net-pci,packed=on
+ */
+public class VirtqBenchmark {
+  private final static int FRAMES = 100000;
+  private final static int FRAME_SIZE = 64;
+
+  public static void main(String[] args)
+  {
+    VirtioNet net;
+    try
+    {
+      net = new VirtioNet();
+    }
+    catch (NoDeviceFoundException e)
+    {
+      System.out.println("No VirtioNet device found!");
+      return;
+    }
+    /*
+     * The same device is reset and set up again for each layout
+     */
+    net.boot(false);
+    long split = run(net);
+    net.boot(true);
+    if(!net.isPackedRing())
+    {
+      System.out.println("Device does not offer packed virtqueues");
+      return;
+    }
+    long packed = run(net);
+    System.out.print("split ring: ");
+    System.out.print(split);
+    System.out.println(" cycles/frame");
+    System.out.print("packed ring: ");
+    System.out.print(packed);
+    System.out.println(" cycles/frame");
+    System.out.print("packed/split: ");
+    System.out.print(packed * 100 / split);
+    System.out.println("%");
+  }
+
+  /**
+   * Returns the average cycles taken to transmit a frame
+   */
+  private static long run(VirtioNet net)
+  {
+    /*
+     * Broadcast frame so the host side does not need to route it
+     */
+    byte frame[] = new byte[FRAME_SIZE];
+    for(int i=0; i < 6; i++)
+    {
+      frame[i] = (byte)0xFF;
+    }
+    long start = Tsc.getCycles();
+    for(int i=0; i < FRAMES; i++)
+    {
+      net.transmit(frame);
+    }
+    return (Tsc.getCycles() - start) / FRAMES;
+  }
+}
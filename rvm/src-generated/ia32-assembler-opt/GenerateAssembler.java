@@ -1094,6 +1094,8 @@ public class GenerateAssembler {
     excludedOpcodes.add("CPUID");
     excludedOpcodes.add("RDMSR");
     excludedOpcodes.add("WRMSR");
+    excludedOpcodes.add("MONITOR");
+    excludedOpcodes.add("MWAIT");
     excludedOpcodes.add("XCHG");
     excludedOpcodes.add("MOVSEG");
     excludedOpcodes.add("IRETQ");
@@ -21,6 +21,7 @@ import static org.jikesrvm.runtime.UnboxedSizeConstants.BITS_IN_ADDRESS;
 import org.jam.board.pc.Platform;
 import org.jam.driver.serial.PcBootSerialPort;
 import org.jam.driver.serial.SerialPortBaudRate;
+import org.jam.runtime.Launcher;
 import org.jam.system.Trace;
 import org.jikesrvm.adaptive.controller.Controller;
 import org.jikesrvm.adaptive.util.CompilerAdvice;
@@ -752,6 +753,8 @@ public class VM extends Properties {
     System.setOut(Platform.serialPort.getPrintStream());
     System.setErr(Platform.serialPort.getPrintStream());
     System.out.println("System out printout!");
+    // Run the application on the multiboot command line, if any
+    Launcher.boot();
     // Schedule "main" thread for execution.
 //    if (verboseBoot >= 1) VM.sysWriteln("Starting main thread");
 //    mainThread.start();
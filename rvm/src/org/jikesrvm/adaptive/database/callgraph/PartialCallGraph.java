@@ -12,10 +12,9 @@
  */
 package org.jikesrvm.adaptive.database.callgraph;
 
-import java.io.BufferedWriter;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
+import java.io.PrintStream;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.TreeSet;
@@ -246,9 +245,9 @@ public final class PartialCallGraph implements Decayable, Reportable {
    * @param fn output file name
    */
   public synchronized void dumpGraph(String fn) {
-    final BufferedWriter f;
+    final PrintStream f;
     try {
-      f = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(fn), "ISO-8859-1"));
+      f = new PrintStream(new FileOutputStream(fn), false, "ISO-8859-1");
     } catch (IOException e) {
       VM.sysWriteln();
       VM.sysWriteln();
@@ -257,6 +256,16 @@ public final class PartialCallGraph implements Decayable, Reportable {
       VM.sysWriteln();
       return;
     }
+    dumpGraph(f);
+    f.close();
+  }
+
+  /**
+   * Dump all profile data to a stream in the format read by
+   * {@link org.jikesrvm.adaptive.util.DynamicCallFileInfoReader}
+   * @param f the stream to use
+   */
+  public synchronized void dumpGraph(final PrintStream f) {
     TreeSet<CallSite> tmp = new TreeSet<CallSite>(new OrderByTotalWeight());
     tmp.addAll(callGraph.keySet());
 
@@ -267,27 +276,26 @@ public final class PartialCallGraph implements Decayable, Reportable {
         public void visit(RVMMethod callee, double weight) {
           CodeArray callerArray = cs.getMethod().getCurrentEntryCodeArray();
           CodeArray calleeArray = callee.getCurrentEntryCodeArray();
-          try {
-            f.write("CallSite " +
-                    cs.getMethod().getMemberRef() +
-                    " " +
-                    callerArray.length() +
-                    " " +
-                    +cs.getBytecodeIndex() +
-                    " " +
-                    callee.getMemberRef() +
-                    " " +
-                    +calleeArray.length() +
-                    " weight: " +
-                    weight +
-                    "\n");
-            f.flush();
-          } catch (IOException exc) {
-            System.err.println("I/O error writing to dynamic call graph profile.");
-          }
+          f.print("CallSite " +
+                  cs.getMethod().getMemberRef() +
+                  " " +
+                  callerArray.length() +
+                  " " +
+                  +cs.getBytecodeIndex() +
+                  " " +
+                  callee.getMemberRef() +
+                  " " +
+                  +calleeArray.length() +
+                  " weight: " +
+                  weight +
+                  "\n");
         }
       });
     }
+    f.flush();
+    if (f.checkError()) {
+      System.err.println("I/O error writing to dynamic call graph profile.");
+    }
   }
 
   /**
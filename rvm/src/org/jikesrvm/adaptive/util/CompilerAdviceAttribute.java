@@ -181,6 +181,8 @@ public class CompilerAdviceAttribute {
   public static void registerCompilerAdvice(List<CompilerAdviceAttribute> compilerAdviceList) {
     // do nothing for empty list
     if (compilerAdviceList == null) return;
+    // advice may be given to the boot image compiler before the VM boots
+    if (attribMap == null) postBoot();
 
     hasAdvice = true;
 
@@ -214,6 +216,20 @@ public class CompilerAdviceAttribute {
     }
   }
 
+  /**
+   * Like {@link #getCompilerAdviceInfo} but safe to call from several
+   * compilation threads at once, as the boot image compiler does.
+   *
+   * @param method the method in question
+   * @return the advice for the method or {@code null} if there is none
+   */
+  public static CompilerAdviceAttribute lookup(RVMMethod method) {
+    if (attribMap == null) return null;
+    CompilerAdviceAttribute key = new CompilerAdviceAttribute(method.getDeclaringClass().getDescriptor(),
+        method.getName(), method.getDescriptor(), CompiledMethod.BASELINE);
+    return attribMap.get(key);
+  }
+
   public static Collection<CompilerAdviceAttribute> values() {
     return attribMap.values();
   }
@@ -211,6 +211,14 @@ public final class NormalMethod extends RVMMethod {
     return new BytecodeStream(this, bytecodes);
   }
 
+  /**
+   * Get a copy of the bytecodes in the code attribute of this method.
+   * @return the bytecodes
+   */
+  public byte[] getBytecodeArray() {
+    return bytecodes.clone();
+  }
+
   /**
    * Fill in DynamicLink object for the invoke at the given bytecode index
    * @param dynamicLink the dynamicLink object to initialize
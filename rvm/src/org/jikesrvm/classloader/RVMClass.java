@@ -195,6 +195,12 @@ public final class RVMClass extends RVMType {
    */
   private boolean inBootImage;
 
+  /**
+   * Is this boot image class left uninitialized in the boot image so that
+   * its class initializer runs on first use at run time?
+   */
+  private boolean initializeAtRuntime;
+
   /**
    * At what offset is the thin lock word to be found in instances of
    * objects of this type?  A value of -1 indicates that the instances of
@@ -1663,7 +1669,7 @@ public final class RVMClass extends RVMType {
     InterfaceInvocation.initializeDispatchStructures(this);
     SpecializedMethodManager.notifyTypeInstantiated(this);
 
-    if (VM.writingBootImage) {
+    if (VM.writingBootImage && !initializeAtRuntime) {
       state = CLASS_INITIALIZED;
       // Mark final fields as literals as class initializer won't have been called
       markFinalFieldsAsLiterals();
@@ -1672,7 +1678,7 @@ public final class RVMClass extends RVMType {
     }
 
     Callbacks.notifyClassInstantiated(this);
-    if (VM.writingBootImage) {
+    if (VM.writingBootImage && !initializeAtRuntime) {
       Callbacks.notifyClassInitialized(this);
     }
 
@@ -2015,6 +2021,26 @@ public final class RVMClass extends RVMType {
     return inBootImage;
   }
 
+  /**
+   * Leave this class uninitialized in the boot image. Its static fields
+   * aren't copied from the host and its class initializer runs on first
+   * use, like a class that was loaded at run time. Must be called before
+   * the class is instantiated.
+   */
+  public void markForRuntimeInitialization() {
+    if (VM.VerifyAssertions) VM._assert(VM.writingBootImage && !isInstantiated());
+    initializeAtRuntime = true;
+  }
+
+  /**
+   * @return {@code true} if this boot image class runs its class
+   *  initializer at run time instead of having its static fields
+   *  copied from the host
+   */
+  public boolean isInitializedAtRuntime() {
+    return initializeAtRuntime;
+  }
+
   /**
    * @return the offset in instances of this type assigned to the thin lock word.
    * Is only known after class has been resolved.
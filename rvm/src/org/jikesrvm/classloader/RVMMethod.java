@@ -79,6 +79,9 @@ public abstract class RVMMethod extends RVMMember {
   /** Reference to method designated to replace this one when compiled */
   private RVMMethod replacementMethod = null;
 
+  /** Leave this method to the lazy compilation trampoline when writing the boot image */
+  private boolean compileLazily;
+
   /** All method annotations */
   protected final MethodAnnotations methodAnnotations;
 
@@ -443,6 +446,16 @@ public abstract class RVMMethod extends RVMMember {
     return hasNonMovingAllocationAnnotation();
   }
 
+  /**
+   * Don't compile this method into the boot image; it is compiled the
+   * first time it is called instead. Used by the boot image writer for
+   * methods that aren't reachable from the boot entry points.
+   */
+  public final void deferCompilation() {
+    if (VM.VerifyAssertions) VM._assert(VM.writingBootImage && !isCompiled());
+    compileLazily = true;
+  }
+
   //------------------------------------------------------------------//
   //                        Section 2.                                //
   // The following are available after the declaring class has been   //
@@ -460,7 +473,7 @@ public abstract class RVMMethod extends RVMMember {
     if (VM.VerifyAssertions) VM._assert(declaringClass.isResolved());
     if (isCompiled()) {
       return currentCompiledMethod.getEntryCodeArray();
-    } else if (!VM.writingBootImage || isNative()) {
+    } else if (!VM.writingBootImage || isNative() || compileLazily) {
       if (!isStatic() && !isObjectInitializer() && !isPrivate()) {
         // A non-private virtual method.
         if (declaringClass.isJavaLangObjectType() ||
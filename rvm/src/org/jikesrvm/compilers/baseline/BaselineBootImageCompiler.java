@@ -25,11 +25,19 @@ import org.jikesrvm.runtime.Callbacks;
  */
 public final class BaselineBootImageCompiler extends BootImageCompiler {
 
+  /** Directory given with cache=, or null */
+  private static String cacheDir;
+
+  /** Compiled code kept from earlier builds, or null */
+  private static BaselineCodeCache cache;
+
   public static void processBaselineCompilerArgs(String[] args) {
     // Process arguments specified by the user.
     for (int i = 0, n = args.length; i < n; i++) {
       String arg = args[i];
-      if (!BaselineCompiler.options.processAsOption("-X:bc:", arg)) {
+      if (arg.startsWith("cache=")) {
+        cacheDir = arg.substring(6);
+      } else if (!BaselineCompiler.options.processAsOption("-X:bc:", arg)) {
         VM.sysWriteln("BootImageCompiler(baseline): Unrecognized argument " + arg + "; ignoring");
       }
     }
@@ -40,13 +48,31 @@ public final class BaselineBootImageCompiler extends BootImageCompiler {
   protected void initCompiler(String[] args) {
     BaselineCompiler.initOptions();
     processBaselineCompilerArgs(args);
+    if (cacheDir != null) {
+      cache = new BaselineCodeCache(cacheDir, args);
+    }
+  }
+
+  /**
+   * @return how many methods were taken from the code cache, or
+   *  {@code null} if there is no cache
+   */
+  public static String getCacheStatistics() {
+    return cache == null ? null : cache.statistics();
   }
 
   @Override
   protected CompiledMethod compileMethod(NormalMethod method, TypeReference[] params) {
     CompiledMethod cm;
     Callbacks.notifyMethodCompile(method, CompiledMethod.BASELINE);
-    cm = BaselineCompiler.compile(method);
+    byte[] key = cache == null ? null : cache.methodKey(method);
+    cm = key == null ? null : cache.lookup(method, key);
+    if (cm == null) {
+      cm = BaselineCompiler.compile(method);
+      if (key != null) {
+        cache.store(method, (BaselineCompiledMethod) cm, key);
+      }
+    }
 
     if (VM.BuildForAdaptiveSystem) {
       /* We can't accurately measure compilation time on Host JVM, so just approximate with DNA */
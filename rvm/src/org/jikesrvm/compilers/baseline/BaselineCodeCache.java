@@ -0,0 +1,717 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.jikesrvm.compilers.baseline;
+
+import static org.jikesrvm.classloader.BytecodeConstants.*;
+import static org.jikesrvm.classloader.ConstantPool.CP_CLASS;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.net.URISyntaxException;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import org.jikesrvm.VM;
+import org.jikesrvm.classloader.BytecodeStream;
+import org.jikesrvm.classloader.ExceptionHandlerMap;
+import org.jikesrvm.classloader.FieldReference;
+import org.jikesrvm.classloader.InterfaceMethodSignature;
+import org.jikesrvm.classloader.MethodReference;
+import org.jikesrvm.classloader.NormalMethod;
+import org.jikesrvm.classloader.RVMArray;
+import org.jikesrvm.classloader.RVMClass;
+import org.jikesrvm.classloader.RVMField;
+import org.jikesrvm.classloader.RVMMember;
+import org.jikesrvm.classloader.RVMMethod;
+import org.jikesrvm.classloader.RVMType;
+import org.jikesrvm.classloader.TypeReference;
+import org.jikesrvm.compilers.common.CodeArray;
+import org.jikesrvm.compilers.common.CompiledMethod;
+import org.jikesrvm.compilers.common.CompiledMethods;
+import org.jikesrvm.mm.mminterface.MemoryManager;
+import org.jikesrvm.objectmodel.ObjectModel;
+import org.jikesrvm.runtime.ArchEntrypoints;
+import org.jikesrvm.runtime.BootRecord;
+import org.jikesrvm.runtime.Entrypoints;
+import org.jikesrvm.runtime.Statics;
+
+/**
+ * On-disk cache of baseline compiled boot image methods, enabled with
+ * {@code -X:bc:cache=<directory>}. A method's machine code and maps are
+ * reused by a later build when its key is unchanged. The key covers
+ * <ul>
+ *   <li>the build: the compiler, assembler, object model, memory manager
+ *       interface and runtime class files, the VM configuration, the
+ *       compiler arguments, the JTOC address and the entrypoint offsets;
+ *   <li>the method: its bytecodes, exception handlers, frame size and the
+ *       annotations the baseline compiler looks at;
+ *   <li>everything the code was compiled against: for each field, method
+ *       and type the bytecodes refer to, whether it was linked at compile
+ *       time and the ids, offsets, sizes and hierarchy data baked into the
+ *       instructions.
+ * </ul>
+ * Computing the key does what the compiler would do to resolve those
+ * references, so a method taken from the cache leaves the JTOC, the
+ * interface signatures and the array types as compiling it would have.
+ * Methods are compiled in parallel, so the key is taken again after
+ * compiling and the method is only saved if nothing changed meanwhile.
+ * <p>
+ * The compiled method id pushed by the prologue is patched. Allocation
+ * site numbers are those of the build that compiled the method, which only
+ * matters to plans that profile allocation sites. Methods with edge
+ * counters, jsr subroutines or specialized invokes are never cached.
+ */
+final class BaselineCodeCache {
+
+  private static final int MAGIC = 0x4A424343; // JBCC
+  private static final int VERSION = 1;
+
+  /** Class files that are part of every key */
+  private static final String[] BUILD_CLASSES = {
+    "org/jikesrvm/Configuration",
+    "org/jikesrvm/compilers/baseline/",
+    "org/jikesrvm/compilers/common/",
+    "org/jikesrvm/ia32/",
+    "org/jikesrvm/mm/mminterface/",
+    "org/jikesrvm/objectmodel/",
+    "org/jikesrvm/runtime/"
+  };
+
+  /** x86 push imm32 */
+  private static final int PUSH_IMM32 = 0x68;
+
+  private final File dir;
+  private final String[] args;
+  private byte[] buildKey;
+
+  private final AtomicInteger hits = new AtomicInteger();
+  private final AtomicInteger misses = new AtomicInteger();
+  private final AtomicInteger saved = new AtomicInteger();
+
+  /** Thrown while computing a key for a method that can't be cached */
+  private static final class NotCacheable extends Exception {
+    static final long serialVersionUID = 1L;
+  }
+
+  /**
+   * @param dir the cache directory, created if necessary
+   * @param args the boot image compiler arguments
+   */
+  BaselineCodeCache(String dir, String[] args) {
+    this.dir = new File(dir);
+    this.args = args.clone();
+    if (!this.dir.isDirectory() && !this.dir.mkdirs()) {
+      VM.sysWriteln("BootImageCompiler(baseline): can't create code cache " + dir);
+    }
+  }
+
+  /**
+   * @param method a method about to be compiled
+   * @return the key for the method, or {@code null} if it can't be cached
+   */
+  byte[] methodKey(NormalMethod method) {
+    if (!VM.BuildForIA32 || BaselineCompiler.options.PROFILE_EDGE_COUNTERS ||
+        method.hasJSR() || method.isForOsrSpecialization()) {
+      return null;
+    }
+    try {
+      MessageDigest md = MessageDigest.getInstance("SHA-1");
+      DataOutputStream key = digestStream(md);
+      key.write(getBuildKey());
+      digestMethod(key, method);
+      key.flush();
+      return md.digest();
+    } catch (NotCacheable e) {
+      return null;
+    } catch (IOException e) {
+      throw new Error(e);
+    } catch (NoSuchAlgorithmException e) {
+      throw new Error(e);
+    }
+  }
+
+  /**
+   * @param method the method to compile
+   * @param key its key
+   * @return the method rebuilt from the cache, or {@code null}
+   */
+  BaselineCompiledMethod lookup(NormalMethod method, byte[] key) {
+    File file = fileFor(method);
+    if (!file.isFile()) {
+      misses.incrementAndGet();
+      return null;
+    }
+    try {
+      DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      try {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+          misses.incrementAndGet();
+          return null;
+        }
+        byte[] savedKey = new byte[key.length];
+        in.readFully(savedKey);
+        if (!Arrays.equals(key, savedKey)) {
+          misses.incrementAndGet();
+          return null;
+        }
+        int idOffset = in.readInt();
+        int lockOffset = in.readInt();
+        byte[] code = readBytes(in);
+        byte[] bytecodeMap = readBytes(in);
+        int[] eTable = readInts(in);
+        int bitsPerMap = in.readInt();
+        int mapCount = in.readInt();
+        byte[] maps = readBytes(in);
+        int[] mcSites = readInts(in);
+        short[] byteToBlockMap = readShorts(in);
+
+        BaselineCompiledMethod cm =
+            (BaselineCompiledMethod) CompiledMethods.createCompiledMethod(method, CompiledMethod.BASELINE);
+        patchInt(code, idOffset + 1, cm.getId());
+        CodeArray instructions = CodeArray.Factory.create(code.length, false);
+        for (int i = 0; i < code.length; i++) {
+          instructions.set(i, code[i]);
+        }
+        if (method.isSynchronized()) {
+          cm.setLockAcquisitionOffset(lockOffset);
+        }
+        cm.restoreMappingInfo(new ReferenceMaps(maps, mcSites, bitsPerMap, mapCount, byteToBlockMap),
+            bytecodeMap, eTable);
+        cm.compileComplete(instructions);
+        hits.incrementAndGet();
+        return cm;
+      } finally {
+        in.close();
+      }
+    } catch (IOException e) {
+      VM.sysWriteln("BootImageCompiler(baseline): can't read " + file + ": " + e);
+      misses.incrementAndGet();
+      return null;
+    }
+  }
+
+  /**
+   * Save a freshly compiled method.
+   *
+   * @param method the method
+   * @param cm its compiled code
+   * @param key the key taken before compiling it
+   */
+  void store(NormalMethod method, BaselineCompiledMethod cm, byte[] key) {
+    if (cm.referenceMaps.hasJSRInfo() || !Arrays.equals(key, methodKey(method))) return;
+    byte[] code = (byte[]) cm.getEntryCodeArray().getBacking();
+    int idOffset = findMethodId(code, cm.getId());
+    if (idOffset < 0) return;
+    File file = fileFor(method);
+    File tmp = new File(dir, file.getName() + "." + Thread.currentThread().getId());
+    try {
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+      try {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.write(key);
+        out.writeInt(idOffset);
+        out.writeInt(cm.getLockAcquisitionOffset().toInt());
+        writeBytes(out, code);
+        writeBytes(out, cm.getEncodedBytecodeMap());
+        writeInts(out, cm.getEncodedExceptionTable());
+        ReferenceMaps maps = cm.referenceMaps;
+        out.writeInt(maps.getBitsPerMap());
+        out.writeInt(maps.getMapCount());
+        writeBytes(out, maps.getMapBytes());
+        writeInts(out, maps.getMCSites());
+        writeShorts(out, maps.byteToBlockMap);
+      } finally {
+        out.close();
+      }
+      if (!tmp.renameTo(file)) {
+        file.delete();
+        if (!tmp.renameTo(file)) tmp.delete();
+      }
+      saved.incrementAndGet();
+    } catch (IOException e) {
+      tmp.delete();
+      VM.sysWriteln("BootImageCompiler(baseline): can't write " + file + ": " + e);
+    }
+  }
+
+  /**
+   * @return a summary of how well the cache did
+   */
+  String statistics() {
+    return "baseline code cache: " + hits.get() + " methods reused, " + misses.get() +
+        " compiled, " + saved.get() + " saved";
+  }
+
+  /**
+   * One file per method, so an edited method replaces its old entry
+   */
+  private File fileFor(NormalMethod method) {
+    String name = method.getDeclaringClass().getDescriptor() + " " + method.getName() + " " + method.getDescriptor();
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-1").digest(name.getBytes("UTF-8"));
+      StringBuilder s = new StringBuilder();
+      for (byte b : digest) {
+        s.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+      }
+      return new File(dir, s.append(".bcm").toString());
+    } catch (NoSuchAlgorithmException e) {
+      throw new Error(e);
+    } catch (IOException e) {
+      throw new Error(e);
+    }
+  }
+
+  /**
+   * @return offset of the prologue's push of the compiled method id, or -1
+   *  if it isn't there exactly once
+   */
+  private static int findMethodId(byte[] code, int cmid) {
+    int found = -1;
+    for (int i = 0; i + 4 < code.length; i++) {
+      if ((code[i] & 0xFF) == PUSH_IMM32 && readInt(code, i + 1) == cmid) {
+        if (found >= 0) return -1;
+        found = i;
+      }
+    }
+    return found;
+  }
+
+  private static int readInt(byte[] code, int i) {
+    return (code[i] & 0xFF) | (code[i + 1] & 0xFF) << 8 | (code[i + 2] & 0xFF) << 16 | (code[i + 3] & 0xFF) << 24;
+  }
+
+  private static void patchInt(byte[] code, int i, int value) {
+    code[i] = (byte) value;
+    code[i + 1] = (byte) (value >> 8);
+    code[i + 2] = (byte) (value >> 16);
+    code[i + 3] = (byte) (value >> 24);
+  }
+
+  /*
+   * Keys
+   */
+
+  private static DataOutputStream digestStream(MessageDigest md) {
+    return new DataOutputStream(new DigestOutputStream(new OutputStream() {
+      @Override
+      public void write(int b) {
+      }
+    }, md));
+  }
+
+  /**
+   * The part of the key shared by all methods. Taken on first use as the
+   * entrypoints are only resolved once the types have been loaded.
+   */
+  private synchronized byte[] getBuildKey() throws IOException {
+    if (buildKey == null) {
+      try {
+        MessageDigest md = MessageDigest.getInstance("SHA-1");
+        DataOutputStream key = digestStream(md);
+        for (String arg : args) {
+          key.writeUTF(arg);
+        }
+        key.writeLong(BootRecord.the_boot_record.tocRegister.toWord().toLong());
+        digestEntrypoints(key, Entrypoints.class);
+        digestEntrypoints(key, ArchEntrypoints.class);
+        digestBuildClasses(key);
+        key.flush();
+        buildKey = md.digest();
+      } catch (NoSuchAlgorithmException e) {
+        throw new Error(e);
+      }
+    }
+    return buildKey;
+  }
+
+  private static void digestEntrypoints(DataOutputStream key, Class<?> entrypoints) throws IOException {
+    for (Field f : entrypoints.getDeclaredFields()) {
+      if (!Modifier.isStatic(f.getModifiers())) continue;
+      Object value;
+      try {
+        value = f.get(null);
+      } catch (IllegalAccessException e) {
+        continue;
+      }
+      if (value instanceof RVMMember) {
+        key.writeUTF(f.getName());
+        key.writeInt(((RVMMember) value).getOffset().toInt());
+      }
+    }
+  }
+
+  /**
+   * Fingerprint the class files of the compiler and what it generates code
+   * against, from the directory or jar this class was loaded from
+   */
+  private static void digestBuildClasses(DataOutputStream key) throws IOException {
+    File location;
+    try {
+      location = new File(BaselineCodeCache.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+    } catch (URISyntaxException e) {
+      throw new IOException(e.toString());
+    }
+    ArrayList<String> names = new ArrayList<String>();
+    if (location.isDirectory()) {
+      listClasses(location, "", names);
+      Collections.sort(names);
+      for (String name : names) {
+        key.writeUTF(name);
+        digestStream(key, new FileInputStream(new File(location, name)));
+      }
+    } else {
+      JarFile jar = new JarFile(location);
+      try {
+        for (Enumeration<JarEntry> e = jar.entries(); e.hasMoreElements();) {
+          String name = e.nextElement().getName();
+          if (isBuildClass(name)) names.add(name);
+        }
+        Collections.sort(names);
+        for (String name : names) {
+          key.writeUTF(name);
+          digestStream(key, jar.getInputStream(jar.getJarEntry(name)));
+        }
+      } finally {
+        jar.close();
+      }
+    }
+  }
+
+  private static void listClasses(File dir, String prefix, ArrayList<String> names) {
+    File[] files = dir.listFiles();
+    if (files == null) return;
+    for (File f : files) {
+      String name = prefix + f.getName();
+      if (f.isDirectory()) {
+        listClasses(f, name + "/", names);
+      } else if (isBuildClass(name)) {
+        names.add(name);
+      }
+    }
+  }
+
+  private static boolean isBuildClass(String name) {
+    if (!name.endsWith(".class")) return false;
+    for (String prefix : BUILD_CLASSES) {
+      if (name.startsWith(prefix)) return true;
+    }
+    return false;
+  }
+
+  private static void digestStream(DataOutputStream key, InputStream in) throws IOException {
+    try {
+      byte[] buffer = new byte[8192];
+      for (int n = in.read(buffer); n > 0; n = in.read(buffer)) {
+        key.write(buffer, 0, n);
+      }
+    } finally {
+      in.close();
+    }
+  }
+
+  /**
+   * Walk the bytecodes the way the compiler does, recording what each
+   * reference was compiled against
+   */
+  private static void digestMethod(DataOutputStream key, NormalMethod method) throws IOException, NotCacheable {
+    RVMClass klass = method.getDeclaringClass();
+    key.writeUTF(klass.getDescriptor().toString());
+    key.writeUTF(method.getName().toString());
+    key.writeUTF(method.getDescriptor().toString());
+    key.writeInt(method.getId());
+    key.writeInt(klass.getId());
+    key.writeInt(method.getLocalWords());
+    key.writeInt(method.getOperandWords());
+    key.writeBoolean(method.isStatic());
+    key.writeBoolean(method.isSynchronized());
+    key.writeBoolean(method.isObjectInitializer());
+    key.writeBoolean(method.isInterruptible());
+    key.writeBoolean(method.isUninterruptible());
+    key.writeBoolean(method.isUnpreemptible());
+    key.writeBoolean(method.hasBaselineNoRegistersAnnotation());
+    key.writeBoolean(method.hasBaselineSaveLSRegistersAnnotation());
+    key.writeBoolean(method.hasInterruptHandlerAnnotation());
+    key.writeBoolean(method.hasLogicallyUninterruptibleAnnotation());
+    key.writeBoolean(method.hasNoCheckStoreAnnotation());
+    key.writeBoolean(method.hasUninterruptibleNoWarnAnnotation());
+    key.writeBoolean(method.hasUnpreemptibleNoWarnAnnotation());
+    key.writeBoolean(klass.hasBridgeFromNativeAnnotation());
+    key.writeBoolean(klass.hasDynamicBridgeAnnotation());
+    if (method.isSynchronized() && method.isStatic()) {
+      key.writeInt(Statics.findOrCreateObjectLiteral(klass.getClassForType()));
+    }
+    byte[] bytecodes = method.getBytecodeArray();
+    key.writeInt(bytecodes.length);
+    key.write(bytecodes);
+
+    ExceptionHandlerMap handlers = method.getExceptionHandlerMap();
+    if (handlers != null) {
+      TypeReference[] types = handlers.getExceptionTypes();
+      for (int i = 0; i < types.length; i++) {
+        key.writeInt(handlers.getStartPC()[i]);
+        key.writeInt(handlers.getEndPC()[i]);
+        key.writeInt(handlers.getHandlerPC()[i]);
+        key.writeInt(types[i].resolve().getId());
+      }
+    }
+
+    BytecodeStream bcodes = method.getBytecodes();
+    while (bcodes.hasMoreBytecodes()) {
+      int opcode = bcodes.nextInstruction();
+      switch (opcode) {
+        case JBC_ldc:
+        case JBC_ldc_w:
+        case JBC_ldc2_w: {
+          int index = opcode == JBC_ldc ? bcodes.getConstantIndex() : bcodes.getWideConstantIndex();
+          key.writeInt(klass.getLiteralOffset(index).toInt());
+          key.writeByte(klass.getLiteralDescription(index));
+          break;
+        }
+        case JBC_getstatic:
+        case JBC_putstatic:
+        case JBC_getfield:
+        case JBC_putfield:
+          digestField(key, method, bcodes.getFieldReference());
+          break;
+        case JBC_invokevirtual:
+        case JBC_invokestatic: {
+          MethodReference methodRef = bcodes.getMethodReference();
+          digestCall(key, method, methodRef, methodRef.peekResolvedMethod());
+          if (methodRef.isMiranda()) digestInterfaceCall(key, methodRef);
+          break;
+        }
+        case JBC_invokespecial: {
+          MethodReference methodRef = bcodes.getMethodReference();
+          digestCall(key, method, methodRef, methodRef.resolveInvokeSpecial());
+          break;
+        }
+        case JBC_invokeinterface: {
+          MethodReference methodRef = bcodes.getMethodReference();
+          bcodes.alignInvokeInterface();
+          digestCall(key, method, methodRef, null);
+          digestInterfaceCall(key, methodRef);
+          break;
+        }
+        case JBC_new: {
+          RVMType type = digestType(key, bcodes.getTypeReference());
+          if (type != null && (type.isInitialized() || type.isInBootImage())) {
+            key.writeInt(MemoryManager.pickAllocator(type, method));
+            key.writeInt(ObjectModel.getAlignment(type.asClass()));
+            key.writeInt(ObjectModel.getOffsetForAlignment(type.asClass(), false));
+            MemoryManager.getAllocationSite(true);
+          }
+          break;
+        }
+        case JBC_newarray: {
+          RVMArray array = RVMArray.getPrimitiveArrayType(bcodes.getArrayElementType());
+          digestType(key, array.getTypeRef());
+          digestArrayAllocation(key, method, array);
+          break;
+        }
+        case JBC_anewarray: {
+          TypeReference elementTypeRef = bcodes.getTypeReference();
+          TypeReference arrayRef = elementTypeRef.getArrayTypeForElementType();
+          // resolve the array type as the compiler does
+          RVMArray array = (RVMArray) arrayRef.peekType();
+          if (RVMType.JavaLangObjectType.isInstantiated()) {
+            if (array == null || !(array.isInitialized() || array.isInBootImage())) {
+              RVMType elementType = elementTypeRef.peekType();
+              if (elementType != null && (elementType.isInitialized() || elementType.isInBootImage())) {
+                if (array == null) {
+                  array = (RVMArray) arrayRef.resolve();
+                }
+                array.resolve();
+                array.instantiate();
+              }
+            }
+          }
+          digestType(key, elementTypeRef);
+          digestType(key, arrayRef);
+          if (array != null && (array.isInitialized() || array.isInBootImage())) {
+            digestArrayAllocation(key, method, array);
+          }
+          break;
+        }
+        case JBC_checkcast:
+        case JBC_instanceof:
+          digestType(key, bcodes.getTypeReference());
+          break;
+        case JBC_multianewarray:
+          digestType(key, bcodes.getTypeReference());
+          bcodes.getArrayDimension();
+          break;
+        default:
+          bcodes.skipInstruction();
+          break;
+      }
+    }
+  }
+
+  private static void digestField(DataOutputStream key, NormalMethod method, FieldReference fieldRef) throws IOException {
+    key.writeInt(fieldRef.getId());
+    key.writeInt(fieldRef.getFieldContentsType().getId());
+    boolean dynamic = fieldRef.needsDynamicLink(method);
+    key.writeBoolean(dynamic);
+    RVMField field = fieldRef.peekResolvedField();
+    if (!dynamic && field != null) {
+      key.writeInt(field.getOffset().toInt());
+      key.writeInt(field.getDeclaringClass().getId());
+      key.writeInt(field.getSize());
+      key.writeBoolean(field.isStatic());
+      key.writeBoolean(field.isVolatile());
+      key.writeBoolean(field.isFinal());
+      key.writeBoolean(field.isReferenceType());
+      key.writeBoolean(field.isUntraced());
+    }
+  }
+
+  private static void digestCall(DataOutputStream key, NormalMethod method, MethodReference methodRef, RVMMethod target)
+      throws IOException, NotCacheable {
+    if (methodRef.isSpecializedInvoke()) throw new NotCacheable();
+    key.writeInt(methodRef.getId());
+    key.writeInt(methodRef.getParameterWords());
+    key.writeBoolean(methodRef.isMagic());
+    key.writeBoolean(methodRef.isMiranda());
+    boolean dynamic = methodRef.needsDynamicLink(method);
+    key.writeBoolean(dynamic);
+    if (target != null) {
+      key.writeInt(target.getId());
+      key.writeInt(target.getOffset().toInt());
+      key.writeInt(target.getDeclaringClass().getId());
+      key.writeBoolean(target.isStatic());
+      key.writeBoolean(target.isFinal());
+      key.writeBoolean(target.isObjectInitializer());
+      key.writeBoolean(target.getDeclaringClass().isInterface());
+    }
+  }
+
+  private static void digestInterfaceCall(DataOutputStream key, MethodReference methodRef) throws IOException {
+    InterfaceMethodSignature sig = InterfaceMethodSignature.findOrCreate(methodRef);
+    key.writeInt(sig.getId());
+    key.writeInt(sig.getIMTOffset().toInt());
+    RVMMethod resolved = methodRef.peekInterfaceMethod();
+    if (resolved != null) {
+      RVMClass interfaceClass = resolved.getDeclaringClass();
+      key.writeInt(interfaceClass.getId());
+      key.writeInt(interfaceClass.getDoesImplementIndex());
+      key.writeInt(interfaceClass.getDoesImplementBitMask());
+    }
+  }
+
+  private static RVMType digestType(DataOutputStream key, TypeReference typeRef) throws IOException {
+    key.writeInt(typeRef.getId());
+    RVMType type = typeRef.peekType();
+    key.writeBoolean(type != null);
+    if (type == null) return null;
+    key.writeInt(type.getId());
+    key.writeBoolean(type.isResolved());
+    key.writeBoolean(type.isInstantiated());
+    key.writeBoolean(type.isInitialized());
+    key.writeBoolean(type.isInBootImage());
+    if (!type.isResolved()) return type;
+    key.writeInt(type.getTibOffset().toInt());
+    key.writeInt(type.getTypeDepth());
+    key.writeBoolean(type.hasFinalizer());
+    if (type.isClassType()) {
+      RVMClass cls = type.asClass();
+      key.writeBoolean(cls.isFinal());
+      key.writeBoolean(cls.isInterface());
+      key.writeInt(cls.getInstanceSize());
+      if (cls.isInterface()) {
+        key.writeInt(cls.getDoesImplementIndex());
+        key.writeInt(cls.getDoesImplementBitMask());
+      }
+    } else if (type.isArrayType()) {
+      RVMArray array = type.asArray();
+      key.writeInt(array.getLogElementSize());
+      key.writeInt(array.getDimensionality());
+      RVMType element = array.getElementType();
+      key.writeInt(element.getId());
+      key.writeBoolean(element.isClassType() && element.asClass().isFinal());
+    }
+    return type;
+  }
+
+  private static void digestArrayAllocation(DataOutputStream key, NormalMethod method, RVMArray array) throws IOException {
+    key.writeInt(MemoryManager.pickAllocator(array, method));
+    key.writeInt(ObjectModel.getAlignment(array));
+    key.writeInt(ObjectModel.getOffsetForAlignment(array, false));
+    MemoryManager.getAllocationSite(true);
+  }
+
+  /*
+   * Cache file records
+   */
+
+  private static void writeBytes(DataOutputStream out, byte[] a) throws IOException {
+    out.writeInt(a == null ? -1 : a.length);
+    if (a != null) out.write(a);
+  }
+
+  private static void writeInts(DataOutputStream out, int[] a) throws IOException {
+    out.writeInt(a == null ? -1 : a.length);
+    if (a != null) {
+      for (int v : a) out.writeInt(v);
+    }
+  }
+
+  private static void writeShorts(DataOutputStream out, short[] a) throws IOException {
+    out.writeInt(a == null ? -1 : a.length);
+    if (a != null) {
+      for (short v : a) out.writeShort(v);
+    }
+  }
+
+  private static byte[] readBytes(DataInputStream in) throws IOException {
+    int n = in.readInt();
+    if (n < 0) return null;
+    byte[] a = new byte[n];
+    in.readFully(a);
+    return a;
+  }
+
+  private static int[] readInts(DataInputStream in) throws IOException {
+    int n = in.readInt();
+    if (n < 0) return null;
+    int[] a = new int[n];
+    for (int i = 0; i < n; i++) a[i] = in.readInt();
+    return a;
+  }
+
+  private static short[] readShorts(DataInputStream in) throws IOException {
+    int n = in.readInt();
+    if (n < 0) return null;
+    short[] a = new short[n];
+    for (int i = 0; i < n; i++) a[i] = in.readShort();
+    return a;
+  }
+}
@@ -287,6 +287,29 @@ public abstract class BaselineCompiledMethod extends CompiledMethod {
     return hasCounters;
   }
 
+  /** @return the encoded bytecode map, for {@link BaselineCodeCache} */
+  byte[] getEncodedBytecodeMap() {
+    return bytecodeMap;
+  }
+
+  /** @return the encoded exception table or {@code null}, for {@link BaselineCodeCache} */
+  int[] getEncodedExceptionTable() {
+    return eTable;
+  }
+
+  /**
+   * Install maps saved by {@link BaselineCodeCache} instead of encoding them
+   *
+   * @param referenceMaps the reference (GC) maps
+   * @param bytecodeMap the encoded bytecode map
+   * @param eTable the encoded exception table or {@code null}
+   */
+  void restoreMappingInfo(ReferenceMaps referenceMaps, byte[] bytecodeMap, int[] eTable) {
+    this.referenceMaps = referenceMaps;
+    this.bytecodeMap = bytecodeMap;
+    this.eTable = eTable;
+  }
+
   /**
    * Encode/compress the bytecode map, reference (GC) map and exception table
    *
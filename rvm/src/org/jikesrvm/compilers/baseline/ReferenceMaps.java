@@ -93,6 +93,38 @@ public final class ReferenceMaps {
     }
   }
 
+  /**
+   * Rebuild the maps of a method from the parts saved by {@link BaselineCodeCache}
+   */
+  ReferenceMaps(byte[] referenceMaps, int[] MCSites, int bitsPerMap, int mapCount, short[] byteToBlockMap) {
+    this.referenceMaps = referenceMaps;
+    this.MCSites = MCSites;
+    this.bitsPerMap = bitsPerMap;
+    this.mapCount = mapCount;
+    this.byteToBlockMap = byteToBlockMap;
+  }
+
+  byte[] getMapBytes() {
+    return referenceMaps;
+  }
+
+  int[] getMCSites() {
+    return MCSites;
+  }
+
+  int getBitsPerMap() {
+    return bitsPerMap;
+  }
+
+  int getMapCount() {
+    return mapCount;
+  }
+
+  /** @return whether the method has jsr subroutines, whose maps aren't saved */
+  boolean hasJSRInfo() {
+    return jsrInfo != null;
+  }
+
   /**
    * Given a machine code instruction offset, return an index to
    * identify the stack map closest to the offset ( but not beyond).<p>
@@ -2730,7 +2730,43 @@ final class BaselineMagic {
       MagicGenerator g = new Halt();
       generators.put(getMethodReference(Magic.class, MagicNames.halt, void.class), g);
   }
-  
+
+  /*
+   * Monitor the cache line of an address
+   */
+  private static final class Monitor extends MagicGenerator {
+      @Override
+      void generateMagic(Assembler asm, MethodReference m, RVMMethod cm, Offset sd)
+      {
+          asm.emitPOP_Reg(EAX);         // address
+          asm.emitXOR_Reg_Reg(ECX, ECX);  // no extensions
+          asm.emitXOR_Reg_Reg(EDX, EDX);  // no hints
+          asm.emitMONITOR();
+      }
+  }
+  static {
+      MagicGenerator g = new Monitor();
+      generators.put(getMethodReference(Magic.class, MagicNames.monitor, Address.class, void.class), g);
+  }
+
+  /*
+   * Wait in a C-state for the monitored line to be written or an interrupt.
+   * Interrupts end the wait even when they are disabled.
+   */
+  private static final class Mwait extends MagicGenerator {
+      @Override
+      void generateMagic(Assembler asm, MethodReference m, RVMMethod cm, Offset sd)
+      {
+          asm.emitPOP_Reg(EAX);         // C-state hint
+          asm.emitMOV_Reg_Imm(ECX, 1);  // break on masked interrupts
+          asm.emitMWAIT();
+      }
+  }
+  static {
+      MagicGenerator g = new Mwait();
+      generators.put(getMethodReference(Magic.class, MagicNames.mwait, int.class, void.class), g);
+  }
+
   /*
    * Save registers onto the stack
    */
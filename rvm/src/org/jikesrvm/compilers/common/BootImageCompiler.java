@@ -51,6 +51,15 @@ public abstract class BootImageCompiler {
    */
   protected abstract CompiledMethod compileMethod(NormalMethod method, TypeReference[] params);
 
+  /**
+   * @param method a method to compile
+   * @return {@code true} if profile advice asks for the method to be
+   *  opt compiled even though the boot image is baseline compiled
+   */
+  protected boolean isAdvisedToOptimize(NormalMethod method) {
+    return false;
+  }
+
   /**
    * Initialize boot image compiler.
    * @param args command line arguments to the bootimage compiler
@@ -77,6 +86,9 @@ public abstract class BootImageCompiler {
       if (VM.BuildForAdaptiveSystem && VM.BuildWithBaseBootImageCompiler && method.getDeclaringClass().hasSaveVolatileAnnotation()) {
         // Force opt compilation of SaveVolatile methods.
         return optCompiler.compileMethod(method, params);
+      } else if (VM.BuildForAdaptiveSystem && VM.BuildWithBaseBootImageCompiler && optCompiler.isAdvisedToOptimize(method)) {
+        // Hot in the training run
+        return optCompiler.compileMethod(method, params);
       } else {
         return compiler.compileMethod(method, params);
       }
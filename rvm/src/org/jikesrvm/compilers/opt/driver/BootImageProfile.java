@@ -0,0 +1,224 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.jikesrvm.compilers.opt.driver;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.StringTokenizer;
+
+import org.jikesrvm.VM;
+import org.jikesrvm.adaptive.controller.Controller;
+import org.jikesrvm.adaptive.util.CompilerAdvice;
+import org.jikesrvm.adaptive.util.CompilerAdviceAttribute;
+import org.jikesrvm.adaptive.util.DynamicCallFileInfoReader;
+import org.jikesrvm.classloader.MemberReference;
+import org.jikesrvm.classloader.MethodReference;
+import org.jikesrvm.classloader.RVMMethod;
+import org.jikesrvm.compilers.common.CompiledMethod;
+import org.jikesrvm.compilers.opt.OptOptions;
+
+/**
+ * Profile from a training run of the boot image, replayed while the boot
+ * image is compiled. The profile is the console log of a run that called
+ * {@code org.jam.runtime.ProfileDump}; the last dump in the log is used.
+ * <ul>
+ *   <li>Edge counts are loaded as if given with
+ *       {@code profile_edge_count_input_file}.
+ *   <li>Call graph weights are loaded into the dynamic call graph so the
+ *       inline oracle sees them.
+ *   <li>The methods that together account for {@code hot_fraction} of all
+ *       counted branches become compiler advice to opt compile them at
+ *       {@code hot_opt_level}.
+ * </ul>
+ * Compiler advice files in the {@code -X:aos:cafi} format may be given as
+ * well and take precedence.
+ */
+final class BootImageProfile {
+
+  private static final String BEGIN = "=== JOE PROFILE BEGIN ===";
+  private static final String END = "=== JOE PROFILE END ===";
+  private static final String EDGES = "--- edges";
+  private static final String CALLS = "--- calls";
+
+  /** A method from the edge profile and its total branch count */
+  private static final class Weight {
+    final MethodReference method;
+    final long count;
+
+    Weight(MethodReference method, long count) {
+      this.method = method;
+      this.count = count;
+    }
+  }
+
+  private BootImageProfile() {
+    // prevent instantiation
+  }
+
+  /**
+   * Load the profile in a training run's console log.
+   *
+   * @param log the console log
+   * @param options compiler options; the edge count input file is set
+   * @param hotFraction fraction of all branch counts the hot methods cover
+   * @param hotOptLevel opt level advised for hot methods
+   */
+  static void load(String log, OptOptions options, double hotFraction, int hotOptLevel) {
+    ArrayList<String> edges = new ArrayList<String>();
+    ArrayList<String> calls = new ArrayList<String>();
+    try {
+      readLog(log, edges, calls);
+    } catch (IOException e) {
+      VM.sysWriteln("BootImageCompiler: can't read profile " + log + ": " + e);
+      return;
+    }
+    if (edges.isEmpty() && calls.isEmpty()) {
+      VM.sysWriteln("BootImageCompiler: no profile found in " + log);
+      return;
+    }
+    try {
+      if (!edges.isEmpty()) {
+        options.PROFILE_EDGE_COUNT_INPUT_FILE = writeTemp(edges, ".ec");
+        registerHotMethods(edges, hotFraction, hotOptLevel);
+      }
+      if (!calls.isEmpty()) {
+        DynamicCallFileInfoReader.readDynamicCallFile(writeTemp(calls, ".dc"), true);
+      }
+    } catch (IOException e) {
+      VM.sysWriteln("BootImageCompiler: can't stage profile " + log + ": " + e);
+    }
+  }
+
+  /**
+   * Load compiler advice in the {@code -X:aos:cafi} format.
+   *
+   * @param file the advice file
+   */
+  static void loadAdvice(String file) {
+    Controller.options.COMPILER_ADVICE_FILE_INPUT = file;
+    CompilerAdvice.readCompilerAdvice();
+    Controller.options.COMPILER_ADVICE_FILE_INPUT = null;
+  }
+
+  /**
+   * @param method a method being compiled into the boot image
+   * @return the advice for the method, or {@code null} if there is none
+   */
+  static CompilerAdviceAttribute adviceFor(RVMMethod method) {
+    return CompilerAdviceAttribute.lookup(method);
+  }
+
+  /**
+   * Keep the sections of the last dump in the log
+   */
+  private static void readLog(String log, List<String> edges, List<String> calls) throws IOException {
+    BufferedReader in = new BufferedReader(new FileReader(log));
+    List<String> section = null;
+    boolean inDump = false;
+    for (String s = in.readLine(); s != null; s = in.readLine()) {
+      s = s.trim();
+      if (s.equals(BEGIN)) {
+        edges.clear();
+        calls.clear();
+        section = null;
+        inDump = true;
+      } else if (!inDump) {
+        continue;
+      } else if (s.equals(END)) {
+        inDump = false;
+      } else if (s.equals(EDGES)) {
+        section = edges;
+      } else if (s.equals(CALLS)) {
+        section = calls;
+      } else if (section != null && s.length() > 0) {
+        section.add(s);
+      }
+    }
+    in.close();
+  }
+
+  private static String writeTemp(List<String> lines, String suffix) throws IOException {
+    File file = File.createTempFile("bootprofile", suffix);
+    file.deleteOnExit();
+    PrintStream out = new PrintStream(file);
+    for (String s : lines) {
+      out.println(s);
+    }
+    out.close();
+    return file.getPath();
+  }
+
+  /**
+   * Advise opt compilation for the methods that execute most branches
+   */
+  private static void registerHotMethods(List<String> edges, double hotFraction, int hotOptLevel) {
+    ArrayList<Weight> weights = new ArrayList<Weight>();
+    long total = 0;
+    MethodReference current = null;
+    long count = 0;
+    for (String s : edges) {
+      s = s.replaceAll("\\{urls[^\\}]*\\}", ""); // strip classloader cruft we can't parse
+      StringTokenizer parser = new StringTokenizer(s, " \t\n\r\f,{}");
+      String firstToken = parser.nextToken();
+      if (firstToken.equals("M")) {
+        if (current != null) weights.add(new Weight(current, count));
+        parser.nextToken(); // number of counters
+        MemberReference ref = MemberReference.parse(parser);
+        current = ref == null ? null : ref.asMethodReference();
+        count = 0;
+      } else {
+        // <bci> <kind> < counts... >
+        boolean inCounts = false;
+        while (parser.hasMoreTokens()) {
+          String t = parser.nextToken();
+          if (t.equals("<")) {
+            inCounts = true;
+          } else if (t.equals(">")) {
+            break;
+          } else if (inCounts) {
+            long c = Long.parseLong(t);
+            count += c;
+            total += c;
+          }
+        }
+      }
+    }
+    if (current != null) weights.add(new Weight(current, count));
+    if (total == 0) return;
+
+    Collections.sort(weights, new Comparator<Weight>() {
+      @Override
+      public int compare(Weight a, Weight b) {
+        return a.count > b.count ? -1 : (a.count < b.count ? 1 : 0);
+      }
+    });
+    ArrayList<CompilerAdviceAttribute> advice = new ArrayList<CompilerAdviceAttribute>();
+    long covered = 0;
+    for (Weight w : weights) {
+      if (covered >= total * hotFraction || w.count == 0) break;
+      covered += w.count;
+      advice.add(new CompilerAdviceAttribute(w.method.getType().getName(), w.method.getName(),
+          w.method.getDescriptor(), CompiledMethod.OPT, hotOptLevel));
+    }
+    CompilerAdviceAttribute.registerCompilerAdvice(advice);
+    VM.sysWriteln("BootImageCompiler: " + advice.size() + " of " + weights.size() +
+        " profiled methods are hot");
+  }
+}
@@ -18,6 +18,7 @@ import java.util.Vector;
 
 import org.jikesrvm.VM;
 import org.jikesrvm.adaptive.recompilation.CompilerDNA;
+import org.jikesrvm.adaptive.util.CompilerAdviceAttribute;
 import org.jikesrvm.classloader.NormalMethod;
 import org.jikesrvm.classloader.RVMClass;
 import org.jikesrvm.classloader.RVMMethod;
@@ -50,6 +51,13 @@ public final class OptimizingBootImageCompiler extends BootImageCompiler {
    */
   private String excludePattern;
 
+  /**
+   * Was compiler advice given, from a training run profile or an advice
+   * file? Advised methods are compiled as the advice says, even when the
+   * boot image is otherwise baseline compiled.
+   */
+  private boolean haveAdvice;
+
   private boolean match(RVMMethod method) {
     if (excludePattern == null) return true;
     RVMClass cls = method.getDeclaringClass();
@@ -76,16 +84,39 @@ public final class OptimizingBootImageCompiler extends BootImageCompiler {
       OptimizingCompiler.setBootOptions(masterOptions);
 
       // Allow further customization by the user.
+      String profile = null;
+      String advice = null;
+      double hotFraction = 0.9;
+      int hotOptLevel = 2;
       for (int i = 0, n = args.length; i < n; i++) {
         String arg = args[i];
         if (!masterOptions.processAsOption("-X:bc:", arg)) {
           if (arg.startsWith("exclude=")) {
             excludePattern = arg.substring(8);
+          } else if (arg.startsWith("profile=")) {
+            profile = arg.substring(8);
+          } else if (arg.startsWith("advice=")) {
+            advice = arg.substring(7);
+          } else if (arg.startsWith("hot_fraction=")) {
+            hotFraction = Double.parseDouble(arg.substring(13));
+          } else if (arg.startsWith("hot_opt_level=")) {
+            hotOptLevel = Integer.parseInt(arg.substring(14));
+          } else if (arg.startsWith("cache=")) {
+            // baseline code cache, see BaselineBootImageCompiler
           } else {
             VM.sysWriteln("BootImageCompiler: Unrecognized argument " + arg + "; ignoring");
           }
         }
       }
+      // Replay a training run: edge counts, call graph weights and hot methods.
+      // An advice file is read last so it overrides advice derived from the profile.
+      if (profile != null) {
+        BootImageProfile.load(profile, masterOptions, hotFraction, hotOptLevel);
+      }
+      if (advice != null) {
+        BootImageProfile.loadAdvice(advice);
+      }
+      haveAdvice = CompilerAdviceAttribute.hasAdvice();
       EdgeCounts.loadCountsFromFileIfAvailable(masterOptions.PROFILE_EDGE_COUNT_INPUT_FILE);
       OptimizingCompiler.init(masterOptions);
     } catch (OptimizingCompilerException e) {
@@ -100,10 +131,21 @@ public final class OptimizingBootImageCompiler extends BootImageCompiler {
     }
   }
 
+  @Override
+  protected boolean isAdvisedToOptimize(NormalMethod method) {
+    if (!haveAdvice) return false;
+    CompilerAdviceAttribute advice = BootImageProfile.adviceFor(method);
+    return advice != null && advice.getCompiler() == CompiledMethod.OPT;
+  }
+
   @Override
   protected CompiledMethod compileMethod(NormalMethod method, TypeReference[] params) {
-    if (method.hasNoOptCompileAnnotation()) {
+    CompilerAdviceAttribute advice = haveAdvice ? BootImageProfile.adviceFor(method) : null;
+    if (method.hasNoOptCompileAnnotation() ||
+        (advice != null && advice.getCompiler() == CompiledMethod.BASELINE)) {
       return baselineCompile(method);
+    } else if (advice != null && advice.getOptLevel() >= 0 && advice.getOptLevel() != masterOptions.getOptLevel()) {
+      return adviceCompile(method, params, advice.getOptLevel());
     } else {
       CompiledMethod cm = null;
       OptimizingCompilerException escape = new OptimizingCompilerException(false);
@@ -160,6 +202,35 @@ public final class OptimizingBootImageCompiler extends BootImageCompiler {
     }
   }
 
+  /**
+   * Compile a method at the opt level the advice asks for. Advised methods
+   * are few so the plan isn't cached.
+   */
+  private CompiledMethod adviceCompile(NormalMethod method, TypeReference[] params, int optLevel) {
+    OptOptions advisedOptions = masterOptions.dup();
+    advisedOptions.setOptLevel(optLevel);
+    OptimizationPlanElement[] optimizationPlan;
+    synchronized (optimizationPlanLocks) {
+      optimizationPlan = OptimizationPlanner.createOptimizationPlan(advisedOptions);
+    }
+    try {
+      Callbacks.notifyMethodCompile(method, CompiledMethod.OPT);
+      CompilationPlan cp = new CompilationPlan(method, params, optimizationPlan, null, advisedOptions);
+      CompiledMethod cm = OptimizingCompiler.compile(cp);
+      int compilerId = CompilerDNA.getCompilerConstant(optLevel);
+      cm.setCompilationTime((float)CompilerDNA.estimateCompileTime(compilerId, method));
+      return cm;
+    } catch (OptimizingCompilerException e) {
+      if (e.isFatal) {
+        VM.sysWriteln("Error compiling method: " + method);
+        e.printStackTrace();
+        System.exit(EXIT_STATUS_OPT_COMPILER_FAILED);
+      }
+      VM.sysWrite("BootImageCompiler: can't optimize \"" + method + "\" at O" + optLevel + " (error was: " + e + ")\n");
+      return baselineCompile(method);
+    }
+  }
+
   private CompiledMethod baselineCompile(NormalMethod method) {
     Callbacks.notifyMethodCompile(method, CompiledMethod.BASELINE);
     CompiledMethod cm = BaselineCompiler.compile(method);
@@ -14,12 +14,23 @@ package org.jikesrvm.mm.mminterface;
 
 import java.lang.management.MemoryType;
 import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationBroadcasterSupport;
+import javax.management.NotificationFilter;
+import javax.management.NotificationListener;
 
 import org.jikesrvm.mm.mminterface.Selected.Plan;
 import org.jikesrvm.mm.mmtk.FinalizableProcessor;
+import org.mmtk.plan.Phase;
 import org.mmtk.policy.Space;
 import org.mmtk.utility.options.Options;
+import org.mmtk.utility.statistics.GCEventLog;
+import org.mmtk.utility.statistics.PauseHistogram;
 import org.mmtk.utility.statistics.Stats;
 
 /**
@@ -189,4 +200,196 @@ public class JMXSupport {
     return Math.round(Plan.totalTime.getTotalMillis());
   }
 
+  /*
+   * Pause times
+   */
+
+  /**
+   * The type of the notifications sent for each collection pause.
+   */
+  public static final String GC_PAUSE_NOTIFICATION = "org.jikesrvm.gc.pause";
+
+  /**
+   * How often, in milliseconds, the notifier looks for new pauses.
+   */
+  private static final long GC_PAUSE_POLL_MILLIS = 100;
+
+  private static final NotificationBroadcasterSupport gcPauseBroadcaster =
+      new NotificationBroadcasterSupport();
+
+  /** The thread sending pause notifications, started for the first listener */
+  private static Thread gcPauseNotifier;
+
+  /**
+   * Returns the pause time that a given percentage of all collection
+   * pauses did not exceed, e.g. 99.9 for the p999 pause time.
+   *
+   * @param percentile the percentage of pauses, from 0 to 100
+   * @param fullHeapOnly whether to consider only full heap collections
+   * @return the pause time in microseconds, accurate to about 3%
+   */
+  public static long getPauseTimeAtPercentile(double percentile, boolean fullHeapOnly) {
+    return getPauseHistogram(fullHeapOnly).getValueAtPercentile(percentile);
+  }
+
+  /**
+   * @param fullHeapOnly whether to consider only full heap collections
+   * @return the longest pause in microseconds
+   */
+  public static long getMaxPauseTime(boolean fullHeapOnly) {
+    return getPauseHistogram(fullHeapOnly).getMax();
+  }
+
+  /**
+   * Returns the histogram of all pause times.  Bucket {@code i} counts
+   * the pauses no longer than {@link #getPauseHistogramBucketLimit(int)}
+   * microseconds and longer than the limit of bucket {@code i - 1}.
+   *
+   * @param fullHeapOnly whether to consider only full heap collections
+   * @return the number of pauses in each bucket
+   */
+  public static long[] getPauseHistogramCounts(boolean fullHeapOnly) {
+    PauseHistogram histogram = getPauseHistogram(fullHeapOnly);
+    long[] counts = new long[PauseHistogram.BUCKETS];
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = histogram.getCount(i);
+    }
+    return counts;
+  }
+
+  /**
+   * @param bucket the index of a bucket of the pause time histogram
+   * @return the longest pause that the bucket counts, in microseconds
+   */
+  public static long getPauseHistogramBucketLimit(int bucket) {
+    return PauseHistogram.getBucketLimit(bucket);
+  }
+
+  private static PauseHistogram getPauseHistogram(boolean fullHeapOnly) {
+    return fullHeapOnly ? GCEventLog.fullHeapPauses : GCEventLog.pauses;
+  }
+
+  /**
+   * Returns notifications for the most recent collection pauses that
+   * are still recorded, oldest first.  These are the notifications that
+   * listeners receive, see {@link #addGCPauseListener}.
+   *
+   * @return the notifications
+   */
+  public static Notification[] getRecentGCPauses() {
+    ArrayList<Notification> pauses = new ArrayList<Notification>(GCEventLog.RECORDS);
+    long last = GCEventLog.getRecordCount();
+    for (long record = GCEventLog.getOldestRecord(); record < last; record++) {
+      Notification notification = createGCPauseNotification(record);
+      if (notification != null) {
+        pauses.add(notification);
+      }
+    }
+    return pauses.toArray(new Notification[pauses.size()]);
+  }
+
+  /**
+   * Adds a listener for notifications of type {@link #GC_PAUSE_NOTIFICATION},
+   * sent shortly after each collection pause.  The user data of a
+   * notification is a map from the names of the fields of the pause
+   * record to their values: the collection number, cause, whether the
+   * whole heap was collected, the start and end time of the pause in
+   * nanoseconds, the bytes reserved before and after it, the bytes
+   * promoted and a map from each phase run to its time in nanoseconds.
+   * Pauses are only kept for a short time, so a notification may be
+   * missed if the system is very busy.
+   *
+   * @param listener the listener
+   * @param filter the filter, or {@code null}
+   * @param handback the object to hand back to the listener, or {@code null}
+   */
+  public static synchronized void addGCPauseListener(NotificationListener listener,
+      NotificationFilter filter, Object handback) {
+    gcPauseBroadcaster.addNotificationListener(listener, filter, handback);
+    if (gcPauseNotifier == null) {
+      gcPauseNotifier = new Thread("GCPauseNotifier") {
+        @Override
+        public void run() {
+          notifyGCPauses();
+        }
+      };
+      gcPauseNotifier.setDaemon(true);
+      gcPauseNotifier.start();
+    }
+  }
+
+  /**
+   * @param listener a listener previously added
+   * @throws ListenerNotFoundException if the listener was not added
+   */
+  public static synchronized void removeGCPauseListener(NotificationListener listener) throws ListenerNotFoundException {
+    gcPauseBroadcaster.removeNotificationListener(listener);
+  }
+
+  /**
+   * Sends a notification for each new pause, for as long as the VM runs.
+   */
+  private static void notifyGCPauses() {
+    long next = GCEventLog.getRecordCount();
+    while (true) {
+      try {
+        Thread.sleep(GC_PAUSE_POLL_MILLIS);
+      } catch (InterruptedException e) {
+        // Carry on: the notifier runs until the VM exits
+      }
+      long last = GCEventLog.getRecordCount();
+      long oldest = GCEventLog.getOldestRecord();
+      if (next < oldest) {
+        next = oldest;
+      }
+      for (; next < last; next++) {
+        Notification notification = createGCPauseNotification(next);
+        if (notification != null) {
+          gcPauseBroadcaster.sendNotification(notification);
+        }
+      }
+    }
+  }
+
+  /**
+   * @param record the number of a pause record
+   * @return a notification for the pause, or {@code null} if the
+   *  record is no longer available
+   */
+  private static Notification createGCPauseNotification(long record) {
+    long[] fields = new long[GCEventLog.FIELDS];
+    long[] phaseTimes = new long[GCEventLog.PHASES];
+    if (!GCEventLog.copyRecord(record, fields, phaseTimes)) {
+      return null;
+    }
+    boolean fullHeap = fields[GCEventLog.FULL_HEAP] != 0;
+    String cause = GCEventLog.getCauseName((int) fields[GCEventLog.CAUSE]);
+    long duration = fields[GCEventLog.END_TIME] - fields[GCEventLog.START_TIME];
+
+    LinkedHashMap<String, Long> phases = new LinkedHashMap<String, Long>();
+    for (short phaseId = 0; phaseId < phaseTimes.length; phaseId++) {
+      if (phaseTimes[phaseId] != 0) {
+        phases.put(Phase.getName(phaseId), Long.valueOf(phaseTimes[phaseId]));
+      }
+    }
+    HashMap<String, Object> data = new HashMap<String, Object>();
+    data.put("gcNumber", Long.valueOf(fields[GCEventLog.GC_NUMBER]));
+    data.put("cause", cause);
+    data.put("fullHeap", Boolean.valueOf(fullHeap));
+    data.put("startTime", Long.valueOf(fields[GCEventLog.START_TIME]));
+    data.put("endTime", Long.valueOf(fields[GCEventLog.END_TIME]));
+    data.put("duration", Long.valueOf(duration));
+    data.put("bytesBefore", Long.valueOf(fields[GCEventLog.BYTES_BEFORE]));
+    data.put("bytesAfter", Long.valueOf(fields[GCEventLog.BYTES_AFTER]));
+    data.put("bytesPromoted", Long.valueOf(fields[GCEventLog.BYTES_PROMOTED]));
+    data.put("phases", phases);
+
+    String message = "GC " + fields[GCEventLog.GC_NUMBER] + " (" + cause +
+        (fullHeap ? ", full heap" : "") + ") " + (duration / 1000) + " us";
+    Notification notification = new Notification(GC_PAUSE_NOTIFICATION, Selected.name,
+        record, System.currentTimeMillis(), message);
+    notification.setUserData(data);
+    return notification;
+  }
+
 }
@@ -260,6 +260,7 @@ public class BootRecord {
   // mmap - memory mapping
   public Address sysMMapIP;
   public Address sysMMapErrnoIP;
+  public Address sysMUnmapIP;
   public Address sysMProtectIP;
 
   // threads
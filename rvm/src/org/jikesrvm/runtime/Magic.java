@@ -1454,6 +1454,31 @@ public final class Magic {
         }
     }
 
+    /**
+     * emit a MONITOR instruction arming the cache line of an address
+     * @param address address in the line to monitor
+     */
+    public static void monitor(Address address)
+    {
+        if (VM.runningVM && VM.VerifyAssertions)
+        {
+            VM._assert(VM.NOT_REACHED);  // call site should have been hijacked by magic in compiler
+        }
+    }
+
+    /**
+     * emit a MWAIT instruction that an interrupt ends even when interrupts
+     * are disabled. Check CpuId.hasMwaitInterruptBreak first.
+     * @param hint the C-state hint, target C-state - 1 in bits 7:4 and the sub state in bits 3:0
+     */
+    public static void mwait(int hint)
+    {
+        if (VM.runningVM && VM.VerifyAssertions)
+        {
+            VM._assert(VM.NOT_REACHED);  // call site should have been hijacked by magic in compiler
+        }
+    }
+
   /**
    * A hardware SQRT instruction.
    * <p>
@@ -224,6 +224,8 @@ public class MagicNames {
   public static final Atom ioStore = Atom.findOrCreateAsciiAtom("ioStore");
   
   public static final Atom halt = Atom.findOrCreateAsciiAtom("halt");
+  public static final Atom monitor = Atom.findOrCreateAsciiAtom("monitor");
+  public static final Atom mwait = Atom.findOrCreateAsciiAtom("mwait");
   public static final Atom yield = Atom.findOrCreateAsciiAtom("yield");
   public static final Atom dceil = Atom.findOrCreateAsciiAtom("dceil");
 
@@ -548,6 +548,19 @@ public class Memory {
     return mmap(address, size, prot, flags);
   }
 
+  /**
+   * Do munmap system call
+   * @param address  Start of address range
+   * @param size     Size of address range
+   * @return true iff success
+   */
+  public static boolean munmap(Address address, Extent size) {
+    if (VM.VerifyAssertions) {
+      VM._assert(isPageAligned(address) && isPageMultiple(size));
+    }
+    return SysCall.sysCall.sysMUnmap(address, size) == 0;
+  }
+
   /**
    * Do mprotect system call
    * @param address Start of address range (Address)
@@ -165,6 +165,9 @@ public abstract class SysCall {
   @SysCallTemplate
   public abstract Address sysMMapErrno(Address start, Extent length, int protection, int flags, int fd, Offset offset);
 
+  @SysCallTemplate
+  public abstract int sysMUnmap(Address start, Extent length);
+
   @SysCallTemplate
   public abstract int sysMProtect(Address start, Extent length, int prot);
 
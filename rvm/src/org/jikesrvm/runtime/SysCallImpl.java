@@ -3,12 +3,18 @@ package org.jikesrvm.runtime;
 import org.jam.cpu.intel.Tsc;
 import org.jam.driver.serial.PcBootSerialPort;
 import org.jam.math.Math;
+import org.jam.mm.PageFrameAllocator;
 import org.jikesrvm.VM;
 import org.vmmagic.unboxed.Offset;
 
 @org.vmmagic.pragma.Uninterruptible
 public final class SysCallImpl extends org.jikesrvm.runtime.SysCall
 {
+  // errno values and the mmap failure result
+  private static final int ENOMEM = 12;
+  private static final int ENODEV = 19;
+  private static final int MAX_ERRNO = 127;
+  private static final org.vmmagic.unboxed.Address MAP_FAILED = org.vmmagic.unboxed.Address.max();
 
   @java.lang.Override
   public void sysConsoleWriteChar(char v)
@@ -206,22 +212,27 @@ public final class SysCallImpl extends org.jikesrvm.runtime.SysCall
   @java.lang.Override
   public org.vmmagic.unboxed.Address sysMalloc(int length)
   {
-    VM.sysWriteln("MALLOC ", length);
-
-    return null;
+    return PageFrameAllocator.malloc(length);
   }
 
   @java.lang.Override
   public org.vmmagic.unboxed.Address sysCalloc(int length)
   {
-    VM.sysWriteln("CALLOC ", length);
-    return null;
+    org.vmmagic.unboxed.Address memory = PageFrameAllocator.malloc(length);
+    if (!memory.isZero())
+    {
+      sysZero(memory, org.vmmagic.unboxed.Extent.fromIntZeroExtend(length));
+    }
+    return memory;
   }
 
   @java.lang.Override
   public void sysFree(org.vmmagic.unboxed.Address location)
   {
-    VM.sysWriteln("FREE ", location);
+    if (!location.isZero())
+    {
+      PageFrameAllocator.free(location);
+    }
   }
 
   @java.lang.Override
@@ -234,16 +245,29 @@ public final class SysCallImpl extends org.jikesrvm.runtime.SysCall
   @java.lang.Override
   public void sysZero(org.vmmagic.unboxed.Address dst, org.vmmagic.unboxed.Extent cnt)
   {
-    for(int i=0; i < cnt.toInt(); i++)
+    org.vmmagic.unboxed.Address end = dst.plus(cnt);
+    // bytes up to a word boundary, then words, then the bytes left over
+    while (dst.LT(end) && !dst.toWord().and(org.vmmagic.unboxed.Word.fromIntZeroExtend(7)).isZero())
     {
-      dst.store((byte) 0, Offset.zero().plus(i));
+      dst.store((byte) 0);
+      dst = dst.plus(1);
+    }
+    while (dst.plus(8).LE(end))
+    {
+      dst.store(0L);
+      dst = dst.plus(8);
+    }
+    while (dst.LT(end))
+    {
+      dst.store((byte) 0);
+      dst = dst.plus(1);
     }
   }
 
   @java.lang.Override
   public void sysZeroPages(org.vmmagic.unboxed.Address dst, int cnt)
   {
-    VM.sysWriteln("ZEROPAGES ", dst);
+    sysZero(dst, org.vmmagic.unboxed.Extent.fromIntZeroExtend(cnt));
   }
 
   @java.lang.Override
@@ -317,24 +341,40 @@ public final class SysCallImpl extends org.jikesrvm.runtime.SysCall
   public org.vmmagic.unboxed.Address sysMMap(org.vmmagic.unboxed.Address start, org.vmmagic.unboxed.Extent length,
   int protection, int flags, int fd, org.vmmagic.unboxed.Offset offset)
   {
-    VM.sysWriteln("MMAP ", start);
-    VM.sysWrite(" ", length.toInt());
-    VM.sysWriteln(" ", offset.toInt());
-
-    return start;
+    org.vmmagic.unboxed.Address result = sysMMapErrno(start, length, protection, flags, fd, offset);
+    return result.LE(org.vmmagic.unboxed.Address.fromIntZeroExtend(MAX_ERRNO)) ? MAP_FAILED : result;
   }
 
   @java.lang.Override
   public org.vmmagic.unboxed.Address sysMMapErrno(org.vmmagic.unboxed.Address start, org.vmmagic.unboxed.Extent length,
   int protection, int flags, int fd, org.vmmagic.unboxed.Offset offset)
   {
-    VM.sysWrite("MMAP ERRNO ", start);
-    VM.sysWrite(" ", length.toInt());
-    VM.sysWriteln(" ", offset.toInt());
-
+    // there are no files, only anonymous memory from the page frame allocator
+    if (fd != -1)
+    {
+      return org.vmmagic.unboxed.Address.fromIntZeroExtend(ENODEV);
+    }
+    // only the frames that aren't zero already are cleared
+    if ((flags & Memory.MAP_FIXED) == 0)
+    {
+      org.vmmagic.unboxed.Address memory = PageFrameAllocator.allocZeroedPages(PageFrameAllocator.orderOf(length));
+      return memory.isZero() ? org.vmmagic.unboxed.Address.fromIntZeroExtend(ENOMEM) : memory;
+    }
+    if (!PageFrameAllocator.claim(start, length))
+    {
+      return org.vmmagic.unboxed.Address.fromIntZeroExtend(ENOMEM);
+    }
+    PageFrameAllocator.zeroDirty(start, length);
     return start;
   }
 
+  @java.lang.Override
+  public int sysMUnmap(org.vmmagic.unboxed.Address start, org.vmmagic.unboxed.Extent length)
+  {
+    PageFrameAllocator.release(start, length);
+    return 0;
+  }
+
   @java.lang.Override
   public int sysMProtect(org.vmmagic.unboxed.Address start, org.vmmagic.unboxed.Extent length, int prot)
   {
@@ -6,9 +6,10 @@
  */
 package org.jikesrvm.scheduler;
 
+import org.jam.board.pc.IdleGovernor;
+import org.jam.mm.PageFrameAllocator;
 import org.jikesrvm.VM;
 import org.jikesrvm.mm.mminterface.MemoryManager;
-import org.jikesrvm.runtime.Magic;
 import org.vmmagic.pragma.NonMoving;
 import org.vmmagic.unboxed.ObjectReference;
 
@@ -38,12 +39,16 @@ public class IdleThread extends SystemThread
 	public void run() {
 		VM.sysWriteln("Starting the Idle Thread");
 		/*
-		 * For now just pause because we will be doing is spinning until a process
-		 * becomes available. Later on may want to do some power saving stuff.
+		 * Zero free memory ahead of time while there is nothing else to do,
+		 * a piece at a time so a thread that becomes ready isn't held up.
+		 * Once it is all zeroed let the governor put the cpu to sleep
+		 * until the next timer deadline or interrupt.
 		 */
 		int idling = 0;
 		while (true) {
-			Magic.halt();
+			if (!PageFrameAllocator.zeroIdlePages()) {
+				IdleGovernor.idle();
+			}
 		}
 
 	}
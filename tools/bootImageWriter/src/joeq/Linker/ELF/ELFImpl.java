@@ -165,7 +165,8 @@ abstract class ELFImpl implements ELF, ELFConstants {
         Iterator<Integer> offsetIter = offsets.iterator();
         while (pi.hasNext()) {
             ProgramHeader p = (ProgramHeader)pi.next();
-            p.setOffset(offsetIter.next());
+            // segments with nothing in the file have no section
+            p.setOffset(p.getFileSz() == 0 ? 0 : offsetIter.next());
             p.writeHeader(this);
         }
         
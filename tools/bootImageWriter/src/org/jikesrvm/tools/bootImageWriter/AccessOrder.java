@@ -0,0 +1,230 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.jikesrvm.tools.bootImageWriter;
+
+import static org.jikesrvm.tools.bootImageWriter.BootImageWriterMessages.say;
+import static org.jikesrvm.tools.bootImageWriter.Verbosity.SUMMARY;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.StringTokenizer;
+
+import org.jikesrvm.VM;
+import org.jikesrvm.classloader.MemberReference;
+import org.jikesrvm.classloader.MethodReference;
+import org.jikesrvm.classloader.RVMClass;
+import org.jikesrvm.classloader.RVMField;
+import org.jikesrvm.classloader.RVMMethod;
+import org.jikesrvm.compilers.common.CompiledMethod;
+import org.jikesrvm.runtime.Statics;
+import org.vmmagic.unboxed.Offset;
+
+/**
+ * Places the boot image objects a training run touched ahead of everything
+ * else, and the code it never ran behind everything else, so the working
+ * set of a booted JOE is packed into as few cache lines and TLB entries as
+ * possible.
+ * <p>
+ * The trace is the console log of a training run that called
+ * {@code org.jam.runtime.ProfileDump}, with an image built with
+ * {@code -X:bc:profile_edge_counters=true}. The counts are cumulative, so
+ * the first dump in the log is taken as startup and the difference between
+ * the last and the first as steady state:
+ * <ol>
+ *   <li>methods run in steady state, most branches first,
+ *   <li>methods only run during startup, most branches first,
+ *   <li>everything the trace says nothing about, in the usual order,
+ *   <li>machine code of methods with counters that never ran.
+ * </ol>
+ * For a hot method its code, compiled method, {@code RVMMethod}, declaring
+ * class, TIB and the objects in the class's static fields are placed
+ * together. Methods without branches have no counters and are not in the
+ * trace, so they are never treated as cold.
+ */
+public class AccessOrder {
+
+  private static final String BEGIN = "=== JOE PROFILE BEGIN ===";
+  private static final String END = "=== JOE PROFILE END ===";
+  private static final String EDGES = "--- edges";
+
+  /** Branch counts of each dump in the log, in log order */
+  private final ArrayList<Map<MethodReference, Long>> dumps = new ArrayList<Map<MethodReference, Long>>();
+
+  /** Objects to place first, in order */
+  private final ArrayList<Object> hotObjects = new ArrayList<Object>();
+
+  /** Objects to place last */
+  private final IdentityHashMap<Object, Object> coldObjects = new IdentityHashMap<Object, Object>();
+
+  /**
+   * @param fileName console log of the training run
+   * @throws IOException if the log can't be read
+   */
+  public AccessOrder(String fileName) throws IOException {
+    BufferedReader in = new BufferedReader(new FileReader(fileName));
+    Map<MethodReference, Long> counts = null;
+    boolean inEdges = false;
+    MethodReference current = null;
+    for (String s = in.readLine(); s != null; s = in.readLine()) {
+      s = s.trim();
+      if (s.equals(BEGIN)) {
+        counts = new LinkedHashMap<MethodReference, Long>();
+        current = null;
+        inEdges = false;
+      } else if (counts == null) {
+        continue;
+      } else if (s.equals(END)) {
+        dumps.add(counts);
+        counts = null;
+      } else if (s.startsWith("---")) {
+        inEdges = s.equals(EDGES);
+      } else if (inEdges && s.length() > 0) {
+        s = s.replaceAll("\\{urls[^\\}]*\\}", ""); // strip classloader cruft we can't parse
+        StringTokenizer parser = new StringTokenizer(s, " \t\n\r\f,{}");
+        if (parser.nextToken().equals("M")) {
+          parser.nextToken(); // number of counters
+          MemberReference ref = MemberReference.parse(parser);
+          current = ref == null ? null : ref.asMethodReference();
+          if (current != null && !counts.containsKey(current)) counts.put(current, 0L);
+        } else if (current != null) {
+          // <bci> <kind> < counts... >
+          boolean inCounts = false;
+          long count = 0;
+          while (parser.hasMoreTokens()) {
+            String t = parser.nextToken();
+            if (t.equals("<")) {
+              inCounts = true;
+            } else if (t.equals(">")) {
+              break;
+            } else if (inCounts) {
+              count += Long.parseLong(t);
+            }
+          }
+          counts.put(current, counts.get(current) + count);
+        }
+      }
+    }
+    in.close();
+  }
+
+  /**
+   * Work out the placement. The methods must have been compiled and the
+   * statics initialized.
+   */
+  public void run() {
+    if (dumps.isEmpty()) {
+      say("no profile found for -order, using the default placement");
+      return;
+    }
+    Map<MethodReference, Long> startup = dumps.get(0);
+    Map<MethodReference, Long> last = dumps.get(dumps.size() - 1);
+    ArrayList<Map.Entry<RVMMethod, Long>> steady = new ArrayList<Map.Entry<RVMMethod, Long>>();
+    ArrayList<Map.Entry<RVMMethod, Long>> startupOnly = new ArrayList<Map.Entry<RVMMethod, Long>>();
+    HashSet<RVMMethod> seen = new HashSet<RVMMethod>();
+    HashSet<RVMMethod> ran = new HashSet<RVMMethod>();
+    for (Map.Entry<MethodReference, Long> e : last.entrySet()) {
+      RVMMethod method = e.getKey().peekResolvedMethod();
+      if (method == null || !seen.add(method)) continue;
+      Long before = dumps.size() > 1 ? startup.get(e.getKey()) : null;
+      long delta = e.getValue() - (before == null ? 0 : before);
+      if (delta > 0) {
+        steady.add(new AbstractMap.SimpleEntry<RVMMethod, Long>(method, delta));
+        ran.add(method);
+      } else if (e.getValue() > 0) {
+        startupOnly.add(new AbstractMap.SimpleEntry<RVMMethod, Long>(method, e.getValue()));
+        ran.add(method);
+      }
+    }
+    Comparator<Map.Entry<RVMMethod, Long>> byCount = new Comparator<Map.Entry<RVMMethod, Long>>() {
+      @Override
+      public int compare(Map.Entry<RVMMethod, Long> a, Map.Entry<RVMMethod, Long> b) {
+        return b.getValue().compareTo(a.getValue());
+      }
+    };
+    Collections.sort(steady, byCount);
+    Collections.sort(startupOnly, byCount);
+
+    IdentityHashMap<Object, Object> placed = new IdentityHashMap<Object, Object>();
+    for (Map.Entry<RVMMethod, Long> e : steady) addHotMethod(e.getKey(), placed);
+    for (Map.Entry<RVMMethod, Long> e : startupOnly) addHotMethod(e.getKey(), placed);
+
+    for (RVMMethod method : seen) {
+      if (ran.contains(method)) continue;
+      CompiledMethod cm = method.getCurrentCompiledMethod();
+      if (cm != null && !placed.containsKey(cm.getEntryCodeArray())) {
+        coldObjects.put(cm.getEntryCodeArray(), cm);
+      }
+    }
+    if (BootImageWriter.verbosity().isAtLeast(SUMMARY)) {
+      say("access order: " + steady.size() + " steady state and " + startupOnly.size() +
+          " startup methods hot, " + coldObjects.size() + " cold, from " + dumps.size() + " profile dumps");
+    }
+  }
+
+  /**
+   * Add a method's code and the objects it is most likely to use
+   */
+  private void addHotMethod(RVMMethod method, IdentityHashMap<Object, Object> placed) {
+    CompiledMethod cm = method.getCurrentCompiledMethod();
+    if (cm != null) {
+      addHot(cm.getEntryCodeArray(), placed);
+      addHot(cm, placed);
+    }
+    addHot(method, placed);
+    RVMClass cls = method.getDeclaringClass();
+    if (placed.containsKey(cls)) return;
+    addHot(cls, placed);
+    addHot(cls.getTypeInformationBlock(), placed);
+    if (cls.isInitializedAtRuntime()) return;
+    for (RVMField field : cls.getStaticFields()) {
+      if (!field.isReferenceType()) continue;
+      Offset jtocOff = field.getOffset();
+      int objCookie;
+      if (VM.BuildFor32Addr)
+        objCookie = Statics.getSlotContentsAsInt(jtocOff);
+      else
+        objCookie = (int) Statics.getSlotContentsAsLong(jtocOff);
+      addHot(BootImageMap.getObject(objCookie), placed);
+    }
+  }
+
+  private void addHot(Object jdkObject, IdentityHashMap<Object, Object> placed) {
+    if (jdkObject != null && placed.put(jdkObject, jdkObject) == null) {
+      hotObjects.add(jdkObject);
+    }
+  }
+
+  /**
+   * @return the objects to copy into the image before any others, in order
+   */
+  public ArrayList<Object> getHotObjects() {
+    return hotObjects;
+  }
+
+  /**
+   * @param jdkObject an object about to be copied into the image
+   * @return whether the object should be held back until everything else is copied
+   */
+  public boolean isCold(Object jdkObject) {
+    return coldObjects.containsKey(jdkObject);
+  }
+}
@@ -161,6 +161,13 @@ public class BootImage implements BootImageInterface {
     private SymTabSection symbolTable;
     private StrTabSection stringTable;
 
+    /**
+     * Where the loader puts a compressed image: the first page after the
+     * largest possible reference map
+     */
+    public static final Address COMPRESSED_IMAGE_START =
+        Address.fromIntZeroExtend((BOOT_IMAGE_RMAP_START.toInt() + MAX_BOOT_IMAGE_RMAP_SIZE + 0xFFF) & ~0xFFF);
+
   /**
    * @param ltlEndian write words low-byte first?
    * @param t turn tracing on?
@@ -193,12 +200,13 @@ public class BootImage implements BootImageInterface {
         symbolTable = new Section.SymTabSection(".symtab", Section.SHF_ALLOC, 0, stringTable);
     }
 
-    public void writeElfFile(byte[] startupCode) throws IOException
+    public void writeElfFile(byte[] startupCode, boolean compress) throws IOException
     {
         RandomAccessFile execFile = new RandomAccessFile(jamoutFile, "rw");
         // truncate the file
         execFile.setLength(0);
         ELFRandomAccessFile elf = new ELFRandomAccessFile(ELFDATA2LSB, ET_EXEC, EM_386, 0x100000, execFile);
+        byte[] compressedImage = compress ? compressImage() : null;
 
         /*
          * Setup the startup code
@@ -208,35 +216,75 @@ public class BootImage implements BootImageInterface {
         LoadProgramHeader programHeader = new LoadProgramHeader(PF_X | PF_R | PF_W, 0x100000, 0x1000,
         startupCode.length, 0x8000);
         elf.addProgramHeader(programHeader);
-        programHeader = new LoadProgramHeader(PF_X | PF_R | PF_W, BOOT_IMAGE_CODE_START.toInt(), 0x1000, getCodeSize(),
-        BOOT_IMAGE_CODE_SIZE);
+        if (compressedImage != null)
+        {
+            /*
+             * The loader only clears the image sections; the startup code
+             * unpacks the compressed image into them
+             */
+            programHeader = new LoadProgramHeader(PF_R | PF_W, COMPRESSED_IMAGE_START.toInt(), 0x1000,
+            compressedImage.length, compressedImage.length);
+            elf.addProgramHeader(programHeader);
+        }
+        programHeader = new LoadProgramHeader(PF_X | PF_R | PF_W, BOOT_IMAGE_CODE_START.toInt(), 0x1000,
+        compress ? 0 : getCodeSize(), BOOT_IMAGE_CODE_SIZE);
         elf.addProgramHeader(programHeader);
-        programHeader = new LoadProgramHeader(PF_X | PF_R | PF_W, BOOT_IMAGE_DATA_START.toInt(), 0x1000, getDataSize(),
-        BOOT_IMAGE_DATA_SIZE);
+        programHeader = new LoadProgramHeader(PF_X | PF_R | PF_W, BOOT_IMAGE_DATA_START.toInt(), 0x1000,
+        compress ? 0 : getDataSize(), BOOT_IMAGE_DATA_SIZE);
         elf.addProgramHeader(programHeader);
-        programHeader = new LoadProgramHeader(PF_X | PF_R | PF_W, BOOT_IMAGE_RMAP_START.toInt(), 0x1000, getRMapSize(),
-        MAX_BOOT_IMAGE_RMAP_SIZE);
+        programHeader = new LoadProgramHeader(PF_X | PF_R | PF_W, BOOT_IMAGE_RMAP_START.toInt(), 0x1000,
+        compress ? 0 : getRMapSize(), MAX_BOOT_IMAGE_RMAP_SIZE);
         elf.addProgramHeader(programHeader);
         elf.addSection(Section.NullSection.INSTANCE);
         Section section = new Section.ProgBitsSectionImpl(".init",
         Section.SHF_ALLOC | Section.SHF_EXECINSTR | Section.SHF_WRITE, 0x100000, 0x1000, startupCode);
         elf.addSection(section);
-        section = new Section.ProgBitsSectionImpl(".text",
-        Section.SHF_ALLOC | Section.SHF_EXECINSTR | Section.SHF_WRITE, BOOT_IMAGE_CODE_START.toInt(), 0x1000,
-        bootImageCode.array());
-        elf.addSection(section);
-        section = new Section.ProgBitsSectionImpl(".data", Section.SHF_ALLOC | Section.SHF_WRITE,
-        BOOT_IMAGE_DATA_START.toInt(), 0x1000, bootImageData.array());
-        elf.addSection(section);
-        section = new Section.ProgBitsSectionImpl(".rodata", Section.SHF_ALLOC, BOOT_IMAGE_RMAP_START.toInt(), 0x1000,
-        bootImageRMap);
-        elf.addSection(section);
+        if (compressedImage != null)
+        {
+            section = new Section.ProgBitsSectionImpl(".jamz", Section.SHF_ALLOC | Section.SHF_WRITE,
+            COMPRESSED_IMAGE_START.toInt(), 0x1000, compressedImage);
+            elf.addSection(section);
+            // keep the sections so the symbols still resolve
+            elf.addSection(new Section.NoBitsSection(".text", Section.SHF_ALLOC | Section.SHF_EXECINSTR | Section.SHF_WRITE,
+            BOOT_IMAGE_CODE_START.toInt(), getCodeSize(), 0x1000));
+            elf.addSection(new Section.NoBitsSection(".data", Section.SHF_ALLOC | Section.SHF_WRITE,
+            BOOT_IMAGE_DATA_START.toInt(), getDataSize(), 0x1000));
+            elf.addSection(new Section.NoBitsSection(".rodata", Section.SHF_ALLOC,
+            BOOT_IMAGE_RMAP_START.toInt(), getRMapSize(), 0x1000));
+        }
+        else
+        {
+            section = new Section.ProgBitsSectionImpl(".text",
+            Section.SHF_ALLOC | Section.SHF_EXECINSTR | Section.SHF_WRITE, BOOT_IMAGE_CODE_START.toInt(), 0x1000,
+            bootImageCode.array());
+            elf.addSection(section);
+            section = new Section.ProgBitsSectionImpl(".data", Section.SHF_ALLOC | Section.SHF_WRITE,
+            BOOT_IMAGE_DATA_START.toInt(), 0x1000, bootImageData.array());
+            elf.addSection(section);
+            section = new Section.ProgBitsSectionImpl(".rodata", Section.SHF_ALLOC, BOOT_IMAGE_RMAP_START.toInt(), 0x1000,
+            bootImageRMap);
+            elf.addSection(section);
+        }
         elf.addSection(symbolTable);
         elf.addSection(stringTable);
         elf.write();
         execFile.close();
     }
 
+    /**
+     * Compress the used part of the code, data and reference map sections
+     */
+    private byte[] compressImage()
+    {
+        ImageCompressor compressor = new ImageCompressor();
+        compressor.addSection(BOOT_IMAGE_CODE_START.toInt(), bootImageCode.array(), getCodeSize());
+        compressor.addSection(BOOT_IMAGE_DATA_START.toInt(), bootImageData.array(), getDataSize());
+        compressor.addSection(BOOT_IMAGE_RMAP_START.toInt(), bootImageRMap, getRMapSize());
+        byte[] image = compressor.finish();
+        say("compressed image: " + (compressor.getUncompressedSize() / 1024) + "k to " + (image.length / 1024) + "k");
+        return image;
+    }
+
     public void createSymbolTable()
     {
         for (int i = 0; i < CompiledMethods.numCompiledMethods(); ++i)
@@ -41,6 +41,7 @@ import static org.jikesrvm.tools.bootImageWriter.Verbosity.TYPE_NAMES;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.LineNumberReader;
@@ -54,7 +55,9 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
+import java.util.Map;
 import java.util.PriorityQueue;
 import java.util.Queue;
 import java.util.Vector;
@@ -75,6 +78,7 @@ import org.jikesrvm.classloader.RVMMember;
 import org.jikesrvm.classloader.RVMType;
 import org.jikesrvm.classloader.TypeDescriptorParsing;
 import org.jikesrvm.classloader.TypeReference;
+import org.jikesrvm.compilers.baseline.BaselineBootImageCompiler;
 import org.jikesrvm.compilers.common.CodeArray;
 import org.jikesrvm.compilers.common.CompiledMethods;
 import org.jikesrvm.compilers.common.LazyCompilationTrampoline;
@@ -129,6 +133,17 @@ import org.vmmagic.unboxed.Word;
  *    -profile                 time major phases of bootimage writing
  *    -xclasspath <path>       OBSOLETE compatibility aid
  *    -numThreads=N            number of parallel compilation threads we should create
+ *    -treeshake               leave types unreachable from the boot entry points out
+ *                                  of the bootimage
+ *    -treeshake-methods       also leave unreachable methods to lazy compilation
+ *    -treeshake-roots <file>  extra reachability roots, one class or class#method per line
+ *    -treeshake-report <file> place to write what was removed and why
+ *    -buildtimeinit <file>    class initializers and warm-up methods to run on the host,
+ *                                  and classes to initialize at run time
+ *    -order <log>             place the objects and code a profiled training run
+ *                                  touched first and code it never ran last
+ *    -compress                compress the image sections and unpack them in the
+ *                                  startup code
  *
  * </pre>
  */
@@ -302,6 +317,46 @@ public class BootImageWriter {
    */
   private static boolean profile = false;
 
+  /**
+   * Leave types that can't be reached from the boot entry points out of
+   * the bootimage?
+   */
+  private static boolean treeShake = false;
+
+  /**
+   * Also leave unreachable methods of the remaining types to lazy compilation?
+   */
+  private static boolean treeShakeMethods = false;
+
+  /**
+   * Extra reachability roots and where to report what was removed
+   */
+  private static String treeShakeRootsFile;
+  private static String treeShakeReportFile;
+
+  /**
+   * Which classes to initialize on the host and which at run time
+   */
+  private static String buildTimeInitFile;
+
+  /**
+   * Training run log used to place hot objects first and cold code last
+   */
+  private static String accessOrderFile;
+  private static AccessOrder accessOrder;
+
+  /**
+   * Write the image sections compressed?
+   */
+  private static boolean compressImage;
+
+  /**
+   * Hold back cold entries while copying? Only set while the statics are
+   * being copied.
+   */
+  private static boolean deferColdEntries;
+  private static final ArrayList<BootImageMap.Entry> coldEntries = new ArrayList<BootImageMap.Entry>();
+
   /**
    * Global trace context.
    */
@@ -476,6 +531,48 @@ public class BootImageWriter {
         numThreads = desiredThreadCount;
         continue;
       }
+      // remove unreachable types
+      if (args[i].equals("-treeshake")) {
+        treeShake = true;
+        continue;
+      }
+      // also remove unreachable methods
+      if (args[i].equals("-treeshake-methods")) {
+        treeShake = true;
+        treeShakeMethods = true;
+        continue;
+      }
+      if (args[i].equals("-treeshake-roots")) {
+        if (++i >= args.length)
+          fail("argument syntax error: Got a -treeshake-roots flag without a following roots file");
+        treeShakeRootsFile = args[i];
+        continue;
+      }
+      if (args[i].equals("-treeshake-report")) {
+        if (++i >= args.length)
+          fail("argument syntax error: Got a -treeshake-report flag without a following report file");
+        treeShakeReportFile = args[i];
+        continue;
+      }
+      // class initialization directives
+      if (args[i].equals("-buildtimeinit")) {
+        if (++i >= args.length)
+          fail("argument syntax error: Got a -buildtimeinit flag without a following directives file");
+        buildTimeInitFile = args[i];
+        continue;
+      }
+      // locality ordering from a training run
+      if (args[i].equals("-order")) {
+        if (++i >= args.length)
+          fail("argument syntax error: Got a -order flag without a following profile log");
+        accessOrderFile = args[i];
+        continue;
+      }
+      // compressed image
+      if (args[i].equals("-compress")) {
+        compressImage = true;
+        continue;
+      }
       // profile
       if (args[i].equals("-profile")) {
         profile = true;
@@ -693,8 +790,28 @@ public class BootImageWriter {
     // that was generated by object address remapper with the actual
     // bootimage address of that object.
     //
+    if (accessOrderFile != null) {
+      if (verbosity.isAtLeast(SUMMARY)) say("copying hot objects");
+      try {
+        accessOrder = new AccessOrder(accessOrderFile);
+        accessOrder.run();
+        for (Object jdkObject : accessOrder.getHotObjects()) {
+          BootImageMap.Entry mapEntry = BootImageMap.findOrCreateEntry(jdkObject);
+          if (mapEntry.imageAddress.EQ(OBJECT_NOT_ALLOCATED)) {
+            mapEntry.imageAddress = copyToBootImage(jdkObject, false, Address.max(), null, false, AlignmentEncoding.ALIGN_CODE_NONE);
+            fixupLinkAddresses(mapEntry);
+          }
+        }
+      } catch (IOException e) {
+        fail("can't read " + accessOrderFile + ": " + e);
+      } catch (IllegalAccessException e) {
+        fail("unable to copy hot objects: " + e);
+      }
+    }
+
     if (verbosity.isAtLeast(SUMMARY)) say("copying statics");
     try {
+      deferColdEntries = accessOrder != null;
       int refSlotSize = Statics.getReferenceSlotSize();
       for (int i = Statics.middleOfTable + refSlotSize, n = Statics.getHighestInUseSlot();
            i <= n;
@@ -725,6 +842,17 @@ public class BootImageWriter {
       }
       // Copy entries that are in the pending queue
       processPendingEntries();
+      // Copy entries held back as cold
+      deferColdEntries = false;
+      for (BootImageMap.Entry mapEntry : coldEntries) {
+        mapEntry.clearPendingEntry();
+        if (mapEntry.imageAddress.EQ(OBJECT_NOT_ALLOCATED)) {
+          mapEntry.imageAddress = copyToBootImage(mapEntry.jdkObject, false, Address.max(), null, false, AlignmentEncoding.ALIGN_CODE_NONE);
+        }
+        fixupLinkAddresses(mapEntry);
+        processPendingEntries();
+      }
+      coldEntries.clear();
       // Find and copy unallocated entries
       for (int i = 0; i < BootImageMap.objectIdToEntry.size(); i++) {
         BootImageMap.Entry mapEntry = BootImageMap.objectIdToEntry.get(i);
@@ -801,8 +929,9 @@ public class BootImageWriter {
     	say("Creating x86 startup code ... \nsp: "+Integer.toHexString(bootRecord.spRegister.toInt()) + " start: " +
     			Integer.toHexString(bootRecord.ipRegister.toInt()));
     	Address tr = bootRecord.tocRegister.plus(bootRecord.bootThreadOffset);
-//    	startup = new GenerateX86Startup(bootRecord);
-        startup = new GenerateIA32EStartup(bootRecord);
+        Address compressedImage = compressImage ? BootImage.COMPRESSED_IMAGE_START : null;
+//    	startup = new GenerateX86Startup(bootRecord, compressedImage);
+        startup = new GenerateIA32EStartup(bootRecord, compressedImage);
     	startup.writeImage(bootImageStartupName);
     }
     //
@@ -815,7 +944,7 @@ public class BootImageWriter {
 //    	say("writing image files");
       bootImage.write();
 //    	say("writing elf file");
-        bootImage.writeElfFile(startup.getArray());
+        bootImage.writeElfFile(startup.getArray(), compressImage);
     	// bootImage.writeMultiboot(startup.getArray());
       say("File writing done");
     } catch (IOException e) {
@@ -1108,6 +1237,7 @@ public class BootImageWriter {
       if (verbosity.isAtLeast(SUMMARY)) say("loading");
       if (profile) startTime = System.currentTimeMillis();
 
+      LinkedHashMap<String, RVMType> loadedTypes = new LinkedHashMap<String, RVMType>();
       for (String typeName : typeNames) {
         //
         // get type name
@@ -1139,7 +1269,6 @@ public class BootImageWriter {
                "\", which does not parse as a legal type name: " + ila);
           return;               // NOTREACHED
         }
-        type.markAsBootImageClass();
 
         //
         // convert type name from internal form to external form
@@ -1152,10 +1281,7 @@ public class BootImageWriter {
         if (typeName.startsWith("L"))
           typeName = typeName.substring(1, typeName.length() - 1);
 
-        //
-        // record name/type pair for later lookup by getRvmType()
-        //
-        BootImageTypes.record(typeName, type);
+        loadedTypes.put(typeName, type);
       }
 
       if (profile) {
@@ -1163,6 +1289,71 @@ public class BootImageWriter {
         System.out.println("PROF: \tloading types " + (stopTime - startTime) + " ms");
       }
 
+      //
+      // Run designated class initializers and warm-up code on the host so
+      // the objects they create are copied into the image.
+      //
+      if (buildTimeInitFile != null) {
+        if (verbosity.isAtLeast(SUMMARY)) say("build time initialization");
+        if (profile) startTime = System.currentTimeMillis();
+        try {
+          BuildTimeInitialization init = new BuildTimeInitialization(buildTimeInitFile);
+          init.markRuntimeClasses(loadedTypes);
+          init.run();
+        } catch (IOException e) {
+          fail("can't read " + buildTimeInitFile + ": " + e);
+        }
+        if (profile) {
+          stopTime = System.currentTimeMillis();
+          System.out.println("PROF: \tbuild time initialization " + (stopTime - startTime) + " ms");
+        }
+      }
+
+      //
+      // Find the types reachable from the boot entry points.
+      //
+      ReachabilityAnalysis reachability = null;
+      if (treeShake) {
+        if (verbosity.isAtLeast(SUMMARY)) say("finding reachable types");
+        if (profile) startTime = System.currentTimeMillis();
+        reachability = new ReachabilityAnalysis(loadedTypes);
+        if (treeShakeRootsFile != null) {
+          try {
+            reachability.readRoots(treeShakeRootsFile);
+          } catch (IOException e) {
+            fail("can't read " + treeShakeRootsFile + ": " + e);
+          }
+        }
+        reachability.run();
+        if (treeShakeMethods) reachability.deferUnreachableMethods();
+        if (treeShakeReportFile != null) {
+          try {
+            PrintStream out = new PrintStream(new FileOutputStream(treeShakeReportFile));
+            reachability.report(out);
+            out.close();
+          } catch (IOException e) {
+            fail("can't write " + treeShakeReportFile + ": " + e);
+          }
+        }
+        if (profile) {
+          stopTime = System.currentTimeMillis();
+          System.out.println("PROF: \treachability " + (stopTime - startTime) + " ms");
+        }
+      }
+
+      for (Map.Entry<String, RVMType> entry : loadedTypes.entrySet()) {
+        RVMType type = entry.getValue();
+        if (reachability != null && !reachability.isReachable(type)) {
+          if (verbosity.isAtLeast(DETAILED)) say("removing unreachable " + type);
+          continue;
+        }
+        type.markAsBootImageClass();
+        //
+        // record name/type pair for later lookup by getRvmType()
+        //
+        BootImageTypes.record(entry.getKey(), type);
+      }
+
       int typeCount = BootImageTypes.typeCount();
       JMXSupport.CLASS_LOADING_JMX_SUPPORT.setClassLoadedCountForBootimage(typeCount);
       if (verbosity.isAtLeast(SUMMARY)) say(String.valueOf(typeCount), " types");
@@ -1284,6 +1475,10 @@ public class BootImageWriter {
         stopTime = System.currentTimeMillis();
         System.out.println("PROF: \tinstantiating types " + (stopTime - startTime) + " ms");
       }
+      String cacheStatistics = BaselineBootImageCompiler.getCacheStatistics();
+      if (cacheStatistics != null && verbosity.isAtLeast(SUMMARY)) {
+        say(cacheStatistics);
+      }
 
       // Free up unnecessary Statics data structures
       MethodAddressMap.setStaticsJunk(Statics.bootImageInstantiationFinished());
@@ -1346,6 +1541,8 @@ public class BootImageWriter {
         if (verbosity.isAtLeast(SUMMARY)) say("  jtoc for ", rvmType.toString());
         if (!rvmType.isClassType())
           continue; // arrays and primitives have no static fields
+        if (rvmType.asClass().isInitializedAtRuntime())
+          continue; // statics are set by <clinit> on first use
 
         Class<?> jdkType = BootImageTypes.getJdkType(rvmType);
         if (jdkType == null && verbosity.isAtLeast(SUMMARY)) {
@@ -1495,6 +1692,11 @@ public class BootImageWriter {
   private static void processPendingEntries() throws IllegalAccessException {
     while (!pendingEntries.isEmpty()) {
       BootImageMap.Entry mapEntry = pendingEntries.remove();
+      if (deferColdEntries && accessOrder.isCold(mapEntry.jdkObject)) {
+        // stays marked as pending so it isn't queued again
+        coldEntries.add(mapEntry);
+        continue;
+      }
       mapEntry.clearPendingEntry();
       if (mapEntry.imageAddress.EQ(OBJECT_NOT_ALLOCATED)) {
         mapEntry.imageAddress = copyToBootImage(mapEntry.jdkObject, false, Address.max(), null, false, AlignmentEncoding.ALIGN_CODE_NONE);
@@ -1562,6 +1764,7 @@ public class BootImageWriter {
         if (verbosity.isAtLeast(DETAILED)) depth--;
         return OBJECT_NOT_PRESENT; // object not part of bootimage
       }
+      if (overwriteAddress.isMax()) BuildTimeInitialization.checkCopiedInstance(rvmType, parentObject);
 
       // copy object to image
       if (jdkType.isArray()) {
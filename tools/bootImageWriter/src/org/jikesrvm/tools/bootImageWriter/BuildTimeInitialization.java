@@ -0,0 +1,168 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.jikesrvm.tools.bootImageWriter;
+
+import static org.jikesrvm.tools.bootImageWriter.BootImageWriterMessages.fail;
+import static org.jikesrvm.tools.bootImageWriter.BootImageWriterMessages.say;
+import static org.jikesrvm.tools.bootImageWriter.Verbosity.SUMMARY;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.LineNumberReader;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Map;
+
+import org.jikesrvm.classloader.RVMClass;
+import org.jikesrvm.classloader.RVMType;
+
+/**
+ * Controls which class initializers run on the host while the boot image is
+ * written. The static fields of boot image classes are copied from the host
+ * JVM, so a class initialized on the host has its object graph snapshotted
+ * into the image and its {@code <clinit>} doesn't run again when JOE boots.
+ * <p>
+ * The file given with {@code -buildtimeinit} has one directive per line;
+ * text after {@code //} is ignored:
+ * <pre>
+ *   init    org.jam.app.Config            run the class initializer on the host, in file order
+ *   warmup  org.jam.app.Config#prepare    then call a static no-argument method on the host
+ *   runtime org.jam.driver.Probe          don't initialize early: run &lt;clinit&gt; on first use in JOE
+ * </pre>
+ * All {@code init} directives run before the {@code warmup} methods.
+ * Classes listed as {@code runtime} are the safety list for initializers
+ * that read hardware, the clock or other boot time state. Their statics
+ * are not copied and an instance of one found in the image data fails the
+ * build, since it would have been created by host code.
+ */
+public class BuildTimeInitialization {
+
+  private final ArrayList<String> initClasses = new ArrayList<String>();
+  private final ArrayList<String> warmupMethods = new ArrayList<String>();
+  private final ArrayList<String> runtimeClasses = new ArrayList<String>();
+
+  /** Types already warned about by {@link #checkCopiedInstance} */
+  private static final HashSet<RVMType> reported = new HashSet<RVMType>();
+
+  /**
+   * @param fileName the directives file
+   * @throws IOException if the file can't be read
+   */
+  public BuildTimeInitialization(String fileName) throws IOException {
+    LineNumberReader in = new LineNumberReader(new FileReader(fileName));
+    String line;
+    while ((line = in.readLine()) != null) {
+      int index = line.indexOf("//");
+      if (index >= 0) line = line.substring(0, index);
+      String[] words = line.trim().split("\\s+");
+      if (words.length == 1 && words[0].length() == 0) continue;
+      if (words.length != 2) {
+        fail(fileName + ":" + in.getLineNumber() + ": expected a directive and a name");
+      }
+      if (words[0].equals("init")) {
+        initClasses.add(words[1]);
+      } else if (words[0].equals("warmup")) {
+        if (words[1].indexOf('#') < 0) {
+          fail(fileName + ":" + in.getLineNumber() + ": warmup needs class#method");
+        }
+        warmupMethods.add(words[1]);
+      } else if (words[0].equals("runtime")) {
+        runtimeClasses.add(words[1]);
+      } else {
+        fail(fileName + ":" + in.getLineNumber() + ": unknown directive " + words[0]);
+      }
+    }
+    in.close();
+  }
+
+  /**
+   * Mark the classes that must not be initialized early. This must happen
+   * before the types are instantiated so their accesses are compiled with
+   * dynamic linking and their initializers aren't treated as having run.
+   *
+   * @param types the loaded boot image types keyed by host class name
+   */
+  public void markRuntimeClasses(Map<String, RVMType> types) {
+    for (String name : runtimeClasses) {
+      RVMType type = types.get(name);
+      if (type == null || !type.isClassType()) {
+        fail(name + " is listed to be initialized at run time but is not a boot image class");
+        return;
+      }
+      type.asClass().markForRuntimeInitialization();
+    }
+  }
+
+  /**
+   * Run the listed class initializers and warm-up methods on the host.
+   */
+  public void run() {
+    for (String name : initClasses) {
+      if (runtimeClasses.contains(name)) {
+        fail(name + " is listed to be initialized both at build time and at run time");
+      }
+      if (BootImageWriter.verbosity().isAtLeast(SUMMARY)) say("initializing ", name);
+      try {
+        Class.forName(name, true, BuildTimeInitialization.class.getClassLoader());
+      } catch (ClassNotFoundException e) {
+        fail("can't find class " + name + " to initialize");
+      } catch (ExceptionInInitializerError e) {
+        e.getCause().printStackTrace(System.out);
+        fail("class initializer of " + name + " failed: " + e.getCause());
+      }
+    }
+    for (String name : warmupMethods) {
+      int index = name.indexOf('#');
+      String className = name.substring(0, index);
+      String methodName = name.substring(index + 1);
+      if (BootImageWriter.verbosity().isAtLeast(SUMMARY)) say("warming up ", name);
+      try {
+        Method method = Class.forName(className).getDeclaredMethod(methodName);
+        if (!Modifier.isStatic(method.getModifiers())) {
+          fail("warm-up method " + name + " is not static");
+        }
+        method.setAccessible(true);
+        method.invoke(null);
+      } catch (ClassNotFoundException e) {
+        fail("can't find class " + className + " to warm up");
+      } catch (NoSuchMethodException e) {
+        fail("can't find warm-up method " + name + "()");
+      } catch (IllegalAccessException e) {
+        fail("can't call warm-up method " + name + ": " + e);
+      } catch (InvocationTargetException e) {
+        e.getCause().printStackTrace(System.out);
+        fail("warm-up method " + name + " failed: " + e.getCause());
+      }
+    }
+  }
+
+  /**
+   * Called for each object copied into the image. An instance of a class
+   * that is initialized at run time was created on the host, so the class
+   * isn't safe to leave uninitialized.
+   *
+   * @param rvmType type of the copied object
+   * @param parent the object that referred to it, or {@code null}
+   */
+  static void checkCopiedInstance(RVMType rvmType, Object parent) {
+    if (!rvmType.isClassType()) return;
+    RVMClass cls = rvmType.asClass();
+    if (cls.isInitializedAtRuntime() && reported.add(rvmType)) {
+      System.out.println("WARNING: instance of " + cls + ", which is initialized at run time, is in the boot image" +
+          (parent == null ? "" : " (referenced from a " + parent.getClass().getName() + ")"));
+    }
+  }
+}
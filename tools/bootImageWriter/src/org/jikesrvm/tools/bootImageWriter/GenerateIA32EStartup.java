@@ -26,8 +26,10 @@ public class GenerateIA32EStartup implements ProcessorStartup {
 	 * @param vmEntry pointer to VM.boot()
 	 * @param jtoc Jikes tables of classes
 	 * @param tid  thread id
+	 * @param compressedImage where the compressed image is loaded, or null
+	 *                        if the image isn't compressed
 	 */
-	public GenerateIA32EStartup(BootRecord bootRecord) {
+	public GenerateIA32EStartup(BootRecord bootRecord, Address compressedImage) {
 		int multibootEntry=1;
 		asm.setOrigin(X86_LOADADDR);
 		asm.emitJMP_Label(multibootEntry);
@@ -53,6 +55,11 @@ public class GenerateIA32EStartup implements ProcessorStartup {
         asm.align(0x40);
         // table containing system descriptors
         asm.resolveForwardReferences(multibootEntry);
+		// save the boot loader magic and multiboot information pointer
+		// before anything clobbers EAX and EBX
+		Address bootInfoSave = Address.fromIntZeroExtend(Multiboot.BOOT_INFO_SAVE);
+		asm.emitMOV_Abs_Reg(bootInfoSave, GPR.EAX);
+		asm.emitMOV_Abs_Reg(bootInfoSave.plus(4), GPR.EBX);
 		Address gdtTable = Address.fromIntZeroExtend(0x100810);
 		// gdt register info
 		Address gdtDesc = Address.fromIntZeroExtend(0x100800);
@@ -101,6 +108,10 @@ public class GenerateIA32EStartup implements ProcessorStartup {
 		asm.emitOUTB(0x21);
 		// io delay
 		asm.emitOUTB(0x80);
+		// unpack the image into place before anything uses it
+		if (compressedImage != null) {
+			asm.emitImageDecompressor(compressedImage);
+		}
 		/*
 		 * Setup PML4 table; pointer to PD PTE Table
 		 */
@@ -26,8 +26,10 @@ implements ProcessorStartup
 	 * @param vmEntry pointer to VM.boot()
 	 * @param jtoc Jikes tables of classes
 	 * @param tid  thread id
+	 * @param compressedImage where the compressed image is loaded, or null
+	 *                        if the image isn't compressed
 	 */
-	public GenerateX86Startup(BootRecord bootRecord) {
+	public GenerateX86Startup(BootRecord bootRecord, Address compressedImage) {
 		int multibootEntry=1;
 		asm.setOrigin(X86_LOADADDR);
 		asm.emitJMP_Label(multibootEntry);
@@ -74,6 +76,11 @@ implements ProcessorStartup
 		// should be at 0x100 for the multibootEntry
 		asm.resolveForwardReferences(multibootEntry);
 		// multiboot entry starts here
+		// save the boot loader magic and multiboot information pointer
+		// before anything clobbers EAX and EBX
+		Address bootInfoSave = Address.fromIntZeroExtend(Multiboot.BOOT_INFO_SAVE);
+		asm.emitMOV_Abs_Reg(bootInfoSave, GPR.EAX);
+		asm.emitMOV_Abs_Reg(bootInfoSave.plus(4), GPR.EBX);
 		// set the stack pointer
 		// asm.emitMOV_Reg_Imm(GPR.ESP, stack.toInt());
 		// reset coprocessor
@@ -94,6 +101,10 @@ implements ProcessorStartup
 		asm.emitOUTB(0x21);
 		// io delay
 		asm.emitOUTB(0x80);
+		// unpack the image into place before anything uses it
+		if (compressedImage != null) {
+			asm.emitImageDecompressor(compressedImage);
+		}
 		
         // enable protected mode; not needed for qemu -kernel option
 		// setup gdt
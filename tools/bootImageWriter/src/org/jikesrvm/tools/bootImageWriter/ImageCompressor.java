@@ -0,0 +1,153 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.jikesrvm.tools.bootImageWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+/**
+ * Compresses the boot image sections for the decompressor the startup code
+ * runs before anything else ({@link JamAssembler#emitImageDecompressor}).
+ * <p>
+ * Each section is cut into 64 KiB blocks and each block is compressed on its
+ * own in the LZ4 block format. The compressed image is a list of records
+ * <pre>
+ *   int  load address of the block
+ *   int  length of the compressed block
+ *   byte compressed block[length]
+ * </pre>
+ * ended by a record with length 0. All ints are little endian. Blocks that
+ * are all zero are left out as the loader clears the sections anyway.
+ */
+final class ImageCompressor {
+
+  static final int BLOCK_SIZE = 64 * 1024;
+
+  private static final int MIN_MATCH = 4;
+  private static final int MAX_OFFSET = 0xFFFF;
+  /** The last 5 bytes of a block are always literals */
+  private static final int LAST_LITERALS = 5;
+  /** No match may start in the last 12 bytes of a block */
+  private static final int MATCH_FIND_LIMIT = 12;
+  private static final int HASH_LOG = 14;
+
+  private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+  private final int[] hashTable = new int[1 << HASH_LOG];
+  private int uncompressedSize;
+
+  /**
+   * Add a section to the compressed image.
+   *
+   * @param address load address of the section
+   * @param data section contents
+   * @param length number of bytes of data to compress
+   */
+  void addSection(int address, byte[] data, int length) {
+    uncompressedSize += length;
+    for (int start = 0; start < length; start += BLOCK_SIZE) {
+      int end = Math.min(start + BLOCK_SIZE, length);
+      if (isZero(data, start, end)) continue;
+      ByteArrayOutputStream block = new ByteArrayOutputStream();
+      compressBlock(data, start, end, block);
+      writeInt(address + start);
+      writeInt(block.size());
+      out.write(block.toByteArray(), 0, block.size());
+    }
+  }
+
+  /**
+   * @return the compressed image, including the end record
+   */
+  byte[] finish() {
+    writeInt(0);
+    writeInt(0);
+    return out.toByteArray();
+  }
+
+  /**
+   * @return number of bytes added so far
+   */
+  int getUncompressedSize() {
+    return uncompressedSize;
+  }
+
+  private static boolean isZero(byte[] data, int start, int end) {
+    for (int i = start; i < end; i++) {
+      if (data[i] != 0) return false;
+    }
+    return true;
+  }
+
+  /**
+   * Greedy LZ4 compression of one block; matches never reach outside it
+   */
+  private void compressBlock(byte[] src, int start, int end, ByteArrayOutputStream block) {
+    Arrays.fill(hashTable, -1);
+    int anchor = start;
+    int matchLimit = end - LAST_LITERALS;
+    int i = start;
+    while (i < end - MATCH_FIND_LIMIT) {
+      int sequence = readInt(src, i);
+      int h = (sequence * -1640531535) >>> (32 - HASH_LOG);
+      int ref = hashTable[h];
+      hashTable[h] = i;
+      if (ref < 0 || i - ref > MAX_OFFSET || readInt(src, ref) != sequence) {
+        i++;
+        continue;
+      }
+      while (i > anchor && ref > start && src[i - 1] == src[ref - 1]) {
+        i--;
+        ref--;
+      }
+      int matchLength = MIN_MATCH;
+      while (i + matchLength < matchLimit && src[i + matchLength] == src[ref + matchLength]) {
+        matchLength++;
+      }
+      writeSequence(block, src, anchor, i - anchor, i - ref, matchLength);
+      i += matchLength;
+      anchor = i;
+    }
+    // the last sequence is literals only
+    writeSequence(block, src, anchor, end - anchor, 0, 0);
+  }
+
+  private static void writeSequence(ByteArrayOutputStream block, byte[] src, int literals, int literalLength,
+      int offset, int matchLength) {
+    int extraMatch = matchLength == 0 ? 0 : matchLength - MIN_MATCH;
+    block.write((Math.min(literalLength, 15) << 4) | Math.min(extraMatch, 15));
+    if (literalLength >= 15) writeLength(block, literalLength - 15);
+    block.write(src, literals, literalLength);
+    if (matchLength == 0) return;
+    block.write(offset);
+    block.write(offset >> 8);
+    if (extraMatch >= 15) writeLength(block, extraMatch - 15);
+  }
+
+  private static void writeLength(ByteArrayOutputStream block, int length) {
+    for (; length >= 255; length -= 255) {
+      block.write(255);
+    }
+    block.write(length);
+  }
+
+  private static int readInt(byte[] b, int i) {
+    return (b[i] & 0xFF) | (b[i + 1] & 0xFF) << 8 | (b[i + 2] & 0xFF) << 16 | (b[i + 3] & 0xFF) << 24;
+  }
+
+  private void writeInt(int v) {
+    out.write(v);
+    out.write(v >> 8);
+    out.write(v >> 16);
+    out.write(v >> 24);
+  }
+}
@@ -5,6 +5,10 @@ import org.jikesrvm.compilers.common.assembler.ForwardReference;
 import org.jikesrvm.compilers.common.assembler.ia32.Assembler;
 import org.jikesrvm.VM;
 import org.vmmagic.unboxed.Address;
+import org.vmmagic.unboxed.Offset;
+import static org.jikesrvm.compilers.common.assembler.ia32.AssemblerConstants.EQ;
+import static org.jikesrvm.compilers.common.assembler.ia32.AssemblerConstants.LGE;
+import static org.jikesrvm.compilers.common.assembler.ia32.AssemblerConstants.NE;
 import static org.jikesrvm.ia32.RegisterConstants.GPR;
 import static org.jikesrvm.ia32.RegisterConstants.CR;
 
@@ -13,6 +17,14 @@ public class JamAssembler extends Assembler {
 	public static enum SEG {
 		ES, CS, SS, DS, FS, GS;
 	}
+
+	/*
+	 * Labels used by emitImageDecompressor; keep clear of the ones used by
+	 * the startup code
+	 */
+	private static final int DECOMPRESS_DONE = 100;
+	private static final int DECOMPRESS_LITERALS = 101;
+	private static final int DECOMPRESS_MATCH = 102;
 	public JamAssembler(int bytecodeSize) {
 		super(bytecodeSize);
 	}
@@ -357,6 +369,103 @@ public class JamAssembler extends Assembler {
 			lister.RR(miStart, "MOV", dstReg, srcReg);
 		}
 	}
+	/**
+	 * Clear the direction flag so string instructions count up
+	 */
+	public void emitCLD() {
+		int miStart = mi;
+		setMachineCodes(mi++, (byte)0xfc);
+		if(lister != null) lister.OP(miStart, "CLD");
+	}
+
+	/**
+	 * Copy ECX bytes from [ESI] to [EDI], one byte at a time
+	 */
+	public void emitREP_MOVSB() {
+		int miStart = mi;
+		setMachineCodes(mi++, (byte)0xf3);
+		setMachineCodes(mi++, (byte)0xa4);
+		if(lister != null) lister.OP(miStart, "REP MOVSB");
+	}
+
+	/**
+	 * Store AL into ECX bytes starting at [EDI]
+	 */
+	public void emitREP_STOSB() {
+		int miStart = mi;
+		setMachineCodes(mi++, (byte)0xf3);
+		setMachineCodes(mi++, (byte)0xaa);
+		if(lister != null) lister.OP(miStart, "REP STOSB");
+	}
+
+	/**
+	 * Decompress an image written by {@link ImageCompressor} into its load
+	 * addresses, then clear the compressed image. Runs in 32 bit protected
+	 * mode with flat segments and needs no stack. Uses EAX, EBX, ECX, EDX,
+	 * EBP, ESI and EDI.
+	 *
+	 * @param image address the compressed image is loaded at
+	 */
+	public void emitImageDecompressor(Address image) {
+		emitCLD();
+		emitMOV_Reg_Imm(GPR.ESI, image.toInt());
+		// next block: EDI = load address, EDX = end of compressed block
+		int nextBlock = getMachineCodeIndex();
+		emitMOV_Reg_RegInd(GPR.EDI, GPR.ESI);
+		emitMOV_Reg_RegDisp(GPR.EDX, GPR.ESI, Offset.fromIntSignExtend(4));
+		emitADD_Reg_Imm(GPR.ESI, 8);
+		emitCMP_Reg_Imm(GPR.EDX, 0);
+		emitJCC_Cond_Label(EQ, DECOMPRESS_DONE);
+		emitADD_Reg_Reg(GPR.EDX, GPR.ESI);
+		// next sequence: EAX = token, ECX = literal length
+		int nextSequence = getMachineCodeIndex();
+		emitMOVZX_Reg_RegInd_Byte(GPR.EAX, GPR.ESI);
+		emitINC_Reg(GPR.ESI);
+		emitMOV_Reg_Reg(GPR.ECX, GPR.EAX);
+		emitSHR_Reg_Imm(GPR.ECX, 4);
+		emitCMP_Reg_Imm(GPR.ECX, 15);
+		emitJCC_Cond_Label(NE, DECOMPRESS_LITERALS);
+		int moreLiterals = getMachineCodeIndex();
+		emitMOVZX_Reg_RegInd_Byte(GPR.EBX, GPR.ESI);
+		emitINC_Reg(GPR.ESI);
+		emitADD_Reg_Reg(GPR.ECX, GPR.EBX);
+		emitCMP_Reg_Imm(GPR.EBX, 255);
+		emitJCC_Cond_Imm(EQ, moreLiterals);
+		resolveForwardReferences(DECOMPRESS_LITERALS);
+		emitREP_MOVSB();
+		// a block ends with literals
+		emitCMP_Reg_Reg(GPR.ESI, GPR.EDX);
+		emitJCC_Cond_Imm(LGE, nextBlock);
+		// EBX = match offset, EAX = match length - 4
+		emitMOVZX_Reg_RegInd_Word(GPR.EBX, GPR.ESI);
+		emitADD_Reg_Imm(GPR.ESI, 2);
+		emitAND_Reg_Imm(GPR.EAX, 15);
+		emitCMP_Reg_Imm(GPR.EAX, 15);
+		emitJCC_Cond_Label(NE, DECOMPRESS_MATCH);
+		int moreMatch = getMachineCodeIndex();
+		emitMOVZX_Reg_RegInd_Byte(GPR.ECX, GPR.ESI);
+		emitINC_Reg(GPR.ESI);
+		emitADD_Reg_Reg(GPR.EAX, GPR.ECX);
+		emitCMP_Reg_Imm(GPR.ECX, 255);
+		emitJCC_Cond_Imm(EQ, moreMatch);
+		resolveForwardReferences(DECOMPRESS_MATCH);
+		// copy from the output a byte at a time, matches may overlap themselves
+		emitLEA_Reg_RegDisp(GPR.ECX, GPR.EAX, Offset.fromIntSignExtend(4));
+		emitMOV_Reg_Reg(GPR.EBP, GPR.ESI);
+		emitMOV_Reg_Reg(GPR.ESI, GPR.EDI);
+		emitSUB_Reg_Reg(GPR.ESI, GPR.EBX);
+		emitREP_MOVSB();
+		emitMOV_Reg_Reg(GPR.ESI, GPR.EBP);
+		emitJMP_Imm(nextSequence);
+		resolveForwardReferences(DECOMPRESS_DONE);
+		// leave the memory the compressed image used as the loader would
+		emitMOV_Reg_Reg(GPR.ECX, GPR.ESI);
+		emitMOV_Reg_Imm(GPR.EDI, image.toInt());
+		emitSUB_Reg_Reg(GPR.ECX, GPR.EDI);
+		emitXOR_Reg_Reg(GPR.EAX, GPR.EAX);
+		emitREP_STOSB();
+	}
+
 	/**
 	 * Provide access to Assembler.emitImm16() function.
 	 */
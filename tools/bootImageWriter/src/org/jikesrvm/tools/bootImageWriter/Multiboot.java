@@ -23,6 +23,12 @@ public class Multiboot {
 	public final static int BOOT_AOUTSYMS_FLAG 	= 0x0010;
 	public final static int BOOT_ELFSYMS_FLAG 	= 0x0020;
 	public final static int BOOT_MEMMAP_FLAG 	= 0x0040;
+	/*
+	 * The startup code saves the boot loader magic (EAX) here and the
+	 * multiboot information pointer (EBX) in the word after it. It must
+	 * agree with org.jam.board.pc.Multiboot.
+	 */
+	public final static int BOOT_INFO_SAVE		= 0x100900;
 	
 	// flags for the header file
 	public static final int HEADER_ALIGN4K_FLAG 	= 0x00001;
@@ -0,0 +1,628 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.jikesrvm.tools.bootImageWriter;
+
+import static org.jikesrvm.classloader.BytecodeConstants.*;
+import static org.jikesrvm.classloader.ConstantPool.CP_CLASS;
+import static org.jikesrvm.classloader.ConstantPool.CP_STRING;
+import static org.jikesrvm.tools.bootImageWriter.BootImageWriterMessages.say;
+import static org.jikesrvm.tools.bootImageWriter.Verbosity.DETAILED;
+import static org.jikesrvm.tools.bootImageWriter.Verbosity.SUMMARY;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.LineNumberReader;
+import java.io.PrintStream;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+
+import org.jikesrvm.classloader.Atom;
+import org.jikesrvm.classloader.BytecodeStream;
+import org.jikesrvm.classloader.ExceptionHandlerMap;
+import org.jikesrvm.classloader.FieldReference;
+import org.jikesrvm.classloader.MethodReference;
+import org.jikesrvm.classloader.NormalMethod;
+import org.jikesrvm.classloader.RVMArray;
+import org.jikesrvm.classloader.RVMClass;
+import org.jikesrvm.classloader.RVMField;
+import org.jikesrvm.classloader.RVMMethod;
+import org.jikesrvm.classloader.RVMType;
+import org.jikesrvm.classloader.TypeReference;
+
+/**
+ * Whole program reachability over the types listed for the boot image
+ * (rapid type analysis). Starting from the boot entry points, methods are
+ * scanned for the types they mention, the classes they instantiate and the
+ * methods they call; virtual calls are dispatched only to instantiated
+ * types. The static fields of every reached class are followed into the
+ * host heap, since those objects are copied into the image and their
+ * types must be present too.<p>
+ *
+ * The roots are:
+ * <ul>
+ *   <li>{@code VM.boot} and the {@code StartUp} methods that run programs
+ *   <li>methods annotated with {@code @InterruptHandler}
+ *   <li>methods and fields held in static fields of reached classes, which is
+ *       how {@code Entrypoints} hands them to the compilers and runtime
+ *   <li>the {@link #ROOT_CLASSES}, whose methods are called from outside Java
+ *   <li>classes named by string literals in reached code (e.g.
+ *       {@code VM.runClassInitializer("...")} or {@code StartUp.runMain("...")}):
+ *       their class initializer, constructors, {@code main} and {@code run}
+ *   <li>any extra roots read from a file, see {@link #readRoots(String)}
+ * </ul>
+ *
+ * Types that are not reached are left out of the boot image. Optionally the
+ * unreached interruptible methods of the remaining classes are left to the
+ * lazy compilation trampoline instead of being compiled into the image.
+ */
+public class ReachabilityAnalysis {
+
+  /**
+   * Classes whose methods are all roots because they are called from native
+   * code or from generated machine code rather than from Java.
+   */
+  private static final String[] ROOT_CLASSES = {
+    "org.jikesrvm.runtime.Entrypoints",
+    "org.jikesrvm.runtime.ArchEntrypoints",
+    "org.jikesrvm.jni.JNIFunctions",
+    "org.jam.runtime.StartUp",
+  };
+
+  private static final String BOOT_CLASS = "org.jikesrvm.VM";
+  private static final Atom BOOT_METHOD = Atom.findOrCreateAsciiAtom("boot");
+  private static final Atom MAIN_METHOD = Atom.findOrCreateAsciiAtom("main");
+  private static final Atom RUN_METHOD = Atom.findOrCreateAsciiAtom("run");
+
+  /** Types read from the type names file, keyed by host class name */
+  private final HashMap<String, RVMType> candidates;
+  /** Reached types and the reason each one was first reached */
+  private final HashMap<RVMType, String> reachableTypes = new HashMap<RVMType, String>();
+  private final HashSet<RVMClass> instantiated = new HashSet<RVMClass>();
+  private final HashMap<RVMMethod, String> reachableMethods = new HashMap<RVMMethod, String>();
+  /** Virtual call selectors seen so far, by the class they were invoked on */
+  private final HashMap<RVMClass, HashSet<Selector>> virtualCalls = new HashMap<RVMClass, HashSet<Selector>>();
+  private final LinkedList<RVMMethod> methodQueue = new LinkedList<RVMMethod>();
+  private final LinkedList<RVMClass> classQueue = new LinkedList<RVMClass>();
+  private final LinkedList<Object> objectQueue = new LinkedList<Object>();
+  private final IdentityHashMap<Object, Object> visitedObjects = new IdentityHashMap<Object, Object>();
+  private final HashMap<Class<?>, Field[]> hostFields = new HashMap<Class<?>, Field[]>();
+  /** Methods that were not compiled into the image */
+  private final ArrayList<RVMMethod> deferredMethods = new ArrayList<RVMMethod>();
+
+  /** A method name and descriptor, the key of virtual dispatch */
+  private static final class Selector {
+    final Atom name;
+    final Atom descriptor;
+
+    Selector(Atom name, Atom descriptor) {
+      this.name = name;
+      this.descriptor = descriptor;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof Selector)) return false;
+      Selector s = (Selector) other;
+      return name == s.name && descriptor == s.descriptor;
+    }
+
+    @Override
+    public int hashCode() {
+      return name.hashCode() * 31 + descriptor.hashCode();
+    }
+  }
+
+  /**
+   * @param candidates the types read from the type names file keyed by
+   *  host class name, i.e. the keys used by {@code BootImageTypes}
+   */
+  public ReachabilityAnalysis(Map<String, RVMType> candidates) {
+    this.candidates = new HashMap<String, RVMType>(candidates);
+  }
+
+  /**
+   * Read extra roots. Each line names a class, making all its methods roots,
+   * or a class and a method name separated by {@code #}, e.g.
+   * {@code org.jam.tests.Hello#main}. Text after {@code //} is ignored.
+   *
+   * @param fileName the roots file
+   * @throws IOException if the file can't be read
+   */
+  public void readRoots(String fileName) throws IOException {
+    LineNumberReader in = new LineNumberReader(new FileReader(fileName));
+    String line;
+    while ((line = in.readLine()) != null) {
+      int index = line.indexOf("//");
+      if (index >= 0) line = line.substring(0, index);
+      line = line.trim();
+      if (line.length() == 0) continue;
+      String className = line;
+      String methodName = null;
+      index = line.indexOf('#');
+      if (index >= 0) {
+        className = line.substring(0, index);
+        methodName = line.substring(index + 1);
+      }
+      RVMType type = candidates.get(className);
+      if (type == null || !type.isClassType()) {
+        say(fileName + ":" + in.getLineNumber() + ": " + className + " is not a boot image class");
+        continue;
+      }
+      for (RVMMethod method : type.asClass().getDeclaredMethods()) {
+        if (methodName == null || method.getName().toString().equals(methodName)) {
+          markMethod(method, "listed in " + fileName);
+        }
+      }
+    }
+    in.close();
+  }
+
+  /**
+   * Find everything reachable from the roots.
+   */
+  public void run() {
+    RVMType boot = candidates.get(BOOT_CLASS);
+    if (boot != null) {
+      for (RVMMethod method : boot.asClass().getDeclaredMethods()) {
+        if (method.getName() == BOOT_METHOD) markMethod(method, "boot entry point");
+      }
+    }
+    for (String name : ROOT_CLASSES) {
+      RVMType type = candidates.get(name);
+      if (type == null) continue;
+      for (RVMMethod method : type.asClass().getDeclaredMethods()) {
+        if (!method.isClassInitializer()) markMethod(method, "root class");
+      }
+    }
+    for (RVMType type : candidates.values()) {
+      if (!type.isClassType()) continue;
+      for (RVMMethod method : type.asClass().getDeclaredMethods()) {
+        if (method.hasInterruptHandlerAnnotation()) markMethod(method, "interrupt handler");
+      }
+    }
+    while (!methodQueue.isEmpty() || !classQueue.isEmpty() || !objectQueue.isEmpty()) {
+      if (!methodQueue.isEmpty()) {
+        scanMethod(methodQueue.removeFirst());
+      } else if (!classQueue.isEmpty()) {
+        scanStatics(classQueue.removeFirst());
+      } else {
+        scanObject(objectQueue.removeFirst());
+      }
+    }
+    if (BootImageWriter.verbosity().isAtLeast(SUMMARY)) {
+      say("reachability: " + reachableTypes.size() + " of " + candidates.size() + " types, " +
+          reachableMethods.size() + " methods, " + instantiated.size() + " instantiated classes");
+    }
+  }
+
+  /**
+   * @param type a type from the type names file
+   * @return whether the type belongs in the boot image
+   */
+  public boolean isReachable(RVMType type) {
+    if (type.isPrimitiveType() || type.isUnboxedType()) return true;
+    if (type.isArrayType()) {
+      return isReachable(type.asArray().getInnermostElementType());
+    }
+    return reachableTypes.containsKey(type);
+  }
+
+  /**
+   * Leave the unreached methods of reached classes to the lazy compilation
+   * trampoline. Only interruptible methods are deferred since compiling
+   * at run time may need to allocate and yield.
+   */
+  public void deferUnreachableMethods() {
+    for (RVMType type : reachableTypes.keySet()) {
+      if (!type.isClassType()) continue;
+      for (RVMMethod method : type.asClass().getDeclaredMethods()) {
+        if (reachableMethods.containsKey(method) || method.isAbstract() || method.isNative() ||
+            method.isClassInitializer() || !method.isInterruptible()) {
+          continue;
+        }
+        method.deferCompilation();
+        deferredMethods.add(method);
+      }
+    }
+    if (BootImageWriter.verbosity().isAtLeast(SUMMARY)) {
+      say("reachability: " + deferredMethods.size() + " methods deferred to lazy compilation");
+    }
+  }
+
+  /**
+   * Write what was removed and why, and why each remaining type was kept.
+   *
+   * @param out where to write the report
+   */
+  public void report(PrintStream out) {
+    HashMap<RVMType, RVMMethod> referencedFrom = unreachableReferences();
+    ArrayList<String> lines = new ArrayList<String>();
+    for (Map.Entry<String, RVMType> entry : candidates.entrySet()) {
+      RVMType type = entry.getValue();
+      if (isReachable(type)) continue;
+      RVMMethod from = referencedFrom.get(type);
+      if (from != null) {
+        lines.add(entry.getKey() + "  only referenced from unreachable " + from);
+      } else {
+        lines.add(entry.getKey() + "  not referenced");
+      }
+    }
+    Collections.sort(lines);
+    out.println("Removed types (" + lines.size() + "):");
+    for (String line : lines) out.println("  " + line);
+
+    lines.clear();
+    for (RVMMethod method : deferredMethods) {
+      lines.add(method.toString());
+    }
+    Collections.sort(lines);
+    out.println();
+    out.println("Methods left to lazy compilation (" + lines.size() + "):");
+    for (String line : lines) out.println("  " + line);
+
+    lines.clear();
+    for (Map.Entry<RVMType, String> entry : reachableTypes.entrySet()) {
+      lines.add(entry.getKey() + "  " + entry.getValue());
+    }
+    Collections.sort(lines);
+    out.println();
+    out.println("Kept types (" + lines.size() + "):");
+    for (String line : lines) out.println("  " + line);
+  }
+
+  /*
+   * Marking
+   */
+
+  private void markTypeRef(TypeReference tRef, String reason) {
+    if (tRef == null) return;
+    if (tRef.isArrayType()) {
+      markTypeRef(tRef.getInnermostElementType(), reason);
+      return;
+    }
+    RVMType type = tRef.peekType();
+    if (type != null) markType(type, reason);
+  }
+
+  private void markType(RVMType type, String reason) {
+    if (type.isArrayType()) {
+      markType(type.asArray().getInnermostElementType(), reason);
+      return;
+    }
+    if (!type.isClassType() || reachableTypes.containsKey(type)) return;
+    reachableTypes.put(type, reason);
+    RVMClass cls = type.asClass();
+    if (BootImageWriter.verbosity().isAtLeast(DETAILED)) say("reachable " + cls + ": " + reason);
+    RVMClass superClass = cls.getSuperClass();
+    if (superClass != null) markType(superClass, "superclass of " + cls);
+    for (RVMClass iface : cls.getDeclaredInterfaces()) {
+      markType(iface, "interface of " + cls);
+    }
+    if (cls.isInitializedAtRuntime() && cls.getClassInitializerMethod() != null) {
+      markMethod(cls.getClassInitializerMethod(), "initialized at run time");
+    }
+    classQueue.add(cls);
+  }
+
+  private void markMethod(RVMMethod method, String reason) {
+    if (reachableMethods.containsKey(method)) return;
+    reachableMethods.put(method, reason);
+    markType(method.getDeclaringClass(), "declares " + method);
+    methodQueue.add(method);
+  }
+
+  private void instantiate(RVMClass cls, String reason) {
+    markType(cls, reason);
+    if (cls.isInterface() || cls.isAbstract() || !instantiated.add(cls)) return;
+    // dispatch the calls already seen on any of its supertypes
+    for (Map.Entry<RVMClass, HashSet<Selector>> entry : virtualCalls.entrySet()) {
+      if (isSubtype(cls, entry.getKey())) {
+        for (Selector selector : entry.getValue()) {
+          dispatch(cls, selector);
+        }
+      }
+    }
+  }
+
+  private void virtualCall(RVMClass receiver, Selector selector, String caller) {
+    HashSet<Selector> selectors = virtualCalls.get(receiver);
+    if (selectors == null) {
+      selectors = new HashSet<Selector>();
+      virtualCalls.put(receiver, selectors);
+    }
+    if (!selectors.add(selector)) return;
+    RVMMethod declared = lookup(receiver, selector);
+    if (declared != null && !declared.isAbstract()) markMethod(declared, "called from " + caller);
+    for (RVMClass cls : new ArrayList<RVMClass>(instantiated)) {
+      if (isSubtype(cls, receiver)) dispatch(cls, selector);
+    }
+  }
+
+  private void dispatch(RVMClass cls, Selector selector) {
+    RVMMethod target = lookup(cls, selector);
+    if (target != null && !target.isAbstract() && !target.isStatic()) {
+      markMethod(target, "dispatched on " + cls);
+    }
+  }
+
+  private static RVMMethod lookup(RVMClass cls, Selector selector) {
+    for (RVMClass c = cls; c != null; c = c.getSuperClass()) {
+      RVMMethod method = c.findDeclaredMethod(selector.name, selector.descriptor);
+      if (method != null) return method;
+    }
+    return null;
+  }
+
+  private static boolean isSubtype(RVMClass cls, RVMClass superType) {
+    if (cls == superType) return true;
+    if (superType.isInterface()) {
+      for (RVMClass c = cls; c != null; c = c.getSuperClass()) {
+        for (RVMClass iface : c.getDeclaredInterfaces()) {
+          if (isSubtype(iface, superType)) return true;
+        }
+      }
+      return false;
+    }
+    for (RVMClass c = cls.getSuperClass(); c != null; c = c.getSuperClass()) {
+      if (c == superType) return true;
+    }
+    return false;
+  }
+
+  /*
+   * Scanning
+   */
+
+  private void scanMethod(RVMMethod method) {
+    if (method.isAbstract() || method.isNative() || !(method instanceof NormalMethod)) return;
+    NormalMethod normal = (NormalMethod) method;
+    String caller = method.toString();
+    ExceptionHandlerMap handlers = normal.getExceptionHandlerMap();
+    if (handlers != null) {
+      for (TypeReference tRef : handlers.getExceptionTypes()) {
+        markTypeRef(tRef, "caught in " + caller);
+      }
+    }
+    BytecodeStream bcodes = normal.getBytecodes();
+    while (bcodes.hasMoreBytecodes()) {
+      int opcode = bcodes.nextInstruction();
+      switch (opcode) {
+        case JBC_new: {
+          TypeReference tRef = bcodes.getTypeReference();
+          RVMType type = tRef.peekType();
+          if (type != null && type.isClassType()) instantiate(type.asClass(), "allocated in " + caller);
+          break;
+        }
+        case JBC_anewarray:
+        case JBC_checkcast:
+        case JBC_instanceof:
+          markTypeRef(bcodes.getTypeReference(), "used in " + caller);
+          break;
+        case JBC_multianewarray:
+          markTypeRef(bcodes.getTypeReference(), "used in " + caller);
+          bcodes.getArrayDimension();
+          break;
+        case JBC_getstatic:
+        case JBC_putstatic:
+        case JBC_getfield:
+        case JBC_putfield: {
+          FieldReference fRef = bcodes.getFieldReference();
+          markTypeRef(fRef.getType(), "field accessed in " + caller);
+          markTypeRef(fRef.getFieldContentsType(), "field accessed in " + caller);
+          break;
+        }
+        case JBC_invokestatic:
+        case JBC_invokespecial: {
+          MethodReference mRef = bcodes.getMethodReference();
+          RVMType type = mRef.getType().peekType();
+          if (type != null && type.isClassType()) {
+            RVMMethod target = lookup(type.asClass(), new Selector(mRef.getName(), mRef.getDescriptor()));
+            if (target != null) markMethod(target, "called from " + caller);
+          }
+          break;
+        }
+        case JBC_invokevirtual:
+        case JBC_invokeinterface: {
+          MethodReference mRef = bcodes.getMethodReference();
+          if (opcode == JBC_invokeinterface) bcodes.alignInvokeInterface();
+          RVMType type = mRef.getType().peekType();
+          if (type != null && type.isClassType()) {
+            markType(type, "called from " + caller);
+            virtualCall(type.asClass(), new Selector(mRef.getName(), mRef.getDescriptor()), caller);
+          }
+          break;
+        }
+        case JBC_ldc:
+        case JBC_ldc_w: {
+          int index = opcode == JBC_ldc ? bcodes.getConstantIndex() : bcodes.getWideConstantIndex();
+          byte type = bcodes.getConstantType(index);
+          if (type == CP_CLASS) {
+            markTypeRef(bcodes.getDeclaringClass().getTypeRef(index), "class literal in " + caller);
+          } else if (type == CP_STRING) {
+            namedClass(bcodes.getStringConstant(index), caller);
+          }
+          break;
+        }
+        default:
+          bcodes.skipInstruction();
+          break;
+      }
+    }
+  }
+
+  /**
+   * A string literal that names a boot image class is taken to be a
+   * reflective use of that class.
+   */
+  private void namedClass(String name, String caller) {
+    if (name == null || name.indexOf('.') < 0) return;
+    RVMType type = candidates.get(name);
+    if (type == null || !type.isClassType()) return;
+    RVMClass cls = type.asClass();
+    String reason = "named in " + caller;
+    instantiate(cls, reason);
+    for (RVMMethod method : cls.getDeclaredMethods()) {
+      if (method.isClassInitializer() || method.isObjectInitializer() ||
+          method.getName() == MAIN_METHOD || method.getName() == RUN_METHOD) {
+        markMethod(method, reason);
+      }
+    }
+  }
+
+  /**
+   * Follow the static fields of a class into the host heap. Methods and
+   * fields stored directly in static fields are roots.
+   */
+  private void scanStatics(RVMClass cls) {
+    if (cls.isInitializedAtRuntime()) return;
+    Class<?> jdkType;
+    try {
+      jdkType = Class.forName(cls.toString());
+    } catch (Throwable t) {
+      // not present on the host; nothing will be copied from it
+      return;
+    }
+    String reason = "static data of " + cls;
+    for (RVMField field : cls.getDeclaredFields()) {
+      if (!field.isStatic() || !field.isReferenceType()) continue;
+      Object value;
+      try {
+        Field f = jdkType.getDeclaredField(field.getName().toString());
+        f.setAccessible(true);
+        value = f.get(null);
+      } catch (Throwable t) {
+        continue;
+      }
+      if (value instanceof RVMMethod) {
+        markMethod((RVMMethod) value, reason);
+      } else if (value instanceof RVMField) {
+        markType(((RVMField) value).getDeclaringClass(), reason);
+      } else if (value instanceof RVMType) {
+        markType((RVMType) value, reason);
+      }
+      reachObject(value);
+    }
+  }
+
+  private void reachObject(Object object) {
+    if (object == null || visitedObjects.containsKey(object)) return;
+    visitedObjects.put(object, object);
+    objectQueue.add(object);
+  }
+
+  private void scanObject(Object object) {
+    Class<?> jdkType = object.getClass();
+    RVMType type = candidates.get(jdkType.getName());
+    if (type == null) {
+      // not copied into the image so neither is anything it refers to
+      return;
+    }
+    if (type.isArrayType()) {
+      markType(type, "array in boot image data");
+      if (!jdkType.getComponentType().isPrimitive()) {
+        for (int i = 0, n = Array.getLength(object); i < n; i++) {
+          reachObject(Array.get(object, i));
+        }
+      }
+      return;
+    }
+    instantiate(type.asClass(), "instance in boot image data");
+    for (Field f : instanceFields(jdkType)) {
+      try {
+        reachObject(f.get(object));
+      } catch (Throwable t) {
+        // inaccessible host field; the writer will not see it either
+      }
+    }
+  }
+
+  private Field[] instanceFields(Class<?> jdkType) {
+    Field[] fields = hostFields.get(jdkType);
+    if (fields != null) return fields;
+    ArrayList<Field> list = new ArrayList<Field>();
+    for (Class<?> c = jdkType; c != null; c = c.getSuperclass()) {
+      for (Field f : c.getDeclaredFields()) {
+        if (Modifier.isStatic(f.getModifiers()) || f.getType().isPrimitive()) continue;
+        try {
+          f.setAccessible(true);
+          list.add(f);
+        } catch (RuntimeException e) {
+          // skip fields the host will not let us read
+        }
+      }
+    }
+    fields = list.toArray(new Field[list.size()]);
+    hostFields.put(jdkType, fields);
+    return fields;
+  }
+
+  /**
+   * For the report: find an unreachable method of a kept class that refers
+   * to each removed type.
+   */
+  private HashMap<RVMType, RVMMethod> unreachableReferences() {
+    HashMap<RVMType, RVMMethod> from = new HashMap<RVMType, RVMMethod>();
+    for (RVMType type : reachableTypes.keySet()) {
+      for (RVMMethod method : type.asClass().getDeclaredMethods()) {
+        if (reachableMethods.containsKey(method) || !(method instanceof NormalMethod) || method.isAbstract()) continue;
+        BytecodeStream bcodes = ((NormalMethod) method).getBytecodes();
+        while (bcodes.hasMoreBytecodes()) {
+          int opcode = bcodes.nextInstruction();
+          TypeReference tRef = null;
+          switch (opcode) {
+            case JBC_new:
+            case JBC_anewarray:
+            case JBC_checkcast:
+            case JBC_instanceof:
+              tRef = bcodes.getTypeReference();
+              break;
+            case JBC_multianewarray:
+              tRef = bcodes.getTypeReference();
+              bcodes.getArrayDimension();
+              break;
+            case JBC_getstatic:
+            case JBC_putstatic:
+            case JBC_getfield:
+            case JBC_putfield:
+              tRef = bcodes.getFieldReference().getType();
+              break;
+            case JBC_invokestatic:
+            case JBC_invokespecial:
+            case JBC_invokevirtual:
+              tRef = bcodes.getMethodReference().getType();
+              break;
+            case JBC_invokeinterface:
+              tRef = bcodes.getMethodReference().getType();
+              bcodes.alignInvokeInterface();
+              break;
+            default:
+              bcodes.skipInstruction();
+              break;
+          }
+          if (tRef == null) continue;
+          RVMType referenced = tRef.getInnermostElementType().peekType();
+          if (referenced != null && !from.containsKey(referenced)) from.put(referenced, method);
+        }
+      }
+    }
+    return from;
+  }
+}
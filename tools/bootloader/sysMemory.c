@@ -257,6 +257,19 @@ EXTERNAL int sysMProtect(char *start, size_t length, int prot)
   return mprotect(start, length, prot);
 }
 
+/**
+ * munmap.
+ * Taken:     start address (Java ADDRESS)
+ *            length of region (Java EXTENT)
+ * Returned:  0 (success) or -1 (failure) (Java int)
+ */
+EXTERNAL int sysMUnmap(char *start, size_t length)
+{
+  TRACE_PRINTF("%s: sysMUnmap %p %zu\n",
+               Me, start, length);
+  return munmap(start, length);
+}
+
 /** Memory to memory copy. Memory regions must not overlap. */
 EXTERNAL void sysCopy(void *dst, const void *src, Extent cnt)
 {